@@ -0,0 +1,531 @@
+/*
+ *     plethonian-webapp - Plethonian calendar Web Application
+ *
+ *     Copyright (C) 2020 Marco Confalonieri <marco at marcoconfalonieri.it>
+ *
+ *     This program is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU Affero General Public License as published
+ *     by the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     This program is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU Affero General Public License for more details.
+ *
+ *     You should have received a copy of the GNU Affero General Public License
+ *     along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package it.marcoconfalonieri.plethonian.assets;
+
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.zip.Deflater;
+import java.util.zip.GZIPOutputStream;
+import javax.imageio.IIOImage;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageWriteParam;
+import javax.imageio.ImageWriter;
+import javax.imageio.stream.ImageOutputStream;
+import org.apache.maven.plugin.logging.Log;
+
+/**
+ * Build step processing the static assets of the web application. Each
+ * asset is copied to a name with a fingerprint of its content, so that it
+ * can be cached forever, and the references of the style sheets are
+ * rewritten to the fingerprinted names before they are fingerprinted in
+ * turn. Beside each file it writes a gzip variant, a Brotli variant when
+ * the command is available and, for the images, a WebP one when an image
+ * writer for it is on the class path, keeping only the variants that are
+ * smaller. The result is described by a manifest in the format read by the
+ * {@code AssetManifest} of the web application.
+ * <p>
+ * The pipeline runs in the build, through {@link ProcessAssetsMojo}, and
+ * reports to the log of the build.
+ */
+public final class AssetPipeline {
+    /**
+     * Path of the manifest inside the web application.
+     */
+    static final String MANIFEST_PATH = "/WEB-INF/assets.properties";
+    /**
+     * Prefix of the keys mapping the source paths.
+     */
+    static final String SOURCE_PREFIX = "source.";
+    /**
+     * Prefix of the keys listing the variants.
+     */
+    static final String VARIANTS_PREFIX = "variants.";
+    /**
+     * Content type of the WebP images.
+     */
+    private static final String WEBP_TYPE = "image/webp";
+    /**
+     * Number of hexadecimal digits of the fingerprints.
+     */
+    static final int FINGERPRINT_LENGTH = 10;
+    /**
+     * Largest share of the original length a variant is kept at.
+     */
+    private static final double MAX_RATIO = 0.9;
+    /**
+     * Quality of the lossy WebP images.
+     */
+    private static final float WEBP_QUALITY = 0.8f;
+    /**
+     * Compression type of the lossless WebP images.
+     */
+    private static final String WEBP_LOSSLESS = "Lossless";
+    /**
+     * Compression type of the lossy WebP images.
+     */
+    private static final String WEBP_LOSSY = "Lossy";
+    /**
+     * References in the style sheets.
+     */
+    private static final Pattern CSS_URL =
+            Pattern.compile("url\\(\\s*(['\"]?)([^'\")]+)\\1\\s*\\)");
+    /**
+     * Hexadecimal digits.
+     */
+    private static final char[] HEX = "0123456789abcdef".toCharArray();
+
+    /**
+     * Variant of an asset, with the token naming it in the manifest and the
+     * suffix of its file, as in the manifest of the web application.
+     */
+    enum Variant {
+        IDENTITY("identity", ""),
+        BROTLI("br", ".br"),
+        GZIP("gzip", ".gz"),
+        WEBP("webp", ".webp");
+
+        private final String token;
+        private final String suffix;
+
+        Variant(String token, String suffix) {
+            this.token = token;
+            this.suffix = suffix;
+        }
+
+        String getToken() {
+            return token;
+        }
+
+        String getSuffix() {
+            return suffix;
+        }
+    }
+
+    /**
+     * Log of the build.
+     */
+    private final Log log;
+    /**
+     * Directory of the web application.
+     */
+    private final Path webappDir;
+    /**
+     * Output directory.
+     */
+    private final Path outputDir;
+    /**
+     * Brotli command, or null if not available.
+     */
+    private String brotli;
+    /**
+     * WebP image writer, or null if not available.
+     */
+    private final ImageWriter webpWriter;
+    /**
+     * Fingerprinted paths by source path.
+     */
+    private final Map<String, String> paths = new TreeMap<>();
+    /**
+     * Lengths of the variants by fingerprinted path.
+     */
+    private final Map<String, Map<Variant, Integer>> variants =
+            new TreeMap<>();
+
+    /**
+     * Constructor.
+     *
+     * @param webappDir the directory of the web application
+     * @param outputDir the output directory
+     * @param brotli the Brotli command, or null to disable it
+     * @param log the log of the build
+     */
+    public AssetPipeline(Path webappDir, Path outputDir, String brotli,
+            Log log) {
+        this.log = log;
+        this.webappDir = webappDir;
+        this.outputDir = outputDir;
+        this.brotli = brotli;
+        ImageIO.scanForPlugins();
+        Iterator<ImageWriter> writers =
+                ImageIO.getImageWritersByMIMEType(WEBP_TYPE);
+        this.webpWriter = writers.hasNext() ? writers.next() : null;
+        if (webpWriter == null) {
+            log.warn("WebP variants disabled: no image writer");
+        }
+    }
+
+    /**
+     * Returns the fingerprint of some content: the first digits of its
+     * SHA-256 digest.
+     *
+     * @param data the content
+     *
+     * @return the fingerprint
+     */
+    static String fingerprint(byte[] data) {
+        byte[] digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256").digest(data);
+        } catch (NoSuchAlgorithmException ex) {
+            // Every Java platform supports SHA-256.
+            throw new IllegalStateException(ex);
+        }
+        char[] chars = new char[FINGERPRINT_LENGTH];
+        for (int i = 0; i < chars.length; i++) {
+            int b = digest[i / 2] >> ((i % 2 == 0) ? 4 : 0);
+            chars[i] = HEX[b & 0xf];
+        }
+        return new String(chars);
+    }
+
+    /**
+     * Inserts a fingerprint before the extension of a path.
+     *
+     * @param path the path
+     * @param fingerprint the fingerprint
+     *
+     * @return the fingerprinted path
+     *
+     * @throws IllegalArgumentException if the path has no extension
+     */
+    static String fingerprinted(String path, String fingerprint) {
+        int slash = path.lastIndexOf('/');
+        int dot = path.lastIndexOf('.');
+        if (dot <= slash + 1) {
+            throw new IllegalArgumentException("No extension: " + path);
+        }
+        return path.substring(0, dot) + "." + fingerprint +
+                path.substring(dot);
+    }
+
+    /**
+     * Returns the extension of a path, in lower case.
+     *
+     * @param path the path
+     *
+     * @return the extension, or an empty string
+     */
+    private static String extension(String path) {
+        int dot = path.lastIndexOf('.');
+        return (dot > path.lastIndexOf('/')) ?
+                path.substring(dot + 1).toLowerCase() : "";
+    }
+
+    /**
+     * Resolves a reference against the path of the referring asset.
+     *
+     * @param base the path of the referring asset
+     * @param ref the reference
+     *
+     * @return the path of the referenced asset, or null if it is not a local
+     *     one
+     */
+    static String resolve(String base, String ref) {
+        if (ref.startsWith("data:") || ref.startsWith("#") ||
+                ref.contains("//")) {
+            return null;
+        }
+        String path = ref.startsWith("/") ? ref :
+                base.substring(0, base.lastIndexOf('/') + 1) + ref;
+        List<String> segments = new ArrayList<>();
+        for (String s : path.split("/")) {
+            if (s.equals("..")) {
+                if (segments.isEmpty()) {
+                    return null;
+                }
+                segments.remove(segments.size() - 1);
+            } else if (!s.isEmpty() && !s.equals(".")) {
+                segments.add(s);
+            }
+        }
+        return "/" + String.join("/", segments);
+    }
+
+    /**
+     * Rewrites the references of a style sheet to the fingerprinted assets,
+     * keeping them relative.
+     *
+     * @param path the path of the style sheet
+     * @param css the style sheet
+     *
+     * @return the rewritten style sheet
+     */
+    String rewriteCss(String path, String css) {
+        Matcher m = CSS_URL.matcher(css);
+        StringBuilder sb = new StringBuilder();
+        while (m.find()) {
+            String ref = m.group(2).strip();
+            String target = resolve(path, ref);
+            String replacement = m.group();
+            if (target != null && paths.containsKey(target)) {
+                String mapped = paths.get(target);
+                replacement = "url(" + m.group(1) +
+                        ref.substring(0, ref.lastIndexOf('/') + 1) +
+                        mapped.substring(mapped.lastIndexOf('/') + 1) +
+                        m.group(1) + ")";
+            }
+            m.appendReplacement(sb, Matcher.quoteReplacement(replacement));
+        }
+        m.appendTail(sb);
+        return sb.toString();
+    }
+
+    /**
+     * Compresses some content with gzip at the highest level.
+     *
+     * @param data the content
+     *
+     * @return the compressed content
+     */
+    static byte[] gzip(byte[] data) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (GZIPOutputStream gz = new GZIPOutputStream(out) {
+            {
+                def.setLevel(Deflater.BEST_COMPRESSION);
+            }
+        }) {
+            gz.write(data);
+        } catch (IOException ex) {
+            // Cannot happen with a byte array stream.
+            throw new IllegalStateException(ex);
+        }
+        return out.toByteArray();
+    }
+
+    /**
+     * Runs an encoder command from a file to another.
+     *
+     * @param command the command, with the input and output files
+     * @param output the output file
+     *
+     * @return the output, or null if the command failed
+     *
+     * @throws IOException if the command cannot be started
+     * @throws InterruptedException if the thread is interrupted
+     */
+    private byte[] encode(List<String> command, Path output)
+            throws IOException, InterruptedException {
+        Process process = new ProcessBuilder(command)
+                .redirectErrorStream(true)
+                .redirectOutput(ProcessBuilder.Redirect.DISCARD)
+                .start();
+        if (process.waitFor() != 0 || !Files.exists(output)) {
+            log.warn("Failed: " + String.join(" ", command));
+            return null;
+        }
+        try {
+            return Files.readAllBytes(output);
+        } finally {
+            Files.delete(output);
+        }
+    }
+
+    /**
+     * Compresses a file with Brotli at the highest quality.
+     *
+     * @param input the file
+     *
+     * @return the compressed content, or null if not available
+     *
+     * @throws InterruptedException if the thread is interrupted
+     */
+    private byte[] brotli(Path input) throws InterruptedException {
+        if (brotli == null) {
+            return null;
+        }
+        Path output = Paths.get(input + ".br.tmp");
+        try {
+            return encode(List.of(brotli, "-q", "11", "-f", "-o",
+                    output.toString(), input.toString()), output);
+        } catch (IOException ex) {
+            log.warn("Brotli variants disabled: " + ex.getMessage());
+            brotli = null;
+            return null;
+        }
+    }
+
+    /**
+     * Re-encodes an image as WebP.
+     *
+     * @param data the image
+     * @param lossless true for a lossless encoding
+     *
+     * @return the encoded image, or null if not available
+     *
+     * @throws IOException in case of errors decoding the image
+     */
+    private byte[] webp(byte[] data, boolean lossless) throws IOException {
+        if (webpWriter == null) {
+            return null;
+        }
+        BufferedImage image = ImageIO.read(new ByteArrayInputStream(data));
+        if (image == null) {
+            return null;
+        }
+        ImageWriteParam param = webpWriter.getDefaultWriteParam();
+        param.setCompressionMode(ImageWriteParam.MODE_EXPLICIT);
+        param.setCompressionType(lossless ? WEBP_LOSSLESS : WEBP_LOSSY);
+        if (!lossless) {
+            param.setCompressionQuality(WEBP_QUALITY);
+        }
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (ImageOutputStream ios = ImageIO.createImageOutputStream(out)) {
+            webpWriter.setOutput(ios);
+            webpWriter.write(null, new IIOImage(image, null, null), param);
+        } finally {
+            webpWriter.reset();
+        }
+        return out.toByteArray();
+    }
+
+    /**
+     * Writes a variant if it is small enough.
+     *
+     * @param target the fingerprinted file
+     * @param variant the variant
+     * @param data the content of the variant, or null
+     * @param lengths the lengths of the variants, updated
+     *
+     * @return true if the variant was written
+     *
+     * @throws IOException in case of errors writing the variant
+     */
+    private static boolean writeVariant(Path target, Variant variant,
+            byte[] data, Map<Variant, Integer> lengths) throws IOException {
+        if (data == null ||
+                data.length > lengths.get(Variant.IDENTITY) * MAX_RATIO) {
+            return false;
+        }
+        Files.write(Paths.get(target + variant.getSuffix()), data);
+        lengths.put(variant, data.length);
+        return true;
+    }
+
+    /**
+     * Processes an asset.
+     *
+     * @param file the asset
+     *
+     * @throws IOException in case of errors reading or writing the files
+     * @throws InterruptedException if the thread is interrupted
+     */
+    private void process(Path file)
+            throws IOException, InterruptedException {
+        String path = "/" + webappDir.relativize(file).toString()
+                .replace(file.getFileSystem().getSeparator(), "/");
+        byte[] data = Files.readAllBytes(file);
+        String ext = extension(path);
+        if (ext.equals("css")) {
+            data = rewriteCss(path, new String(data, StandardCharsets.UTF_8))
+                    .getBytes(StandardCharsets.UTF_8);
+        }
+        String mapped = fingerprinted(path, fingerprint(data));
+        Path target = outputDir.resolve(mapped.substring(1));
+        Files.createDirectories(target.getParent());
+        Files.write(target, data);
+
+        Map<Variant, Integer> lengths = new EnumMap<>(Variant.class);
+        lengths.put(Variant.IDENTITY, data.length);
+        if (writeVariant(target, Variant.GZIP, gzip(data), lengths)) {
+            writeVariant(target, Variant.BROTLI, brotli(target), lengths);
+        }
+        if (ext.equals("png") || ext.equals("jpg") || ext.equals("jpeg")) {
+            writeVariant(target, Variant.WEBP, webp(data, ext.equals("png")),
+                    lengths);
+        }
+        paths.put(path, mapped);
+        variants.put(mapped, lengths);
+        log.info(path + " -> " + mapped + " " + lengths);
+    }
+
+    /**
+     * Processes the assets and writes the manifest. The style sheets are
+     * processed last, so that their references can be rewritten.
+     *
+     * @param roots the files or directories to process, relative to the
+     *     web application
+     *
+     * @throws IOException in case of errors reading or writing the files
+     * @throws InterruptedException if the thread is interrupted
+     */
+    public void run(List<String> roots)
+            throws IOException, InterruptedException {
+        if (Files.exists(outputDir)) {
+            try (Stream<Path> old = Files.walk(outputDir)) {
+                for (Path p : old.sorted(Comparator.reverseOrder())
+                        .collect(Collectors.toList())) {
+                    Files.delete(p);
+                }
+            }
+        }
+        List<Path> files = new ArrayList<>();
+        for (String root : roots) {
+            try (Stream<Path> s = Files.walk(webappDir.resolve(root))) {
+                s.filter(Files::isRegularFile).forEach(files::add);
+            }
+        }
+        files.sort(Comparator.comparing((Path p) ->
+                extension(p.toString()).equals("css"))
+                .thenComparing(Comparator.naturalOrder()));
+        for (Path file : files) {
+            process(file);
+        }
+
+        Path manifest = outputDir.resolve(MANIFEST_PATH.substring(1));
+        Files.createDirectories(manifest.getParent());
+        try (Writer out = Files.newBufferedWriter(manifest,
+                StandardCharsets.ISO_8859_1)) {
+            out.write("# Generated by " + AssetPipeline.class.getSimpleName() +
+                    "\n");
+            for (Map.Entry<String, String> e : paths.entrySet()) {
+                out.write(SOURCE_PREFIX + e.getKey() + "=" +
+                        e.getValue() + "\n");
+            }
+            for (Map.Entry<String, Map<Variant, Integer>> e :
+                    variants.entrySet()) {
+                out.write(VARIANTS_PREFIX + e.getKey() + "=" +
+                        e.getValue().entrySet().stream()
+                                .map(v -> v.getKey().getToken() + ":" +
+                                        v.getValue())
+                                .collect(Collectors.joining(",")) + "\n");
+            }
+        }
+    }
+}
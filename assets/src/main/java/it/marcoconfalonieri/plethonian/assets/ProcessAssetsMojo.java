@@ -0,0 +1,86 @@
+/*
+ *     plethonian-webapp - Plethonian calendar Web Application
+ *
+ *     Copyright (C) 2020 Marco Confalonieri <marco at marcoconfalonieri.it>
+ *
+ *     This program is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU Affero General Public License as published
+ *     by the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     This program is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU Affero General Public License for more details.
+ *
+ *     You should have received a copy of the GNU Affero General Public License
+ *     along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package it.marcoconfalonieri.plethonian.assets;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.List;
+import org.apache.maven.plugin.AbstractMojo;
+import org.apache.maven.plugin.MojoExecutionException;
+import org.apache.maven.plugins.annotations.LifecyclePhase;
+import org.apache.maven.plugins.annotations.Mojo;
+import org.apache.maven.plugins.annotations.Parameter;
+
+/**
+ * Goal running the {@link AssetPipeline} on the static assets of the web
+ * application. The WebP variants need an image writer for the format among
+ * the dependencies of the plugin, and the Brotli variants the command named
+ * by {@code brotli}; an empty value disables them.
+ */
+@Mojo(name = "process", defaultPhase = LifecyclePhase.PREPARE_PACKAGE,
+        threadSafe = true)
+public class ProcessAssetsMojo extends AbstractMojo {
+    /**
+     * Directory of the web application.
+     */
+    @Parameter(defaultValue = "${project.basedir}/src/main/webapp",
+            required = true)
+    private File webappDirectory;
+    /**
+     * Output directory, emptied before the run.
+     */
+    @Parameter(defaultValue = "${project.build.directory}/assets",
+            required = true)
+    private File outputDirectory;
+    /**
+     * Files or directories to process, relative to the web application.
+     */
+    @Parameter(required = true)
+    private List<String> roots;
+    /**
+     * Brotli command, or an empty value to disable the Brotli variants.
+     */
+    @Parameter(property = "assets.brotli")
+    private String brotli;
+    /**
+     * Skips the goal.
+     */
+    @Parameter(property = "assets.skip", defaultValue = "false")
+    private boolean skip;
+
+    @Override
+    public void execute() throws MojoExecutionException {
+        if (skip) {
+            getLog().info("Asset processing skipped");
+            return;
+        }
+        String command = (brotli != null && !brotli.isBlank()) ?
+                brotli.strip() : null;
+        try {
+            new AssetPipeline(webappDirectory.toPath(),
+                    outputDirectory.toPath(), command, getLog()).run(roots);
+        } catch (IOException ex) {
+            throw new MojoExecutionException("Cannot process the assets", ex);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new MojoExecutionException("Interrupted", ex);
+        }
+    }
+}
@@ -0,0 +1,133 @@
+/*
+ *     plethonian-webapp - Plethonian calendar Web Application
+ *
+ *     Copyright (C) 2020 Marco Confalonieri <marco at marcoconfalonieri.it>
+ *
+ *     This program is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU Affero General Public License as published
+ *     by the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     This program is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU Affero General Public License for more details.
+ *
+ *     You should have received a copy of the GNU Affero General Public License
+ *     along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package it.marcoconfalonieri.plethonian.assets;
+
+import it.marcoconfalonieri.plethonian.assets.AssetPipeline.Variant;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Properties;
+import java.util.zip.GZIPInputStream;
+import org.apache.maven.plugin.logging.SystemStreamLog;
+
+import static org.junit.jupiter.api.Assertions.*;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * Test of AssetPipeline class.
+ */
+public class AssetPipelineTest {
+
+    /**
+     * Test the names of the fingerprinted assets.
+     */
+    @Test
+    public void testFingerprinted() {
+        String fp = AssetPipeline.fingerprint(
+                "body {}".getBytes(StandardCharsets.UTF_8));
+        assertEquals(AssetPipeline.FINGERPRINT_LENGTH, fp.length());
+        assertTrue(fp.matches("[0-9a-f]+"));
+        assertEquals("/resources/css/default." + fp + ".css",
+                AssetPipeline.fingerprinted("/resources/css/default.css", fp));
+        assertEquals("/favicon." + fp + ".ico",
+                AssetPipeline.fingerprinted("/favicon.ico", fp));
+        assertThrows(IllegalArgumentException.class,
+                () -> AssetPipeline.fingerprinted("/resources/LICENSE", fp));
+    }
+
+    /**
+     * Test the resolution of the references of the style sheets.
+     */
+    @Test
+    public void testResolve() {
+        String css = "/resources/css/default.css";
+        assertEquals("/resources/img/paper.jpg",
+                AssetPipeline.resolve(css, "../img/paper.jpg"));
+        assertEquals("/resources/css/print.css",
+                AssetPipeline.resolve(css, "./print.css"));
+        assertEquals("/favicon.ico", AssetPipeline.resolve(css, "/favicon.ico"));
+        assertNull(AssetPipeline.resolve(css, "../../../paper.jpg"));
+        assertNull(AssetPipeline.resolve(css, "data:image/png;base64,AAAA"));
+        assertNull(AssetPipeline.resolve(css, "https://example.org/a.png"));
+    }
+
+    /**
+     * Test a run: the style sheet references the fingerprinted image, and
+     * the compressible assets get a gzip variant.
+     */
+    @Test
+    public void testRun(@TempDir Path dir) throws Exception {
+        Path webapp = dir.resolve("webapp");
+        Path out = dir.resolve("assets");
+        Files.createDirectories(webapp.resolve("resources/css"));
+        Files.createDirectories(webapp.resolve("resources/img"));
+        byte[] image = new byte[] {1, 2, 3, 4, 5, 6, 7, 8};
+        Files.write(webapp.resolve("resources/img/dot.bin"), image);
+        StringBuilder css = new StringBuilder();
+        css.append("body { background: url(\"../img/dot.bin\"); }\n");
+        css.append("a { background: url(data:image/png;base64,AAAA); }\n");
+        for (int i = 0; i < 50; i++) {
+            css.append(".c").append(i).append(" { color: black; }\n");
+        }
+        Files.writeString(webapp.resolve("resources/css/site.css"), css);
+        Files.createDirectories(out.resolve("stale"));
+
+        new AssetPipeline(webapp, out, null, new SystemStreamLog())
+                .run(List.of("resources"));
+
+        Properties manifest = new Properties();
+        try (InputStream in = Files.newInputStream(
+                out.resolve(AssetPipeline.MANIFEST_PATH.substring(1)))) {
+            manifest.load(in);
+        }
+        assertEquals(4, manifest.size());
+        assertFalse(Files.exists(out.resolve("stale")));
+
+        String dot = manifest.getProperty(AssetPipeline.SOURCE_PREFIX
+                + "/resources/img/dot.bin");
+        assertArrayEquals(image, Files.readAllBytes(out.resolve(
+                dot.substring(1))));
+        assertEquals("identity:" + image.length, manifest.getProperty(
+                AssetPipeline.VARIANTS_PREFIX + dot));
+
+        String mapped = manifest.getProperty(AssetPipeline.SOURCE_PREFIX
+                + "/resources/css/site.css");
+        byte[] data = Files.readAllBytes(out.resolve(mapped.substring(1)));
+        String text = new String(data, StandardCharsets.UTF_8);
+        assertTrue(text.contains("url(\"../img/" +
+                dot.substring(dot.lastIndexOf('/') + 1) + "\")"));
+        assertTrue(text.contains("url(data:image/png;base64,AAAA)"));
+        assertEquals("/resources/css/site." + AssetPipeline.fingerprint(data)
+                + ".css", mapped);
+        byte[] gz = Files.readAllBytes(out.resolve(mapped.substring(1) +
+                Variant.GZIP.getSuffix()));
+        assertEquals("identity:" + data.length + ",gzip:" + gz.length,
+                manifest.getProperty(AssetPipeline.VARIANTS_PREFIX + mapped));
+        try (InputStream in = new GZIPInputStream(
+                new ByteArrayInputStream(gz))) {
+            assertArrayEquals(data, in.readAllBytes());
+        }
+    }
+}
@@ -22,7 +22,9 @@ package it.marcoconfalonieri.plethonian.calendar;
 import java.time.LocalDate;
 
 /**
- * Interface for a Plethonian calendar.
+ * Interface for a Plethonian calendar. The supported dates go from
+ * {@link #getFirstDate()} to {@link #getLastDate()}, included, and the lookup
+ * of any other date throws an {@link IllegalArgumentException}.
  */
 public interface PlethonianCalendar {
     /**
@@ -60,4 +62,18 @@ public interface PlethonianCalendar {
      *     date
      */
     PlethonianDay getDay(LocalDate date);
+
+    /**
+     * Returns the first supported date.
+     *
+     * @return the first day of the first year
+     */
+    LocalDate getFirstDate();
+
+    /**
+     * Returns the last supported date.
+     *
+     * @return the last day of the last year
+     */
+    LocalDate getLastDate();
 }
@@ -0,0 +1,46 @@
+/*
+ *     plethonian-webapp - Plethonian calendar Web Application
+ *
+ *     Copyright (C) 2020 Marco Confalonieri <marco at marcoconfalonieri.it>
+ *
+ *     This program is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU Affero General Public License as published
+ *     by the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     This program is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU Affero General Public License for more details.
+ *
+ *     You should have received a copy of the GNU Affero General Public License
+ *     along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package it.marcoconfalonieri.plethonian.calendar.astropixel;
+
+/**
+ * Phases of the construction of the calendar.
+ */
+public enum ConstructionPhase {
+    /**
+     * Reading of the solstices and equinoxes table.
+     */
+    READ_SOLSTICES,
+    /**
+     * Parsing of the solar years and creation of the solstices set.
+     */
+    SOLSTICES_SET,
+    /**
+     * Reading of the moon phases table.
+     */
+    READ_MOON_PHASES,
+    /**
+     * Parsing of the lunar months and creation of the months map.
+     */
+    MONTHS_MAP,
+    /**
+     * Creation of the Plethonian years.
+     */
+    YEARS
+}
@@ -0,0 +1,106 @@
+/*
+ *     plethonian-webapp - Plethonian calendar Web Application
+ *
+ *     Copyright (C) 2020 Marco Confalonieri <marco at marcoconfalonieri.it>
+ *
+ *     This program is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU Affero General Public License as published
+ *     by the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     This program is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU Affero General Public License for more details.
+ *
+ *     You should have received a copy of the GNU Affero General Public License
+ *     along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package it.marcoconfalonieri.plethonian.calendar.astropixel;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Measurements of the construction of a calendar, phase by phase.
+ */
+public final class ConstructionStats {
+    /**
+     * The phases, in execution order.
+     */
+    private final List<PhaseStats> phases;
+
+    /**
+     * Constructor.
+     *
+     * @param phases the phases, in execution order
+     */
+    public ConstructionStats(List<PhaseStats> phases) {
+        this.phases = Collections.unmodifiableList(phases);
+    }
+
+    /**
+     * Getter for the phases.
+     *
+     * @return the phases, in execution order
+     */
+    public List<PhaseStats> getPhases() {
+        return phases;
+    }
+
+    /**
+     * Returns the measurements of a phase.
+     *
+     * @param phase the phase
+     *
+     * @return the measurements, or null if the phase was not executed
+     */
+    public PhaseStats getPhase(ConstructionPhase phase) {
+        for (PhaseStats ps : phases) {
+            if (ps.getPhase() == phase) {
+                return ps;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Returns the total time of the construction.
+     *
+     * @return the sum of the phase times in nanoseconds
+     */
+    public long getTotalNanos() {
+        long total = 0;
+        for (PhaseStats ps : phases) {
+            total += ps.getNanos();
+        }
+        return total;
+    }
+
+    /**
+     * Returns the total bytes allocated by the construction.
+     *
+     * @return the sum of the allocated bytes, or -1 if not measured
+     */
+    public long getTotalAllocatedBytes() {
+        long total = 0;
+        for (PhaseStats ps : phases) {
+            if (ps.getAllocatedBytes() < 0) {
+                return -1;
+            }
+            total += ps.getAllocatedBytes();
+        }
+        return total;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder(String.format(
+                "total %.3f ms", getTotalNanos() / 1e6));
+        for (PhaseStats ps : phases) {
+            sb.append("; ").append(ps);
+        }
+        return sb.toString();
+    }
+}
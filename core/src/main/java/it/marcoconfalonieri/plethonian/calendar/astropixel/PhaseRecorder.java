@@ -0,0 +1,112 @@
+/*
+ *     plethonian-webapp - Plethonian calendar Web Application
+ *
+ *     Copyright (C) 2020 Marco Confalonieri <marco at marcoconfalonieri.it>
+ *
+ *     This program is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU Affero General Public License as published
+ *     by the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     This program is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU Affero General Public License for more details.
+ *
+ *     You should have received a copy of the GNU Affero General Public License
+ *     along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package it.marcoconfalonieri.plethonian.calendar.astropixel;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Records the time and the memory allocated by consecutive construction
+ * phases on the current thread. Each phase ends where the previous one
+ * ended, so the recorder only reads the clock and the allocation counter
+ * once per phase.
+ */
+final class PhaseRecorder {
+    /**
+     * Thread bean able to measure the allocations, or null.
+     */
+    private static final com.sun.management.ThreadMXBean THREADS =
+            findThreadBean();
+
+    /**
+     * The recorded phases.
+     */
+    private final List<PhaseStats> phases = new ArrayList<>();
+    /**
+     * Time the current phase started.
+     */
+    private long mark;
+    /**
+     * Allocated bytes when the current phase started.
+     */
+    private long markBytes;
+
+    /**
+     * Returns the thread bean if it can measure the allocations.
+     *
+     * @return the thread bean, or null
+     */
+    private static com.sun.management.ThreadMXBean findThreadBean() {
+        ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        if (bean instanceof com.sun.management.ThreadMXBean) {
+            com.sun.management.ThreadMXBean sunBean =
+                    (com.sun.management.ThreadMXBean) bean;
+            if (sunBean.isThreadAllocatedMemorySupported() &&
+                    sunBean.isThreadAllocatedMemoryEnabled()) {
+                return sunBean;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Returns the bytes allocated so far by the current thread.
+     *
+     * @return the allocated bytes, or -1 if they cannot be measured
+     */
+    private static long allocatedBytes() {
+        return (THREADS != null) ? THREADS.getThreadAllocatedBytes(
+                Thread.currentThread().getId()) : -1;
+    }
+
+    /**
+     * Constructor. The first phase starts now.
+     */
+    PhaseRecorder() {
+        mark = System.nanoTime();
+        markBytes = allocatedBytes();
+    }
+
+    /**
+     * Ends the current phase and starts the next one.
+     *
+     * @param phase the phase that ended
+     * @param rows the number of rows or objects produced by the phase
+     */
+    void end(ConstructionPhase phase, int rows) {
+        long now = System.nanoTime();
+        long bytes = allocatedBytes();
+        phases.add(new PhaseStats(phase, now - mark, rows,
+                (bytes >= 0) ? bytes - markBytes : -1));
+        mark = now;
+        markBytes = bytes;
+    }
+
+    /**
+     * Returns the measurements of the recorded phases.
+     *
+     * @return the measurements
+     */
+    ConstructionStats toStats() {
+        return new ConstructionStats(new ArrayList<>(phases));
+    }
+}
@@ -0,0 +1,101 @@
+/*
+ *     plethonian-webapp - Plethonian calendar Web Application
+ *
+ *     Copyright (C) 2020 Marco Confalonieri <marco at marcoconfalonieri.it>
+ *
+ *     This program is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU Affero General Public License as published
+ *     by the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     This program is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU Affero General Public License for more details.
+ *
+ *     You should have received a copy of the GNU Affero General Public License
+ *     along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package it.marcoconfalonieri.plethonian.calendar.astropixel;
+
+/**
+ * Measurements of a construction phase of the calendar.
+ */
+public final class PhaseStats {
+    /**
+     * The phase.
+     */
+    private final ConstructionPhase phase;
+    /**
+     * Elapsed time in nanoseconds.
+     */
+    private final long nanos;
+    /**
+     * Number of rows or objects produced.
+     */
+    private final int rows;
+    /**
+     * Bytes allocated by the building thread, or -1 if not measured.
+     */
+    private final long allocatedBytes;
+
+    /**
+     * Constructor.
+     *
+     * @param phase the phase
+     * @param nanos the elapsed time in nanoseconds
+     * @param rows the number of rows or objects produced
+     * @param allocatedBytes the allocated bytes, or -1 if not measured
+     */
+    public PhaseStats(ConstructionPhase phase, long nanos, int rows,
+            long allocatedBytes) {
+        this.phase = phase;
+        this.nanos = nanos;
+        this.rows = rows;
+        this.allocatedBytes = allocatedBytes;
+    }
+
+    /**
+     * Getter for the phase.
+     *
+     * @return the phase
+     */
+    public ConstructionPhase getPhase() {
+        return phase;
+    }
+
+    /**
+     * Getter for the elapsed time.
+     *
+     * @return the elapsed time in nanoseconds
+     */
+    public long getNanos() {
+        return nanos;
+    }
+
+    /**
+     * Getter for the rows.
+     *
+     * @return the number of rows or objects produced
+     */
+    public int getRows() {
+        return rows;
+    }
+
+    /**
+     * Getter for the allocated bytes.
+     *
+     * @return the bytes allocated during the phase, or -1 if not measured
+     */
+    public long getAllocatedBytes() {
+        return allocatedBytes;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%s: %.3f ms, %d rows, %s", phase, nanos / 1e6,
+                rows, (allocatedBytes >= 0) ?
+                        (allocatedBytes / 1024) + " KiB" : "n/a");
+    }
+}
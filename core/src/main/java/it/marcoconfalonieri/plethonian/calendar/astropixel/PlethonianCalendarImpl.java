@@ -27,10 +27,16 @@ import it.marcoconfalonieri.plethonian.calendar.PlethonianMonthName;
 import it.marcoconfalonieri.plethonian.calendar.PlethonianWeekName;
 import it.marcoconfalonieri.plethonian.calendar.PlethonianYear;
 import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.time.LocalDate;
 import java.time.ZonedDateTime;
 import java.time.temporal.ChronoUnit;
 
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.NoSuchElementException;
@@ -51,21 +57,21 @@ public class PlethonianCalendarImpl implements PlethonianCalendar {
     /**
      * AstroPixel's moon phases table.
      */
-    private static final String RES_MOON_PHASES
+    static final String RES_MOON_PHASES
             = "com/astropixels/moon/lunar-phases.txt";
     /**
      * AstroPixel's moon phases table layout.
      */
-    private static final int[] POS_MOON_PHASES = {0, 24, 42, 58, 69};
+    static final int[] POS_MOON_PHASES = {0, 24, 42, 58, 69};
     /**
      * AstroPixel's sun solstices and equinoxes table.
      */
-    private static final String RES_SUN_SOLSTICES
+    static final String RES_SUN_SOLSTICES
             = "com/astropixels/sun/solstices-equinoxes.txt";
     /**
      * AstroPixel's sun solstices and equinoxes table layout.
      */
-    private static final int[] POS_SUN_SOLSTICES = {1, 11, 29, 47, 65};
+    static final int[] POS_SUN_SOLSTICES = {1, 11, 29, 47, 65};
     /**
      * Map of the plethonian months numeric values.
      */
@@ -85,6 +91,14 @@ public class PlethonianCalendarImpl implements PlethonianCalendar {
      * Map of the years.
      */
     private final SortedSet<PlethonianYear> yearsSet = new TreeSet<>();
+    /**
+     * Directory with the tables overriding the resources, if any.
+     */
+    private final Path dataDir;
+    /**
+     * Measurements of the construction.
+     */
+    private ConstructionStats constructionStats;
 
     /**
      * Initializes the map of the months.
@@ -121,7 +135,24 @@ public class PlethonianCalendarImpl implements PlethonianCalendar {
     }
 
     /**
-     * Reads a table from a resource.
+     * Returns the file overriding a resource in the data directory.
+     *
+     * @param dataDir the data directory or null
+     * @param res the resource name
+     *
+     * @return the file, or null if the resource is not overridden
+     */
+    private static Path findDataFile(Path dataDir, String res) {
+        if (dataDir == null) {
+            return null;
+        }
+        Path file = dataDir.resolve(res.substring(res.lastIndexOf('/') + 1));
+        return Files.isRegularFile(file) ? file : null;
+    }
+
+    /**
+     * Reads a table from a resource, or from the data directory if the
+     * resource is overridden there.
      *
      * @param res the resource name
      * @param pos the table layout
@@ -131,18 +162,22 @@ public class PlethonianCalendarImpl implements PlethonianCalendar {
      * @throws IOException in case of errors reading the resource
      */
     private String[][] readTable(String res, int[] pos) throws IOException {
-        TableReader tr = new TableReader(res, pos);
+        Path file = findDataFile(dataDir, res);
+        TableReader tr = (file != null) ? new TableReader(file, pos) :
+                new TableReader(res, pos);
         return tr.readTable();
     }
 
     /**
      * Creates the map with all the phases.
      *
-     * @throws IOException in case of errors reading the resource or the data
+     * @param moonPhases the moon phases table
+     *
+     * @throws IOException in case of errors reading the data
      */
-    private SortedMap<ZonedDateTime, LunarMonth> createMonthsMap() throws IOException {
+    private SortedMap<ZonedDateTime, LunarMonth> createMonthsMap(
+            String[][] moonPhases) throws IOException {
         SortedMap<ZonedDateTime, LunarMonth> monthsMap = new TreeMap<>();
-        String[][] moonPhases = readTable(RES_MOON_PHASES, POS_MOON_PHASES);
         try {
             for (String[] row : moonPhases) {
                 LunarMonth lm = new LunarMonth(row);
@@ -157,11 +192,13 @@ public class PlethonianCalendarImpl implements PlethonianCalendar {
     /**
      * Creates the solstices set.
      *
-     * @throws IOException in case of errors reading the resource or the data
+     * @param solstices the solstices and equinoxes table
+     *
+     * @throws IOException in case of errors reading the data
      */
-    private SortedSet<ZonedDateTime> createSolsticesSet() throws IOException {
+    private SortedSet<ZonedDateTime> createSolsticesSet(String[][] solstices)
+            throws IOException {
         SortedSet<ZonedDateTime> solsticesSet = new TreeSet<>();
-        String[][] solstices = readTable(RES_SUN_SOLSTICES, POS_SUN_SOLSTICES);
         try {
             for (String[] row : solstices) {
                 SolarYear sy = new SolarYear(row);
@@ -250,6 +287,21 @@ public class PlethonianCalendarImpl implements PlethonianCalendar {
         return month;
     }
 
+    /**
+     * Returns the number of days of a year, from its first day to the first
+     * day of the next one. The days are counted as such: the days field of
+     * a Period would leave out the months, and the defunct day, which is
+     * placed from the length of the year, would move with them.
+     *
+     * @param firstDay the first day of the year
+     * @param nextFirstDay the first day of the next year
+     *
+     * @return the number of days of the year
+     */
+    static int countDays(LocalDate firstDay, LocalDate nextFirstDay) {
+        return (int) ChronoUnit.DAYS.between(firstDay, nextFirstDay);
+    }
+
     /**
      * Creates a Plethonian year.
      * 
@@ -265,8 +317,8 @@ public class PlethonianCalendarImpl implements PlethonianCalendar {
         
         year.setFirstDay(yearMonths.firstKey().toLocalDate().plusDays(1));
         year.setMonths(new TreeSet<>());
-        year.setDays(year.getFirstDay().until(next.toLocalDate().plusDays(1))
-                .getDays());
+        year.setDays(countDays(year.getFirstDay(),
+                next.toLocalDate().plusDays(1)));
         
         final int remDay = year.getDays() - 2;
         Consumer<ZonedDateTime> mc = new Consumer<ZonedDateTime>() {
@@ -299,13 +351,21 @@ public class PlethonianCalendarImpl implements PlethonianCalendar {
     }
 
     /**
-     * Creates a set with the years.
+     * Creates a set with the years, measuring each construction phase.
      * 
      * @throws IOException in case of errors reading the tables
      */
     private void createYearsSet() throws IOException {
-        SortedSet<ZonedDateTime> solsticesSet = createSolsticesSet();
-        SortedMap<ZonedDateTime, LunarMonth> monthsMap = createMonthsMap();
+        PhaseRecorder recorder = new PhaseRecorder();
+        String[][] solstices = readTable(RES_SUN_SOLSTICES, POS_SUN_SOLSTICES);
+        recorder.end(ConstructionPhase.READ_SOLSTICES, solstices.length);
+        SortedSet<ZonedDateTime> solsticesSet = createSolsticesSet(solstices);
+        recorder.end(ConstructionPhase.SOLSTICES_SET, solsticesSet.size());
+        String[][] moonPhases = readTable(RES_MOON_PHASES, POS_MOON_PHASES);
+        recorder.end(ConstructionPhase.READ_MOON_PHASES, moonPhases.length);
+        SortedMap<ZonedDateTime, LunarMonth> monthsMap =
+                createMonthsMap(moonPhases);
+        recorder.end(ConstructionPhase.MONTHS_MAP, monthsMap.size());
         while (!solsticesSet.isEmpty()) {
             ZonedDateTime firstSol = solsticesSet.first();
             solsticesSet.remove(firstSol);
@@ -319,6 +379,74 @@ public class PlethonianCalendarImpl implements PlethonianCalendar {
             PlethonianYear year = createYear(yearMonths, next);
             yearsSet.add(year);
         }
+        recorder.end(ConstructionPhase.YEARS, yearsSet.size());
+        constructionStats = recorder.toStats();
+    }
+
+    /**
+     * Returns the label of a day.
+     *
+     * @param dayOfMonth the day of the month, starting from 1
+     * @param lastOfMonth true if it is the last day of the month
+     *
+     * @return the label of the day
+     */
+    public static String getDayLabel(int dayOfMonth, boolean lastOfMonth) {
+        return lastOfMonth ? DAY_LABELS[29] : DAY_LABELS[dayOfMonth - 1];
+    }
+
+    /**
+     * Computes a checksum of the astronomical tables the calendar is built
+     * from. It changes whenever the data changes, so it can be used as a
+     * version of the calendar.
+     *
+     * @return the hexadecimal SHA-256 checksum of the tables
+     *
+     * @throws IOException in case of errors reading the resources
+     */
+    public static String computeDataChecksum() throws IOException {
+        return computeDataChecksum(null);
+    }
+
+    /**
+     * Computes a checksum of the astronomical tables the calendar is built
+     * from, taking into account the tables overridden in a data directory.
+     *
+     * @param dataDir the data directory or null
+     *
+     * @return the hexadecimal SHA-256 checksum of the tables
+     *
+     * @throws IOException in case of errors reading the tables
+     */
+    public static String computeDataChecksum(Path dataDir) throws IOException {
+        MessageDigest md;
+        try {
+            md = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException ex) {
+            // SHA-256 is available on every Java platform.
+            throw new IllegalStateException(ex);
+        }
+        for (String res : new String[] {RES_MOON_PHASES, RES_SUN_SOLSTICES}) {
+            Path file = findDataFile(dataDir, res);
+            try (InputStream in = (file != null) ?
+                    Files.newInputStream(file) :
+                    PlethonianCalendarImpl.class.getResourceAsStream(
+                            "/" + res)) {
+                if (in == null) {
+                    throw new IOException("Missing resource " + res);
+                }
+                byte[] buf = new byte[8192];
+                int n;
+                while ((n = in.read(buf)) > 0) {
+                    md.update(buf, 0, n);
+                }
+            }
+        }
+        StringBuilder sb = new StringBuilder();
+        for (byte b : md.digest()) {
+            sb.append(String.format("%02x", b));
+        }
+        return sb.toString();
     }
 
     /**
@@ -328,9 +456,42 @@ public class PlethonianCalendarImpl implements PlethonianCalendar {
      * @throws IOException in case of errors reading the required resources
      */
     public PlethonianCalendarImpl() throws IOException {
+        this(null);
+    }
+
+    /**
+     * Constructor. It reads the tables with the astronomical data, taking
+     * them from the data directory when they are present there, and
+     * initializes the object.
+     *
+     * @param dataDir the directory with the tables overriding the resources,
+     *     or null to use only the resources
+     *
+     * @throws IOException in case of errors reading the required tables
+     */
+    public PlethonianCalendarImpl(Path dataDir) throws IOException {
+        this.dataDir = dataDir;
         createYearsSet();
     }
 
+    /**
+     * Returns all the years of the calendar.
+     *
+     * @return an unmodifiable view of the years, in chronological order
+     */
+    public SortedSet<PlethonianYear> getYears() {
+        return Collections.unmodifiableSortedSet(yearsSet);
+    }
+
+    /**
+     * Returns the measurements of the construction of this calendar.
+     *
+     * @return the time, rows and allocated bytes of each construction phase
+     */
+    public ConstructionStats getConstructionStats() {
+        return constructionStats;
+    }
+
     /**
      * Returns a year based on the given Gregorian date.
      * 
@@ -339,15 +500,14 @@ public class PlethonianCalendarImpl implements PlethonianCalendar {
      * @return the year
      * 
      * @throws IllegalArgumentException if the argument refers to an unsupported
-     *     date
+     *     date, that is one before the first date or after the last date
      */
     @Override
     public PlethonianYear getYear(LocalDate date) {
-        int gregorianYear = date.getYear();
-        
-        if (gregorianYear < 2001 || gregorianYear > 2100) {
-            String msg = String.format("The year %d is not in the valid range",
-                    gregorianYear);
+        if (yearsSet.isEmpty() || date.isBefore(getFirstDate()) ||
+                date.isAfter(getLastDate())) {
+            String msg = String.format("The date %s is not in the valid range",
+                    date);
             throw new IllegalArgumentException(msg);
         }
         
@@ -382,9 +542,6 @@ public class PlethonianCalendarImpl implements PlethonianCalendar {
     @Override
     public PlethonianMonth getMonth(LocalDate date) {
         PlethonianYear year = getYear(date);
-        for (PlethonianMonth m : year.getMonths()) {
-            System.out.println(m.getMonth() + " " + m.getFirstDay());
-        }
         PlethonianMonth model = new PlethonianMonth();
         model.setFirstDay(date);
         
@@ -437,4 +594,25 @@ public class PlethonianCalendarImpl implements PlethonianCalendar {
         }
         return day;
     }
+
+    /**
+     * Returns the first supported date.
+     *
+     * @return the first day of the first year
+     */
+    @Override
+    public LocalDate getFirstDate() {
+        return yearsSet.first().getFirstDay();
+    }
+
+    /**
+     * Returns the last supported date.
+     *
+     * @return the last day of the last year
+     */
+    @Override
+    public LocalDate getLastDate() {
+        PlethonianYear last = yearsSet.last();
+        return last.getFirstDay().plusDays(last.getDays() - 1);
+    }
 }
@@ -21,7 +21,11 @@ package it.marcoconfalonieri.plethonian.calendar.astropixel;
 
 import java.io.BufferedReader;
 import java.io.IOException;
+import java.io.InputStream;
 import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.ArrayList;
 import java.util.Arrays;
 
@@ -35,6 +39,11 @@ public class TableReader {
      * Resource name.
      */
     private final String res;
+
+    /**
+     * File to read instead of the resource, if any.
+     */
+    private final Path file;
     
     /**
      * Positions of the fields.
@@ -49,8 +58,41 @@ public class TableReader {
      */
     public TableReader(String res, int[] pos) {
         this.res = res;
+        this.file = null;
+        this.pos = pos;
+    }
+
+    /**
+     * Constructor. It takes the file name and the field positions.
+     * 
+     * @param file file to read
+     * @param pos positions of the fields
+     */
+    public TableReader(Path file, int[] pos) {
+        this.res = file.toString();
+        this.file = file;
         this.pos = pos;
     }
+
+    /**
+     * Opens the table.
+     * 
+     * @return the input stream of the table
+     * 
+     * @throws IOException in case of errors opening the table
+     */
+    private InputStream open() throws IOException {
+        if (file != null) {
+            return Files.newInputStream(file);
+        }
+        // Loaded through the class, so that the resource is found in the
+        // module of the engine even though its package is not open.
+        InputStream in = TableReader.class.getResourceAsStream("/" + res);
+        if (in == null) {
+            throw new IOException("Missing resource " + res);
+        }
+        return in;
+    }
     
     /**
      * Reads the table file.
@@ -60,10 +102,9 @@ public class TableReader {
      * @throws IOException in case of errors reading the resources
      */
     public String[][] readTable() throws IOException {
-        ClassLoader cl = getClass().getClassLoader();
         ArrayList<String[]> rows = new ArrayList<>();
         try (BufferedReader br = new BufferedReader(
-                new InputStreamReader(cl.getResourceAsStream(res)))) {
+                new InputStreamReader(open(), StandardCharsets.UTF_8))) {
             String[] row;
             while (true) {
                 row = readRow(br);
@@ -0,0 +1,165 @@
+/*
+ *     plethonian-webapp - Plethonian calendar Web Application
+ *
+ *     Copyright (C) 2020 Marco Confalonieri <marco at marcoconfalonieri.it>
+ *
+ *     This program is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU Affero General Public License as published
+ *     by the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     This program is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU Affero General Public License for more details.
+ *
+ *     You should have received a copy of the GNU Affero General Public License
+ *     along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package it.marcoconfalonieri.plethonian.calendar.snapshot;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Snapshot of a day table in a file. The file is versioned and keyed by the
+ * checksum of the astronomical data, and it is memory-mapped read-only when
+ * opened, so that all the processes reading it share the same physical pages.
+ * <p>
+ * Layout of the file: a 96 bytes header with the magic number, the format
+ * version, the data checksum (64 ASCII characters), the first epoch day and
+ * the number of days, followed by the packed records of {@link DayTable}.
+ */
+public final class CalendarSnapshot {
+    /**
+     * Magic number of the file.
+     */
+    private static final int MAGIC = 0x504c5443;
+    /**
+     * Version of the file format.
+     */
+    public static final int FORMAT_VERSION = 1;
+    /**
+     * Length of the checksum.
+     */
+    private static final int CHECKSUM_LENGTH = 64;
+    /**
+     * Size of the header.
+     */
+    private static final int HEADER_SIZE = 96;
+
+    /**
+     * Private constructor. This class has only static methods.
+     */
+    private CalendarSnapshot() {
+    }
+
+    /**
+     * Returns the path of the snapshot for some data.
+     *
+     * @param dir the snapshot directory
+     * @param checksum the data checksum
+     *
+     * @return the path of the snapshot file
+     */
+    public static Path getPath(Path dir, String checksum) {
+        return dir.resolve("plethonian-calendar-v" + FORMAT_VERSION + "-"
+                + checksum + ".snapshot");
+    }
+
+    /**
+     * Writes a snapshot. The file is written under a temporary name and then
+     * atomically moved in place, so concurrent readers never see a partial
+     * file.
+     *
+     * @param table the day table
+     * @param checksum the data checksum
+     * @param dir the snapshot directory
+     *
+     * @return the path of the snapshot file
+     *
+     * @throws IOException in case of errors writing the file
+     */
+    public static Path write(DayTable table, String checksum, Path dir)
+            throws IOException {
+        byte[] cs = checksum.getBytes(StandardCharsets.US_ASCII);
+        if (cs.length != CHECKSUM_LENGTH) {
+            throw new IllegalArgumentException("Invalid checksum: " + checksum);
+        }
+        ByteBuffer buf = ByteBuffer.allocate(HEADER_SIZE + 4 * table.size());
+        buf.putInt(MAGIC).putInt(FORMAT_VERSION).put(cs)
+                .putLong(table.getFirstEpochDay()).putInt(table.size());
+        buf.position(HEADER_SIZE);
+        table.copyTo(buf.asIntBuffer());
+        buf.rewind();
+
+        Files.createDirectories(dir);
+        Path target = getPath(dir, checksum);
+        Path tmp = Files.createTempFile(dir, "plethonian-calendar", ".tmp");
+        try {
+            try (FileChannel ch = FileChannel.open(tmp,
+                    StandardOpenOption.WRITE)) {
+                while (buf.hasRemaining()) {
+                    ch.write(buf);
+                }
+                ch.force(true);
+            }
+            Files.move(tmp, target, StandardCopyOption.ATOMIC_MOVE,
+                    StandardCopyOption.REPLACE_EXISTING);
+        } finally {
+            Files.deleteIfExists(tmp);
+        }
+        return target;
+    }
+
+    /**
+     * Opens a snapshot, mapping it read-only into memory.
+     *
+     * @param dir the snapshot directory
+     * @param checksum the expected data checksum
+     *
+     * @return the day table, or null if there is no snapshot for the data
+     *
+     * @throws IOException in case of errors reading the file or if the file
+     *     is not a valid snapshot
+     */
+    public static DayTable open(Path dir, String checksum) throws IOException {
+        Path file = getPath(dir, checksum);
+        if (!Files.isRegularFile(file)) {
+            return null;
+        }
+        MappedByteBuffer buf;
+        try (FileChannel ch = FileChannel.open(file,
+                StandardOpenOption.READ)) {
+            if (ch.size() < HEADER_SIZE) {
+                throw new IOException("Truncated snapshot: " + file);
+            }
+            buf = ch.map(FileChannel.MapMode.READ_ONLY, 0, ch.size());
+        }
+        byte[] cs = new byte[CHECKSUM_LENGTH];
+        if (buf.getInt() != MAGIC || buf.getInt() != FORMAT_VERSION) {
+            throw new IOException("Not a calendar snapshot: " + file);
+        }
+        buf.get(cs);
+        if (!checksum.equals(new String(cs, StandardCharsets.US_ASCII))) {
+            throw new IOException("Checksum mismatch in snapshot: " + file);
+        }
+        long firstEpochDay = buf.getLong();
+        int size = buf.getInt();
+        if (buf.capacity() != HEADER_SIZE + 4L * size) {
+            throw new IOException("Truncated snapshot: " + file);
+        }
+        buf.position(HEADER_SIZE);
+        IntBuffer records = buf.slice().asIntBuffer();
+        return new DayTable(firstEpochDay, records);
+    }
+}
@@ -0,0 +1,266 @@
+/*
+ *     plethonian-webapp - Plethonian calendar Web Application
+ *
+ *     Copyright (C) 2020 Marco Confalonieri <marco at marcoconfalonieri.it>
+ *
+ *     This program is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU Affero General Public License as published
+ *     by the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     This program is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU Affero General Public License for more details.
+ *
+ *     You should have received a copy of the GNU Affero General Public License
+ *     along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package it.marcoconfalonieri.plethonian.calendar.snapshot;
+
+import it.marcoconfalonieri.plethonian.calendar.PlethonianDay;
+import it.marcoconfalonieri.plethonian.calendar.PlethonianMonth;
+import it.marcoconfalonieri.plethonian.calendar.PlethonianYear;
+import it.marcoconfalonieri.plethonian.calendar.astropixel.PlethonianCalendarImpl;
+import java.nio.IntBuffer;
+import java.time.LocalDate;
+
+/**
+ * Table of all the days of a calendar, indexed by Gregorian date. Each day is
+ * packed into a single int, so the table can live in a plain array or in a
+ * memory-mapped file and be read without building any object.
+ * <p>
+ * Layout of a record, from the least significant bit:
+ * <ul>
+ * <li>bits 0-8: day of the year;</li>
+ * <li>bits 9-13: day of the month;</li>
+ * <li>bits 14-17: month number;</li>
+ * <li>bit 18: defunct day flag;</li>
+ * <li>bit 19: last day of the month flag;</li>
+ * <li>bits 20-28: number of days in the year.</li>
+ * </ul>
+ * A record is never zero, since the day of the year starts from 1.
+ */
+public final class DayTable {
+    private static final int DAY_OF_YEAR_MASK = 0x1ff;
+    private static final int DAY_OF_MONTH_SHIFT = 9;
+    private static final int DAY_OF_MONTH_MASK = 0x1f;
+    private static final int MONTH_SHIFT = 14;
+    private static final int MONTH_MASK = 0xf;
+    private static final int DEFUNCT_FLAG = 1 << 18;
+    private static final int LAST_OF_MONTH_FLAG = 1 << 19;
+    private static final int YEAR_DAYS_SHIFT = 20;
+    private static final int YEAR_DAYS_MASK = 0x1ff;
+
+    /**
+     * Epoch day of the first day in the table.
+     */
+    private final long firstEpochDay;
+    /**
+     * Packed records.
+     */
+    private final IntBuffer records;
+
+    /**
+     * Constructor.
+     *
+     * @param firstEpochDay the epoch day of the first record
+     * @param records the packed records
+     */
+    DayTable(long firstEpochDay, IntBuffer records) {
+        this.firstEpochDay = firstEpochDay;
+        this.records = records;
+    }
+
+    /**
+     * Builds the table from a calendar.
+     *
+     * @param calendar the calendar
+     *
+     * @return the table
+     */
+    public static DayTable build(PlethonianCalendarImpl calendar) {
+        PlethonianYear first = calendar.getYears().first();
+        PlethonianYear last = calendar.getYears().last();
+        long firstEpochDay = first.getFirstDay().toEpochDay();
+        int size = (int) (last.getFirstDay().toEpochDay() + last.getDays()
+                - firstEpochDay);
+        int[] records = new int[size];
+        for (PlethonianYear year : calendar.getYears()) {
+            for (PlethonianMonth month : year.getMonths()) {
+                for (PlethonianDay day : month.getDays()) {
+                    int idx = (int) (day.getGregorianDate().toEpochDay()
+                            - firstEpochDay);
+                    records[idx] = pack(day, year.getDays(),
+                            day.equals(month.getDays().last()));
+                }
+            }
+        }
+        return new DayTable(firstEpochDay, IntBuffer.wrap(records));
+    }
+
+    /**
+     * Packs a day into a record.
+     *
+     * @param day the day
+     * @param yearDays the number of days in the year
+     * @param lastOfMonth true if it is the last day of the month
+     *
+     * @return the packed record
+     */
+    static int pack(PlethonianDay day, int yearDays, boolean lastOfMonth) {
+        int rec = day.getDayOfYear()
+                | day.getDayOfMonth() << DAY_OF_MONTH_SHIFT
+                | day.getMonth().toInt() << MONTH_SHIFT
+                | yearDays << YEAR_DAYS_SHIFT;
+        if (day.isDefunctDay()) {
+            rec |= DEFUNCT_FLAG;
+        }
+        if (lastOfMonth) {
+            rec |= LAST_OF_MONTH_FLAG;
+        }
+        return rec;
+    }
+
+    /**
+     * Returns the epoch day of the first day in the table.
+     *
+     * @return the first epoch day
+     */
+    public long getFirstEpochDay() {
+        return firstEpochDay;
+    }
+
+    /**
+     * Returns the number of days in the table.
+     *
+     * @return the number of days
+     */
+    public int size() {
+        return records.limit();
+    }
+
+    /**
+     * Returns the record of a day.
+     *
+     * @param epochDay the epoch day
+     *
+     * @return the packed record, or 0 if the day is not in the table
+     */
+    public int get(long epochDay) {
+        long idx = epochDay - firstEpochDay;
+        if (idx < 0 || idx >= records.limit()) {
+            return 0;
+        }
+        return records.get((int) idx);
+    }
+
+    /**
+     * Returns the record of a day.
+     *
+     * @param date the Gregorian date
+     *
+     * @return the packed record, or 0 if the day is not in the table
+     */
+    public int get(LocalDate date) {
+        return get(date.toEpochDay());
+    }
+
+    /**
+     * Returns the record at an index.
+     *
+     * @param index the index, from 0 to size() - 1
+     *
+     * @return the packed record
+     */
+    public int getAt(int index) {
+        return records.get(index);
+    }
+
+    /**
+     * Copies all the records into a buffer.
+     *
+     * @param dst the destination buffer
+     */
+    void copyTo(IntBuffer dst) {
+        dst.put(records.duplicate().rewind());
+    }
+
+    /**
+     * Extracts the day of the year from a record.
+     *
+     * @param rec the record
+     *
+     * @return the day of the year
+     */
+    public static int dayOfYear(int rec) {
+        return rec & DAY_OF_YEAR_MASK;
+    }
+
+    /**
+     * Extracts the day of the month from a record.
+     *
+     * @param rec the record
+     *
+     * @return the day of the month
+     */
+    public static int dayOfMonth(int rec) {
+        return (rec >>> DAY_OF_MONTH_SHIFT) & DAY_OF_MONTH_MASK;
+    }
+
+    /**
+     * Extracts the month number from a record.
+     *
+     * @param rec the record
+     *
+     * @return the month number, starting from 1
+     */
+    public static int month(int rec) {
+        return (rec >>> MONTH_SHIFT) & MONTH_MASK;
+    }
+
+    /**
+     * Extracts the week number from a record.
+     *
+     * @param rec the record
+     *
+     * @return the week number, starting from 1; 5 means no week
+     */
+    public static int week(int rec) {
+        return (dayOfMonth(rec) - 1) / 7 + 1;
+    }
+
+    /**
+     * Extracts the defunct day flag from a record.
+     *
+     * @param rec the record
+     *
+     * @return true if it is the day of the defunct
+     */
+    public static boolean isDefunctDay(int rec) {
+        return (rec & DEFUNCT_FLAG) != 0;
+    }
+
+    /**
+     * Extracts the last day of the month flag from a record.
+     *
+     * @param rec the record
+     *
+     * @return true if it is the last day of the month
+     */
+    public static boolean isLastOfMonth(int rec) {
+        return (rec & LAST_OF_MONTH_FLAG) != 0;
+    }
+
+    /**
+     * Extracts the number of days in the year from a record.
+     *
+     * @param rec the record
+     *
+     * @return the number of days in the year
+     */
+    public static int yearDays(int rec) {
+        return (rec >>> YEAR_DAYS_SHIFT) & YEAR_DAYS_MASK;
+    }
+}
@@ -0,0 +1,177 @@
+/*
+ *     plethonian-webapp - Plethonian calendar Web Application
+ *
+ *     Copyright (C) 2020 Marco Confalonieri <marco at marcoconfalonieri.it>
+ *
+ *     This program is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU Affero General Public License as published
+ *     by the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     This program is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU Affero General Public License for more details.
+ *
+ *     You should have received a copy of the GNU Affero General Public License
+ *     along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package it.marcoconfalonieri.plethonian.calendar.snapshot;
+
+import it.marcoconfalonieri.plethonian.calendar.MonthlyFestivity;
+import it.marcoconfalonieri.plethonian.calendar.PlethonianCalendar;
+import it.marcoconfalonieri.plethonian.calendar.PlethonianDay;
+import it.marcoconfalonieri.plethonian.calendar.PlethonianMonth;
+import it.marcoconfalonieri.plethonian.calendar.PlethonianMonthName;
+import it.marcoconfalonieri.plethonian.calendar.PlethonianWeekName;
+import it.marcoconfalonieri.plethonian.calendar.PlethonianYear;
+import it.marcoconfalonieri.plethonian.calendar.astropixel.PlethonianCalendarImpl;
+import java.time.LocalDate;
+import java.util.SortedSet;
+import java.util.TreeSet;
+
+/**
+ * Plethonian calendar that serves the lookups directly from a day table,
+ * without keeping any object in memory.
+ */
+public class DayTableCalendar implements PlethonianCalendar {
+    /**
+     * Festivities indexed by day of the month.
+     */
+    private static final MonthlyFestivity[] FESTIVITIES =
+            new MonthlyFestivity[31];
+
+    static {
+        for (MonthlyFestivity f : MonthlyFestivity.values()) {
+            FESTIVITIES[f.getDay()] = f;
+        }
+    }
+
+    /**
+     * Table of the days.
+     */
+    private final DayTable table;
+
+    /**
+     * Constructor.
+     *
+     * @param table the table of the days
+     */
+    public DayTableCalendar(DayTable table) {
+        this.table = table;
+    }
+
+    /**
+     * Getter for the table of the days.
+     *
+     * @return the table
+     */
+    public DayTable getTable() {
+        return table;
+    }
+
+    /**
+     * Returns the record of a date.
+     *
+     * @param date the date
+     * @param what what is being looked for, used in the error message
+     *
+     * @return the record
+     *
+     * @throws IllegalArgumentException if the date is not in the table
+     */
+    private int record(LocalDate date, String what) {
+        int rec = table.get(date);
+        if (rec == 0) {
+            throw new IllegalArgumentException("Cannot find a Plethonian "
+                    + what + " for " + date.toString());
+        }
+        return rec;
+    }
+
+    /**
+     * Creates a day from its record.
+     *
+     * @param epochDay the epoch day
+     * @param rec the record
+     *
+     * @return the day
+     */
+    private static PlethonianDay createDay(long epochDay, int rec) {
+        int dayOfMonth = DayTable.dayOfMonth(rec);
+        PlethonianDay pd = new PlethonianDay();
+        pd.setDayOfMonth(dayOfMonth);
+        pd.setDayOfYear(DayTable.dayOfYear(rec));
+        pd.setDefunctDay(DayTable.isDefunctDay(rec));
+        pd.setWeek(PlethonianWeekName.values()[DayTable.week(rec) - 1]);
+        pd.setMonth(PlethonianMonthName.values()[DayTable.month(rec) - 1]);
+        pd.setGregorianDate(LocalDate.ofEpochDay(epochDay));
+        pd.setMonthFestivity(FESTIVITIES[dayOfMonth]);
+        pd.setLabel(PlethonianCalendarImpl.getDayLabel(dayOfMonth,
+                DayTable.isLastOfMonth(rec)));
+        return pd;
+    }
+
+    /**
+     * Creates the month starting at the given day.
+     *
+     * @param firstEpochDay the epoch day of the first day of the month
+     *
+     * @return the month
+     */
+    private PlethonianMonth createMonth(long firstEpochDay) {
+        SortedSet<PlethonianDay> days = new TreeSet<>();
+        long epochDay = firstEpochDay;
+        int rec;
+        do {
+            rec = table.get(epochDay);
+            days.add(createDay(epochDay, rec));
+            epochDay++;
+        } while (!DayTable.isLastOfMonth(rec));
+        PlethonianMonth month = new PlethonianMonth();
+        month.setMonth(days.first().getMonth());
+        month.setFirstDay(LocalDate.ofEpochDay(firstEpochDay));
+        month.setDays(days);
+        return month;
+    }
+
+    @Override
+    public PlethonianYear getYear(LocalDate date) {
+        int rec = record(date, "year");
+        long firstEpochDay = date.toEpochDay() - DayTable.dayOfYear(rec) + 1;
+        int yearDays = DayTable.yearDays(rec);
+        PlethonianYear year = new PlethonianYear();
+        year.setFirstDay(LocalDate.ofEpochDay(firstEpochDay));
+        year.setDays(yearDays);
+        year.setMonths(new TreeSet<>());
+        long epochDay = firstEpochDay;
+        while (epochDay < firstEpochDay + yearDays) {
+            PlethonianMonth month = createMonth(epochDay);
+            year.getMonths().add(month);
+            epochDay += month.getDays().size();
+        }
+        return year;
+    }
+
+    @Override
+    public PlethonianMonth getMonth(LocalDate date) {
+        int rec = record(date, "month");
+        return createMonth(date.toEpochDay() - DayTable.dayOfMonth(rec) + 1);
+    }
+
+    @Override
+    public PlethonianDay getDay(LocalDate date) {
+        return createDay(date.toEpochDay(), record(date, "day"));
+    }
+
+    @Override
+    public LocalDate getFirstDate() {
+        return LocalDate.ofEpochDay(table.getFirstEpochDay());
+    }
+
+    @Override
+    public LocalDate getLastDate() {
+        return LocalDate.ofEpochDay(table.getFirstEpochDay() + table.size() - 1);
+    }
+}
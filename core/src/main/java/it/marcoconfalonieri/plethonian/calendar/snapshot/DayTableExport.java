@@ -0,0 +1,410 @@
+/*
+ *     plethonian-webapp - Plethonian calendar Web Application
+ *
+ *     Copyright (C) 2020 Marco Confalonieri <marco at marcoconfalonieri.it>
+ *
+ *     This program is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU Affero General Public License as published
+ *     by the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     This program is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU Affero General Public License for more details.
+ *
+ *     You should have received a copy of the GNU Affero General Public License
+ *     along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package it.marcoconfalonieri.plethonian.calendar.snapshot;
+
+import it.marcoconfalonieri.plethonian.calendar.MonthlyFestivity;
+import it.marcoconfalonieri.plethonian.calendar.astropixel.PlethonianCalendarImpl;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+
+/**
+ * Export of all the days of a table, one row per day, with the columns
+ * {@code date}, {@code year} (the Gregorian year the Plethonian year starts
+ * in), {@code day_of_year}, {@code month}, {@code day}, {@code week},
+ * {@code festivity}, {@code label} and {@code defunct}.
+ * <p>
+ * The export is a cursor that fills buffers a piece at a time, so that it can
+ * be written both to a blocking stream and to a non-blocking one. The rows
+ * are read straight from the packed records. Two formats are available:
+ * <ul>
+ * <li>CSV, with a header line and ISO dates;</li>
+ * <li>columnar, where each column is a run of big-endian fixed-width values
+ * after a header with the magic number, the format version, the number of
+ * rows and the columns. Each column is described by its name, the width of
+ * its values in bytes and the dictionary of its values, which is empty for
+ * the numeric columns.</li>
+ * </ul>
+ */
+public final class DayTableExport {
+    /**
+     * Formats of the export.
+     */
+    public enum Format {
+        CSV, COLUMNAR
+    }
+
+    /**
+     * Magic number of the columnar format.
+     */
+    private static final int MAGIC = 0x504c4358;
+    /**
+     * Version of the columnar format.
+     */
+    public static final int FORMAT_VERSION = 1;
+    /**
+     * Minimum size of the buffers to fill.
+     */
+    public static final int MIN_BUFFER = 64;
+    /**
+     * Names of the columns.
+     */
+    private static final String[] COLUMNS = {"date", "year", "day_of_year",
+        "month", "day", "week", "festivity", "label", "defunct"};
+    /**
+     * Widths of the columns in the columnar format.
+     */
+    private static final int[] WIDTHS = {4, 2, 2, 1, 1, 1, 1, 1, 1};
+    /**
+     * Index of the festivity column.
+     */
+    private static final int FESTIVITY_COLUMN = 6;
+    /**
+     * Index of the label column.
+     */
+    private static final int LABEL_COLUMN = 7;
+    /**
+     * Festivities by day of the month.
+     */
+    private static final MonthlyFestivity[] FESTIVITIES =
+            new MonthlyFestivity[31];
+    /**
+     * Labels of the days by code.
+     */
+    private static final String[] LABELS = new String[30];
+    /**
+     * Names of the festivities by code, as written in CSV.
+     */
+    private static final byte[][] FESTIVITY_CSV =
+            new byte[MonthlyFestivity.values().length + 1][];
+    /**
+     * Labels of the days by code, as written in CSV.
+     */
+    private static final byte[][] LABEL_CSV = new byte[LABELS.length][];
+
+    static {
+        FESTIVITY_CSV[0] = new byte[0];
+        for (MonthlyFestivity f : MonthlyFestivity.values()) {
+            FESTIVITIES[f.getDay()] = f;
+            FESTIVITY_CSV[f.ordinal() + 1] =
+                    f.name().getBytes(StandardCharsets.US_ASCII);
+        }
+        for (int i = 0; i < LABELS.length; i++) {
+            LABELS[i] = PlethonianCalendarImpl.getDayLabel(i + 1, false);
+            LABEL_CSV[i] = LABELS[i].getBytes(StandardCharsets.US_ASCII);
+        }
+    }
+
+    /**
+     * The table.
+     */
+    private final DayTable table;
+    /**
+     * The format.
+     */
+    private final Format format;
+    /**
+     * Header still to be written.
+     */
+    private final byte[] header;
+    /**
+     * Position in the header.
+     */
+    private int headerPos;
+    /**
+     * Current column, in the columnar format.
+     */
+    private int column;
+    /**
+     * Current row.
+     */
+    private int row;
+
+    /**
+     * Constructor.
+     *
+     * @param table the table
+     * @param format the format
+     */
+    public DayTableExport(DayTable table, Format format) {
+        this.table = table;
+        this.format = format;
+        this.header = (format == Format.CSV) ?
+                (String.join(",", COLUMNS) + "\n")
+                        .getBytes(StandardCharsets.US_ASCII) :
+                columnarHeader(table.size());
+    }
+
+    /**
+     * Builds the header of the columnar format.
+     *
+     * @param rows the number of rows
+     *
+     * @return the header
+     */
+    private static byte[] columnarHeader(int rows) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        ByteBuffer fixed = ByteBuffer.allocate(10);
+        fixed.putInt(MAGIC).put((byte) FORMAT_VERSION).putInt(rows)
+                .put((byte) COLUMNS.length);
+        bytes.write(fixed.array(), 0, fixed.position());
+        for (int c = 0; c < COLUMNS.length; c++) {
+            writeString(bytes, COLUMNS[c]);
+            bytes.write(WIDTHS[c]);
+            if (c == FESTIVITY_COLUMN) {
+                bytes.write(MonthlyFestivity.values().length + 1);
+                writeString(bytes, "");
+                for (MonthlyFestivity f : MonthlyFestivity.values()) {
+                    writeString(bytes, f.name());
+                }
+            } else if (c == LABEL_COLUMN) {
+                bytes.write(LABELS.length);
+                for (String label : LABELS) {
+                    writeString(bytes, label);
+                }
+            } else {
+                bytes.write(0);
+            }
+        }
+        return bytes.toByteArray();
+    }
+
+    /**
+     * Writes a short string prefixed by its length.
+     *
+     * @param bytes the destination
+     * @param s the string
+     */
+    private static void writeString(ByteArrayOutputStream bytes, String s) {
+        byte[] b = s.getBytes(StandardCharsets.UTF_8);
+        bytes.write(b.length);
+        bytes.write(b, 0, b.length);
+    }
+
+    /**
+     * Returns the length of the export.
+     *
+     * @return the length in bytes, or -1 if it is not known in advance
+     */
+    public long length() {
+        if (format == Format.CSV) {
+            return -1;
+        }
+        int rowWidth = 0;
+        for (int w : WIDTHS) {
+            rowWidth += w;
+        }
+        return header.length + (long) rowWidth * table.size();
+    }
+
+    /**
+     * Returns the festivity code of a record.
+     *
+     * @param rec the record
+     *
+     * @return 0 if there is no festivity, otherwise the ordinal plus one
+     */
+    private static int festivity(int rec) {
+        MonthlyFestivity f = FESTIVITIES[DayTable.dayOfMonth(rec)];
+        return (f != null) ? f.ordinal() + 1 : 0;
+    }
+
+    /**
+     * Returns the label code of a record.
+     *
+     * @param rec the record
+     *
+     * @return the index of the label
+     */
+    private static int label(int rec) {
+        return DayTable.isLastOfMonth(rec) ? LABELS.length - 1 :
+                DayTable.dayOfMonth(rec) - 1;
+    }
+
+    /**
+     * Returns the Gregorian year the Plethonian year of a record starts in.
+     *
+     * @param epochDay the epoch day of the record
+     * @param rec the record
+     *
+     * @return the year
+     */
+    private static int year(long epochDay, int rec) {
+        return LocalDate.ofEpochDay(epochDay - DayTable.dayOfYear(rec) + 1)
+                .getYear();
+    }
+
+    /**
+     * Writes a non-negative number in decimal.
+     *
+     * @param buf the buffer
+     * @param n the number
+     * @param digits the minimum number of digits
+     */
+    private static void putDecimal(ByteBuffer buf, int n, int digits) {
+        int d = 1;
+        int p = 10;
+        while (p <= n) {
+            d++;
+            p *= 10;
+        }
+        for (int i = d; i < digits; i++) {
+            buf.put((byte) '0');
+        }
+        for (p /= 10; p > 0; p /= 10) {
+            buf.put((byte) ('0' + n / p % 10));
+        }
+    }
+
+    /**
+     * Writes a CSV row.
+     *
+     * @param buf the buffer, with at least {@value #MIN_BUFFER} bytes left
+     * @param epochDay the epoch day of the row
+     */
+    private void putCsvRow(ByteBuffer buf, long epochDay) {
+        int rec = table.get(epochDay);
+        LocalDate date = LocalDate.ofEpochDay(epochDay);
+        putDecimal(buf, date.getYear(), 4);
+        buf.put((byte) '-');
+        putDecimal(buf, date.getMonthValue(), 2);
+        buf.put((byte) '-');
+        putDecimal(buf, date.getDayOfMonth(), 2);
+        buf.put((byte) ',');
+        putDecimal(buf, year(epochDay, rec), 1);
+        buf.put((byte) ',');
+        putDecimal(buf, DayTable.dayOfYear(rec), 1);
+        buf.put((byte) ',');
+        putDecimal(buf, DayTable.month(rec), 1);
+        buf.put((byte) ',');
+        putDecimal(buf, DayTable.dayOfMonth(rec), 1);
+        buf.put((byte) ',');
+        putDecimal(buf, DayTable.week(rec), 1);
+        buf.put((byte) ',');
+        buf.put(FESTIVITY_CSV[festivity(rec)]);
+        buf.put((byte) ',');
+        buf.put(LABEL_CSV[label(rec)]);
+        buf.put((byte) ',');
+        buf.put((byte) (DayTable.isDefunctDay(rec) ? '1' : '0'));
+        buf.put((byte) '\n');
+    }
+
+    /**
+     * Writes a value of the current column.
+     *
+     * @param buf the buffer
+     * @param epochDay the epoch day of the row
+     */
+    private void putValue(ByteBuffer buf, long epochDay) {
+        int rec = table.get(epochDay);
+        switch (column) {
+            case 0:
+                buf.putInt((int) epochDay);
+                break;
+            case 1:
+                buf.putShort((short) year(epochDay, rec));
+                break;
+            case 2:
+                buf.putShort((short) DayTable.dayOfYear(rec));
+                break;
+            case 3:
+                buf.put((byte) DayTable.month(rec));
+                break;
+            case 4:
+                buf.put((byte) DayTable.dayOfMonth(rec));
+                break;
+            case 5:
+                buf.put((byte) DayTable.week(rec));
+                break;
+            case FESTIVITY_COLUMN:
+                buf.put((byte) festivity(rec));
+                break;
+            case LABEL_COLUMN:
+                buf.put((byte) label(rec));
+                break;
+            default:
+                buf.put((byte) (DayTable.isDefunctDay(rec) ? 1 : 0));
+        }
+    }
+
+    /**
+     * Fills a buffer with the next part of the export.
+     *
+     * @param buf the buffer, with at least {@value #MIN_BUFFER} bytes left
+     *
+     * @return true if there is more to write, false if the export is complete
+     */
+    public boolean fill(ByteBuffer buf) {
+        if (headerPos < header.length) {
+            int n = Math.min(buf.remaining(), header.length - headerPos);
+            buf.put(header, headerPos, n);
+            headerPos += n;
+            if (headerPos < header.length) {
+                return true;
+            }
+        }
+        long first = table.getFirstEpochDay();
+        int size = table.size();
+        if (format == Format.CSV) {
+            while (row < size && buf.remaining() >= MIN_BUFFER) {
+                putCsvRow(buf, first + row);
+                row++;
+            }
+            return row < size;
+        }
+        while (column < COLUMNS.length) {
+            int width = WIDTHS[column];
+            while (row < size && buf.remaining() >= width) {
+                putValue(buf, first + row);
+                row++;
+            }
+            if (row < size) {
+                return true;
+            }
+            column++;
+            row = 0;
+        }
+        return false;
+    }
+
+    /**
+     * Writes a whole export to a stream.
+     *
+     * @param table the table
+     * @param format the format
+     * @param out the stream
+     *
+     * @throws IOException in case of errors writing the stream
+     */
+    public static void write(DayTable table, Format format, OutputStream out)
+            throws IOException {
+        DayTableExport export = new DayTableExport(table, format);
+        ByteBuffer buf = ByteBuffer.allocate(8192);
+        boolean more;
+        do {
+            buf.clear();
+            more = export.fill(buf);
+            out.write(buf.array(), 0, buf.position());
+        } while (more);
+    }
+}
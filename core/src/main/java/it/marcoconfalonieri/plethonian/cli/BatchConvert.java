@@ -0,0 +1,296 @@
+/*
+ *     plethonian-webapp - Plethonian calendar Web Application
+ *
+ *     Copyright (C) 2020 Marco Confalonieri <marco at marcoconfalonieri.it>
+ *
+ *     This program is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU Affero General Public License as published
+ *     by the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     This program is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU Affero General Public License for more details.
+ *
+ *     You should have received a copy of the GNU Affero General Public License
+ *     along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package it.marcoconfalonieri.plethonian.cli;
+
+import it.marcoconfalonieri.plethonian.calendar.astropixel.PlethonianCalendarImpl;
+import it.marcoconfalonieri.plethonian.calendar.snapshot.DayTable;
+import java.io.FileOutputStream;
+import java.io.FileDescriptor;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Command-line tool that annotates the lines of a file with Plethonian dates.
+ * <pre>
+ * java -cp ... it.marcoconfalonieri.plethonian.cli.BatchConvert
+ *     [--threads N] [--column N] [--separator C] [--chunk-mb N] [--header]
+ *     [--data DIR] input output
+ * </pre>
+ * The input file is memory-mapped in chunks that end at a line terminator,
+ * the chunks are annotated by a pool of worker threads and written in their
+ * original order; the output may be {@code -} for the standard output. The
+ * throughput is reported on the standard error.
+ * <p>
+ * Without {@code --column} the first ISO date of each line is taken, which
+ * suits log files; with it the date is read at the start of the given field,
+ * counted from 0. Quoted fields are not supported.
+ */
+public final class BatchConvert {
+    /**
+     * Usage message.
+     */
+    private static final String USAGE = "Usage: BatchConvert [--threads N] "
+            + "[--column N] [--separator C] [--chunk-mb N] [--header] "
+            + "[--data DIR] input output";
+    /**
+     * Exit status for wrong arguments.
+     */
+    private static final int EXIT_USAGE = 2;
+    /**
+     * Exit status for errors.
+     */
+    private static final int EXIT_ERROR = 1;
+
+    /**
+     * Number of worker threads.
+     */
+    private int threads = Runtime.getRuntime().availableProcessors();
+    /**
+     * Column of the date, or -1 for the first date of the line.
+     */
+    private int column = -1;
+    /**
+     * Field separator.
+     */
+    private char separator = ',';
+    /**
+     * Size of the chunks in bytes.
+     */
+    private long chunkSize = 8L << 20;
+    /**
+     * True if the first line is a header.
+     */
+    private boolean header;
+    /**
+     * Directory of the astronomical data, or null for the bundled data.
+     */
+    private Path dataDir;
+    /**
+     * Input file.
+     */
+    private Path input;
+    /**
+     * Output file, or null for the standard output.
+     */
+    private Path output;
+
+    /**
+     * Private constructor.
+     */
+    private BatchConvert() {
+    }
+
+    /**
+     * Parses the arguments.
+     *
+     * @param args the arguments
+     *
+     * @return the tool
+     *
+     * @throws IllegalArgumentException if the arguments are wrong
+     */
+    static BatchConvert parse(String[] args) {
+        BatchConvert tool = new BatchConvert();
+        int i = 0;
+        for (; i < args.length && args[i].startsWith("--"); i++) {
+            String option = args[i];
+            if (option.equals("--header")) {
+                tool.header = true;
+                continue;
+            }
+            if (i + 1 == args.length) {
+                throw new IllegalArgumentException("Missing value of "
+                        + option);
+            }
+            String value = args[++i];
+            switch (option) {
+                case "--threads":
+                    tool.threads = Integer.parseInt(value);
+                    break;
+                case "--column":
+                    tool.column = Integer.parseInt(value);
+                    break;
+                case "--separator":
+                    if (value.length() != 1 || value.charAt(0) > 127) {
+                        throw new IllegalArgumentException(
+                                "The separator must be an ASCII character");
+                    }
+                    tool.separator = value.charAt(0);
+                    break;
+                case "--chunk-mb":
+                    tool.chunkSize = Long.parseLong(value) << 20;
+                    break;
+                case "--data":
+                    tool.dataDir = Paths.get(value);
+                    break;
+                default:
+                    throw new IllegalArgumentException("Unknown option "
+                            + option);
+            }
+        }
+        if (args.length - i != 2) {
+            throw new IllegalArgumentException("Expected input and output");
+        }
+        if (tool.threads < 1 || tool.column < -1 || tool.chunkSize < 1 ||
+                tool.chunkSize > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Invalid option value");
+        }
+        tool.input = Paths.get(args[i]);
+        tool.output = args[i + 1].equals("-") ? null : Paths.get(args[i + 1]);
+        return tool;
+    }
+
+    /**
+     * Writes a chunk as soon as it is annotated.
+     *
+     * @param chunk the pending chunk
+     * @param out the output
+     *
+     * @return the annotated chunk
+     *
+     * @throws IOException in case of errors
+     */
+    private static DateAnnotator.Chunk write(Future<DateAnnotator.Chunk> chunk,
+            WritableByteChannel out) throws IOException {
+        DateAnnotator.Chunk c;
+        try {
+            c = chunk.get();
+        } catch (ExecutionException ex) {
+            throw new IOException("Conversion failed", ex.getCause());
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted", ex);
+        }
+        ByteBuffer buf = ByteBuffer.wrap(c.getBytes(), 0, c.getLength());
+        while (buf.hasRemaining()) {
+            out.write(buf);
+        }
+        return c;
+    }
+
+    /**
+     * Converts the input file.
+     *
+     * @throws IOException in case of errors reading or writing the files
+     */
+    private void run() throws IOException {
+        long begin = System.nanoTime();
+        PlethonianCalendarImpl calendar = (dataDir != null) ?
+                new PlethonianCalendarImpl(dataDir) :
+                new PlethonianCalendarImpl();
+        DateAnnotator annotator = new DateAnnotator(DayTable.build(calendar),
+                column, separator);
+        long start = System.nanoTime();
+        System.err.printf("Calendar built in %.3f s%n",
+                (start - begin) / 1e9);
+        AtomicInteger count = new AtomicInteger();
+        ExecutorService pool = Executors.newFixedThreadPool(threads, r -> {
+            Thread t = new Thread(r, "convert-" + count.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        });
+        long rows = 0;
+        long dates = 0;
+        long size;
+        try (FileChannel in = FileChannel.open(input,
+                StandardOpenOption.READ);
+                WritableByteChannel out = (output != null) ?
+                        FileChannel.open(output, StandardOpenOption.CREATE,
+                                StandardOpenOption.TRUNCATE_EXISTING,
+                                StandardOpenOption.WRITE) :
+                        new FileOutputStream(FileDescriptor.out)
+                                .getChannel()) {
+            size = in.size();
+            Deque<Future<DateAnnotator.Chunk>> pending = new ArrayDeque<>();
+            long pos = 0;
+            while (pos < size) {
+                int len = (int) Math.min(chunkSize, size - pos);
+                MappedByteBuffer map = in.map(FileChannel.MapMode.READ_ONLY,
+                        pos, len);
+                int end = len;
+                if (pos + len < size) {
+                    while (end > 0 && map.get(end - 1) != '\n') {
+                        end--;
+                    }
+                    if (end == 0) {
+                        throw new IOException("Line longer than the chunk "
+                                + "at offset " + pos);
+                    }
+                }
+                map.limit(end);
+                boolean first = header && pos == 0;
+                pending.add(pool.submit(() -> annotator.annotate(map, first)));
+                pos += end;
+                while (pending.size() >= 2 * threads) {
+                    DateAnnotator.Chunk c = write(pending.poll(), out);
+                    rows += c.getRows();
+                    dates += c.getDates();
+                }
+            }
+            while (!pending.isEmpty()) {
+                DateAnnotator.Chunk c = write(pending.poll(), out);
+                rows += c.getRows();
+                dates += c.getDates();
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+        double seconds = (System.nanoTime() - start) / 1e9;
+        System.err.printf("Converted %d rows (%d dates, %.1f MB) in %.3f s "
+                + "with %d threads: %.0f rows/s%n", rows, dates, size / 1e6,
+                seconds, threads, rows / seconds);
+    }
+
+    /**
+     * Entry point.
+     *
+     * @param args the arguments
+     */
+    public static void main(String[] args) {
+        BatchConvert tool;
+        try {
+            tool = parse(args);
+        } catch (IllegalArgumentException ex) {
+            System.err.println(ex.getMessage());
+            System.err.println(USAGE);
+            System.exit(EXIT_USAGE);
+            return;
+        }
+        try {
+            tool.run();
+        } catch (IOException ex) {
+            System.err.println("Error: " + ex.getMessage());
+            System.exit(EXIT_ERROR);
+        }
+    }
+}
@@ -0,0 +1,340 @@
+/*
+ *     plethonian-webapp - Plethonian calendar Web Application
+ *
+ *     Copyright (C) 2020 Marco Confalonieri <marco at marcoconfalonieri.it>
+ *
+ *     This program is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU Affero General Public License as published
+ *     by the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     This program is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU Affero General Public License for more details.
+ *
+ *     You should have received a copy of the GNU Affero General Public License
+ *     along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package it.marcoconfalonieri.plethonian.cli;
+
+import it.marcoconfalonieri.plethonian.calendar.snapshot.DayTable;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.Arrays;
+
+/**
+ * Annotator of the lines of a text with the Plethonian date of the ISO date
+ * they contain. Three fields are appended to each line, after the separator:
+ * the Gregorian year the Plethonian year starts in, the month and the day of
+ * the month. They are left empty when the line has no valid date in the
+ * range of the calendar.
+ * <p>
+ * The dates are parsed from the bytes and converted through a table of
+ * packed ints, so that annotating a chunk allocates nothing but its output.
+ * An annotator holds no mutable state and can be shared by any number of
+ * threads.
+ */
+public final class DateAnnotator {
+    /**
+     * Length of an ISO date.
+     */
+    private static final int DATE_LENGTH = 10;
+    /**
+     * Shift of the year in the packed values.
+     */
+    private static final int YEAR_SHIFT = 10;
+    /**
+     * Shift of the month in the packed values.
+     */
+    private static final int MONTH_SHIFT = 5;
+    /**
+     * Mask of the day and of the month in the packed values.
+     */
+    private static final int FIELD_MASK = 0x1f;
+    /**
+     * Value returned by the parser for an invalid date.
+     */
+    static final long INVALID = Long.MIN_VALUE;
+
+    /**
+     * Annotated chunk.
+     */
+    public static final class Chunk {
+        private final byte[] bytes;
+        private final int length;
+        private final int rows;
+        private final int dates;
+
+        Chunk(byte[] bytes, int length, int rows, int dates) {
+            this.bytes = bytes;
+            this.length = length;
+            this.rows = rows;
+            this.dates = dates;
+        }
+
+        /**
+         * Getter for the output bytes.
+         *
+         * @return the buffer of the output, valid up to the length
+         */
+        public byte[] getBytes() {
+            return bytes;
+        }
+
+        /**
+         * Getter for the length of the output.
+         *
+         * @return the number of valid bytes
+         */
+        public int getLength() {
+            return length;
+        }
+
+        /**
+         * Getter for the number of rows.
+         *
+         * @return the number of lines annotated
+         */
+        public int getRows() {
+            return rows;
+        }
+
+        /**
+         * Getter for the number of dates.
+         *
+         * @return the number of lines with a date in the calendar
+         */
+        public int getDates() {
+            return dates;
+        }
+    }
+
+    /**
+     * Epoch day of the first day in the table.
+     */
+    private final long firstEpochDay;
+    /**
+     * Year, month and day of each day of the table, packed.
+     */
+    private final int[] packed;
+    /**
+     * Column of the date, or -1 to take the first date of the line.
+     */
+    private final int column;
+    /**
+     * Field separator.
+     */
+    private final byte separator;
+    /**
+     * Annotation of the header line.
+     */
+    private final byte[] names;
+
+    /**
+     * Constructor.
+     *
+     * @param table the table of the days
+     * @param column the column of the date, starting from 0, or -1 to take
+     *     the first date found in each line
+     * @param separator the field separator, an ASCII character
+     */
+    public DateAnnotator(DayTable table, int column, char separator) {
+        this.firstEpochDay = table.getFirstEpochDay();
+        this.packed = new int[table.size()];
+        for (int i = 0; i < packed.length; i++) {
+            int rec = table.getAt(i);
+            int year = LocalDate.ofEpochDay(firstEpochDay + i
+                    - DayTable.dayOfYear(rec) + 1).getYear();
+            packed[i] = year << YEAR_SHIFT
+                    | DayTable.month(rec) << MONTH_SHIFT
+                    | DayTable.dayOfMonth(rec);
+        }
+        this.column = column;
+        this.separator = (byte) separator;
+        this.names = (separator + "plethonian_year" + separator
+                + "plethonian_month" + separator + "plethonian_day")
+                .getBytes(StandardCharsets.US_ASCII);
+    }
+
+    /**
+     * Computes the epoch day of a Gregorian date.
+     *
+     * @param y the year
+     * @param m the month, from 1 to 12
+     * @param d the day of the month
+     *
+     * @return the epoch day
+     */
+    static long epochDay(int y, int m, int d) {
+        int year = (m <= 2) ? y - 1 : y;
+        int era = ((year >= 0) ? year : year - 399) / 400;
+        int yoe = year - era * 400;
+        int doy = (153 * (m + ((m > 2) ? -3 : 9)) + 2) / 5 + d - 1;
+        int doe = yoe * 365 + yoe / 4 - yoe / 100 + doy;
+        return era * 146097L + doe - 719468;
+    }
+
+    /**
+     * Returns the value of a digit.
+     *
+     * @param b the byte
+     *
+     * @return the value, or a negative number if it is not a digit
+     */
+    private static int digit(byte b) {
+        int v = b - '0';
+        return (v >= 0 && v <= 9) ? v : -100_000;
+    }
+
+    /**
+     * Parses an ISO date.
+     *
+     * @param in the buffer
+     * @param pos the position of the date, with at least 10 bytes after it
+     *
+     * @return the epoch day, or {@link #INVALID}
+     */
+    static long parseDate(ByteBuffer in, int pos) {
+        if (in.get(pos + 4) != '-' || in.get(pos + 7) != '-') {
+            return INVALID;
+        }
+        int y = digit(in.get(pos)) * 1000 + digit(in.get(pos + 1)) * 100
+                + digit(in.get(pos + 2)) * 10 + digit(in.get(pos + 3));
+        int m = digit(in.get(pos + 5)) * 10 + digit(in.get(pos + 6));
+        int d = digit(in.get(pos + 8)) * 10 + digit(in.get(pos + 9));
+        if (y < 0 || m < 1 || m > 12 || d < 1) {
+            return INVALID;
+        }
+        int days;
+        if (m == 2) {
+            boolean leap = (y % 4 == 0) && (y % 100 != 0 || y % 400 == 0);
+            days = leap ? 29 : 28;
+        } else {
+            days = (m == 4 || m == 6 || m == 9 || m == 11) ? 30 : 31;
+        }
+        return (d <= days) ? epochDay(y, m, d) : INVALID;
+    }
+
+    /**
+     * Finds the date of a line.
+     *
+     * @param in the buffer
+     * @param start the start of the line
+     * @param end the end of the line, excluded
+     *
+     * @return the epoch day, or {@link #INVALID}
+     */
+    private long findDate(ByteBuffer in, int start, int end) {
+        if (column >= 0) {
+            int pos = start;
+            for (int c = 0; c < column; c++) {
+                while (pos < end && in.get(pos) != separator) {
+                    pos++;
+                }
+                pos++;
+            }
+            return (pos + DATE_LENGTH <= end) ? parseDate(in, pos) : INVALID;
+        }
+        for (int pos = start; pos + DATE_LENGTH <= end; pos++) {
+            if (in.get(pos + 4) == '-' && digit(in.get(pos)) >= 0 &&
+                    (pos == start || digit(in.get(pos - 1)) < 0)) {
+                long epochDay = parseDate(in, pos);
+                if (epochDay != INVALID) {
+                    return epochDay;
+                }
+            }
+        }
+        return INVALID;
+    }
+
+    /**
+     * Writes a number of at least a given number of digits.
+     *
+     * @param out the output
+     * @param len the length of the output
+     * @param n the number, not negative
+     * @param digits the minimum number of digits
+     *
+     * @return the new length of the output
+     */
+    private static int putDecimal(byte[] out, int len, int n, int digits) {
+        int d = 1;
+        for (int p = 10; p <= n; p *= 10) {
+            d++;
+        }
+        d = Math.max(d, digits);
+        for (int i = len + d - 1; i >= len; i--) {
+            out[i] = (byte) ('0' + n % 10);
+            n /= 10;
+        }
+        return len + d;
+    }
+
+    /**
+     * Annotates a chunk of lines. The last line may lack its terminator;
+     * carriage returns before the terminators are kept.
+     *
+     * @param in the chunk, from its position to its limit
+     * @param header true if the first line is a header, which gets the names
+     *     of the fields instead of a date
+     *
+     * @return the annotated chunk
+     */
+    public Chunk annotate(ByteBuffer in, boolean header) {
+        int start = in.position();
+        int limit = in.limit();
+        byte[] out = new byte[(limit - start) * 3 / 2 + 64];
+        int len = 0;
+        int rows = 0;
+        int dates = 0;
+        while (start < limit) {
+            int nl = start;
+            while (nl < limit && in.get(nl) != '\n') {
+                nl++;
+            }
+            int end = (nl > start && in.get(nl - 1) == '\r') ? nl - 1 : nl;
+            int next = (nl < limit) ? nl + 1 : limit;
+            // Line, annotation of at most 16 bytes and terminator.
+            int needed = len + (next - start) + 16;
+            if (needed > out.length) {
+                out = Arrays.copyOf(out, Math.max(needed, out.length * 2));
+            }
+            for (int i = start; i < end; i++) {
+                out[len++] = in.get(i);
+            }
+            if (header && rows == 0) {
+                if (len + names.length + 2 > out.length) {
+                    out = Arrays.copyOf(out, len + names.length + 2);
+                }
+                System.arraycopy(names, 0, out, len, names.length);
+                len += names.length;
+            } else {
+                long epochDay = findDate(in, start, end);
+                long idx = epochDay - firstEpochDay;
+                out[len++] = separator;
+                if (epochDay != INVALID && idx >= 0 && idx < packed.length) {
+                    int p = packed[(int) idx];
+                    len = putDecimal(out, len, p >>> YEAR_SHIFT, 4);
+                    out[len++] = separator;
+                    len = putDecimal(out, len, (p >>> MONTH_SHIFT)
+                            & FIELD_MASK, 1);
+                    out[len++] = separator;
+                    len = putDecimal(out, len, p & FIELD_MASK, 1);
+                    dates++;
+                } else {
+                    out[len++] = separator;
+                    out[len++] = separator;
+                }
+            }
+            for (int i = end; i < next; i++) {
+                out[len++] = in.get(i);
+            }
+            rows++;
+            start = next;
+        }
+        return new Chunk(out, len, rows, dates);
+    }
+}
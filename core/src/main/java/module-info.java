@@ -0,0 +1,32 @@
+/*
+ *     plethonian-webapp - Plethonian calendar Web Application
+ *
+ *     Copyright (C) 2020 Marco Confalonieri <marco at marcoconfalonieri.it>
+ *
+ *     This program is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU Affero General Public License as published
+ *     by the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     This program is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU Affero General Public License for more details.
+ *
+ *     You should have received a copy of the GNU Affero General Public License
+ *     along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+/**
+ * Engine of the Plethonian calendar: the calendar model, its computation
+ * from the astronomical tables and the packed day tables with their
+ * snapshots. It has no dependencies outside the JDK; jdk.management is
+ * needed to measure the allocations of the construction phases.
+ */
+module it.marcoconfalonieri.plethonian.core {
+    requires jdk.management;
+
+    exports it.marcoconfalonieri.plethonian.calendar;
+    exports it.marcoconfalonieri.plethonian.calendar.astropixel;
+    exports it.marcoconfalonieri.plethonian.calendar.snapshot;
+}
@@ -0,0 +1,198 @@
+/*
+ *     plethonian-webapp - Plethonian calendar Web Application
+ *
+ *     Copyright (C) 2020 Marco Confalonieri <marco at marcoconfalonieri.it>
+ *
+ *     This program is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU Affero General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     This program is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU Affero General Public License for more details.
+ *
+ *     You should have received a copy of the GNU Affero General Public License
+ *     along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package it.marcoconfalonieri.plethonian.calendar.astropixel;
+
+import it.marcoconfalonieri.plethonian.calendar.PlethonianDay;
+import it.marcoconfalonieri.plethonian.calendar.PlethonianMonth;
+import it.marcoconfalonieri.plethonian.calendar.PlethonianYear;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.time.Month;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ *
+ * @author Marco Confalonieri {@literal <marco.confalonieri@elits.com>}
+ */
+public class PlethonianCalendarImplTest {
+    private static final LocalDate REF_DATE = LocalDate.of(2003, Month.MARCH,
+            3);
+    
+    public PlethonianCalendarImplTest() {
+    }
+
+    protected PlethonianCalendarImpl createInstance() {
+        PlethonianCalendarImpl impl = null;
+        try {
+            impl = new PlethonianCalendarImpl();
+        } catch (IOException ex) {
+            ex.printStackTrace(System.err);
+            fail("Unexpected IOException " + ex.getMessage());
+        }
+        return impl;
+    }
+    
+    /**
+     * Test of constructor, of class PlethonianCalendarImpl.
+     */
+    @Test
+    public void testPlethonianCalendarImpl() {
+        createInstance();
+    }
+    
+    /**
+     * Test of getYear method, of class PlethonianCalendarImpl.
+     */
+    @Test
+    public void testGetYear() {
+        System.out.println("getYear");
+        PlethonianCalendarImpl instance = createInstance();
+        LocalDate expResult = LocalDate.of(2003, Month.JANUARY, 3);
+        PlethonianYear result = instance.getYear(REF_DATE);
+        System.out.println(result.getFirstDay());
+        assertEquals(expResult, result.getFirstDay());
+    }
+
+    /**
+     * Test of getMonth method, of class PlethonianCalendarImpl.
+     */
+    @Test
+    public void testGetMonth() {
+        System.out.println("getMonth");
+        PlethonianCalendarImpl instance = createInstance();
+        LocalDate expResult = LocalDate.of(2003, Month.FEBRUARY, 2);
+        PlethonianMonth result = instance.getMonth(REF_DATE);
+        assertEquals(expResult, result.getFirstDay());
+    }
+
+    /**
+     * Test of getDay method, of class PlethonianCalendarImpl.
+     */
+    @Test
+    public void testGetDay() {
+        System.out.println("getDay");
+        PlethonianCalendarImpl instance = createInstance();
+        PlethonianDay result = instance.getDay(REF_DATE);
+        assertEquals(REF_DATE, result.getGregorianDate());
+
+    }
+    
+    @Test
+    public void testGetDaySpecial() {
+        System.out.println("getDaySpecial");
+        LocalDate date = LocalDate.of(2020, Month.DECEMBER, 20);
+        PlethonianCalendarImpl instance = createInstance();
+        PlethonianDay result = instance.getDay(date);
+        assertEquals(date, result.getGregorianDate());
+
+    }
+
+    /**
+     * Test of the length of the years and of the position of the defunct
+     * day, of class PlethonianCalendarImpl.
+     */
+    @Test
+    public void testYearLength() {
+        System.out.println("yearLength");
+        assertEquals(355, PlethonianCalendarImpl.countDays(
+                LocalDate.of(2003, Month.JANUARY, 3),
+                LocalDate.of(2003, Month.DECEMBER, 24)));
+        PlethonianCalendarImpl instance = createInstance();
+        assertEquals(355, instance.getYear(REF_DATE).getDays());
+        PlethonianDay defunct = instance.getDay(
+                LocalDate.of(2003, Month.DECEMBER, 21));
+        assertTrue(defunct.isDefunctDay());
+        assertEquals(353, defunct.getDayOfYear());
+        assertEquals(28, defunct.getDayOfMonth());
+
+        for (PlethonianYear year : instance.getYears()) {
+            int days = 0;
+            int defunctDays = 0;
+            for (PlethonianMonth month : year.getMonths()) {
+                days += month.getDays().size();
+                for (PlethonianDay day : month.getDays()) {
+                    if (day.isDefunctDay()) {
+                        defunctDays++;
+                        assertEquals(year.getDays() - 2, day.getDayOfYear());
+                    }
+                }
+            }
+            assertEquals(days, year.getDays(), year.getFirstDay().toString());
+            assertEquals(1, defunctDays, year.getFirstDay().toString());
+        }
+    }
+
+    /**
+     * Test that the tables in a data directory override the resources.
+     */
+    @Test
+    public void testDataDirectory(@TempDir Path dir) throws IOException {
+        System.out.println("dataDirectory");
+        String defaultChecksum = PlethonianCalendarImpl.computeDataChecksum();
+        assertEquals(defaultChecksum,
+                PlethonianCalendarImpl.computeDataChecksum(dir));
+
+        List<String> lines;
+        try (InputStream in = getClass().getResourceAsStream(
+                "/com/astropixels/sun/solstices-equinoxes.txt")) {
+            lines = Arrays.asList(new String(in.readAllBytes(),
+                    StandardCharsets.UTF_8).split("\n"));
+        }
+        // Keep the years up to 2010
+        Files.write(dir.resolve("solstices-equinoxes.txt"),
+                lines.subList(0, 10), StandardCharsets.UTF_8);
+
+        assertNotEquals(defaultChecksum,
+                PlethonianCalendarImpl.computeDataChecksum(dir));
+        PlethonianCalendarImpl instance = new PlethonianCalendarImpl(dir);
+        assertTrue(instance.getYears().size() <
+                createInstance().getYears().size());
+        assertEquals(REF_DATE, instance.getDay(REF_DATE).getGregorianDate());
+    }
+
+    /**
+     * Test of getConstructionStats method, of class PlethonianCalendarImpl.
+     */
+    @Test
+    public void testGetConstructionStats() {
+        System.out.println("getConstructionStats");
+        PlethonianCalendarImpl instance = createInstance();
+        ConstructionStats stats = instance.getConstructionStats();
+        assertEquals(ConstructionPhase.values().length,
+                stats.getPhases().size());
+        for (PhaseStats ps : stats.getPhases()) {
+            assertTrue(ps.getNanos() > 0, ps.toString());
+            assertTrue(ps.getRows() > 0, ps.toString());
+        }
+        assertEquals(instance.getYears().size(),
+                stats.getPhase(ConstructionPhase.YEARS).getRows());
+        assertTrue(stats.getTotalNanos() >=
+                stats.getPhase(ConstructionPhase.YEARS).getNanos());
+    }
+}
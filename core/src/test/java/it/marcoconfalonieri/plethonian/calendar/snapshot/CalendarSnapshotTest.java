@@ -0,0 +1,200 @@
+/*
+ *     plethonian-webapp - Plethonian calendar Web Application
+ *
+ *     Copyright (C) 2020 Marco Confalonieri <marco at marcoconfalonieri.it>
+ *
+ *     This program is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU Affero General Public License as published
+ *     by the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     This program is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU Affero General Public License for more details.
+ *
+ *     You should have received a copy of the GNU Affero General Public License
+ *     along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package it.marcoconfalonieri.plethonian.calendar.snapshot;
+
+import it.marcoconfalonieri.plethonian.calendar.PlethonianCalendar;
+import it.marcoconfalonieri.plethonian.calendar.PlethonianDay;
+import it.marcoconfalonieri.plethonian.calendar.PlethonianMonth;
+import it.marcoconfalonieri.plethonian.calendar.PlethonianYear;
+import it.marcoconfalonieri.plethonian.calendar.astropixel.PlethonianCalendarImpl;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * Test of the calendar snapshots.
+ */
+public class CalendarSnapshotTest {
+    private static PlethonianCalendarImpl impl;
+    private static String checksum;
+
+    @BeforeAll
+    public static void setUp() throws IOException {
+        impl = new PlethonianCalendarImpl();
+        checksum = PlethonianCalendarImpl.computeDataChecksum();
+    }
+
+    private static void assertSameDay(PlethonianDay expected,
+            PlethonianDay actual) {
+        LocalDate date = expected.getGregorianDate();
+        assertEquals(date, actual.getGregorianDate());
+        assertEquals(expected.getDayOfMonth(), actual.getDayOfMonth(),
+                "dayOfMonth " + date);
+        assertEquals(expected.getDayOfYear(), actual.getDayOfYear(),
+                "dayOfYear " + date);
+        assertEquals(expected.getMonth(), actual.getMonth(), "month " + date);
+        assertEquals(expected.getWeek(), actual.getWeek(), "week " + date);
+        assertEquals(expected.isDefunctDay(), actual.isDefunctDay(),
+                "defunctDay " + date);
+        assertEquals(expected.getMonthFestivity(), actual.getMonthFestivity(),
+                "festivity " + date);
+        assertEquals(expected.getLabel(), actual.getLabel(), "label " + date);
+    }
+
+    private static void assertSameMonth(PlethonianMonth expected,
+            PlethonianMonth actual) {
+        assertEquals(expected.getFirstDay(), actual.getFirstDay());
+        assertEquals(expected.getMonth(), actual.getMonth());
+        assertEquals(expected.getDays().size(), actual.getDays().size());
+        Iterator<PlethonianDay> it = actual.getDays().iterator();
+        for (PlethonianDay day : expected.getDays()) {
+            assertSameDay(day, it.next());
+        }
+    }
+
+    /**
+     * Test that every day of the table matches the computed calendar.
+     */
+    @Test
+    public void testDayTable() {
+        DayTableCalendar table = new DayTableCalendar(DayTable.build(impl));
+        for (PlethonianYear year : impl.getYears()) {
+            for (PlethonianMonth month : year.getMonths()) {
+                for (PlethonianDay day : month.getDays()) {
+                    assertSameDay(day, table.getDay(day.getGregorianDate()));
+                }
+            }
+        }
+        assertEquals(impl.getFirstDate(), table.getFirstDate());
+        assertEquals(impl.getLastDate(), table.getLastDate());
+        assertSameDay(impl.getDay(impl.getLastDate()),
+                table.getDay(table.getLastDate()));
+    }
+
+    /**
+     * Checks that a calendar supports exactly the dates from its first to its
+     * last one.
+     */
+    private static void assertEdges(PlethonianCalendar calendar,
+            LocalDate first, LocalDate last) {
+        assertEquals(first, calendar.getFirstDate());
+        assertEquals(last, calendar.getLastDate());
+        for (LocalDate date : new LocalDate[] {first, last}) {
+            assertEquals(date, calendar.getDay(date).getGregorianDate());
+            assertTrue(calendar.getMonth(date).getDays().contains(
+                    calendar.getDay(date)));
+            assertTrue(calendar.getYear(date).getMonths().contains(
+                    calendar.getMonth(date)));
+        }
+        for (LocalDate date : new LocalDate[] {first.minusDays(1),
+                last.plusDays(1), last.plusYears(1), LocalDate.of(1990, 1, 1),
+                LocalDate.MIN, LocalDate.MAX}) {
+            assertThrows(IllegalArgumentException.class,
+                    () -> calendar.getDay(date), date.toString());
+            assertThrows(IllegalArgumentException.class,
+                    () -> calendar.getMonth(date), date.toString());
+            assertThrows(IllegalArgumentException.class,
+                    () -> calendar.getYear(date), date.toString());
+        }
+    }
+
+    /**
+     * Test that the computed calendar and the table reject the same dates,
+     * also when the data end before 2100.
+     */
+    @Test
+    public void testEdgeDates(@TempDir Path dir) throws IOException {
+        DayTableCalendar table = new DayTableCalendar(DayTable.build(impl));
+        assertEdges(impl, table.getFirstDate(), table.getLastDate());
+        assertEdges(table, impl.getFirstDate(), impl.getLastDate());
+
+        List<String> lines;
+        try (InputStream in = getClass().getResourceAsStream(
+                "/com/astropixels/sun/solstices-equinoxes.txt")) {
+            lines = Arrays.asList(new String(in.readAllBytes(),
+                    StandardCharsets.UTF_8).split("\n"));
+        }
+        // Keep the years up to 2030
+        Files.write(dir.resolve("solstices-equinoxes.txt"),
+                lines.subList(0, 30), StandardCharsets.UTF_8);
+        PlethonianCalendarImpl truncated = new PlethonianCalendarImpl(dir);
+        assertTrue(truncated.getLastDate().getYear() <= 2031);
+        DayTableCalendar truncatedTable =
+                new DayTableCalendar(DayTable.build(truncated));
+        assertEdges(truncated, truncatedTable.getFirstDate(),
+                truncatedTable.getLastDate());
+        assertEdges(truncatedTable, truncated.getFirstDate(),
+                truncated.getLastDate());
+    }
+
+    /**
+     * Test of the write and open round trip.
+     */
+    @Test
+    public void testWriteOpen(@TempDir Path dir) throws IOException {
+        assertNull(CalendarSnapshot.open(dir, checksum));
+        Path file = CalendarSnapshot.write(DayTable.build(impl), checksum,
+                dir);
+        assertTrue(Files.isRegularFile(file));
+
+        DayTableCalendar mapped =
+                new DayTableCalendar(CalendarSnapshot.open(dir, checksum));
+        LocalDate date = impl.getYears().first().getFirstDay();
+        LocalDate end = impl.getYears().last().getFirstDay();
+        while (date.isBefore(end)) {
+            PlethonianYear expected = impl.getYear(date);
+            PlethonianYear actual = mapped.getYear(date);
+            assertEquals(expected.getFirstDay(), actual.getFirstDay());
+            assertEquals(expected.getDays(), actual.getDays());
+            assertEquals(expected.getMonths().size(),
+                    actual.getMonths().size());
+            assertSameMonth(impl.getMonth(date), mapped.getMonth(date));
+            assertSameDay(impl.getDay(date), mapped.getDay(date));
+            date = date.plusDays(17);
+        }
+        assertThrows(IllegalArgumentException.class,
+                () -> mapped.getDay(LocalDate.of(1990, 1, 1)));
+    }
+
+    /**
+     * Test that a snapshot with another checksum is rejected.
+     */
+    @Test
+    public void testChecksumMismatch(@TempDir Path dir) throws IOException {
+        String other = checksum.replace(checksum.charAt(0),
+                checksum.charAt(0) == '0' ? '1' : '0');
+        Path file = CalendarSnapshot.write(DayTable.build(impl), checksum,
+                dir);
+        Files.move(file, CalendarSnapshot.getPath(dir, other));
+        assertThrows(IOException.class,
+                () -> CalendarSnapshot.open(dir, other));
+    }
+}
@@ -0,0 +1,158 @@
+/*
+ *     plethonian-webapp - Plethonian calendar Web Application
+ *
+ *     Copyright (C) 2020 Marco Confalonieri <marco at marcoconfalonieri.it>
+ *
+ *     This program is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU Affero General Public License as published
+ *     by the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     This program is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU Affero General Public License for more details.
+ *
+ *     You should have received a copy of the GNU Affero General Public License
+ *     along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+
+package it.marcoconfalonieri.plethonian.calendar.snapshot;
+
+import it.marcoconfalonieri.plethonian.calendar.PlethonianDay;
+import it.marcoconfalonieri.plethonian.calendar.astropixel.PlethonianCalendarImpl;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+
+import static org.junit.jupiter.api.Assertions.*;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Test of the bulk export of the days.
+ */
+public class DayTableExportTest {
+    private static DayTable table;
+    private static DayTableCalendar calendar;
+
+    @BeforeAll
+    public static void setUp() throws IOException {
+        table = DayTable.build(new PlethonianCalendarImpl());
+        calendar = new DayTableCalendar(table);
+    }
+
+    private static byte[] export(DayTableExport.Format format)
+            throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        DayTableExport.write(table, format, out);
+        return out.toByteArray();
+    }
+
+    private static String readString(ByteBuffer buf) {
+        byte[] b = new byte[buf.get()];
+        buf.get(b);
+        return new String(b, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Test that the CSV export has a row for every day.
+     */
+    @Test
+    public void testCsv() throws IOException {
+        String[] lines = new String(export(DayTableExport.Format.CSV),
+                StandardCharsets.US_ASCII).split("\n");
+        assertEquals(table.size() + 1, lines.length);
+        assertEquals("date,year,day_of_year,month,day,week,festivity,label,"
+                + "defunct", lines[0]);
+        for (int i = 1; i < lines.length; i++) {
+            String[] f = lines[i].split(",", -1);
+            PlethonianDay day = calendar.getDay(LocalDate.parse(f[0]));
+            assertEquals(table.getFirstEpochDay() + i - 1,
+                    day.getGregorianDate().toEpochDay());
+            assertEquals(day.getDayOfYear(), Integer.parseInt(f[2]));
+            assertEquals(day.getMonth().toInt(), Integer.parseInt(f[3]));
+            assertEquals(day.getDayOfMonth(), Integer.parseInt(f[4]));
+            assertEquals(day.getWeek().ordinal() + 1, Integer.parseInt(f[5]));
+            assertEquals((day.getMonthFestivity() != null) ?
+                    day.getMonthFestivity().name() : "", f[6]);
+            assertEquals(day.getLabel(), f[7]);
+            assertEquals(day.isDefunctDay() ? "1" : "0", f[8]);
+        }
+        assertEquals("2002-01-14,2002,1,1,1,1,JUPITER,new,0", lines[1]);
+    }
+
+    /**
+     * Test that the columnar export holds the same days as the table.
+     */
+    @Test
+    public void testColumnar() throws IOException {
+        byte[] bytes = export(DayTableExport.Format.COLUMNAR);
+        assertEquals(new DayTableExport(table,
+                DayTableExport.Format.COLUMNAR).length(), bytes.length);
+        ByteBuffer buf = ByteBuffer.wrap(bytes);
+        assertEquals(0x504c4358, buf.getInt());
+        assertEquals(DayTableExport.FORMAT_VERSION, buf.get());
+        int rows = buf.getInt();
+        assertEquals(table.size(), rows);
+        int columns = buf.get();
+        String[] names = new String[columns];
+        int[] widths = new int[columns];
+        String[][] dicts = new String[columns][];
+        for (int c = 0; c < columns; c++) {
+            names[c] = readString(buf);
+            widths[c] = buf.get();
+            dicts[c] = new String[buf.get()];
+            for (int i = 0; i < dicts[c].length; i++) {
+                dicts[c][i] = readString(buf);
+            }
+        }
+        int[] epochDays = new int[rows];
+        for (int r = 0; r < rows; r++) {
+            epochDays[r] = buf.getInt();
+        }
+        buf.position(buf.position() + rows * (2 + 2 + 1 + 1 + 1));
+        String[] festivities = new String[rows];
+        for (int r = 0; r < rows; r++) {
+            festivities[r] = dicts[6][buf.get()];
+        }
+        String[] labels = new String[rows];
+        for (int r = 0; r < rows; r++) {
+            labels[r] = dicts[7][buf.get()];
+        }
+        for (int r = 0; r < rows; r++) {
+            PlethonianDay day = calendar.getDay(
+                    LocalDate.ofEpochDay(epochDays[r]));
+            assertEquals((day.getMonthFestivity() != null) ?
+                    day.getMonthFestivity().name() : "", festivities[r]);
+            assertEquals(day.getLabel(), labels[r]);
+            assertEquals(day.isDefunctDay() ? 1 : 0, buf.get());
+        }
+        assertFalse(buf.hasRemaining());
+        assertEquals("label", names[7]);
+        assertEquals(4, widths[0]);
+    }
+
+    /**
+     * Test that filling small buffers gives the same export.
+     */
+    @Test
+    public void testFill() throws IOException {
+        for (DayTableExport.Format format : DayTableExport.Format.values()) {
+            DayTableExport export = new DayTableExport(table, format);
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            ByteBuffer buf = ByteBuffer.allocate(DayTableExport.MIN_BUFFER);
+            boolean more;
+            do {
+                buf.clear();
+                more = export.fill(buf);
+                out.write(buf.array(), 0, buf.position());
+            } while (more);
+            assertArrayEquals(export(format), out.toByteArray(),
+                    format.name());
+        }
+    }
+}
@@ -0,0 +1,114 @@
+/*
+ *     plethonian-webapp - Plethonian calendar Web Application
+ *
+ *     Copyright (C) 2020 Marco Confalonieri <marco at marcoconfalonieri.it>
+ *
+ *     This program is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU Affero General Public License as published
+ *     by the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     This program is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU Affero General Public License for more details.
+ *
+ *     You should have received a copy of the GNU Affero General Public License
+ *     along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+
+package it.marcoconfalonieri.plethonian.cli;
+
+import it.marcoconfalonieri.plethonian.calendar.PlethonianDay;
+import it.marcoconfalonieri.plethonian.calendar.astropixel.PlethonianCalendarImpl;
+import it.marcoconfalonieri.plethonian.calendar.snapshot.DayTable;
+import it.marcoconfalonieri.plethonian.calendar.snapshot.DayTableCalendar;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+
+import static org.junit.jupiter.api.Assertions.*;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Test of the annotation of the dates.
+ */
+public class DateAnnotatorTest {
+    private static DayTableCalendar calendar;
+
+    @BeforeAll
+    public static void setUp() throws IOException {
+        calendar = new DayTableCalendar(DayTable.build(
+                new PlethonianCalendarImpl()));
+    }
+
+    private static String annotate(DateAnnotator annotator, String text,
+            boolean header) {
+        DateAnnotator.Chunk chunk = annotator.annotate(ByteBuffer.wrap(
+                text.getBytes(StandardCharsets.US_ASCII)), header);
+        return new String(chunk.getBytes(), 0, chunk.getLength(),
+                StandardCharsets.US_ASCII);
+    }
+
+    private static String expected(LocalDate date) {
+        PlethonianDay day = calendar.getDay(date);
+        return calendar.getYear(date).getFirstDay().getYear() + ","
+                + day.getMonth().toInt() + "," + day.getDayOfMonth();
+    }
+
+    /**
+     * Test that the epoch days are computed as by LocalDate.
+     */
+    @Test
+    public void testEpochDay() {
+        for (LocalDate d = LocalDate.of(1999, 12, 1);
+                d.isBefore(LocalDate.of(2101, 3, 1)); d = d.plusDays(1)) {
+            String iso = d.toString();
+            assertEquals(d.toEpochDay(), DateAnnotator.parseDate(
+                    ByteBuffer.wrap(iso.getBytes(StandardCharsets.US_ASCII)),
+                    0), iso);
+        }
+        for (String invalid : new String[] {"2021-02-29", "2021-13-01",
+            "2021-04-31", "2021-00-10", "2021/01/01", "20a1-01-01"}) {
+            assertEquals(DateAnnotator.INVALID, DateAnnotator.parseDate(
+                    ByteBuffer.wrap(invalid.getBytes(
+                            StandardCharsets.US_ASCII)), 0), invalid);
+        }
+    }
+
+    /**
+     * Test the annotation of a column.
+     */
+    @Test
+    public void testColumn() {
+        DateAnnotator annotator = new DateAnnotator(calendar.getTable(), 1,
+                ';');
+        assertEquals("id;date;plethonian_year;plethonian_month;"
+                + "plethonian_day\r\n"
+                + "1;2021-03-05;" + expected(LocalDate.of(2021, 3, 5))
+                        .replace(',', ';') + "\r\n"
+                + "2;1990-01-01;;;\r\n"
+                + "3;;;;\n"
+                + "4;2100-01-10;" + expected(LocalDate.of(2100, 1, 10))
+                        .replace(',', ';'),
+                annotate(annotator, "id;date\r\n1;2021-03-05\r\n"
+                        + "2;1990-01-01\r\n3;\n4;2100-01-10", true));
+    }
+
+    /**
+     * Test the annotation of the first date of the lines.
+     */
+    @Test
+    public void testFirstDate() {
+        DateAnnotator annotator = new DateAnnotator(calendar.getTable(), -1,
+                ',');
+        assertEquals("GET /12021-01-01 at 2021-13-01 2020-12-25T10:00Z,"
+                + expected(LocalDate.of(2020, 12, 25)) + "\n"
+                + "no date,,,\n",
+                annotate(annotator, "GET /12021-01-01 at 2021-13-01 "
+                        + "2020-12-25T10:00Z\nno date\n", false));
+    }
+}
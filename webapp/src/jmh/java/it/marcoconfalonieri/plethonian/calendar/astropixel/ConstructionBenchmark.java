@@ -0,0 +1,132 @@
+/*
+ *     plethonian-webapp - Plethonian calendar Web Application
+ *
+ *     Copyright (C) 2020 Marco Confalonieri <marco at marcoconfalonieri.it>
+ *
+ *     This program is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU Affero General Public License as published
+ *     by the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     This program is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU Affero General Public License for more details.
+ *
+ *     You should have received a copy of the GNU Affero General Public License
+ *     along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package it.marcoconfalonieri.plethonian.calendar.astropixel;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Benchmarks of the construction of the calendar: the whole construction,
+ * the reading of the tables and the parsing of their rows.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+@State(Scope.Benchmark)
+public class ConstructionBenchmark {
+    /**
+     * Rows of the moon phases table.
+     */
+    private String[][] moonPhases;
+    /**
+     * Rows of the solstices and equinoxes table.
+     */
+    private String[][] solstices;
+
+    /**
+     * Reads the tables once for the parsing benchmarks.
+     *
+     * @throws IOException in case of errors reading the tables
+     */
+    @Setup
+    public void setUp() throws IOException {
+        moonPhases = readMoonPhases();
+        solstices = readSolstices();
+    }
+
+    /**
+     * Builds the whole calendar.
+     *
+     * @return the calendar
+     *
+     * @throws IOException in case of errors reading the tables
+     */
+    @Benchmark
+    public PlethonianCalendarImpl construct() throws IOException {
+        return new PlethonianCalendarImpl();
+    }
+
+    /**
+     * Reads the moon phases table.
+     *
+     * @return the rows
+     *
+     * @throws IOException in case of errors reading the table
+     */
+    @Benchmark
+    public String[][] readMoonPhases() throws IOException {
+        return new TableReader(PlethonianCalendarImpl.RES_MOON_PHASES,
+                PlethonianCalendarImpl.POS_MOON_PHASES).readTable();
+    }
+
+    /**
+     * Reads the solstices and equinoxes table.
+     *
+     * @return the rows
+     *
+     * @throws IOException in case of errors reading the table
+     */
+    @Benchmark
+    public String[][] readSolstices() throws IOException {
+        return new TableReader(PlethonianCalendarImpl.RES_SUN_SOLSTICES,
+                PlethonianCalendarImpl.POS_SUN_SOLSTICES).readTable();
+    }
+
+    /**
+     * Parses all the rows of the moon phases table.
+     *
+     * @param bh the blackhole consuming the months
+     *
+     * @throws DataException in case of invalid rows
+     */
+    @Benchmark
+    public void parseLunarMonths(Blackhole bh) throws DataException {
+        for (String[] row : moonPhases) {
+            bh.consume(new LunarMonth(row));
+        }
+    }
+
+    /**
+     * Parses all the rows of the solstices and equinoxes table.
+     *
+     * @param bh the blackhole consuming the years
+     *
+     * @throws DataException in case of invalid rows
+     */
+    @Benchmark
+    public void parseSolarYears(Blackhole bh) throws DataException {
+        for (String[] row : solstices) {
+            bh.consume(new SolarYear(row));
+        }
+    }
+}
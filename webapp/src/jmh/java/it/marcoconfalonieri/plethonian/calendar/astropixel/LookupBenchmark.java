@@ -0,0 +1,177 @@
+/*
+ *     plethonian-webapp - Plethonian calendar Web Application
+ *
+ *     Copyright (C) 2020 Marco Confalonieri <marco at marcoconfalonieri.it>
+ *
+ *     This program is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU Affero General Public License as published
+ *     by the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     This program is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU Affero General Public License for more details.
+ *
+ *     You should have received a copy of the GNU Affero General Public License
+ *     along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package it.marcoconfalonieri.plethonian.calendar.astropixel;
+
+import it.marcoconfalonieri.plethonian.calendar.PlethonianCalendar;
+import it.marcoconfalonieri.plethonian.calendar.PlethonianDay;
+import it.marcoconfalonieri.plethonian.calendar.PlethonianMonth;
+import it.marcoconfalonieri.plethonian.calendar.PlethonianYear;
+import it.marcoconfalonieri.plethonian.calendar.snapshot.DayTable;
+import it.marcoconfalonieri.plethonian.calendar.snapshot.DayTableCalendar;
+import java.io.IOException;
+import java.time.LocalDate;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks of the calendar lookups, for random and sequential dates, on
+ * the tree-based calendar and on the packed day table.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+@State(Scope.Thread)
+public class LookupBenchmark {
+    /**
+     * Number of precomputed dates; a power of two.
+     */
+    private static final int DATES = 4096;
+    /**
+     * First date looked up.
+     */
+    private static final LocalDate FIRST = LocalDate.of(2003, 1, 1);
+    /**
+     * Number of days in the looked up range.
+     */
+    private static final int RANGE = 365 * 95;
+
+    /**
+     * Implementation under test.
+     */
+    @Param({"tree", "table"})
+    public String implementation;
+
+    /**
+     * The calendar.
+     */
+    private PlethonianCalendar calendar;
+    /**
+     * Dates in random order.
+     */
+    private final LocalDate[] random = new LocalDate[DATES];
+    /**
+     * Consecutive dates.
+     */
+    private final LocalDate[] sequential = new LocalDate[DATES];
+    /**
+     * Position in the date arrays.
+     */
+    private int index;
+
+    /**
+     * Builds the calendar and the dates.
+     *
+     * @throws IOException in case of errors reading the tables
+     */
+    @Setup
+    public void setUp() throws IOException {
+        PlethonianCalendarImpl impl = new PlethonianCalendarImpl();
+        calendar = "table".equals(implementation) ?
+                new DayTableCalendar(DayTable.build(impl)) : impl;
+        Random rnd = new Random(42);
+        for (int i = 0; i < DATES; i++) {
+            random[i] = FIRST.plusDays(rnd.nextInt(RANGE));
+            sequential[i] = FIRST.plusDays(i);
+        }
+    }
+
+    /**
+     * Returns the next position in the date arrays.
+     *
+     * @return the position
+     */
+    private int next() {
+        index = (index + 1) & (DATES - 1);
+        return index;
+    }
+
+    /**
+     * Looks up the day of a random date.
+     *
+     * @return the day
+     */
+    @Benchmark
+    public PlethonianDay getDayRandom() {
+        return calendar.getDay(random[next()]);
+    }
+
+    /**
+     * Looks up the day of a sequential date.
+     *
+     * @return the day
+     */
+    @Benchmark
+    public PlethonianDay getDaySequential() {
+        return calendar.getDay(sequential[next()]);
+    }
+
+    /**
+     * Looks up the month of a random date.
+     *
+     * @return the month
+     */
+    @Benchmark
+    public PlethonianMonth getMonthRandom() {
+        return calendar.getMonth(random[next()]);
+    }
+
+    /**
+     * Looks up the month of a sequential date.
+     *
+     * @return the month
+     */
+    @Benchmark
+    public PlethonianMonth getMonthSequential() {
+        return calendar.getMonth(sequential[next()]);
+    }
+
+    /**
+     * Looks up the year of a random date.
+     *
+     * @return the year
+     */
+    @Benchmark
+    public PlethonianYear getYearRandom() {
+        return calendar.getYear(random[next()]);
+    }
+
+    /**
+     * Looks up the year of a sequential date.
+     *
+     * @return the year
+     */
+    @Benchmark
+    public PlethonianYear getYearSequential() {
+        return calendar.getYear(sequential[next()]);
+    }
+}
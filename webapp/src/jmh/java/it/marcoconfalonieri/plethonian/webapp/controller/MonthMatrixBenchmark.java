@@ -0,0 +1,97 @@
+/*
+ *     plethonian-webapp - Plethonian calendar Web Application
+ *
+ *     Copyright (C) 2020 Marco Confalonieri <marco at marcoconfalonieri.it>
+ *
+ *     This program is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU Affero General Public License as published
+ *     by the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     This program is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU Affero General Public License for more details.
+ *
+ *     You should have received a copy of the GNU Affero General Public License
+ *     along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package it.marcoconfalonieri.plethonian.webapp.controller;
+
+import it.marcoconfalonieri.plethonian.webapp.metrics.MetricsRegistry;
+import java.time.Clock;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmark of the construction of the current month matrix in the
+ * application bean.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+@State(Scope.Thread)
+public class MonthMatrixBenchmark {
+    /**
+     * The provider of the calendar.
+     */
+    private CalendarProvider provider;
+    /**
+     * The application bean.
+     */
+    private PlethonianCalendarApp app;
+
+    /**
+     * Builds the application bean outside of the container.
+     */
+    @Setup
+    public void setUp() {
+        provider = new CalendarProvider();
+        provider.start();
+        provider.getFuture().join();
+        app = new PlethonianCalendarApp(provider, new MetricsRegistry(),
+                Clock.systemDefaultZone());
+        app.getToday();
+    }
+
+    /**
+     * Stops the provider.
+     */
+    @TearDown
+    public void tearDown() {
+        provider.shutdown();
+    }
+
+    /**
+     * Rebuilds the matrix of the current month.
+     *
+     * @return the month matrix
+     */
+    @Benchmark
+    public Object createMonthMatrix() {
+        return CurrentDay.createMonthMatrix(app.getCurrentMonth());
+    }
+
+    /**
+     * Reads the current day when no rollover is due.
+     *
+     * @return the current day
+     */
+    @Benchmark
+    public CurrentDay getCurrentDay() {
+        return app.getCurrentDay();
+    }
+}
@@ -0,0 +1,98 @@
+/*
+ *     plethonian-webapp - Plethonian calendar Web Application
+ *
+ *     Copyright (C) 2020 Marco Confalonieri <marco at marcoconfalonieri.it>
+ *
+ *     This program is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU Affero General Public License as published
+ *     by the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     This program is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU Affero General Public License for more details.
+ *
+ *     You should have received a copy of the GNU Affero General Public License
+ *     along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package it.marcoconfalonieri.plethonian.webapp.metrics;
+
+import it.marcoconfalonieri.plethonian.calendar.PlethonianCalendar;
+import it.marcoconfalonieri.plethonian.calendar.PlethonianDay;
+import it.marcoconfalonieri.plethonian.calendar.astropixel.PlethonianCalendarImpl;
+import java.io.IOException;
+import java.time.LocalDate;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmark of the overhead of the lookup metrics: the same lookup on the
+ * plain calendar and on the instrumented one, from several threads so that
+ * the contention on the counters shows up. On a single CPU the threads only
+ * add noise, and the run should be made with {@code -Djmh.args="-t 1"}.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+@Threads(4)
+@State(Scope.Benchmark)
+public class InstrumentationBenchmark {
+    /**
+     * Date looked up.
+     */
+    private static final LocalDate DATE = LocalDate.of(2050, 6, 15);
+
+    /**
+     * The plain calendar.
+     */
+    private PlethonianCalendar plain;
+    /**
+     * The instrumented calendar.
+     */
+    private PlethonianCalendar instrumented;
+
+    /**
+     * Builds the calendars.
+     *
+     * @throws IOException in case of errors reading the tables
+     */
+    @Setup
+    public void setUp() throws IOException {
+        plain = new PlethonianCalendarImpl();
+        instrumented = new InstrumentedCalendar(plain, new MetricsRegistry());
+    }
+
+    /**
+     * Looks up a day in the plain calendar.
+     *
+     * @return the day
+     */
+    @Benchmark
+    public PlethonianDay plain() {
+        return plain.getDay(DATE);
+    }
+
+    /**
+     * Looks up a day in the instrumented calendar.
+     *
+     * @return the day
+     */
+    @Benchmark
+    public PlethonianDay instrumented() {
+        return instrumented.getDay(DATE);
+    }
+}
@@ -0,0 +1,253 @@
+/*
+ *     plethonian-webapp - Plethonian calendar Web Application
+ *
+ *     Copyright (C) 2020 Marco Confalonieri <marco at marcoconfalonieri.it>
+ *
+ *     This program is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU Affero General Public License as published
+ *     by the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     This program is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU Affero General Public License for more details.
+ *
+ *     You should have received a copy of the GNU Affero General Public License
+ *     along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package it.marcoconfalonieri.plethonian.launcher;
+
+import java.io.IOException;
+import java.net.URISyntaxException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.concurrent.ExecutorService;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import org.apache.catalina.Context;
+import org.apache.catalina.LifecycleException;
+import org.apache.catalina.Wrapper;
+import org.apache.catalina.connector.Connector;
+import org.apache.catalina.realm.MemoryRealm;
+import org.apache.catalina.startup.Tomcat;
+
+/**
+ * Executable launcher running the web application in an embedded Tomcat.
+ * It serves the exploded application next to the launcher jar, with the
+ * libraries on the class path, and runs the requests on virtual threads
+ * when the runtime provides them.
+ * <p>
+ * The launcher is configured with system properties:
+ * {@code plethonian.port}, {@code plethonian.context}, the context path,
+ * {@code plethonian.webapp}, the directory of the exploded application,
+ * {@code plethonian.virtualThreads} and {@code plethonian.threads}, the
+ * size of the pool of platform threads used without virtual threads, and
+ * {@code plethonian.users}, a {@code tomcat-users.xml} file with the users
+ * who may authenticate, such as the ones of the as-of date mode.
+ */
+public final class Launcher implements AutoCloseable {
+    /**
+     * Logger.
+     */
+    private static final Logger LOG =
+            Logger.getLogger(Launcher.class.getName());
+    /**
+     * Default HTTP port.
+     */
+    private static final int DEFAULT_PORT = 8080;
+    /**
+     * Default number of platform threads.
+     */
+    private static final int DEFAULT_THREADS = 32;
+    /**
+     * Name of the directory of the exploded application, next to the jar.
+     */
+    private static final String WEBAPP_DIR = "webapp";
+    /**
+     * Class of the servlet serving the static resources.
+     */
+    private static final String DEFAULT_SERVLET =
+            "org.apache.catalina.servlets.DefaultServlet";
+    /**
+     * Class of the listener configuring the Faces runtime.
+     */
+    private static final String FACES_LISTENER =
+            "com.sun.faces.config.ConfigureListener";
+    /**
+     * Context parameter naming the expression factory of the Faces runtime.
+     */
+    private static final String EXPRESSION_FACTORY_PARAM =
+            "com.sun.faces.expressionFactory";
+    /**
+     * Class of the expression factory of Tomcat.
+     */
+    private static final String EXPRESSION_FACTORY =
+            "org.apache.el.ExpressionFactoryImpl";
+
+    /**
+     * The server.
+     */
+    private final Tomcat tomcat = new Tomcat();
+    /**
+     * The executor of the requests.
+     */
+    private final ExecutorService executor;
+
+    /**
+     * Starts the server.
+     *
+     * @param webappDir the directory of the exploded application
+     * @param port the HTTP port, or 0 for a random one
+     * @param contextPath the context path, empty for the root
+     * @param executor the executor of the requests
+     * @param users the file with the users, or {@code null} for none
+     *
+     * @throws IOException in case of errors creating the work directory
+     * @throws LifecycleException in case of errors starting the server
+     */
+    public Launcher(Path webappDir, int port, String contextPath,
+            ExecutorService executor, Path users)
+            throws IOException, LifecycleException {
+        this.executor = executor;
+        Path base = Files.createTempDirectory("plethonian-tomcat");
+        tomcat.setBaseDir(base.toString());
+        tomcat.setPort(port);
+        Connector connector = tomcat.getConnector();
+        connector.getProtocolHandler().setExecutor(executor);
+        // The defaults would add the JSP servlet, which is not bundled.
+        tomcat.setAddDefaultWebXmlToWebapp(false);
+        Context ctx = tomcat.addWebapp(contextPath,
+                webappDir.toAbsolutePath().toString());
+        Wrapper resources = Tomcat.addServlet(ctx, "default", DEFAULT_SERVLET);
+        resources.addInitParameter("listings", "false");
+        resources.setLoadOnStartup(1);
+        ctx.addServletMappingDecoded("/", "default");
+        Tomcat.addDefaultMimeTypeMappings(ctx);
+        // Without Jasper the Faces runtime is neither configured by its tag
+        // library nor given the expression factory of the JSP engine.
+        ctx.addApplicationListener(FACES_LISTENER);
+        ctx.addParameter(EXPRESSION_FACTORY_PARAM, EXPRESSION_FACTORY);
+        if (users != null) {
+            MemoryRealm realm = new MemoryRealm();
+            realm.setPathname(users.toAbsolutePath().toString());
+            ctx.setRealm(realm);
+        }
+        tomcat.start();
+    }
+
+    /**
+     * Returns the port the server is listening on.
+     *
+     * @return the port
+     */
+    public int getPort() {
+        return tomcat.getConnector().getLocalPort();
+    }
+
+    /**
+     * Waits for the server to stop.
+     */
+    public void await() {
+        tomcat.getServer().await();
+    }
+
+    /**
+     * Stops the server and the executor.
+     *
+     * @throws LifecycleException in case of errors stopping the server
+     */
+    @Override
+    public void close() throws LifecycleException {
+        tomcat.stop();
+        tomcat.destroy();
+        executor.shutdown();
+    }
+
+    /**
+     * Returns the directory of the exploded application, from the
+     * {@code plethonian.webapp} property or next to the launcher jar.
+     *
+     * @return the directory
+     *
+     * @throws URISyntaxException if the location of the jar is invalid
+     */
+    static Path webappDir() throws URISyntaxException {
+        String dir = System.getProperty("plethonian.webapp");
+        if (dir != null) {
+            return Paths.get(dir);
+        }
+        Path jar = Paths.get(Launcher.class.getProtectionDomain()
+                .getCodeSource().getLocation().toURI());
+        return jar.resolveSibling(WEBAPP_DIR);
+    }
+
+    /**
+     * Returns the file with the users, from the {@code plethonian.users}
+     * property.
+     *
+     * @return the file, or {@code null} if there are no users
+     */
+    static Path users() {
+        String file = System.getProperty("plethonian.users");
+        return (file != null && !file.isBlank()) ? Paths.get(file) : null;
+    }
+
+    /**
+     * Returns the executor of the requests.
+     *
+     * @return the executor
+     */
+    static ExecutorService executor() {
+        String virtual = System.getProperty("plethonian.virtualThreads",
+                "true");
+        if (Boolean.parseBoolean(virtual)) {
+            ExecutorService executor = RequestExecutors.virtual();
+            if (executor != null) {
+                LOG.info("Handling requests on virtual threads");
+                return executor;
+            }
+        }
+        int threads = Integer.getInteger("plethonian.threads",
+                DEFAULT_THREADS);
+        LOG.log(Level.INFO, "Handling requests on {0} platform threads",
+                String.valueOf(threads));
+        return RequestExecutors.platform(threads);
+    }
+
+    /**
+     * Starts the server and waits for the termination of the process.
+     *
+     * @param args ignored
+     *
+     * @throws Exception in case of errors
+     */
+    public static void main(String[] args) throws Exception {
+        Path webapp = webappDir();
+        if (!Files.isDirectory(webapp.resolve("WEB-INF"))) {
+            LOG.log(Level.SEVERE, "No web application in {0}", webapp);
+            System.exit(1);
+        }
+        Launcher launcher = new Launcher(webapp,
+                Integer.getInteger("plethonian.port", DEFAULT_PORT),
+                System.getProperty("plethonian.context", ""), executor(),
+                users());
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            try {
+                launcher.close();
+            } catch (LifecycleException e) {
+                LOG.log(Level.WARNING, "Error stopping the server", e);
+            }
+        }));
+        ProcessHandle.current().info().startInstant().ifPresent(start ->
+                LOG.log(Level.INFO, "Started on port {0} in {1} ms",
+                        new Object[] {String.valueOf(launcher.getPort()),
+                                String.valueOf(Duration.between(start,
+                                        Instant.now()).toMillis())}));
+        launcher.await();
+    }
+}
@@ -0,0 +1,108 @@
+/*
+ *     plethonian-webapp - Plethonian calendar Web Application
+ *
+ *     Copyright (C) 2020 Marco Confalonieri <marco at marcoconfalonieri.it>
+ *
+ *     This program is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU Affero General Public License as published
+ *     by the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     This program is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU Affero General Public License for more details.
+ *
+ *     You should have received a copy of the GNU Affero General Public License
+ *     along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package it.marcoconfalonieri.plethonian.launcher;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Factory of the executors running the requests. The application is built
+ * for Java 11, so the virtual threads are looked up by reflection and a pool
+ * of platform threads is used when the runtime does not provide them.
+ */
+final class RequestExecutors {
+    /**
+     * Logger.
+     */
+    private static final Logger LOG =
+            Logger.getLogger(RequestExecutors.class.getName());
+    /**
+     * Name of the factory method of the virtual thread executor.
+     */
+    private static final String VIRTUAL_FACTORY =
+            "newVirtualThreadPerTaskExecutor";
+    /**
+     * Seconds an idle platform thread is kept alive.
+     */
+    private static final long KEEP_ALIVE = 60;
+    /**
+     * Prefix of the names of the platform threads.
+     */
+    static final String THREAD_PREFIX = "plethonian-exec-";
+
+    /**
+     * Private constructor.
+     */
+    private RequestExecutors() {
+    }
+
+    /**
+     * Returns an executor creating a virtual thread for each task.
+     *
+     * @return the executor, or null if the runtime has no virtual threads
+     */
+    static ExecutorService virtual() {
+        try {
+            Method factory = Executors.class.getMethod(VIRTUAL_FACTORY);
+            return (ExecutorService) factory.invoke(null);
+        } catch (NoSuchMethodException e) {
+            return null;
+        } catch (InvocationTargetException e) {
+            // Preview feature of Java 19 and 20, not enabled.
+            LOG.log(Level.FINE, "Virtual threads not available",
+                    e.getCause());
+            return null;
+        } catch (IllegalAccessException e) {
+            LOG.log(Level.FINE, "Virtual threads not available", e);
+            return null;
+        }
+    }
+
+    /**
+     * Returns a pool of platform threads. The threads are started on demand
+     * and stop after one minute of inactivity.
+     *
+     * @param threads the number of threads
+     *
+     * @return the executor
+     */
+    static ExecutorService platform(int threads) {
+        AtomicInteger count = new AtomicInteger();
+        ThreadFactory factory = r -> {
+            Thread t = new Thread(r, THREAD_PREFIX + count.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        };
+        ThreadPoolExecutor pool = new ThreadPoolExecutor(threads, threads,
+                KEEP_ALIVE, TimeUnit.SECONDS, new LinkedBlockingQueue<>(),
+                factory);
+        pool.allowCoreThreadTimeOut(true);
+        return pool;
+    }
+}
@@ -0,0 +1,178 @@
+/*
+ *     plethonian-webapp - Plethonian calendar Web Application
+ *
+ *     Copyright (C) 2020 Marco Confalonieri <marco at marcoconfalonieri.it>
+ *
+ *     This program is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU Affero General Public License as published
+ *     by the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     This program is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU Affero General Public License for more details.
+ *
+ *     You should have received a copy of the GNU Affero General Public License
+ *     along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package it.marcoconfalonieri.plethonian.launcher;
+
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Comparison of the startup time of the launcher with and without the
+ * Application Class-Data Sharing archive. Each start is timed from the
+ * creation of the process to the first positive answer of the readiness
+ * endpoint, which includes the construction of the calendar and the
+ * warm-up of the pages. The starts alternate, after an untimed one of each
+ * kind, and the report is written as JSON.
+ * <p>
+ * The comparison is configured with system properties, with paths relative
+ * to the image directory: {@code appcds.java}, {@code appcds.jar},
+ * {@code appcds.archive}, {@code appcds.runs} and {@code appcds.result}.
+ */
+public final class StartupComparison {
+    /**
+     * Maximum time to wait for a process to stop, in seconds.
+     */
+    private static final long STOP_TIMEOUT = 30;
+
+    /**
+     * Private constructor.
+     */
+    private StartupComparison() {
+    }
+
+    /**
+     * Starts the launcher, waits for it to be ready and stops it.
+     *
+     * @param java the path of the Java launcher
+     * @param options the options of the JVM
+     * @param jar the path of the launcher jar
+     *
+     * @return the time to readiness, in nanoseconds
+     *
+     * @throws IOException if the launcher cannot start or is not ready
+     * @throws InterruptedException if the thread is interrupted
+     */
+    private static long time(String java, List<String> options, String jar)
+            throws IOException, InterruptedException {
+        int port;
+        try (ServerSocket socket = new ServerSocket(0)) {
+            port = socket.getLocalPort();
+        }
+        List<String> command = new ArrayList<>();
+        command.add(java);
+        command.addAll(options);
+        command.add("-Dplethonian.port=" + port);
+        command.add("-jar");
+        command.add(jar);
+        long start = System.nanoTime();
+        Process process = new ProcessBuilder(command)
+                .redirectErrorStream(true)
+                .redirectOutput(ProcessBuilder.Redirect.DISCARD)
+                .start();
+        try {
+            if (!Training.awaitReady("http://localhost:" + port)) {
+                throw new IOException("The application is not ready");
+            }
+            return System.nanoTime() - start;
+        } finally {
+            process.destroy();
+            if (!process.waitFor(STOP_TIMEOUT, TimeUnit.SECONDS)) {
+                process.destroyForcibly();
+            }
+        }
+    }
+
+    /**
+     * Formats the statistics of a series of starts as a JSON object.
+     *
+     * @param nanos the times to readiness, in nanoseconds
+     *
+     * @return the JSON object
+     */
+    private static String stats(long[] nanos) {
+        long[] sorted = nanos.clone();
+        Arrays.sort(sorted);
+        return String.format(Locale.ROOT, "{\"minMillis\": %d, " +
+                "\"medianMillis\": %d, \"maxMillis\": %d}",
+                TimeUnit.NANOSECONDS.toMillis(sorted[0]),
+                TimeUnit.NANOSECONDS.toMillis(median(nanos)),
+                TimeUnit.NANOSECONDS.toMillis(sorted[sorted.length - 1]));
+    }
+
+    /**
+     * Returns the median of a series of values.
+     *
+     * @param values the values
+     *
+     * @return the median
+     */
+    private static long median(long[] values) {
+        long[] sorted = values.clone();
+        Arrays.sort(sorted);
+        int mid = sorted.length / 2;
+        return (sorted.length % 2 == 1) ? sorted[mid] :
+                (sorted[mid - 1] + sorted[mid]) / 2;
+    }
+
+    /**
+     * Runs the comparison.
+     *
+     * @param args ignored
+     *
+     * @throws Exception in case of errors
+     */
+    public static void main(String[] args) throws Exception {
+        String java = System.getProperty("appcds.java", "runtime/bin/java");
+        String jar = System.getProperty("appcds.jar",
+                "plethonian-launcher.jar");
+        Path archive = Paths.get(System.getProperty("appcds.archive",
+                "plethonian.jsa"));
+        int runs = Integer.getInteger("appcds.runs", 5);
+        Path result = Paths.get(System.getProperty("appcds.result",
+                "startup-report.json"));
+
+        // Sharing is required, so that an unusable archive fails the
+        // comparison instead of being silently ignored.
+        List<String> baseline = List.of();
+        List<String> shared = List.of("-XX:SharedArchiveFile=" + archive,
+                "-Xshare:on");
+        time(java, baseline, jar);
+        time(java, shared, jar);
+        long[] baselineNanos = new long[runs];
+        long[] sharedNanos = new long[runs];
+        for (int i = 0; i < runs; i++) {
+            baselineNanos[i] = time(java, baseline, jar);
+            sharedNanos[i] = time(java, shared, jar);
+            System.out.printf("Run %d: %d ms without, %d ms with the " +
+                    "archive%n", i + 1,
+                    TimeUnit.NANOSECONDS.toMillis(baselineNanos[i]),
+                    TimeUnit.NANOSECONDS.toMillis(sharedNanos[i]));
+        }
+
+        double gain = 100.0 * (median(baselineNanos) -
+                median(sharedNanos)) / median(baselineNanos);
+        String json = String.format(Locale.ROOT, "{%n" +
+                "  \"runs\": %d,%n  \"archiveBytes\": %d,%n" +
+                "  \"baseline\": %s,%n  \"appcds\": %s,%n" +
+                "  \"medianGainPercent\": %.1f%n}%n", runs,
+                Files.size(archive), stats(baselineNanos),
+                stats(sharedNanos), gain);
+        Files.write(result, json.getBytes(StandardCharsets.UTF_8));
+        System.out.print(json);
+    }
+}
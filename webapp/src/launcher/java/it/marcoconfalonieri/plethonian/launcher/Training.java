@@ -0,0 +1,159 @@
+/*
+ *     plethonian-webapp - Plethonian calendar Web Application
+ *
+ *     Copyright (C) 2020 Marco Confalonieri <marco at marcoconfalonieri.it>
+ *
+ *     This program is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU Affero General Public License as published
+ *     by the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     This program is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU Affero General Public License for more details.
+ *
+ *     You should have received a copy of the GNU Affero General Public License
+ *     along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package it.marcoconfalonieri.plethonian.launcher;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Training run of the launcher for the Application Class-Data Sharing
+ * archive. It starts the server on a random port, waits for the calendar to
+ * be built, renders the pages in each language and stops, so that a JVM
+ * started with {@code -XX:ArchiveClassesAtExit} archives the classes loaded
+ * by a typical start.
+ * <p>
+ * The languages are read from the {@code plethonian.training.locales}
+ * property.
+ */
+public final class Training {
+    /**
+     * Logger.
+     */
+    private static final Logger LOG =
+            Logger.getLogger(Training.class.getName());
+    /**
+     * Maximum time to wait for the application to be ready, in seconds.
+     */
+    static final long READY_TIMEOUT = 120;
+    /**
+     * Interval between the readiness checks, in milliseconds.
+     */
+    static final long READY_POLL = 20;
+    /**
+     * Number of renders of each page.
+     */
+    private static final int ROUNDS = 3;
+    /**
+     * Paths of the rendered pages.
+     */
+    private static final String[] PAGES = {"/", "/faces/index.xhtml"};
+
+    /**
+     * Private constructor.
+     */
+    private Training() {
+    }
+
+    /**
+     * Requests a page and reads the response.
+     *
+     * @param url the URL
+     * @param lang the language cookie, or null
+     *
+     * @return the status code
+     *
+     * @throws IOException in case of connection errors
+     */
+    static int get(URL url, String lang) throws IOException {
+        HttpURLConnection conn = (HttpURLConnection) url.openConnection();
+        try {
+            if (lang != null) {
+                conn.setRequestProperty("Cookie", "lang=" + lang);
+            }
+            int status = conn.getResponseCode();
+            InputStream in = (status < 400) ? conn.getInputStream() :
+                    conn.getErrorStream();
+            if (in != null) {
+                try (InputStream body = in) {
+                    body.transferTo(OutputStream.nullOutputStream());
+                }
+            }
+            return status;
+        } finally {
+            conn.disconnect();
+        }
+    }
+
+    /**
+     * Waits for the readiness endpoint to report the application ready.
+     *
+     * @param baseUri the base URI of the application
+     *
+     * @return true if the application is ready in time
+     *
+     * @throws InterruptedException if the thread is interrupted
+     */
+    static boolean awaitReady(String baseUri) throws InterruptedException {
+        long deadline = System.nanoTime() +
+                TimeUnit.SECONDS.toNanos(READY_TIMEOUT);
+        while (System.nanoTime() < deadline) {
+            try {
+                if (get(new URL(baseUri + "/ready"), null) == 200) {
+                    return true;
+                }
+            } catch (IOException e) {
+                // Not listening yet.
+            }
+            Thread.sleep(READY_POLL);
+        }
+        return false;
+    }
+
+    /**
+     * Runs the training.
+     *
+     * @param args ignored
+     *
+     * @throws Exception in case of errors
+     */
+    public static void main(String[] args) throws Exception {
+        String[] locales = System.getProperty("plethonian.training.locales",
+                "la,it,en,lij").split(",");
+        int status = 0;
+        try (Launcher launcher = new Launcher(Launcher.webappDir(), 0, "",
+                Launcher.executor(), null)) {
+            String baseUri = "http://localhost:" + launcher.getPort();
+            if (!awaitReady(baseUri)) {
+                LOG.severe("The application is not ready");
+                System.exit(1);
+            }
+            for (int i = 0; i < ROUNDS; i++) {
+                for (String lang : locales) {
+                    for (String page : PAGES) {
+                        int code = get(new URL(baseUri + page), lang.strip());
+                        if (code != 200) {
+                            LOG.log(Level.SEVERE, "Status {0} for {1} in {2}",
+                                    new Object[] {String.valueOf(code), page,
+                                            lang});
+                            status = 1;
+                        }
+                    }
+                }
+            }
+        }
+        System.exit(status);
+    }
+}
@@ -0,0 +1,116 @@
+/*
+ *     plethonian-webapp - Plethonian calendar Web Application
+ *
+ *     Copyright (C) 2020 Marco Confalonieri <marco at marcoconfalonieri.it>
+ *
+ *     This program is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU Affero General Public License as published
+ *     by the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     This program is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU Affero General Public License for more details.
+ *
+ *     You should have received a copy of the GNU Affero General Public License
+ *     along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package it.marcoconfalonieri.plethonian.loadtest;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import org.apache.catalina.Context;
+import org.apache.catalina.LifecycleException;
+import org.apache.catalina.WebResourceRoot;
+import org.apache.catalina.startup.Tomcat;
+import org.apache.catalina.webresources.DirResourceSet;
+import org.apache.catalina.webresources.StandardRoot;
+
+/**
+ * Embedded Tomcat serving the web application from the source directory,
+ * the compiled classes and the processed static assets, on a random local
+ * port.
+ */
+public class EmbeddedServer implements AutoCloseable {
+    /**
+     * Context path of the application.
+     */
+    public static final String CONTEXT_PATH = "/plethonian";
+
+    /**
+     * The server.
+     */
+    private final Tomcat tomcat = new Tomcat();
+
+    /**
+     * Starts the server. The static assets processed by the build are
+     * served from the assets directory beside the classes, if any.
+     *
+     * @param webappDir the directory with the web resources
+     * @param classesDir the directory with the compiled classes
+     *
+     * @throws IOException in case of errors creating the work directory
+     * @throws LifecycleException in case of errors starting the server
+     */
+    public EmbeddedServer(Path webappDir, Path classesDir)
+            throws IOException, LifecycleException {
+        Path base = Files.createTempDirectory("plethonian-tomcat");
+        tomcat.setBaseDir(base.toString());
+        tomcat.setHostname("localhost");
+        tomcat.setPort(0);
+        tomcat.getConnector();
+        Context ctx = tomcat.addWebapp(CONTEXT_PATH,
+                webappDir.toAbsolutePath().toString());
+        WebResourceRoot resources = new StandardRoot(ctx);
+        resources.addPreResources(new DirResourceSet(resources,
+                "/WEB-INF/classes", classesDir.toAbsolutePath().toString(),
+                "/"));
+        Path assetsDir = classesDir.toAbsolutePath().resolveSibling("assets");
+        if (Files.isDirectory(assetsDir)) {
+            resources.addPreResources(new DirResourceSet(resources, "/",
+                    assetsDir.toString(), "/"));
+        }
+        ctx.setResources(resources);
+        tomcat.start();
+    }
+
+    /**
+     * Returns the base URI of the application.
+     *
+     * @return the base URI, without the trailing slash
+     */
+    public String getBaseUri() {
+        return "http://localhost:" + tomcat.getConnector().getLocalPort() +
+                CONTEXT_PATH;
+    }
+
+    /**
+     * Stops the server.
+     *
+     * @throws LifecycleException in case of errors stopping the server
+     */
+    @Override
+    public void close() throws LifecycleException {
+        tomcat.stop();
+        tomcat.destroy();
+    }
+
+    /**
+     * Starts the server and waits, for manual testing.
+     *
+     * @param args ignored
+     *
+     * @throws Exception in case of errors
+     */
+    public static void main(String[] args) throws Exception {
+        EmbeddedServer server = new EmbeddedServer(
+                new File("src/main/webapp").toPath(),
+                new File("target/classes").toPath());
+        System.out.println("Listening on " + server.getBaseUri());
+        server.tomcat.getServer().await();
+    }
+}
@@ -0,0 +1,108 @@
+/*
+ *     plethonian-webapp - Plethonian calendar Web Application
+ *
+ *     Copyright (C) 2020 Marco Confalonieri <marco at marcoconfalonieri.it>
+ *
+ *     This program is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU Affero General Public License as published
+ *     by the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     This program is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU Affero General Public License for more details.
+ *
+ *     You should have received a copy of the GNU Affero General Public License
+ *     along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package it.marcoconfalonieri.plethonian.loadtest;
+
+import java.util.Arrays;
+
+/**
+ * Recorder of the latencies of one kind of request. Each worker thread has
+ * its own recorder, and the recorders are merged at the end of the run, so
+ * the recording itself never contends.
+ */
+public class LatencyRecorder {
+    /**
+     * The recorded latencies in nanoseconds.
+     */
+    private long[] values = new long[1024];
+    /**
+     * Number of recorded latencies.
+     */
+    private int count;
+    /**
+     * Number of failed requests.
+     */
+    private int errors;
+
+    /**
+     * Records a latency.
+     *
+     * @param nanos the latency in nanoseconds
+     */
+    public void record(long nanos) {
+        if (count == values.length) {
+            values = Arrays.copyOf(values, count * 2);
+        }
+        values[count++] = nanos;
+    }
+
+    /**
+     * Records a failed request.
+     */
+    public void error() {
+        errors++;
+    }
+
+    /**
+     * Adds the values of another recorder.
+     *
+     * @param other the other recorder
+     */
+    public void merge(LatencyRecorder other) {
+        for (int i = 0; i < other.count; i++) {
+            record(other.values[i]);
+        }
+        errors += other.errors;
+    }
+
+    /**
+     * Returns the number of recorded latencies.
+     *
+     * @return the count
+     */
+    public int getCount() {
+        return count;
+    }
+
+    /**
+     * Returns the number of failed requests.
+     *
+     * @return the count of errors
+     */
+    public int getErrors() {
+        return errors;
+    }
+
+    /**
+     * Returns a percentile of the recorded latencies.
+     *
+     * @param p the percentile, between 0 and 100
+     *
+     * @return the latency in nanoseconds, or 0 if nothing was recorded
+     */
+    public long percentile(double p) {
+        if (count == 0) {
+            return 0;
+        }
+        long[] sorted = Arrays.copyOf(values, count);
+        Arrays.sort(sorted);
+        int index = (int) Math.ceil(p / 100 * count) - 1;
+        return sorted[Math.max(0, Math.min(index, count - 1))];
+    }
+}
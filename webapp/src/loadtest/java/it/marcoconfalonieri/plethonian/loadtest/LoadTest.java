@@ -0,0 +1,232 @@
+/*
+ *     plethonian-webapp - Plethonian calendar Web Application
+ *
+ *     Copyright (C) 2020 Marco Confalonieri <marco at marcoconfalonieri.it>
+ *
+ *     This program is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU Affero General Public License as published
+ *     by the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     This program is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU Affero General Public License for more details.
+ *
+ *     You should have received a copy of the GNU Affero General Public License
+ *     along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package it.marcoconfalonieri.plethonian.loadtest;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Load test of the web tier. It boots the application in an embedded
+ * Tomcat, drives it with concurrent virtual users requesting the Faces
+ * index page in several languages and posting back the language form, and
+ * reports throughput, latency percentiles and the allocation rate of the
+ * server threads.
+ * <p>
+ * The test is configured with system properties: {@code loadtest.threads},
+ * {@code loadtest.warmup} and {@code loadtest.duration} in seconds,
+ * {@code loadtest.postRatio}, {@code loadtest.locales},
+ * {@code loadtest.maxP99Millis} (0 disables the gate) and
+ * {@code loadtest.result}, the path of the JSON report.
+ */
+public final class LoadTest {
+    /**
+     * Maximum time to wait for the application to be ready, in seconds.
+     */
+    private static final long READY_TIMEOUT = 120;
+    /**
+     * Prefix of the names of the server request threads.
+     */
+    private static final String SERVER_THREADS = "http-nio-";
+
+    /**
+     * Private constructor.
+     */
+    private LoadTest() {
+    }
+
+    /**
+     * Waits for the readiness endpoint to report the application ready.
+     *
+     * @param baseUri the base URI of the application
+     *
+     * @throws IOException if the application is not ready in time
+     * @throws InterruptedException if the thread is interrupted
+     */
+    private static void awaitReady(String baseUri)
+            throws IOException, InterruptedException {
+        HttpClient client = HttpClient.newHttpClient();
+        HttpRequest req = HttpRequest.newBuilder(
+                URI.create(baseUri + "/ready")).build();
+        long deadline = System.nanoTime() +
+                TimeUnit.SECONDS.toNanos(READY_TIMEOUT);
+        while (System.nanoTime() < deadline) {
+            if (client.send(req, HttpResponse.BodyHandlers.discarding())
+                    .statusCode() == 200) {
+                return;
+            }
+            Thread.sleep(200);
+        }
+        throw new IOException("The application is not ready");
+    }
+
+    /**
+     * Returns the bytes allocated so far by the server request threads.
+     *
+     * @return the allocated bytes, or -1 if they cannot be measured
+     */
+    private static long serverAllocatedBytes() {
+        if (!(ManagementFactory.getThreadMXBean()
+                instanceof com.sun.management.ThreadMXBean)) {
+            return -1;
+        }
+        com.sun.management.ThreadMXBean bean =
+                (com.sun.management.ThreadMXBean)
+                        ManagementFactory.getThreadMXBean();
+        long total = 0;
+        for (Thread t : Thread.getAllStackTraces().keySet()) {
+            if (t.getName().startsWith(SERVER_THREADS)) {
+                total += Math.max(0, bean.getThreadAllocatedBytes(
+                        t.getId()));
+            }
+        }
+        return total;
+    }
+
+    /**
+     * Formats a latency in milliseconds.
+     *
+     * @param nanos the latency in nanoseconds
+     *
+     * @return the latency in milliseconds
+     */
+    private static String millis(long nanos) {
+        return String.format(Locale.ROOT, "%.3f", nanos / 1e6);
+    }
+
+    /**
+     * Formats the statistics of a kind of request as a JSON object.
+     *
+     * @param r the latencies
+     * @param seconds the measured time
+     *
+     * @return the JSON object
+     */
+    private static String stats(LatencyRecorder r, double seconds) {
+        return String.format(Locale.ROOT, "{\"requests\": %d, " +
+                "\"errors\": %d, \"throughput\": %.1f, \"p50Millis\": %s, " +
+                "\"p99Millis\": %s, \"p999Millis\": %s}", r.getCount(),
+                r.getErrors(), r.getCount() / seconds,
+                millis(r.percentile(50)), millis(r.percentile(99)),
+                millis(r.percentile(99.9)));
+    }
+
+    /**
+     * Runs the load test.
+     *
+     * @param args ignored
+     *
+     * @throws Exception in case of errors
+     */
+    public static void main(String[] args) throws Exception {
+        int threads = Integer.getInteger("loadtest.threads", 8);
+        int warmup = Integer.getInteger("loadtest.warmup", 10);
+        int duration = Integer.getInteger("loadtest.duration", 30);
+        double postRatio = Double.parseDouble(
+                System.getProperty("loadtest.postRatio", "0.1"));
+        String[] locales = System.getProperty("loadtest.locales",
+                "la,it,en,lij").split(",");
+        long maxP99 = Long.getLong("loadtest.maxP99Millis", 0);
+        Path result = Paths.get(System.getProperty("loadtest.result",
+                "target/loadtest-result.json"));
+
+        int status = 0;
+        try (EmbeddedServer server = new EmbeddedServer(
+                Paths.get("src/main/webapp"), Paths.get("target/classes"))) {
+            String baseUri = server.getBaseUri();
+            awaitReady(baseUri);
+
+            List<VirtualUser> users = new ArrayList<>();
+            List<Thread> workers = new ArrayList<>();
+            for (int i = 0; i < threads; i++) {
+                VirtualUser user = new VirtualUser(baseUri,
+                        locales[i % locales.length].strip(), postRatio, i);
+                Thread t = new Thread(user, "loadtest-user-" + i);
+                users.add(user);
+                workers.add(t);
+                t.start();
+            }
+
+            System.out.printf("Warming up for %d s with %d users%n", warmup,
+                    threads);
+            Thread.sleep(TimeUnit.SECONDS.toMillis(warmup));
+            long startBytes = serverAllocatedBytes();
+            long start = System.nanoTime();
+            users.forEach(VirtualUser::startRecording);
+            System.out.printf("Measuring for %d s%n", duration);
+            Thread.sleep(TimeUnit.SECONDS.toMillis(duration));
+            users.forEach(VirtualUser::stop);
+            double seconds = (System.nanoTime() - start) / 1e9;
+            long bytes = serverAllocatedBytes() - startBytes;
+            for (Thread t : workers) {
+                t.join();
+            }
+
+            LatencyRecorder gets = new LatencyRecorder();
+            LatencyRecorder posts = new LatencyRecorder();
+            for (VirtualUser user : users) {
+                gets.merge(user.getGets());
+                posts.merge(user.getPosts());
+            }
+            LatencyRecorder all = new LatencyRecorder();
+            all.merge(gets);
+            all.merge(posts);
+
+            String json = String.format(Locale.ROOT, "{%n" +
+                    "  \"threads\": %d,%n  \"seconds\": %.1f,%n" +
+                    "  \"postRatio\": %s,%n  \"all\": %s,%n" +
+                    "  \"get\": %s,%n  \"post\": %s,%n" +
+                    "  \"allocatedMBPerSecond\": %.1f,%n" +
+                    "  \"allocatedBytesPerRequest\": %d%n}%n", threads,
+                    seconds, postRatio, stats(all, seconds),
+                    stats(gets, seconds), stats(posts, seconds),
+                    (bytes >= 0) ? bytes / seconds / 1e6 : -1.0,
+                    (bytes >= 0 && all.getCount() > 0) ?
+                            bytes / all.getCount() : -1);
+            Files.createDirectories(result.toAbsolutePath().getParent());
+            Files.write(result, json.getBytes(StandardCharsets.UTF_8));
+            System.out.print(json);
+
+            if (all.getErrors() > 0) {
+                System.err.printf("FAILED: %d requests failed%n",
+                        all.getErrors());
+                status = 1;
+            }
+            long p99 = TimeUnit.NANOSECONDS.toMillis(all.percentile(99));
+            if (maxP99 > 0 && p99 > maxP99) {
+                System.err.printf("FAILED: p99 %d ms above %d ms%n", p99,
+                        maxP99);
+                status = 1;
+            }
+        }
+        System.exit(status);
+    }
+}
@@ -0,0 +1,244 @@
+/*
+ *     plethonian-webapp - Plethonian calendar Web Application
+ *
+ *     Copyright (C) 2020 Marco Confalonieri <marco at marcoconfalonieri.it>
+ *
+ *     This program is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU Affero General Public License as published
+ *     by the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     This program is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU Affero General Public License for more details.
+ *
+ *     You should have received a copy of the GNU Affero General Public License
+ *     along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package it.marcoconfalonieri.plethonian.loadtest;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.URLEncoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Virtual user of the load test. It requests the Faces index page with its
+ * language cookie and, with a given probability, posts back the language
+ * form of the last page it received.
+ */
+public class VirtualUser implements Runnable {
+    /**
+     * Path of the Faces index page.
+     */
+    public static final String INDEX = "/faces/index.xhtml";
+    /**
+     * Pattern of the form identifier.
+     */
+    private static final Pattern FORM =
+            Pattern.compile("<form id=\"([^\"]+)\"");
+    /**
+     * Pattern of the command link identifiers.
+     */
+    private static final Pattern LINK = Pattern.compile("\\{'([^']+)':'\\1'");
+    /**
+     * Pattern of the view state.
+     */
+    private static final Pattern VIEW_STATE = Pattern.compile(
+            "name=\"javax.faces.ViewState\"[^>]*value=\"([^\"]+)\"");
+
+    /**
+     * HTTP client of this user.
+     */
+    private final HttpClient client = HttpClient.newBuilder()
+            .version(HttpClient.Version.HTTP_1_1).build();
+    /**
+     * URI of the index page.
+     */
+    private final URI index;
+    /**
+     * Probability of a postback after a page.
+     */
+    private final double postRatio;
+    /**
+     * Random generator of this user.
+     */
+    private final Random random;
+    /**
+     * Language cookie of this user.
+     */
+    private String lang;
+    /**
+     * Latencies of the GET requests.
+     */
+    private final LatencyRecorder gets = new LatencyRecorder();
+    /**
+     * Latencies of the postbacks.
+     */
+    private final LatencyRecorder posts = new LatencyRecorder();
+    /**
+     * Whether the latencies are being recorded.
+     */
+    private volatile boolean recording;
+    /**
+     * Whether the user must stop.
+     */
+    private volatile boolean stopped;
+
+    /**
+     * Constructor.
+     *
+     * @param baseUri the base URI of the application
+     * @param lang the initial language
+     * @param postRatio the probability of a postback after a page
+     * @param seed the seed of the random generator
+     */
+    public VirtualUser(String baseUri, String lang, double postRatio,
+            long seed) {
+        this.index = URI.create(baseUri + INDEX);
+        this.lang = lang;
+        this.postRatio = postRatio;
+        this.random = new Random(seed);
+    }
+
+    /**
+     * Starts recording the latencies, discarding the warm-up ones.
+     */
+    public void startRecording() {
+        recording = true;
+    }
+
+    /**
+     * Asks the user to stop after the current request.
+     */
+    public void stop() {
+        stopped = true;
+    }
+
+    /**
+     * Getter for the GET latencies.
+     *
+     * @return the GET latencies
+     */
+    public LatencyRecorder getGets() {
+        return gets;
+    }
+
+    /**
+     * Getter for the postback latencies.
+     *
+     * @return the postback latencies
+     */
+    public LatencyRecorder getPosts() {
+        return posts;
+    }
+
+    /**
+     * Sends a request and records its latency.
+     *
+     * @param request the request
+     * @param recorder the recorder of the latency
+     *
+     * @return the body, or null if the request failed
+     *
+     * @throws InterruptedException if the thread is interrupted
+     */
+    private String send(HttpRequest request, LatencyRecorder recorder)
+            throws InterruptedException {
+        boolean record = recording;
+        long start = System.nanoTime();
+        try {
+            HttpResponse<String> resp = client.send(request,
+                    HttpResponse.BodyHandlers.ofString());
+            long nanos = System.nanoTime() - start;
+            if (resp.statusCode() != 200) {
+                if (record) {
+                    recorder.error();
+                }
+                return null;
+            }
+            resp.headers().allValues("Set-Cookie").stream()
+                    .filter(c -> c.startsWith("lang="))
+                    .forEach(c -> lang = c.substring(5, c.indexOf(';')));
+            if (record) {
+                recorder.record(nanos);
+            }
+            return resp.body();
+        } catch (IOException ex) {
+            if (record) {
+                recorder.error();
+            }
+            return null;
+        }
+    }
+
+    /**
+     * Builds the postback of a random language link of a page.
+     *
+     * @param page the page
+     *
+     * @return the request, or null if the page has no language form
+     */
+    private HttpRequest postback(String page) {
+        Matcher form = FORM.matcher(page);
+        Matcher state = VIEW_STATE.matcher(page);
+        if (!form.find() || !state.find()) {
+            return null;
+        }
+        List<String> links = new ArrayList<>();
+        Matcher link = LINK.matcher(page);
+        while (link.find()) {
+            links.add(link.group(1));
+        }
+        if (links.isEmpty()) {
+            return null;
+        }
+        String id = links.get(random.nextInt(links.size()));
+        String body = encode(form.group(1)) + "=" + encode(form.group(1)) +
+                "&" + encode(id) + "=" + encode(id) +
+                "&javax.faces.ViewState=" + encode(state.group(1));
+        return HttpRequest.newBuilder(index)
+                .header("Content-Type", "application/x-www-form-urlencoded")
+                .header("Cookie", "lang=" + lang)
+                .POST(HttpRequest.BodyPublishers.ofString(body)).build();
+    }
+
+    /**
+     * Encodes a form value.
+     *
+     * @param value the value
+     *
+     * @return the encoded value
+     */
+    private static String encode(String value) {
+        return URLEncoder.encode(value, StandardCharsets.UTF_8);
+    }
+
+    @Override
+    public void run() {
+        try {
+            while (!stopped) {
+                String page = send(HttpRequest.newBuilder(index)
+                        .header("Cookie", "lang=" + lang).GET().build(), gets);
+                if (page != null && random.nextDouble() < postRatio) {
+                    HttpRequest post = postback(page);
+                    if (post != null) {
+                        send(post, posts);
+                    }
+                }
+            }
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,150 @@
+/*
+ *     plethonian-webapp - Plethonian calendar Web Application
+ *
+ *     Copyright (C) 2020 Marco Confalonieri <marco at marcoconfalonieri.it>
+ *
+ *     This program is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU Affero General Public License as published
+ *     by the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     This program is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU Affero General Public License for more details.
+ *
+ *     You should have received a copy of the GNU Affero General Public License
+ *     along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package it.marcoconfalonieri.plethonian.webapp.api;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+/**
+ * Serialized API response. The body is encoded once, together with its
+ * entity tag, so that it can be sent any number of times.
+ */
+public final class ApiResponse {
+    /**
+     * Number of digest bytes used in the entity tag.
+     */
+    private static final int ETAG_BYTES = 12;
+    /**
+     * Hexadecimal digits.
+     */
+    private static final char[] HEX = "0123456789abcdef".toCharArray();
+    /**
+     * Encoded body.
+     */
+    private final byte[] body;
+    /**
+     * Entity tag, including the quotes.
+     */
+    private final String etag;
+
+    /**
+     * Constructor.
+     *
+     * @param json the JSON body
+     */
+    public ApiResponse(String json) {
+        this.body = json.getBytes(StandardCharsets.UTF_8);
+        this.etag = computeEtag(body);
+    }
+
+    /**
+     * Computes a strong entity tag from the content.
+     *
+     * @param body the content
+     *
+     * @return the entity tag, including the quotes
+     */
+    private static String computeEtag(byte[] body) {
+        MessageDigest md;
+        try {
+            md = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException ex) {
+            // SHA-256 is available on every Java platform.
+            throw new IllegalStateException(ex);
+        }
+        return toEtag(md.digest(body));
+    }
+
+    /**
+     * Formats a strong entity tag from a digest of the content.
+     *
+     * @param digest the digest, of at least 12 bytes
+     *
+     * @return the entity tag, including the quotes
+     */
+    public static String toEtag(byte[] digest) {
+        char[] tag = new char[ETAG_BYTES * 2 + 2];
+        tag[0] = '"';
+        for (int i = 0; i < ETAG_BYTES; i++) {
+            tag[2 * i + 1] = HEX[(digest[i] >> 4) & 0xf];
+            tag[2 * i + 2] = HEX[digest[i] & 0xf];
+        }
+        tag[tag.length - 1] = '"';
+        return new String(tag);
+    }
+
+    /**
+     * Getter for the body.
+     *
+     * @return the encoded body; it must not be modified
+     */
+    public byte[] getBody() {
+        return body;
+    }
+
+    /**
+     * Getter for the entity tag.
+     *
+     * @return the entity tag, including the quotes
+     */
+    public String getEtag() {
+        return etag;
+    }
+
+    /**
+     * Checks whether the entity tag matches an If-None-Match header.
+     *
+     * @param ifNoneMatch the header value or null
+     *
+     * @return true if the client already has this response
+     */
+    public boolean matches(String ifNoneMatch) {
+        return matches(etag, ifNoneMatch);
+    }
+
+    /**
+     * Checks whether an entity tag matches an If-None-Match header. Weak
+     * tags in the header are compared as strong ones.
+     *
+     * @param etag the entity tag, including the quotes
+     * @param ifNoneMatch the header value or null
+     *
+     * @return true if the client already has the entity
+     */
+    public static boolean matches(String etag, String ifNoneMatch) {
+        if (ifNoneMatch == null) {
+            return false;
+        }
+        if (ifNoneMatch.strip().equals("*")) {
+            return true;
+        }
+        for (String tag : ifNoneMatch.split(",")) {
+            String t = tag.strip();
+            if (t.startsWith("W/")) {
+                t = t.substring(2);
+            }
+            if (t.equals(etag)) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
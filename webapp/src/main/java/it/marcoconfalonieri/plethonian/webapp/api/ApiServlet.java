@@ -0,0 +1,296 @@
+/*
+ *     plethonian-webapp - Plethonian calendar Web Application
+ *
+ *     Copyright (C) 2020 Marco Confalonieri <marco at marcoconfalonieri.it>
+ *
+ *     This program is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU Affero General Public License as published
+ *     by the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     This program is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU Affero General Public License for more details.
+ *
+ *     You should have received a copy of the GNU Affero General Public License
+ *     along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package it.marcoconfalonieri.plethonian.webapp.api;
+
+import it.marcoconfalonieri.plethonian.calendar.PlethonianCalendar;
+import it.marcoconfalonieri.plethonian.webapp.controller.CalendarProvider;
+import it.marcoconfalonieri.plethonian.webapp.controller.CalendarUnavailableException;
+import it.marcoconfalonieri.plethonian.webapp.controller.CurrentDay;
+import it.marcoconfalonieri.plethonian.webapp.controller.PlethonianCalendarApp;
+import java.io.IOException;
+import java.time.DateTimeException;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.time.format.DateTimeParseException;
+import java.util.HashMap;
+import java.util.Map;
+import javax.inject.Inject;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServlet;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+/**
+ * REST API over the calendar. It serves the following resources as JSON:
+ * <ul>
+ * <li>{@code /api/day/{date}}: the Plethonian day of a Gregorian date;</li>
+ * <li>{@code /api/month/{date}}: the Plethonian month with all its days;</li>
+ * <li>{@code /api/year/{date}}: the Plethonian year with its months;</li>
+ * <li>{@code /api/today?zone=}: the current day in the given time zone.</li>
+ * </ul>
+ * The responses for yesterday, today and tomorrow are serialized once per
+ * day and reused, and every response carries an entity tag and the version
+ * of the astronomical data it is computed from.
+ */
+public class ApiServlet extends HttpServlet {
+    /**
+     * Serial version ID.
+     */
+    private static final long serialVersionUID = -1719617446212102331L;
+    /**
+     * Content type of the responses.
+     */
+    private static final String CONTENT_TYPE =
+            "application/json;charset=UTF-8";
+    /**
+     * Cache control for the responses that depend only on the date.
+     */
+    private static final String CACHE_DATED = "public, max-age=86400";
+    /**
+     * Cache control for the responses that depend on the current time.
+     */
+    private static final String CACHE_TODAY = "no-cache";
+    /**
+     * Seconds after which a client should retry when the calendar is not
+     * ready.
+     */
+    private static final String RETRY_AFTER = "5";
+    /**
+     * Header with the version of the astronomical data.
+     */
+    private static final String DATA_VERSION_HEADER = "X-Data-Version";
+
+    /**
+     * Kinds of resources.
+     */
+    private enum Kind {
+        DAY, MONTH, YEAR
+    }
+
+    /**
+     * Pre-serialized responses around a given day.
+     */
+    private static final class HotResponses {
+        private final PlethonianCalendar calendar;
+        private final LocalDate today;
+        private final Map<LocalDate, ApiResponse[]> responses =
+                new HashMap<>();
+
+        HotResponses(PlethonianCalendar calendar, LocalDate today) {
+            this.calendar = calendar;
+            this.today = today;
+        }
+    }
+
+    /**
+     * Application bean.
+     */
+    @Inject
+    private PlethonianCalendarApp app;
+    /**
+     * Provider of the calendar.
+     */
+    @Inject
+    private CalendarProvider calendarProvider;
+    /**
+     * Current pre-serialized responses.
+     */
+    private transient volatile HotResponses hot;
+
+    /**
+     * Parses the kind of resource from the path.
+     *
+     * @param name the name in the path
+     *
+     * @return the kind of resource or null
+     */
+    private static Kind parseKind(String name) {
+        for (Kind kind : Kind.values()) {
+            if (kind.name().equalsIgnoreCase(name)) {
+                return kind;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Serializes a resource.
+     *
+     * @param calendar the calendar
+     * @param kind the kind of resource
+     * @param date the reference date
+     *
+     * @return the serialized response
+     */
+    private static ApiResponse serialize(PlethonianCalendar calendar,
+            Kind kind, LocalDate date) {
+        JsonWriter json = new JsonWriter();
+        switch (kind) {
+            case DAY:
+                CalendarJson.writeDay(json, calendar.getDay(date));
+                break;
+            case MONTH:
+                CalendarJson.writeMonth(json, calendar.getMonth(date));
+                break;
+            default:
+                CalendarJson.writeYear(json, calendar.getYear(date));
+        }
+        return new ApiResponse(json.toString());
+    }
+
+    /**
+     * Returns the pre-serialized responses for the current day, building them
+     * again after a day rollover or a reload of the calendar.
+     *
+     * @return the pre-serialized responses
+     */
+    private HotResponses getHotResponses() {
+        CurrentDay day = app.getCurrentDay();
+        LocalDate today = day.getDate();
+        PlethonianCalendar calendar = day.getCalendar();
+        HotResponses current = hot;
+        if (current != null && current.today.equals(today) &&
+                current.calendar == calendar) {
+            return current;
+        }
+        HotResponses next = new HotResponses(calendar, today);
+        for (int offset = -1; offset <= 1; offset++) {
+            LocalDate date = today.plusDays(offset);
+            ApiResponse[] rs = new ApiResponse[Kind.values().length];
+            try {
+                for (Kind kind : Kind.values()) {
+                    rs[kind.ordinal()] = serialize(calendar, kind, date);
+                }
+            } catch (IllegalArgumentException ex) {
+                // Out of the calendar range: served on demand as an error.
+                continue;
+            }
+            next.responses.put(date, rs);
+        }
+        hot = next;
+        return next;
+    }
+
+    /**
+     * Returns the response for a resource, using the pre-serialized one when
+     * available. The pre-serialized responses are left alone while rendering
+     * another day in the as-of date mode.
+     *
+     * @param kind the kind of resource
+     * @param date the reference date
+     *
+     * @return the response
+     *
+     * @throws IllegalArgumentException if the date is not supported
+     */
+    private ApiResponse getResponse(Kind kind, LocalDate date) {
+        if (!app.isAsOf()) {
+            ApiResponse[] rs = getHotResponses().responses.get(date);
+            if (rs != null) {
+                return rs[kind.ordinal()];
+            }
+        }
+        return serialize(app.getCalendar(), kind, date);
+    }
+
+    /**
+     * Sends an error as JSON.
+     *
+     * @param resp the response
+     * @param status the HTTP status
+     * @param message the error message
+     *
+     * @throws IOException in case of errors writing the response
+     */
+    private static void sendError(HttpServletResponse resp, int status,
+            String message) throws IOException {
+        ApiResponse error = new ApiResponse(CalendarJson.writeError(
+                new JsonWriter(), status, message).toString());
+        resp.setStatus(status);
+        resp.setContentType(CONTENT_TYPE);
+        resp.setContentLength(error.getBody().length);
+        resp.getOutputStream().write(error.getBody());
+    }
+
+    /**
+     * Sends a response, or a 304 status if the client already has it.
+     *
+     * @param req the request
+     * @param resp the response
+     * @param response the serialized response
+     * @param cacheControl the cache control header
+     *
+     * @throws IOException in case of errors writing the response
+     */
+    private static void send(HttpServletRequest req, HttpServletResponse resp,
+            ApiResponse response, String cacheControl) throws IOException {
+        resp.setHeader("ETag", response.getEtag());
+        resp.setHeader("Cache-Control", cacheControl);
+        if (response.matches(req.getHeader("If-None-Match"))) {
+            resp.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+            return;
+        }
+        resp.setContentType(CONTENT_TYPE);
+        resp.setContentLength(response.getBody().length);
+        resp.getOutputStream().write(response.getBody());
+    }
+
+    @Override
+    protected void doGet(HttpServletRequest req, HttpServletResponse resp)
+            throws ServletException, IOException {
+        String path = req.getPathInfo();
+        String[] parts = (path != null) ? path.substring(1).split("/") :
+                new String[0];
+        String version = calendarProvider.getDataVersion();
+        if (version != null) {
+            resp.setHeader(DATA_VERSION_HEADER, version);
+        }
+        try {
+            if (parts.length == 1 && parts[0].equals("today")) {
+                String zone = req.getParameter("zone");
+                LocalDate date = (zone != null && !app.isAsOf()) ?
+                        LocalDate.now(app.getClock().withZone(
+                                ZoneId.of(zone))) :
+                        app.getCurrentDay().getDate();
+                send(req, resp, getResponse(Kind.DAY, date), CACHE_TODAY);
+            } else if (parts.length == 2 && parseKind(parts[0]) != null) {
+                Kind kind = parseKind(parts[0]);
+                LocalDate date = LocalDate.parse(parts[1]);
+                send(req, resp, getResponse(kind, date), CACHE_DATED);
+            } else {
+                sendError(resp, HttpServletResponse.SC_NOT_FOUND,
+                        "Unknown resource: " + path);
+            }
+        } catch (DateTimeParseException ex) {
+            sendError(resp, HttpServletResponse.SC_BAD_REQUEST,
+                    "Invalid date: " + ex.getParsedString());
+        } catch (DateTimeException ex) {
+            sendError(resp, HttpServletResponse.SC_BAD_REQUEST,
+                    "Invalid zone: " + ex.getMessage());
+        } catch (IllegalArgumentException ex) {
+            sendError(resp, HttpServletResponse.SC_NOT_FOUND,
+                    ex.getMessage());
+        } catch (CalendarUnavailableException ex) {
+            resp.setHeader("Retry-After", RETRY_AFTER);
+            sendError(resp, HttpServletResponse.SC_SERVICE_UNAVAILABLE,
+                    ex.getMessage());
+        }
+    }
+}
@@ -0,0 +1,135 @@
+/*
+ *     plethonian-webapp - Plethonian calendar Web Application
+ *
+ *     Copyright (C) 2020 Marco Confalonieri <marco at marcoconfalonieri.it>
+ *
+ *     This program is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU Affero General Public License as published
+ *     by the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     This program is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU Affero General Public License for more details.
+ *
+ *     You should have received a copy of the GNU Affero General Public License
+ *     along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package it.marcoconfalonieri.plethonian.webapp.api;
+
+import it.marcoconfalonieri.plethonian.calendar.MonthlyFestivity;
+import it.marcoconfalonieri.plethonian.calendar.PlethonianDay;
+import it.marcoconfalonieri.plethonian.calendar.PlethonianMonth;
+import it.marcoconfalonieri.plethonian.calendar.PlethonianYear;
+
+/**
+ * JSON serialization of the calendar objects.
+ */
+public final class CalendarJson {
+
+    /**
+     * Private constructor. This class has only static methods.
+     */
+    private CalendarJson() {
+    }
+
+    /**
+     * Writes the members of a day.
+     *
+     * @param json the JSON writer
+     * @param day the day
+     */
+    private static void writeDayMembers(JsonWriter json, PlethonianDay day) {
+        MonthlyFestivity festivity = day.getMonthFestivity();
+        json.name("gregorianDate").value(day.getGregorianDate().toString())
+                .name("dayOfMonth").value(day.getDayOfMonth())
+                .name("dayOfYear").value(day.getDayOfYear())
+                .name("month").value(day.getMonth().toInt())
+                .name("monthName").value(day.getMonth().name())
+                .name("week").value(day.getWeek().toInt())
+                .name("weekName").value(day.getWeek().name())
+                .name("label").value(day.getLabel())
+                .name("defunctDay").value(day.isDefunctDay())
+                .name("festivity").value(
+                        (festivity != null) ? festivity.name() : null);
+    }
+
+    /**
+     * Writes a day.
+     *
+     * @param json the JSON writer
+     * @param day the day
+     *
+     * @return the JSON writer
+     */
+    public static JsonWriter writeDay(JsonWriter json, PlethonianDay day) {
+        json.beginObject();
+        writeDayMembers(json, day);
+        return json.endObject();
+    }
+
+    /**
+     * Writes a month with all its days.
+     *
+     * @param json the JSON writer
+     * @param month the month
+     *
+     * @return the JSON writer
+     */
+    public static JsonWriter writeMonth(JsonWriter json,
+            PlethonianMonth month) {
+        json.beginObject()
+                .name("month").value(month.getMonth().toInt())
+                .name("monthName").value(month.getMonth().name())
+                .name("firstDay").value(month.getFirstDay().toString())
+                .name("length").value(month.getDays().size())
+                .name("days").beginArray();
+        for (PlethonianDay day : month.getDays()) {
+            writeDay(json, day);
+        }
+        return json.endArray().endObject();
+    }
+
+    /**
+     * Writes a year with the summary of its months.
+     *
+     * @param json the JSON writer
+     * @param year the year
+     *
+     * @return the JSON writer
+     */
+    public static JsonWriter writeYear(JsonWriter json, PlethonianYear year) {
+        json.beginObject()
+                .name("firstDay").value(year.getFirstDay().toString())
+                .name("days").value(year.getDays())
+                .name("months").beginArray();
+        for (PlethonianMonth month : year.getMonths()) {
+            json.beginObject()
+                    .name("month").value(month.getMonth().toInt())
+                    .name("monthName").value(month.getMonth().name())
+                    .name("firstDay").value(month.getFirstDay().toString())
+                    .name("length").value(month.getDays().size())
+                    .endObject();
+        }
+        return json.endArray().endObject();
+    }
+
+    /**
+     * Writes an error.
+     *
+     * @param json the JSON writer
+     * @param status the HTTP status
+     * @param message the error message
+     *
+     * @return the JSON writer
+     */
+    public static JsonWriter writeError(JsonWriter json, int status,
+            String message) {
+        return json.beginObject()
+                .name("status").value(status)
+                .name("error").value(message)
+                .endObject();
+    }
+}
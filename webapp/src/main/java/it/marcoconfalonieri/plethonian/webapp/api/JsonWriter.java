@@ -0,0 +1,264 @@
+/*
+ *     plethonian-webapp - Plethonian calendar Web Application
+ *
+ *     Copyright (C) 2020 Marco Confalonieri <marco at marcoconfalonieri.it>
+ *
+ *     This program is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU Affero General Public License as published
+ *     by the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     This program is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU Affero General Public License for more details.
+ *
+ *     You should have received a copy of the GNU Affero General Public License
+ *     along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package it.marcoconfalonieri.plethonian.webapp.api;
+
+import java.util.BitSet;
+
+/**
+ * Minimal streaming JSON writer. It writes to a string builder without any
+ * reflection, keeping track of the separators needed between the values.
+ */
+public final class JsonWriter {
+    /**
+     * Maximum nesting depth.
+     */
+    private static final int MAX_DEPTH = 64;
+    /**
+     * Hexadecimal digits.
+     */
+    private static final char[] HEX = "0123456789abcdef".toCharArray();
+    /**
+     * Output buffer.
+     */
+    private final StringBuilder out;
+    /**
+     * Flags telling whether the container at each level has already a value.
+     */
+    private final BitSet notEmpty = new BitSet(MAX_DEPTH);
+    /**
+     * Current nesting depth.
+     */
+    private int depth;
+    /**
+     * True if a name has just been written.
+     */
+    private boolean afterName;
+
+    /**
+     * Constructor.
+     *
+     * @param out the output buffer
+     */
+    public JsonWriter(StringBuilder out) {
+        this.out = out;
+    }
+
+    /**
+     * Constructor with a new output buffer.
+     */
+    public JsonWriter() {
+        this(new StringBuilder(256));
+    }
+
+    /**
+     * Writes the separator needed before a value.
+     */
+    private void beforeValue() {
+        if (afterName) {
+            afterName = false;
+            return;
+        }
+        if (depth > 0) {
+            if (notEmpty.get(depth)) {
+                out.append(',');
+            } else {
+                notEmpty.set(depth);
+            }
+        }
+    }
+
+    /**
+     * Opens a container.
+     *
+     * @param c the opening character
+     *
+     * @return this writer
+     */
+    private JsonWriter open(char c) {
+        beforeValue();
+        if (++depth >= MAX_DEPTH) {
+            throw new IllegalStateException("JSON nesting too deep");
+        }
+        notEmpty.clear(depth);
+        out.append(c);
+        return this;
+    }
+
+    /**
+     * Closes a container.
+     *
+     * @param c the closing character
+     *
+     * @return this writer
+     */
+    private JsonWriter close(char c) {
+        if (depth == 0 || afterName) {
+            throw new IllegalStateException("Unbalanced JSON container");
+        }
+        depth--;
+        out.append(c);
+        return this;
+    }
+
+    /**
+     * Begins an object.
+     *
+     * @return this writer
+     */
+    public JsonWriter beginObject() {
+        return open('{');
+    }
+
+    /**
+     * Ends an object.
+     *
+     * @return this writer
+     */
+    public JsonWriter endObject() {
+        return close('}');
+    }
+
+    /**
+     * Begins an array.
+     *
+     * @return this writer
+     */
+    public JsonWriter beginArray() {
+        return open('[');
+    }
+
+    /**
+     * Ends an array.
+     *
+     * @return this writer
+     */
+    public JsonWriter endArray() {
+        return close(']');
+    }
+
+    /**
+     * Writes the name of an object member.
+     *
+     * @param name the name
+     *
+     * @return this writer
+     */
+    public JsonWriter name(String name) {
+        beforeValue();
+        writeString(name);
+        out.append(':');
+        afterName = true;
+        return this;
+    }
+
+    /**
+     * Writes a string value, or null.
+     *
+     * @param value the value
+     *
+     * @return this writer
+     */
+    public JsonWriter value(String value) {
+        beforeValue();
+        if (value == null) {
+            out.append("null");
+        } else {
+            writeString(value);
+        }
+        return this;
+    }
+
+    /**
+     * Writes a numeric value.
+     *
+     * @param value the value
+     *
+     * @return this writer
+     */
+    public JsonWriter value(long value) {
+        beforeValue();
+        out.append(value);
+        return this;
+    }
+
+    /**
+     * Writes a boolean value.
+     *
+     * @param value the value
+     *
+     * @return this writer
+     */
+    public JsonWriter value(boolean value) {
+        beforeValue();
+        out.append(value);
+        return this;
+    }
+
+    /**
+     * Writes a quoted and escaped string.
+     *
+     * @param s the string
+     */
+    private void writeString(String s) {
+        out.append('"');
+        int len = s.length();
+        for (int i = 0; i < len; i++) {
+            char c = s.charAt(i);
+            switch (c) {
+                case '"':
+                    out.append("\\\"");
+                    break;
+                case '\\':
+                    out.append("\\\\");
+                    break;
+                case '\n':
+                    out.append("\\n");
+                    break;
+                case '\r':
+                    out.append("\\r");
+                    break;
+                case '\t':
+                    out.append("\\t");
+                    break;
+                default:
+                    if (c < 0x20 || c == 0x2028 || c == 0x2029) {
+                        out.append("\\u")
+                                .append(HEX[(c >> 12) & 0xf])
+                                .append(HEX[(c >> 8) & 0xf])
+                                .append(HEX[(c >> 4) & 0xf])
+                                .append(HEX[c & 0xf]);
+                    } else {
+                        out.append(c);
+                    }
+            }
+        }
+        out.append('"');
+    }
+
+    /**
+     * Returns the JSON text written so far.
+     *
+     * @return the JSON text
+     */
+    @Override
+    public String toString() {
+        return out.toString();
+    }
+}
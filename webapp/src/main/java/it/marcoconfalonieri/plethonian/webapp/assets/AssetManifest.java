@@ -0,0 +1,399 @@
+/*
+ *     plethonian-webapp - Plethonian calendar Web Application
+ *
+ *     Copyright (C) 2020 Marco Confalonieri <marco at marcoconfalonieri.it>
+ *
+ *     This program is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU Affero General Public License as published
+ *     by the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     This program is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU Affero General Public License for more details.
+ *
+ *     You should have received a copy of the GNU Affero General Public License
+ *     along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package it.marcoconfalonieri.plethonian.webapp.assets;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Properties;
+
+/**
+ * Manifest of the static assets processed at build time by the asset
+ * pipeline of the {@code plethonian-assets-maven-plugin}. It maps the source path of each asset to its
+ * fingerprinted path, and lists the variants written beside each
+ * fingerprinted file with their lengths. Without a manifest every asset
+ * keeps its source path.
+ * <p>
+ * The manifest is a properties file with entries such as
+ * {@code source./resources/css/default.css=/resources/css/default.0123456789.css}
+ * and
+ * {@code variants./resources/css/default.0123456789.css=identity:2721,gzip:950}.
+ */
+public final class AssetManifest {
+    /**
+     * Path of the manifest inside the web application.
+     */
+    public static final String PATH = "/WEB-INF/assets.properties";
+    /**
+     * Manifest without assets.
+     */
+    public static final AssetManifest EMPTY =
+            new AssetManifest(Map.of(), Map.of());
+    /**
+     * Prefix of the keys mapping the source paths.
+     */
+    static final String SOURCE_PREFIX = "source.";
+    /**
+     * Prefix of the keys listing the variants.
+     */
+    static final String VARIANTS_PREFIX = "variants.";
+
+    /**
+     * Variant of an asset, stored beside the fingerprinted file with a
+     * suffix.
+     */
+    public enum Variant {
+        /**
+         * The file itself.
+         */
+        IDENTITY("identity", "", null, null),
+        /**
+         * Brotli compressed file.
+         */
+        BROTLI("br", ".br", "br", null),
+        /**
+         * Gzip compressed file.
+         */
+        GZIP("gzip", ".gz", "gzip", null),
+        /**
+         * Image re-encoded as WebP.
+         */
+        WEBP("webp", ".webp", null, "image/webp");
+
+        /**
+         * Name in the manifest.
+         */
+        private final String token;
+        /**
+         * Suffix of the file name.
+         */
+        private final String suffix;
+        /**
+         * Content encoding, or null.
+         */
+        private final String contentEncoding;
+        /**
+         * Content type, or null for the one of the asset.
+         */
+        private final String contentType;
+
+        /**
+         * Constructor.
+         *
+         * @param token the name in the manifest
+         * @param suffix the suffix of the file name
+         * @param contentEncoding the content encoding, or null
+         * @param contentType the content type, or null for the one of the
+         *     asset
+         */
+        Variant(String token, String suffix, String contentEncoding,
+                String contentType) {
+            this.token = token;
+            this.suffix = suffix;
+            this.contentEncoding = contentEncoding;
+            this.contentType = contentType;
+        }
+
+        /**
+         * Returns the name in the manifest.
+         *
+         * @return the name
+         */
+        public String getToken() {
+            return token;
+        }
+
+        /**
+         * Returns the suffix of the file name.
+         *
+         * @return the suffix
+         */
+        public String getSuffix() {
+            return suffix;
+        }
+
+        /**
+         * Returns the content encoding.
+         *
+         * @return the content encoding, or null
+         */
+        public String getContentEncoding() {
+            return contentEncoding;
+        }
+
+        /**
+         * Returns the content type.
+         *
+         * @return the content type, or null for the one of the asset
+         */
+        public String getContentType() {
+            return contentType;
+        }
+
+        /**
+         * Returns the variant with a name.
+         *
+         * @param token the name in the manifest
+         *
+         * @return the variant
+         *
+         * @throws IllegalArgumentException if the name is unknown
+         */
+        static Variant ofToken(String token) {
+            for (Variant v : values()) {
+                if (v.token.equals(token)) {
+                    return v;
+                }
+            }
+            throw new IllegalArgumentException("Unknown variant: " + token);
+        }
+    }
+
+    /**
+     * Fingerprinted asset with its variants.
+     */
+    public static final class Asset {
+        /**
+         * Content fingerprint.
+         */
+        private final String fingerprint;
+        /**
+         * Lengths of the variants.
+         */
+        private final Map<Variant, Integer> lengths;
+
+        /**
+         * Constructor.
+         *
+         * @param fingerprint the content fingerprint
+         * @param lengths the lengths of the variants
+         */
+        Asset(String fingerprint, Map<Variant, Integer> lengths) {
+            this.fingerprint = fingerprint;
+            this.lengths = Collections.unmodifiableMap(
+                    new EnumMap<>(lengths));
+        }
+
+        /**
+         * Returns the content fingerprint.
+         *
+         * @return the fingerprint
+         */
+        public String getFingerprint() {
+            return fingerprint;
+        }
+
+        /**
+         * Returns the length of a variant.
+         *
+         * @param variant the variant
+         *
+         * @return the length, or -1 if the variant does not exist
+         */
+        public int getLength(Variant variant) {
+            return lengths.getOrDefault(variant, -1);
+        }
+
+        /**
+         * Returns the request headers the choice of the variant depends on.
+         *
+         * @return the value of the Vary header, or null if there is only
+         *     the file itself
+         */
+        public String getVary() {
+            boolean images = lengths.containsKey(Variant.WEBP);
+            boolean encodings = lengths.containsKey(Variant.BROTLI) ||
+                    lengths.containsKey(Variant.GZIP);
+            if (images && encodings) {
+                return "Accept, Accept-Encoding";
+            }
+            return images ? "Accept" : encodings ? "Accept-Encoding" : null;
+        }
+
+        /**
+         * Selects the variant to send. A WebP image is preferred when
+         * accepted, then Brotli over gzip.
+         *
+         * @param accept the Accept header, or null
+         * @param acceptEncoding the Accept-Encoding header, or null
+         *
+         * @return the variant
+         */
+        public Variant select(String accept, String acceptEncoding) {
+            if (lengths.containsKey(Variant.WEBP) &&
+                    accepts(accept, "image/webp")) {
+                return Variant.WEBP;
+            }
+            if (lengths.containsKey(Variant.BROTLI) &&
+                    accepts(acceptEncoding, "br")) {
+                return Variant.BROTLI;
+            }
+            if (lengths.containsKey(Variant.GZIP) &&
+                    accepts(acceptEncoding, "gzip")) {
+                return Variant.GZIP;
+            }
+            return Variant.IDENTITY;
+        }
+    }
+
+    /**
+     * Fingerprinted paths by source path.
+     */
+    private final Map<String, String> paths;
+    /**
+     * Assets by fingerprinted path.
+     */
+    private final Map<String, Asset> assets;
+
+    /**
+     * Constructor.
+     *
+     * @param paths the fingerprinted paths by source path
+     * @param assets the assets by fingerprinted path
+     */
+    private AssetManifest(Map<String, String> paths,
+            Map<String, Asset> assets) {
+        this.paths = paths;
+        this.assets = assets;
+    }
+
+    /**
+     * Checks whether a header lists a value with a non-zero quality.
+     *
+     * @param header the header, or null
+     * @param value the value
+     *
+     * @return true if the value is accepted
+     */
+    static boolean accepts(String header, String value) {
+        if (header == null) {
+            return false;
+        }
+        for (String item : header.split(",")) {
+            String[] parts = item.split(";");
+            if (parts[0].strip().equalsIgnoreCase(value)) {
+                return parts.length == 1 ||
+                        !parts[1].strip().matches("q=0(\\.0*)?");
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Returns the fingerprint in a fingerprinted path, between the last two
+     * dots of the file name.
+     *
+     * @param path the fingerprinted path
+     *
+     * @return the fingerprint
+     *
+     * @throws IllegalArgumentException if the path has no fingerprint
+     */
+    static String fingerprintOf(String path) {
+        String name = path.substring(path.lastIndexOf('/') + 1);
+        int ext = name.lastIndexOf('.');
+        int start = (ext > 0) ? name.lastIndexOf('.', ext - 1) : -1;
+        if (start < 0) {
+            throw new IllegalArgumentException("No fingerprint: " + path);
+        }
+        return name.substring(start + 1, ext);
+    }
+
+    /**
+     * Reads the manifest.
+     *
+     * @param in the stream of the manifest, or null if there is none
+     *
+     * @return the manifest
+     *
+     * @throws IOException in case of errors reading or parsing the manifest
+     */
+    public static AssetManifest read(InputStream in) throws IOException {
+        if (in == null) {
+            return EMPTY;
+        }
+        Properties props = new Properties();
+        try (InputStream stream = in) {
+            props.load(stream);
+        }
+        Map<String, String> paths = new HashMap<>();
+        Map<String, Asset> assets = new HashMap<>();
+        try {
+            for (String key : props.stringPropertyNames()) {
+                String value = props.getProperty(key).strip();
+                if (key.startsWith(SOURCE_PREFIX)) {
+                    paths.put(key.substring(SOURCE_PREFIX.length()), value);
+                } else if (key.startsWith(VARIANTS_PREFIX)) {
+                    String path = key.substring(VARIANTS_PREFIX.length());
+                    Map<Variant, Integer> lengths =
+                            new EnumMap<>(Variant.class);
+                    for (String item : value.split(",")) {
+                        int colon = item.indexOf(':');
+                        lengths.put(Variant.ofToken(item.substring(0, colon)),
+                                Integer.parseInt(item.substring(colon + 1)));
+                    }
+                    if (!lengths.containsKey(Variant.IDENTITY)) {
+                        throw new IOException("Missing file for " + path);
+                    }
+                    assets.put(path, new Asset(fingerprintOf(path), lengths));
+                }
+            }
+        } catch (IllegalArgumentException | IndexOutOfBoundsException ex) {
+            throw new IOException("Invalid asset manifest", ex);
+        }
+        return new AssetManifest(Collections.unmodifiableMap(paths),
+                Collections.unmodifiableMap(assets));
+    }
+
+    /**
+     * Returns the path to link an asset with.
+     *
+     * @param source the source path of the asset
+     *
+     * @return the fingerprinted path, or the source path if the asset was
+     *     not processed
+     */
+    public String path(String source) {
+        return paths.getOrDefault(source, source);
+    }
+
+    /**
+     * Returns a fingerprinted asset.
+     *
+     * @param path the fingerprinted path
+     *
+     * @return the asset, or null if the path is not a fingerprinted one
+     */
+    public Asset find(String path) {
+        return assets.get(path);
+    }
+
+    /**
+     * Returns the number of fingerprinted assets.
+     *
+     * @return the number of assets
+     */
+    public int size() {
+        return assets.size();
+    }
+}
@@ -0,0 +1,118 @@
+/*
+ *     plethonian-webapp - Plethonian calendar Web Application
+ *
+ *     Copyright (C) 2020 Marco Confalonieri <marco at marcoconfalonieri.it>
+ *
+ *     This program is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU Affero General Public License as published
+ *     by the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     This program is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU Affero General Public License for more details.
+ *
+ *     You should have received a copy of the GNU Affero General Public License
+ *     along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package it.marcoconfalonieri.plethonian.webapp.assets;
+
+import it.marcoconfalonieri.plethonian.webapp.api.ApiResponse;
+import it.marcoconfalonieri.plethonian.webapp.assets.AssetManifest.Asset;
+import it.marcoconfalonieri.plethonian.webapp.assets.AssetManifest.Variant;
+import java.io.IOException;
+import java.io.InputStream;
+import javax.inject.Inject;
+import javax.servlet.Filter;
+import javax.servlet.FilterChain;
+import javax.servlet.FilterConfig;
+import javax.servlet.ServletContext;
+import javax.servlet.ServletException;
+import javax.servlet.ServletRequest;
+import javax.servlet.ServletResponse;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+/**
+ * Filter serving the fingerprinted assets. Their content never changes, so
+ * they are cached forever, and the variant matching the Accept and
+ * Accept-Encoding headers is sent as it was written by the build. The other
+ * requests go through unchanged.
+ */
+public class PrecompressedFilter implements Filter {
+    /**
+     * Cache control of the fingerprinted assets.
+     */
+    private static final String CACHE_CONTROL =
+            "public, max-age=31536000, immutable";
+
+    /**
+     * Static assets.
+     */
+    @Inject
+    private StaticAssets assets;
+    /**
+     * Servlet context.
+     */
+    private ServletContext context;
+
+    @Override
+    public void init(FilterConfig filterConfig) throws ServletException {
+        context = filterConfig.getServletContext();
+    }
+
+    @Override
+    public void doFilter(ServletRequest request, ServletResponse response,
+            FilterChain chain) throws IOException, ServletException {
+        HttpServletRequest req = (HttpServletRequest) request;
+        HttpServletResponse resp = (HttpServletResponse) response;
+        String method = req.getMethod();
+        boolean head = method.equals("HEAD");
+        String path = req.getServletPath() +
+                ((req.getPathInfo() != null) ? req.getPathInfo() : "");
+        Asset asset = (head || method.equals("GET")) ?
+                assets.getManifest().find(path) : null;
+        if (asset == null) {
+            chain.doFilter(request, response);
+            return;
+        }
+        Variant variant = asset.select(req.getHeader("Accept"),
+                req.getHeader("Accept-Encoding"));
+        String etag = "\"" + asset.getFingerprint() + "-" +
+                variant.getToken() + "\"";
+        resp.setHeader("ETag", etag);
+        resp.setHeader("Cache-Control", CACHE_CONTROL);
+        if (asset.getVary() != null) {
+            resp.setHeader("Vary", asset.getVary());
+        }
+        if (ApiResponse.matches(etag, req.getHeader("If-None-Match"))) {
+            resp.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+            return;
+        }
+        String type = variant.getContentType();
+        resp.setContentType((type != null) ? type : context.getMimeType(path));
+        if (variant.getContentEncoding() != null) {
+            resp.setHeader("Content-Encoding", variant.getContentEncoding());
+        }
+        resp.setContentLength(asset.getLength(variant));
+        if (head) {
+            return;
+        }
+        try (InputStream in = context.getResourceAsStream(
+                path + variant.getSuffix())) {
+            if (in == null) {
+                resp.reset();
+                chain.doFilter(request, response);
+                return;
+            }
+            in.transferTo(resp.getOutputStream());
+        }
+    }
+
+    @Override
+    public void destroy() {
+        // Nothing to release
+    }
+}
@@ -0,0 +1,91 @@
+/*
+ *     plethonian-webapp - Plethonian calendar Web Application
+ *
+ *     Copyright (C) 2020 Marco Confalonieri <marco at marcoconfalonieri.it>
+ *
+ *     This program is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU Affero General Public License as published
+ *     by the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     This program is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU Affero General Public License for more details.
+ *
+ *     You should have received a copy of the GNU Affero General Public License
+ *     along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package it.marcoconfalonieri.plethonian.webapp.assets;
+
+import java.io.IOException;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import javax.enterprise.context.ApplicationScoped;
+import javax.enterprise.context.Initialized;
+import javax.enterprise.event.Observes;
+import javax.inject.Named;
+import javax.servlet.ServletContext;
+
+/**
+ * Bean giving the pages the paths of the static assets. It reads the
+ * manifest written by the build when the application starts; without it,
+ * the assets are linked by their source paths.
+ */
+@ApplicationScoped
+@Named("assets")
+public class StaticAssets {
+    /**
+     * Logger.
+     */
+    private static final Logger LOG =
+            Logger.getLogger(StaticAssets.class.getName());
+
+    /**
+     * The manifest.
+     */
+    private volatile AssetManifest manifest = AssetManifest.EMPTY;
+
+    /**
+     * Reads the manifest when the application starts.
+     *
+     * @param event the servlet context
+     */
+    public void init(
+            @Observes @Initialized(ApplicationScoped.class) Object event) {
+        if (!(event instanceof ServletContext)) {
+            return;
+        }
+        ServletContext ctx = (ServletContext) event;
+        try {
+            manifest = AssetManifest.read(
+                    ctx.getResourceAsStream(AssetManifest.PATH));
+            LOG.log(Level.INFO, "{0} fingerprinted assets",
+                    String.valueOf(manifest.size()));
+        } catch (IOException ex) {
+            LOG.log(Level.WARNING, "Cannot read the asset manifest", ex);
+        }
+    }
+
+    /**
+     * Returns the manifest.
+     *
+     * @return the manifest
+     */
+    public AssetManifest getManifest() {
+        return manifest;
+    }
+
+    /**
+     * Returns the path to link an asset with.
+     *
+     * @param source the source path of the asset
+     *
+     * @return the fingerprinted path, or the source path if the asset was
+     *     not processed
+     */
+    public String path(String source) {
+        return manifest.path(source);
+    }
+}
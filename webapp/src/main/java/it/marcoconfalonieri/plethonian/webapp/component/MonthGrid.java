@@ -0,0 +1,60 @@
+/*
+ *     plethonian-webapp - Plethonian calendar Web Application
+ *
+ *     Copyright (C) 2020 Marco Confalonieri <marco at marcoconfalonieri.it>
+ *
+ *     This program is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU Affero General Public License as published
+ *     by the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     This program is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU Affero General Public License for more details.
+ *
+ *     You should have received a copy of the GNU Affero General Public License
+ *     along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package it.marcoconfalonieri.plethonian.webapp.component;
+
+import javax.faces.component.FacesComponent;
+import javax.faces.component.UIComponentBase;
+
+/**
+ * Component that renders the year strip and the month grid of the calendar in
+ * a single pass.
+ */
+@FacesComponent(value = MonthGrid.COMPONENT_TYPE, createTag = true,
+        tagName = "month-grid", namespace = MonthGrid.NAMESPACE)
+public class MonthGrid extends UIComponentBase {
+    /**
+     * Tag library namespace.
+     */
+    public static final String NAMESPACE = "http://marcoconfalonieri.it/plethonian";
+    /**
+     * Component family.
+     */
+    public static final String COMPONENT_FAMILY = "it.marcoconfalonieri.plethonian";
+    /**
+     * Component type.
+     */
+    public static final String COMPONENT_TYPE = "it.marcoconfalonieri.plethonian.MonthGrid";
+    /**
+     * Renderer type.
+     */
+    public static final String RENDERER_TYPE = "it.marcoconfalonieri.plethonian.MonthGridRenderer";
+
+    /**
+     * Constructor.
+     */
+    public MonthGrid() {
+        setRendererType(RENDERER_TYPE);
+    }
+
+    @Override
+    public String getFamily() {
+        return COMPONENT_FAMILY;
+    }
+}
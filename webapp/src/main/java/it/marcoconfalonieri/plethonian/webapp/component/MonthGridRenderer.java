@@ -0,0 +1,69 @@
+/*
+ *     plethonian-webapp - Plethonian calendar Web Application
+ *
+ *     Copyright (C) 2020 Marco Confalonieri <marco at marcoconfalonieri.it>
+ *
+ *     This program is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU Affero General Public License as published
+ *     by the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     This program is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU Affero General Public License for more details.
+ *
+ *     You should have received a copy of the GNU Affero General Public License
+ *     along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package it.marcoconfalonieri.plethonian.webapp.component;
+
+import it.marcoconfalonieri.plethonian.webapp.controller.RequestedMonth;
+import it.marcoconfalonieri.plethonian.webapp.view.MonthFragmentCache;
+import it.marcoconfalonieri.plethonian.webapp.view.MonthGridWriter;
+import java.io.IOException;
+import javax.faces.component.UIComponent;
+import javax.faces.context.FacesContext;
+import javax.faces.render.FacesRenderer;
+import javax.faces.render.Renderer;
+
+/**
+ * Renderer for the month grid. It writes the navigation bar, the year strip,
+ * the title of the month and the days divided by week. The month is the
+ * current one, or the one of the {@code date} request parameter, as resolved
+ * and validated by the {@link RequestedMonth} bean.
+ * <p>
+ * The markup is taken from the {@link MonthFragmentCache}, which renders it
+ * with the {@link MonthGridWriter} shared with the fast render path, so that
+ * the grid has a single writer.
+ */
+@FacesRenderer(componentFamily = MonthGrid.COMPONENT_FAMILY,
+        rendererType = MonthGrid.RENDERER_TYPE)
+public class MonthGridRenderer extends Renderer {
+    /**
+     * Expression for the requested month.
+     */
+    private static final String MONTH_EXPR = "#{month}";
+    /**
+     * Expression for the month fragment cache.
+     */
+    private static final String FRAGMENTS_EXPR = "#{monthFragments}";
+
+    @Override
+    public void encodeEnd(FacesContext context, UIComponent component)
+            throws IOException {
+        if (!component.isRendered()) {
+            return;
+        }
+        RequestedMonth month = context.getApplication()
+                .evaluateExpressionGet(context, MONTH_EXPR,
+                        RequestedMonth.class);
+        MonthFragmentCache fragments = context.getApplication()
+                .evaluateExpressionGet(context, FRAGMENTS_EXPR,
+                        MonthFragmentCache.class);
+        context.getResponseWriter().write(fragments.getMarkup(
+                month.getMonthIndex(), month.getPosition(),
+                context.getViewRoot().getLocale(), month.getToday()));
+    }
+}
@@ -0,0 +1,138 @@
+/*
+ *     plethonian-webapp - Plethonian calendar Web Application
+ *
+ *     Copyright (C) 2020 Marco Confalonieri <marco at marcoconfalonieri.it>
+ *
+ *     This program is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU Affero General Public License as published
+ *     by the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     This program is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU Affero General Public License for more details.
+ *
+ *     You should have received a copy of the GNU Affero General Public License
+ *     along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package it.marcoconfalonieri.plethonian.webapp.controller;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Coarse clock that reads the underlying clock once per tick on a timer
+ * thread, so that the readers only pay for a volatile read. The time it
+ * returns can be behind by up to one tick, which is fine for telling the
+ * current day.
+ */
+public final class CachedClock extends Clock implements AutoCloseable {
+    /**
+     * Underlying clock.
+     */
+    private final Clock source;
+    /**
+     * Time of the last tick.
+     */
+    private volatile Instant instant;
+    /**
+     * Timer that refreshes the time, or null if stopped.
+     */
+    private ScheduledExecutorService timer;
+
+    /**
+     * Constructor. The clock does not move until {@link #start(long)} is
+     * called.
+     *
+     * @param source the underlying clock
+     */
+    public CachedClock(Clock source) {
+        this.source = source;
+        this.instant = source.instant();
+    }
+
+    /**
+     * Starts the timer.
+     *
+     * @param tickMillis the tick in milliseconds
+     */
+    public synchronized void start(long tickMillis) {
+        if (timer != null) {
+            return;
+        }
+        timer = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "plethonian-clock");
+            t.setDaemon(true);
+            return t;
+        });
+        timer.scheduleAtFixedRate(this::tick, tickMillis, tickMillis,
+                TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Reads the underlying clock.
+     */
+    void tick() {
+        instant = source.instant();
+    }
+
+    /**
+     * Stops the timer.
+     */
+    @Override
+    public synchronized void close() {
+        if (timer != null) {
+            timer.shutdownNow();
+            timer = null;
+        }
+    }
+
+    @Override
+    public ZoneId getZone() {
+        return source.getZone();
+    }
+
+    /**
+     * Returns a view of this clock in another time zone, sharing its ticks.
+     *
+     * @param zone the time zone
+     *
+     * @return the clock in the given zone
+     */
+    @Override
+    public Clock withZone(ZoneId zone) {
+        CachedClock base = this;
+        return new Clock() {
+            @Override
+            public ZoneId getZone() {
+                return zone;
+            }
+
+            @Override
+            public Clock withZone(ZoneId other) {
+                return base.withZone(other);
+            }
+
+            @Override
+            public Instant instant() {
+                return base.instant();
+            }
+        };
+    }
+
+    @Override
+    public Instant instant() {
+        return instant;
+    }
+
+    @Override
+    public long millis() {
+        return instant.toEpochMilli();
+    }
+}
@@ -0,0 +1,142 @@
+/*
+ *     plethonian-webapp - Plethonian calendar Web Application
+ *
+ *     Copyright (C) 2020 Marco Confalonieri <marco at marcoconfalonieri.it>
+ *
+ *     This program is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU Affero General Public License as published
+ *     by the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     This program is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU Affero General Public License for more details.
+ *
+ *     You should have received a copy of the GNU Affero General Public License
+ *     along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package it.marcoconfalonieri.plethonian.webapp.controller;
+
+import it.marcoconfalonieri.plethonian.calendar.astropixel.ConstructionStats;
+import it.marcoconfalonieri.plethonian.calendar.astropixel.PhaseStats;
+import java.lang.management.ManagementFactory;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.Function;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+/**
+ * Management bean exposing the construction measurements of the calendar
+ * held by a provider.
+ */
+public class CalendarConstruction implements CalendarConstructionMXBean {
+    /**
+     * Name of the bean.
+     */
+    public static final String OBJECT_NAME =
+            "it.marcoconfalonieri.plethonian:type=CalendarConstruction";
+
+    /**
+     * Provider of the calendar.
+     */
+    private final CalendarProvider provider;
+
+    /**
+     * Constructor.
+     *
+     * @param provider the provider of the calendar
+     */
+    public CalendarConstruction(CalendarProvider provider) {
+        this.provider = provider;
+    }
+
+    /**
+     * Registers the bean in the platform server, replacing a bean left there
+     * by a previous deployment.
+     *
+     * @throws JMException in case of errors registering the bean
+     */
+    public void register() throws JMException {
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        ObjectName name = new ObjectName(OBJECT_NAME);
+        if (server.isRegistered(name)) {
+            server.unregisterMBean(name);
+        }
+        server.registerMBean(this, name);
+    }
+
+    /**
+     * Unregisters the bean from the platform server.
+     *
+     * @throws JMException in case of errors unregistering the bean
+     */
+    public void unregister() throws JMException {
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        ObjectName name = new ObjectName(OBJECT_NAME);
+        if (server.isRegistered(name)) {
+            server.unregisterMBean(name);
+        }
+    }
+
+    /**
+     * Maps each phase of the current measurements to a value.
+     *
+     * @param <T> the type of the values
+     * @param value the function extracting the value
+     *
+     * @return the values by phase, empty if there are no measurements
+     */
+    private <T> Map<String, T> byPhase(Function<PhaseStats, T> value) {
+        ConstructionStats stats = provider.getConstructionStats();
+        if (stats == null) {
+            return Collections.emptyMap();
+        }
+        Map<String, T> map = new LinkedHashMap<>();
+        for (PhaseStats ps : stats.getPhases()) {
+            map.put(ps.getPhase().name(), value.apply(ps));
+        }
+        return map;
+    }
+
+    @Override
+    public String getDataVersion() {
+        return provider.getDataVersion();
+    }
+
+    @Override
+    public boolean isComputed() {
+        return provider.getConstructionStats() != null;
+    }
+
+    @Override
+    public double getTotalTimeMillis() {
+        ConstructionStats stats = provider.getConstructionStats();
+        return (stats != null) ? stats.getTotalNanos() / 1e6 : -1;
+    }
+
+    @Override
+    public long getTotalAllocatedBytes() {
+        ConstructionStats stats = provider.getConstructionStats();
+        return (stats != null) ? stats.getTotalAllocatedBytes() : -1;
+    }
+
+    @Override
+    public Map<String, Double> getPhaseTimesMillis() {
+        return byPhase(ps -> ps.getNanos() / 1e6);
+    }
+
+    @Override
+    public Map<String, Integer> getPhaseRows() {
+        return byPhase(PhaseStats::getRows);
+    }
+
+    @Override
+    public Map<String, Long> getPhaseAllocatedBytes() {
+        return byPhase(PhaseStats::getAllocatedBytes);
+    }
+}
@@ -0,0 +1,77 @@
+/*
+ *     plethonian-webapp - Plethonian calendar Web Application
+ *
+ *     Copyright (C) 2020 Marco Confalonieri <marco at marcoconfalonieri.it>
+ *
+ *     This program is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU Affero General Public License as published
+ *     by the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     This program is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU Affero General Public License for more details.
+ *
+ *     You should have received a copy of the GNU Affero General Public License
+ *     along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package it.marcoconfalonieri.plethonian.webapp.controller;
+
+import java.util.Map;
+
+/**
+ * Management interface with the measurements of the calendar construction.
+ */
+public interface CalendarConstructionMXBean {
+    /**
+     * Returns the version of the data the current calendar is built from.
+     *
+     * @return the checksum of the data, or null if the calendar is not ready
+     */
+    String getDataVersion();
+
+    /**
+     * Checks whether the current calendar was computed from the tables, as
+     * opposed to mapped from a snapshot.
+     *
+     * @return true if the calendar was computed
+     */
+    boolean isComputed();
+
+    /**
+     * Returns the total construction time.
+     *
+     * @return the time in milliseconds, or -1 if not available
+     */
+    double getTotalTimeMillis();
+
+    /**
+     * Returns the total bytes allocated by the construction.
+     *
+     * @return the bytes, or -1 if not available
+     */
+    long getTotalAllocatedBytes();
+
+    /**
+     * Returns the time of each construction phase.
+     *
+     * @return the times in milliseconds by phase
+     */
+    Map<String, Double> getPhaseTimesMillis();
+
+    /**
+     * Returns the rows produced by each construction phase.
+     *
+     * @return the rows by phase
+     */
+    Map<String, Integer> getPhaseRows();
+
+    /**
+     * Returns the bytes allocated by each construction phase.
+     *
+     * @return the bytes by phase, -1 where not measured
+     */
+    Map<String, Long> getPhaseAllocatedBytes();
+}
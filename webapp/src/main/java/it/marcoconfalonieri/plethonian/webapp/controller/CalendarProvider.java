@@ -0,0 +1,659 @@
+/*
+ *     plethonian-webapp - Plethonian calendar Web Application
+ *
+ *     Copyright (C) 2020 Marco Confalonieri <marco at marcoconfalonieri.it>
+ *
+ *     This program is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU Affero General Public License as published
+ *     by the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     This program is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU Affero General Public License for more details.
+ *
+ *     You should have received a copy of the GNU Affero General Public License
+ *     along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package it.marcoconfalonieri.plethonian.webapp.controller;
+
+import it.marcoconfalonieri.plethonian.calendar.PlethonianCalendar;
+import it.marcoconfalonieri.plethonian.calendar.PlethonianDay;
+import it.marcoconfalonieri.plethonian.calendar.PlethonianMonth;
+import it.marcoconfalonieri.plethonian.calendar.PlethonianYear;
+import it.marcoconfalonieri.plethonian.calendar.astropixel.ConstructionStats;
+import it.marcoconfalonieri.plethonian.calendar.astropixel.PhaseStats;
+import it.marcoconfalonieri.plethonian.calendar.astropixel.PlethonianCalendarImpl;
+import it.marcoconfalonieri.plethonian.calendar.snapshot.CalendarSnapshot;
+import it.marcoconfalonieri.plethonian.calendar.snapshot.DayTable;
+import it.marcoconfalonieri.plethonian.calendar.snapshot.DayTableCalendar;
+import it.marcoconfalonieri.plethonian.webapp.jfr.CalendarConstructionEvent;
+import it.marcoconfalonieri.plethonian.webapp.metrics.InstrumentedCalendar;
+import it.marcoconfalonieri.plethonian.webapp.metrics.MetricsRegistry;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Clock;
+import java.time.LocalDate;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import javax.annotation.PreDestroy;
+import javax.annotation.Priority;
+import javax.enterprise.context.ApplicationScoped;
+import javax.enterprise.context.Initialized;
+import javax.enterprise.event.Event;
+import javax.enterprise.event.Observes;
+import javax.inject.Inject;
+import javax.interceptor.Interceptor;
+import javax.management.JMException;
+import javax.servlet.ServletContext;
+
+/**
+ * Application-scoped provider of the calendar. The calendar is built on a
+ * background thread as soon as the application starts, and the requests that
+ * arrive before it is ready wait for it up to a configurable timeout. A failed
+ * build is retried a few times with an increasing delay; when all the attempts
+ * fail the calendar is reported as failed, until a reload of the data
+ * directory builds one.
+ * <p>
+ * When a snapshot directory is configured, the calendar is read from a
+ * memory-mapped snapshot keyed by the checksum of the astronomical data, and
+ * the snapshot is written there the first time the calendar is computed.
+ * <p>
+ * When a data directory is configured, the tables found there override the
+ * ones bundled with the application. The directory is watched, and when it
+ * changes a new calendar is built in the background, validated and swapped
+ * in, while the requests keep being served by the previous one. A new
+ * calendar is rejected when its years are not contiguous or their lengths do
+ * not add up, and a reload is rejected when it covers a narrower range of
+ * dates than the current calendar, as truncated data would.
+ */
+@ApplicationScoped
+public class CalendarProvider {
+    /**
+     * Context parameter with the wait timeout in seconds.
+     */
+    public static final String TIMEOUT_PARAM = "plethonian.calendar.timeout";
+    /**
+     * Context parameter with the snapshot directory.
+     */
+    public static final String SNAPSHOT_DIR_PARAM = "plethonian.snapshot.dir";
+    /**
+     * Context parameter with the data directory.
+     */
+    public static final String DATA_DIR_PARAM = "plethonian.data.dir";
+    /**
+     * Default wait timeout in seconds.
+     */
+    private static final long DEFAULT_TIMEOUT = 30;
+    /**
+     * Number of attempts to build the calendar before giving up.
+     */
+    static final int MAX_ATTEMPTS = 5;
+    /**
+     * Delay before the first retry in milliseconds, doubled at each retry.
+     */
+    static final long RETRY_DELAY = 1000;
+    /**
+     * Logger.
+     */
+    private static final Logger LOGGER =
+            Logger.getLogger(CalendarProvider.class.getName());
+
+    /**
+     * Executor for the background build.
+     */
+    private ScheduledExecutorService executor;
+    /**
+     * Calendar being built.
+     */
+    private volatile CompletableFuture<PlethonianCalendar> future;
+    /**
+     * Wait timeout in seconds.
+     */
+    private volatile long timeout = DEFAULT_TIMEOUT;
+    /**
+     * Snapshot directory, or null if snapshots are disabled.
+     */
+    private volatile Path snapshotDir;
+    /**
+     * Data directory, or null if only the bundled tables are used.
+     */
+    private volatile Path dataDir;
+    /**
+     * Version of the data the current calendar is built from.
+     */
+    private volatile String dataVersion;
+    /**
+     * Construction measurements of the current calendar.
+     */
+    private volatile ConstructionStats constructionStats;
+    /**
+     * Management bean with the construction measurements.
+     */
+    private CalendarConstruction mbean;
+    /**
+     * Watcher of the data directory, if any.
+     */
+    private DataDirectoryWatcher watcher;
+    /**
+     * Event fired when the calendar is reloaded.
+     */
+    @Inject
+    private Event<CalendarReloaded> reloadedEvent;
+    /**
+     * Registry of the metrics.
+     */
+    @Inject
+    private MetricsRegistry metrics;
+    /**
+     * Clock that tells the current day, the system one outside of the
+     * container.
+     */
+    @Inject
+    private Clock clock = Clock.systemDefaultZone();
+
+    /**
+     * Constructor.
+     */
+    public CalendarProvider() {
+    }
+
+    /**
+     * Constructor with the data directory and the clock, for the tests.
+     *
+     * @param dataDir the data directory, or null to use only the bundled
+     *     tables
+     * @param clock the clock that tells the current day
+     */
+    CalendarProvider(Path dataDir, Clock clock) {
+        this.dataDir = dataDir;
+        this.clock = clock;
+    }
+
+    /**
+     * Starts the build when the application scope is initialized. It runs
+     * before the observers with the default priority, so that the
+     * configuration is read before they use the calendar.
+     *
+     * @param event the initialization payload, the servlet context in a web
+     *     application
+     */
+    public void onStartup(@Observes
+            @Priority(Interceptor.Priority.LIBRARY_BEFORE)
+            @Initialized(ApplicationScoped.class) Object event) {
+        if (event instanceof ServletContext) {
+            ServletContext ctx = (ServletContext) event;
+            String param = ctx.getInitParameter(TIMEOUT_PARAM);
+            if (param != null && !param.isBlank()) {
+                timeout = parseTimeout(param.strip());
+            }
+            param = ctx.getInitParameter(SNAPSHOT_DIR_PARAM);
+            if (param != null && !param.isBlank()) {
+                snapshotDir = Paths.get(param.strip());
+            }
+            param = ctx.getInitParameter(DATA_DIR_PARAM);
+            if (param != null && !param.isBlank()) {
+                dataDir = Paths.get(param.strip());
+            }
+        }
+        start();
+        watchDataDir();
+        registerMBean();
+    }
+
+    /**
+     * Parses the wait timeout.
+     *
+     * @param value the value of the context parameter
+     *
+     * @return the timeout in seconds, or the default one if the value is not
+     *     a positive number
+     */
+    static long parseTimeout(String value) {
+        try {
+            long t = Long.parseLong(value);
+            if (t > 0) {
+                return t;
+            }
+        } catch (NumberFormatException ex) {
+            // Reported below
+        }
+        LOGGER.log(Level.WARNING,
+                "Invalid value {0} of {1}, using {2} seconds",
+                new Object[] {value, TIMEOUT_PARAM, DEFAULT_TIMEOUT});
+        return DEFAULT_TIMEOUT;
+    }
+
+    /**
+     * Registers the management bean with the construction measurements.
+     */
+    private synchronized void registerMBean() {
+        if (mbean != null) {
+            return;
+        }
+        mbean = new CalendarConstruction(this);
+        try {
+            mbean.register();
+        } catch (JMException ex) {
+            LOGGER.log(Level.WARNING, "Cannot register the management bean",
+                    ex);
+            mbean = null;
+        }
+    }
+
+    /**
+     * Starts watching the data directory, if it is configured.
+     */
+    private synchronized void watchDataDir() {
+        Path dir = dataDir;
+        if (dir == null || watcher != null) {
+            return;
+        }
+        if (!Files.isDirectory(dir)) {
+            LOGGER.log(Level.WARNING, "Data directory {0} does not exist", dir);
+            return;
+        }
+        try {
+            watcher = new DataDirectoryWatcher(dir, this::reload);
+            watcher.start();
+        } catch (IOException ex) {
+            LOGGER.log(Level.WARNING, "Cannot watch the data directory", ex);
+        }
+    }
+
+    /**
+     * Builds the calendar.
+     *
+     * @return the calendar
+     */
+    protected PlethonianCalendar build() {
+        try {
+            String version = PlethonianCalendarImpl.computeDataChecksum(dataDir);
+            PlethonianCalendar calendar = load(version);
+            validateYears(calendar);
+            dataVersion = version;
+            publishStats(calendar);
+            return instrument(calendar);
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+    }
+
+    /**
+     * Attempts to build the calendar, scheduling a new attempt with a
+     * doubled delay if it fails.
+     *
+     * @param f the future to complete
+     * @param attempt the number of the attempt, starting from 1
+     */
+    private void attempt(CompletableFuture<PlethonianCalendar> f,
+            int attempt) {
+        try {
+            f.complete(build());
+        } catch (RuntimeException ex) {
+            if (attempt >= MAX_ATTEMPTS) {
+                LOGGER.log(Level.SEVERE, "Cannot build the calendar after "
+                        + attempt + " attempts, giving up", ex);
+                f.completeExceptionally(ex);
+                return;
+            }
+            long delay = RETRY_DELAY << (attempt - 1);
+            LOGGER.log(Level.WARNING, "Cannot build the calendar, retrying in "
+                    + delay + " ms", ex);
+            try {
+                executor.schedule(() -> attempt(f, attempt + 1), delay,
+                        TimeUnit.MILLISECONDS);
+            } catch (RejectedExecutionException rex) {
+                f.completeExceptionally(ex);
+            }
+        }
+    }
+
+    /**
+     * Builds the calendar from a given version of the data.
+     *
+     * @param version the checksum of the data
+     *
+     * @return the calendar
+     *
+     * @throws IOException in case of errors reading the astronomical data
+     */
+    private PlethonianCalendar load(String version) throws IOException {
+        long start = System.nanoTime();
+        Path dir = snapshotDir;
+        PlethonianCalendar calendar = (dir != null) ?
+                buildWithSnapshot(dir, version) :
+                new PlethonianCalendarImpl(dataDir);
+        LOGGER.log(Level.INFO, "Calendar built in {0} ms",
+                TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+        if (calendar instanceof PlethonianCalendarImpl) {
+            ConstructionStats stats =
+                    ((PlethonianCalendarImpl) calendar).getConstructionStats();
+            for (PhaseStats phase : stats.getPhases()) {
+                LOGGER.log(Level.INFO, "Construction phase {0}", phase);
+                CalendarConstructionEvent event =
+                        new CalendarConstructionEvent();
+                if (event.isEnabled()) {
+                    event.phase = phase.getPhase().name();
+                    event.phaseDuration = phase.getNanos();
+                    event.rows = phase.getRows();
+                    event.allocated = phase.getAllocatedBytes();
+                    event.dataVersion = version;
+                    event.commit();
+                }
+            }
+        }
+        return calendar;
+    }
+
+    /**
+     * Wraps a calendar so that its lookups are measured.
+     *
+     * @param calendar the calendar
+     *
+     * @return the instrumented calendar, or the calendar itself if there is
+     *     no metrics registry
+     */
+    private PlethonianCalendar instrument(PlethonianCalendar calendar) {
+        return (metrics != null) ?
+                new InstrumentedCalendar(calendar, metrics) : calendar;
+    }
+
+    /**
+     * Publishes the construction measurements of the current calendar.
+     *
+     * @param calendar the current calendar
+     */
+    private void publishStats(PlethonianCalendar calendar) {
+        constructionStats = (calendar instanceof PlethonianCalendarImpl) ?
+                ((PlethonianCalendarImpl) calendar).getConstructionStats() :
+                null;
+    }
+
+    /**
+     * Returns the construction measurements of the current calendar.
+     *
+     * @return the measurements, or null if the calendar is not ready or was
+     *     mapped from a snapshot
+     */
+    public ConstructionStats getConstructionStats() {
+        return constructionStats;
+    }
+
+    /**
+     * Checks that a newly built calendar can replace the current one.
+     *
+     * @param calendar the calendar
+     * @param current the current calendar, or null if there is none
+     *
+     * @throws IllegalArgumentException if the calendar does not cover today
+     * @throws IllegalStateException if the calendar is empty or incomplete,
+     *     or it covers a narrower range than the current one
+     */
+    private void validate(PlethonianCalendar calendar,
+            PlethonianCalendar current) {
+        validateYears(calendar);
+        LocalDate today = LocalDate.now(clock);
+        PlethonianDay day = calendar.getDay(today);
+        if (day == null || !today.equals(day.getGregorianDate())) {
+            throw new IllegalStateException("The calendar does not cover today");
+        }
+        if (current != null &&
+                (calendar.getFirstDate().isAfter(current.getFirstDate()) ||
+                calendar.getLastDate().isBefore(current.getLastDate()))) {
+            throw new IllegalStateException(String.format(
+                    "The calendar covers %s to %s, less than the current %s to %s",
+                    calendar.getFirstDate(), calendar.getLastDate(),
+                    current.getFirstDate(), current.getLastDate()));
+        }
+    }
+
+    /**
+     * Checks that the years of a calendar follow each other from the first
+     * date to the last one, and that the length of each year is the sum of
+     * the lengths of its months.
+     *
+     * @param calendar the calendar
+     *
+     * @throws IllegalStateException if the calendar is empty or its years
+     *     are inconsistent
+     */
+    private static void validateYears(PlethonianCalendar calendar) {
+        if (calendar instanceof PlethonianCalendarImpl &&
+                ((PlethonianCalendarImpl) calendar).getYears().isEmpty()) {
+            throw new IllegalStateException("The calendar has no years");
+        }
+        LocalDate last = calendar.getLastDate();
+        LocalDate date = calendar.getFirstDate();
+        while (!date.isAfter(last)) {
+            PlethonianYear year = calendar.getYear(date);
+            if (!date.equals(year.getFirstDay())) {
+                throw new IllegalStateException("The year starting on "
+                        + year.getFirstDay() + " is found for " + date);
+            }
+            int days = 0;
+            for (PlethonianMonth month : year.getMonths()) {
+                days += month.getDays().size();
+            }
+            if (days != year.getDays()) {
+                throw new IllegalStateException(String.format(
+                        "The year starting on %s has %d days, but its months have %d",
+                        date, year.getDays(), days));
+            }
+            date = date.plusDays(days);
+        }
+        if (!date.equals(last.plusDays(1))) {
+            throw new IllegalStateException("The last year ends on "
+                    + date.minusDays(1) + " instead of " + last);
+        }
+    }
+
+    /**
+     * Rebuilds the calendar in the background if the data changed. The
+     * current calendar keeps serving the requests until the new one is
+     * validated and swapped in; if the new one is not valid, the current one
+     * is kept.
+     *
+     * @return the future result, true if a new calendar was swapped in
+     */
+    public CompletableFuture<Boolean> reload() {
+        start();
+        return CompletableFuture.supplyAsync(this::rebuild, executor);
+    }
+
+    /**
+     * Rebuilds the calendar if the data changed.
+     *
+     * @return true if a new calendar was swapped in
+     */
+    private boolean rebuild() {
+        try {
+            String version = PlethonianCalendarImpl.computeDataChecksum(dataDir);
+            if (version.equals(dataVersion)) {
+                LOGGER.log(Level.FINE, "Data version {0} unchanged", version);
+                return false;
+            }
+            PlethonianCalendar calendar = load(version);
+            CompletableFuture<PlethonianCalendar> f = future;
+            validate(calendar, (f.isDone() && !f.isCompletedExceptionally()) ?
+                    f.join() : null);
+            future = CompletableFuture.completedFuture(instrument(calendar));
+            dataVersion = version;
+            publishStats(calendar);
+            LOGGER.log(Level.INFO, "Calendar reloaded with data version {0}",
+                    version);
+        } catch (IOException | RuntimeException ex) {
+            LOGGER.log(Level.SEVERE,
+                    "Cannot reload the calendar, keeping the current one", ex);
+            return false;
+        }
+        if (reloadedEvent != null) {
+            reloadedEvent.fire(new CalendarReloaded(dataVersion));
+        }
+        return true;
+    }
+
+    /**
+     * Returns the version of the data the current calendar is built from.
+     *
+     * @return the checksum of the data, or null if the calendar is not ready
+     */
+    public String getDataVersion() {
+        return dataVersion;
+    }
+
+    /**
+     * Reads the calendar from the snapshot of the current data, or computes
+     * it and writes the snapshot if there is none.
+     *
+     * @param dir the snapshot directory
+     * @param checksum the checksum of the data
+     *
+     * @return the calendar
+     *
+     * @throws IOException in case of errors reading the astronomical data
+     */
+    private PlethonianCalendar buildWithSnapshot(Path dir, String checksum)
+            throws IOException {
+        try {
+            DayTable table = CalendarSnapshot.open(dir, checksum);
+            if (table != null) {
+                LOGGER.log(Level.INFO, "Calendar mapped from snapshot {0}",
+                        CalendarSnapshot.getPath(dir, checksum));
+                return new DayTableCalendar(table);
+            }
+        } catch (IOException ex) {
+            LOGGER.log(Level.WARNING, "Ignoring invalid snapshot", ex);
+        }
+        PlethonianCalendarImpl calendar = new PlethonianCalendarImpl(dataDir);
+        try {
+            Path file = CalendarSnapshot.write(DayTable.build(calendar),
+                    checksum, dir);
+            LOGGER.log(Level.INFO, "Calendar snapshot written to {0}", file);
+        } catch (IOException ex) {
+            LOGGER.log(Level.WARNING, "Cannot write the calendar snapshot",
+                    ex);
+        }
+        return calendar;
+    }
+
+    /**
+     * Starts the background build, unless it is already started.
+     */
+    public synchronized void start() {
+        if (future != null) {
+            return;
+        }
+        executor = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "plethonian-calendar-builder");
+            t.setDaemon(true);
+            return t;
+        });
+        CompletableFuture<PlethonianCalendar> f = new CompletableFuture<>();
+        future = f;
+        executor.execute(() -> attempt(f, 1));
+    }
+
+    /**
+     * Returns the future of the calendar, starting the build if needed.
+     *
+     * @return the future of the calendar
+     */
+    public CompletableFuture<PlethonianCalendar> getFuture() {
+        start();
+        return future;
+    }
+
+    /**
+     * Checks whether the calendar is ready.
+     *
+     * @return true if the calendar has been built successfully
+     */
+    public boolean isReady() {
+        CompletableFuture<PlethonianCalendar> f = future;
+        return f != null && f.isDone() && !f.isCompletedExceptionally();
+    }
+
+    /**
+     * Checks whether the construction of the calendar failed.
+     *
+     * @return true if all the attempts to build the calendar failed
+     */
+    public boolean isFailed() {
+        CompletableFuture<PlethonianCalendar> f = future;
+        return f != null && f.isCompletedExceptionally();
+    }
+
+    /**
+     * Returns the calendar, waiting for it if it is still being built.
+     *
+     * @return the calendar
+     *
+     * @throws CalendarUnavailableException if the calendar is not ready
+     *     within the timeout or its construction failed
+     */
+    public PlethonianCalendar getCalendar() {
+        CompletableFuture<PlethonianCalendar> f = future;
+        if (f == null) {
+            start();
+            f = future;
+        }
+        PlethonianCalendar calendar = f.getNow(null);
+        if (calendar != null) {
+            return calendar;
+        }
+        try {
+            return f.get(timeout, TimeUnit.SECONDS);
+        } catch (TimeoutException ex) {
+            throw new CalendarUnavailableException(
+                    "The calendar is still being built", ex);
+        } catch (ExecutionException ex) {
+            throw new CalendarUnavailableException(
+                    "The calendar could not be built", ex.getCause());
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new CalendarUnavailableException(
+                    "Interrupted while waiting for the calendar", ex);
+        }
+    }
+
+    /**
+     * Stops the background build and the watching of the data directory,
+     * and unregisters the management bean.
+     */
+    @PreDestroy
+    public synchronized void shutdown() {
+        if (mbean != null) {
+            try {
+                mbean.unregister();
+            } catch (JMException ex) {
+                LOGGER.log(Level.WARNING,
+                        "Cannot unregister the management bean", ex);
+            }
+            mbean = null;
+        }
+        if (watcher != null) {
+            try {
+                watcher.close();
+            } catch (IOException ex) {
+                LOGGER.log(Level.WARNING, "Cannot stop the data watcher", ex);
+            }
+            watcher = null;
+        }
+        if (executor != null) {
+            executor.shutdownNow();
+        }
+    }
+}
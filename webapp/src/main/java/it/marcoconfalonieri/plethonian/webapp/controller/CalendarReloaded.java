@@ -0,0 +1,49 @@
+/*
+ *     plethonian-webapp - Plethonian calendar Web Application
+ *
+ *     Copyright (C) 2020 Marco Confalonieri <marco at marcoconfalonieri.it>
+ *
+ *     This program is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU Affero General Public License as published
+ *     by the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     This program is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU Affero General Public License for more details.
+ *
+ *     You should have received a copy of the GNU Affero General Public License
+ *     along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package it.marcoconfalonieri.plethonian.webapp.controller;
+
+/**
+ * CDI event fired when the calendar has been rebuilt from new astronomical
+ * data and swapped in.
+ */
+public class CalendarReloaded {
+    /**
+     * Version of the data the new calendar is built from.
+     */
+    private final String dataVersion;
+
+    /**
+     * Constructor.
+     *
+     * @param dataVersion the version of the new data
+     */
+    public CalendarReloaded(String dataVersion) {
+        this.dataVersion = dataVersion;
+    }
+
+    /**
+     * Getter for the data version.
+     *
+     * @return the version of the data the new calendar is built from
+     */
+    public String getDataVersion() {
+        return dataVersion;
+    }
+}
@@ -0,0 +1,48 @@
+/*
+ *     plethonian-webapp - Plethonian calendar Web Application
+ *
+ *     Copyright (C) 2020 Marco Confalonieri <marco at marcoconfalonieri.it>
+ *
+ *     This program is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU Affero General Public License as published
+ *     by the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     This program is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU Affero General Public License for more details.
+ *
+ *     You should have received a copy of the GNU Affero General Public License
+ *     along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package it.marcoconfalonieri.plethonian.webapp.controller;
+
+/**
+ * Exception thrown when the calendar is not available, either because it is
+ * still being built or because its construction failed.
+ */
+public class CalendarUnavailableException extends RuntimeException {
+    // Serial version ID
+    private static final long serialVersionUID = -3574405693612580167L;
+
+    /**
+     * Constructor with message.
+     *
+     * @param msg message
+     */
+    public CalendarUnavailableException(String msg) {
+        super(msg);
+    }
+
+    /**
+     * Constructor with message and initial cause.
+     *
+     * @param msg message
+     * @param initCause initial exception cause
+     */
+    public CalendarUnavailableException(String msg, Throwable initCause) {
+        super(msg, initCause);
+    }
+}
@@ -0,0 +1,66 @@
+/*
+ *     plethonian-webapp - Plethonian calendar Web Application
+ *
+ *     Copyright (C) 2020 Marco Confalonieri <marco at marcoconfalonieri.it>
+ *
+ *     This program is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU Affero General Public License as published
+ *     by the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     This program is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU Affero General Public License for more details.
+ *
+ *     You should have received a copy of the GNU Affero General Public License
+ *     along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package it.marcoconfalonieri.plethonian.webapp.controller;
+
+import java.time.Clock;
+import javax.annotation.PreDestroy;
+import javax.enterprise.context.ApplicationScoped;
+import javax.enterprise.inject.Produces;
+
+/**
+ * Producer of the clock that tells the current day to the web layer: a
+ * {@link CachedClock} on the system clock, ticking once per second.
+ */
+@ApplicationScoped
+public class ClockProducer {
+    /**
+     * Tick of the clock in milliseconds.
+     */
+    private static final long TICK_MILLIS = 1000;
+
+    /**
+     * The clock, created on first use.
+     */
+    private CachedClock clock;
+
+    /**
+     * Produces the clock.
+     *
+     * @return the shared clock
+     */
+    @Produces
+    public synchronized Clock getClock() {
+        if (clock == null) {
+            clock = new CachedClock(Clock.systemDefaultZone());
+            clock.start(TICK_MILLIS);
+        }
+        return clock;
+    }
+
+    /**
+     * Stops the clock.
+     */
+    @PreDestroy
+    public synchronized void shutdown() {
+        if (clock != null) {
+            clock.close();
+        }
+    }
+}
@@ -0,0 +1,157 @@
+/*
+ *     plethonian-webapp - Plethonian calendar Web Application
+ *
+ *     Copyright (C) 2020 Marco Confalonieri <marco at marcoconfalonieri.it>
+ *
+ *     This program is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU Affero General Public License as published
+ *     by the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     This program is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU Affero General Public License for more details.
+ *
+ *     You should have received a copy of the GNU Affero General Public License
+ *     along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package it.marcoconfalonieri.plethonian.webapp.controller;
+
+import it.marcoconfalonieri.plethonian.calendar.PlethonianCalendar;
+import it.marcoconfalonieri.plethonian.calendar.PlethonianDay;
+import it.marcoconfalonieri.plethonian.calendar.PlethonianMonth;
+import it.marcoconfalonieri.plethonian.calendar.PlethonianWeekName;
+import it.marcoconfalonieri.plethonian.calendar.PlethonianYear;
+import java.time.LocalDate;
+import java.util.Collections;
+import java.util.SortedMap;
+import java.util.SortedSet;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+/**
+ * Immutable data of the current day. The application bean publishes a new
+ * instance at every rollover, so readers always see a day, a month, a year
+ * and a month matrix that belong together.
+ */
+public final class CurrentDay {
+    /**
+     * Calendar the data comes from.
+     */
+    private final PlethonianCalendar calendar;
+    /**
+     * Gregorian date of the day.
+     */
+    private final LocalDate date;
+    /**
+     * The plethonian day.
+     */
+    private final PlethonianDay today;
+    /**
+     * The month of the day.
+     */
+    private final PlethonianMonth month;
+    /**
+     * The year of the day.
+     */
+    private final PlethonianYear year;
+    /**
+     * Days of the month grouped by week day.
+     */
+    private final SortedMap<PlethonianWeekName, SortedSet<PlethonianDay>>
+            monthMatrix;
+
+    /**
+     * Constructor.
+     *
+     * @param calendar the calendar
+     * @param date the gregorian date
+     *
+     * @throws IllegalArgumentException if the date is not supported
+     */
+    public CurrentDay(PlethonianCalendar calendar, LocalDate date) {
+        this.calendar = calendar;
+        this.date = date;
+        this.year = calendar.getYear(date);
+        this.month = calendar.getMonth(date);
+        this.today = calendar.getDay(date);
+        this.monthMatrix = createMonthMatrix(month);
+    }
+
+    /**
+     * Groups the days of a month by week day.
+     *
+     * @param month the month
+     *
+     * @return the read-only month matrix
+     */
+    static SortedMap<PlethonianWeekName, SortedSet<PlethonianDay>>
+            createMonthMatrix(PlethonianMonth month) {
+        SortedMap<PlethonianWeekName, SortedSet<PlethonianDay>> matrix =
+                new TreeMap<>();
+        for (PlethonianWeekName week : PlethonianWeekName.values()) {
+            matrix.put(week, new TreeSet<>());
+        }
+        month.getDays().forEach(day -> matrix.get(day.getWeek()).add(day));
+        matrix.replaceAll((week, days) ->
+                Collections.unmodifiableSortedSet(days));
+        return Collections.unmodifiableSortedMap(matrix);
+    }
+
+    /**
+     * Getter for the calendar.
+     *
+     * @return the calendar the data comes from
+     */
+    public PlethonianCalendar getCalendar() {
+        return calendar;
+    }
+
+    /**
+     * Getter for the date.
+     *
+     * @return the gregorian date
+     */
+    public LocalDate getDate() {
+        return date;
+    }
+
+    /**
+     * Getter for today.
+     *
+     * @return the plethonian day
+     */
+    public PlethonianDay getToday() {
+        return today;
+    }
+
+    /**
+     * Getter for the month.
+     *
+     * @return the month of the day
+     */
+    public PlethonianMonth getMonth() {
+        return month;
+    }
+
+    /**
+     * Getter for the year.
+     *
+     * @return the year of the day
+     */
+    public PlethonianYear getYear() {
+        return year;
+    }
+
+    /**
+     * Getter for the month matrix.
+     *
+     * @return the read-only days of the month grouped by week day
+     */
+    public SortedMap<PlethonianWeekName, SortedSet<PlethonianDay>>
+            getMonthMatrix() {
+        return monthMatrix;
+    }
+}
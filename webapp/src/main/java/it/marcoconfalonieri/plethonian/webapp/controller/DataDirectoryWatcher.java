@@ -0,0 +1,137 @@
+/*
+ *     plethonian-webapp - Plethonian calendar Web Application
+ *
+ *     Copyright (C) 2020 Marco Confalonieri <marco at marcoconfalonieri.it>
+ *
+ *     This program is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU Affero General Public License as published
+ *     by the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     This program is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU Affero General Public License for more details.
+ *
+ *     You should have received a copy of the GNU Affero General Public License
+ *     along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package it.marcoconfalonieri.plethonian.webapp.controller;
+
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Watches a directory and runs an action when its content changes. The
+ * changes are debounced, so that a file copied in several writes, or several
+ * files updated together, trigger the action only once.
+ */
+public class DataDirectoryWatcher implements AutoCloseable {
+    /**
+     * Quiet period after the last change before running the action.
+     */
+    private static final long DEBOUNCE_MILLIS = 1000;
+    /**
+     * Logger.
+     */
+    private static final Logger LOGGER =
+            Logger.getLogger(DataDirectoryWatcher.class.getName());
+
+    /**
+     * Watched directory.
+     */
+    private final Path dir;
+    /**
+     * Action run on changes.
+     */
+    private final Runnable action;
+    /**
+     * The watch service.
+     */
+    private final WatchService watchService;
+    /**
+     * The watching thread.
+     */
+    private final Thread thread;
+
+    /**
+     * Constructor. It registers the directory, but it does not start
+     * watching it.
+     *
+     * @param dir the directory to watch
+     * @param action the action to run when the directory changes
+     *
+     * @throws IOException in case of errors registering the directory
+     */
+    public DataDirectoryWatcher(Path dir, Runnable action) throws IOException {
+        this.dir = dir;
+        this.action = action;
+        watchService = FileSystems.getDefault().newWatchService();
+        dir.register(watchService, StandardWatchEventKinds.ENTRY_CREATE,
+                StandardWatchEventKinds.ENTRY_MODIFY,
+                StandardWatchEventKinds.ENTRY_DELETE);
+        thread = new Thread(this::watch, "plethonian-data-watcher");
+        thread.setDaemon(true);
+    }
+
+    /**
+     * Starts watching the directory.
+     */
+    public void start() {
+        thread.start();
+        LOGGER.log(Level.INFO, "Watching data directory {0}", dir);
+    }
+
+    /**
+     * Waits for the changes and runs the action after each burst of them.
+     */
+    private void watch() {
+        try {
+            while (true) {
+                WatchKey key = watchService.take();
+                // Drain the events until the directory is quiet
+                while (key != null) {
+                    key.pollEvents();
+                    if (!key.reset()) {
+                        LOGGER.log(Level.WARNING,
+                                "Data directory {0} is no longer accessible",
+                                dir);
+                        return;
+                    }
+                    key = watchService.poll(DEBOUNCE_MILLIS,
+                            TimeUnit.MILLISECONDS);
+                }
+                try {
+                    action.run();
+                } catch (RuntimeException ex) {
+                    LOGGER.log(Level.SEVERE, "Data directory action failed",
+                            ex);
+                }
+            }
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        } catch (ClosedWatchServiceException ex) {
+            // Closed while waiting: the watcher is being stopped
+        }
+    }
+
+    /**
+     * Stops watching the directory.
+     *
+     * @throws IOException in case of errors closing the watch service
+     */
+    @Override
+    public void close() throws IOException {
+        thread.interrupt();
+        watchService.close();
+    }
+}
@@ -0,0 +1,236 @@
+/*
+ *     plethonian-webapp - Plethonian calendar Web Application
+ *
+ *     Copyright (C) 2020 Marco Confalonieri <marco at marcoconfalonieri.it>
+ *
+ *     This program is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU Affero General Public License as published
+ *     by the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     This program is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU Affero General Public License for more details.
+ *
+ *     You should have received a copy of the GNU Affero General Public License
+ *     along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package it.marcoconfalonieri.plethonian.webapp.controller;
+
+import it.marcoconfalonieri.plethonian.calendar.PlethonianCalendar;
+import it.marcoconfalonieri.plethonian.calendar.PlethonianMonth;
+import it.marcoconfalonieri.plethonian.calendar.PlethonianYear;
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.util.Arrays;
+
+/**
+ * Immutable index of all the months of a calendar, in chronological order.
+ * A month is identified by its position, so that finding the month of a date
+ * is a binary search and the adjacent months and years are found with
+ * plain arithmetic.
+ */
+public final class MonthIndex {
+    /**
+     * Request parameter with the date of the month to show.
+     */
+    public static final String DATE_PARAM = "date";
+
+    /**
+     * Calendar the index has been built from.
+     */
+    private final PlethonianCalendar calendar;
+    /**
+     * Epoch day of the first day of each month.
+     */
+    private final long[] firstDays;
+    /**
+     * Position of the first month of each year.
+     */
+    private final int[] yearStarts;
+    /**
+     * Epoch day of the last supported date.
+     */
+    private final long lastDay;
+
+    /**
+     * Constructor.
+     *
+     * @param calendar the calendar
+     * @param firstDays the epoch day of the first day of each month
+     * @param yearStarts the position of the first month of each year
+     * @param lastDay the epoch day of the last supported date
+     */
+    private MonthIndex(PlethonianCalendar calendar, long[] firstDays,
+            int[] yearStarts, long lastDay) {
+        this.calendar = calendar;
+        this.firstDays = firstDays;
+        this.yearStarts = yearStarts;
+        this.lastDay = lastDay;
+    }
+
+    /**
+     * Builds the index of a calendar, walking it one year at a time.
+     *
+     * @param calendar the calendar
+     *
+     * @return the index
+     */
+    public static MonthIndex build(PlethonianCalendar calendar) {
+        LocalDate last = calendar.getLastDate();
+        long[] firstDays = new long[1024];
+        int[] yearStarts = new int[128];
+        int months = 0;
+        int years = 0;
+        LocalDate date = calendar.getFirstDate();
+        while (!date.isAfter(last)) {
+            PlethonianYear year = calendar.getYear(date);
+            if (years == yearStarts.length) {
+                yearStarts = Arrays.copyOf(yearStarts, years * 2);
+            }
+            yearStarts[years++] = months;
+            for (PlethonianMonth month : year.getMonths()) {
+                if (months == firstDays.length) {
+                    firstDays = Arrays.copyOf(firstDays, months * 2);
+                }
+                firstDays[months++] = month.getFirstDay().toEpochDay();
+            }
+            date = year.getFirstDay().plusDays(year.getDays());
+        }
+        return new MonthIndex(calendar, Arrays.copyOf(firstDays, months),
+                Arrays.copyOf(yearStarts, years), last.toEpochDay());
+    }
+
+    /**
+     * Getter for the calendar.
+     *
+     * @return the calendar the index has been built from
+     */
+    public PlethonianCalendar getCalendar() {
+        return calendar;
+    }
+
+    /**
+     * Returns the number of months.
+     *
+     * @return the number of months
+     */
+    public int size() {
+        return firstDays.length;
+    }
+
+    /**
+     * Returns the position of the month of a date.
+     *
+     * @param date the date
+     *
+     * @return the position, or -1 if the date is not supported
+     */
+    public int indexOf(LocalDate date) {
+        long epochDay = date.toEpochDay();
+        if (firstDays.length == 0 || epochDay < firstDays[0] ||
+                epochDay > lastDay) {
+            return -1;
+        }
+        int pos = Arrays.binarySearch(firstDays, epochDay);
+        return (pos >= 0) ? pos : -pos - 2;
+    }
+
+    /**
+     * Returns the position of the month to show for a request.
+     *
+     * @param date the requested date in ISO format, or null for today
+     * @param today the current date
+     *
+     * @return the position of the month
+     *
+     * @throws DateTimeParseException if the date is malformed
+     * @throws IllegalArgumentException if the date is not supported
+     */
+    public int resolve(String date, LocalDate today) {
+        LocalDate target = (date != null) ? LocalDate.parse(date) : today;
+        int index = indexOf(target);
+        if (index < 0) {
+            throw new IllegalArgumentException("The date " + target
+                    + " is not in the valid range");
+        }
+        return index;
+    }
+
+    /**
+     * Returns the first day of a month.
+     *
+     * @param index the position of the month
+     *
+     * @return the first day
+     */
+    public LocalDate getFirstDay(int index) {
+        return LocalDate.ofEpochDay(firstDays[index]);
+    }
+
+    /**
+     * Returns the first supported date.
+     *
+     * @return the first day of the first month
+     */
+    public LocalDate getFirstDate() {
+        return LocalDate.ofEpochDay(firstDays[0]);
+    }
+
+    /**
+     * Returns the last supported date.
+     *
+     * @return the last day of the last month
+     */
+    public LocalDate getLastDate() {
+        return LocalDate.ofEpochDay(lastDay);
+    }
+
+    /**
+     * Returns the position of the year of a month.
+     *
+     * @param index the position of the month
+     *
+     * @return the position of the year
+     */
+    private int yearOf(int index) {
+        int pos = Arrays.binarySearch(yearStarts, index);
+        return (pos >= 0) ? pos : -pos - 2;
+    }
+
+    /**
+     * Returns the month in the same position of another year, or the last
+     * month of that year if it is shorter.
+     *
+     * @param index the position of the month
+     * @param years the number of years to move, negative to go back
+     *
+     * @return the position of the month, or -1 if out of range
+     */
+    public int moveYears(int index, int years) {
+        int year = yearOf(index);
+        int target = year + years;
+        if (target < 0 || target >= yearStarts.length) {
+            return -1;
+        }
+        int end = (target + 1 < yearStarts.length) ? yearStarts[target + 1] :
+                firstDays.length;
+        return Math.min(yearStarts[target] + index - yearStarts[year],
+                end - 1);
+    }
+
+    /**
+     * Returns the month at a given distance.
+     *
+     * @param index the position of the month
+     * @param months the number of months to move, negative to go back
+     *
+     * @return the position of the month, or -1 if out of range
+     */
+    public int moveMonths(int index, int months) {
+        int target = index + months;
+        return (target >= 0 && target < firstDays.length) ? target : -1;
+    }
+}
@@ -0,0 +1,369 @@
+/*
+ *     plethonian-webapp - Plethonian calendar Web Application
+ *
+ *     Copyright (C) 2020 Marco Confalonieri <marco at marcoconfalonieri.it>
+ *
+ *     This program is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU Affero General Public License as published
+ *     by the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     This program is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU Affero General Public License for more details.
+ *
+ *     You should have received a copy of the GNU Affero General Public License
+ *     along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package it.marcoconfalonieri.plethonian.webapp.controller;
+
+import it.marcoconfalonieri.plethonian.calendar.PlethonianCalendar;
+import it.marcoconfalonieri.plethonian.calendar.PlethonianDay;
+import it.marcoconfalonieri.plethonian.calendar.PlethonianMonth;
+import it.marcoconfalonieri.plethonian.calendar.PlethonianWeekName;
+import it.marcoconfalonieri.plethonian.calendar.PlethonianYear;
+import it.marcoconfalonieri.plethonian.calendar.astropixel.PlethonianCalendarImpl;
+import it.marcoconfalonieri.plethonian.calendar.snapshot.DayTable;
+import it.marcoconfalonieri.plethonian.calendar.snapshot.DayTableCalendar;
+import it.marcoconfalonieri.plethonian.webapp.jfr.RolloverEvent;
+import it.marcoconfalonieri.plethonian.webapp.metrics.InstrumentedCalendar;
+import it.marcoconfalonieri.plethonian.webapp.metrics.MetricsRegistry;
+import java.time.Clock;
+import java.time.LocalDate;
+import java.util.SortedMap;
+import java.util.SortedSet;
+import java.util.concurrent.atomic.AtomicReference;
+import javax.enterprise.context.ApplicationScoped;
+import javax.inject.Inject;
+import javax.inject.Named;
+
+/**
+ * Application-scoped bean. The data of the current day is kept in an
+ * immutable {@link CurrentDay} that is replaced atomically at every
+ * rollover: callers that need more than one value should read them all from
+ * {@link #getCurrentDay()}, so that they cannot straddle a rollover.
+ * <p>
+ * The current day comes from the injected {@link Clock}. A thread can also
+ * render another day through the same code with {@link #asOf(LocalDate)}.
+ */
+@ApplicationScoped
+@Named("app")
+public class PlethonianCalendarApp {
+    /**
+     * Name of the rollover counter.
+     */
+    public static final String ROLLOVERS = "plethonian_rollovers_total";
+    /**
+     * Label of the rollover reason.
+     */
+    private static final String[] REASON = {"reason"};
+
+    /**
+     * The provider of the calendar object.
+     */
+    @Inject
+    private CalendarProvider calendarProvider;
+    /**
+     * Registry of the metrics.
+     */
+    @Inject
+    private MetricsRegistry metrics;
+    /**
+     * Clock that tells the current day.
+     */
+    @Inject
+    private Clock clock;
+
+    /**
+     * Data of the current day.
+     */
+    private final AtomicReference<CurrentDay> current =
+            new AtomicReference<>();
+    /**
+     * Index of the months of the calendar.
+     */
+    private final AtomicReference<MonthIndex> monthIndex =
+            new AtomicReference<>();
+    /**
+     * Table of the days of the calendar.
+     */
+    private final AtomicReference<CalendarTable> dayTable =
+            new AtomicReference<>();
+    /**
+     * Data of the day the current thread is rendering instead of today, if
+     * any.
+     */
+    private final ThreadLocal<CurrentDay> asOf = new ThreadLocal<>();
+
+    /**
+     * Table of the days of a calendar.
+     */
+    private static final class CalendarTable {
+        private final PlethonianCalendar calendar;
+        private final DayTable table;
+
+        CalendarTable(PlethonianCalendar calendar, DayTable table) {
+            this.calendar = calendar;
+            this.table = table;
+        }
+    }
+
+    /**
+     * Scope in which the current thread sees another day as today.
+     */
+    public final class AsOf implements AutoCloseable {
+        /**
+         * Data the thread saw before entering the scope.
+         */
+        private final CurrentDay previous;
+
+        /**
+         * Constructor.
+         *
+         * @param day the data of the day to see
+         */
+        private AsOf(CurrentDay day) {
+            previous = asOf.get();
+            asOf.set(day);
+        }
+
+        /**
+         * Restores the day the thread saw before.
+         */
+        @Override
+        public void close() {
+            if (previous != null) {
+                asOf.set(previous);
+            } else {
+                asOf.remove();
+            }
+        }
+    }
+
+    /**
+     * Constructor.
+     */
+    public PlethonianCalendarApp() {
+        // Wired by the container
+    }
+
+    /**
+     * Constructor for use outside of the container.
+     *
+     * @param calendarProvider the provider of the calendar
+     * @param metrics the registry of the metrics
+     * @param clock the clock that tells the current day
+     */
+    public PlethonianCalendarApp(CalendarProvider calendarProvider,
+            MetricsRegistry metrics, Clock clock) {
+        this.calendarProvider = calendarProvider;
+        this.metrics = metrics;
+        this.clock = clock;
+    }
+
+    /**
+     * Returns the data of the current day, replacing it if the day changed
+     * or the calendar has been reloaded. Concurrent callers race with a
+     * compare-and-set: data that is already newer than the date read from
+     * the clock is never replaced with older data, and a caller that read
+     * the calendar just before a reload does not publish the old one.
+     *
+     * @return the data of the current day
+     */
+    protected CurrentDay updateData() {
+        LocalDate ld = LocalDate.now(clock);
+        PlethonianCalendar calendar = getCalendar();
+        for (;;) {
+            CurrentDay loaded = current.get();
+            if (loaded != null && loaded.getCalendar() == calendar &&
+                    !loaded.getDate().isBefore(ld)) {
+                return loaded;
+            }
+            CurrentDay next = new CurrentDay(calendar, ld);
+            PlethonianCalendar latest = getCalendar();
+            if (latest != calendar) {
+                calendar = latest;
+                continue;
+            }
+            if (current.compareAndSet(loaded, next)) {
+                rolledOver(loaded == null ? "initial" :
+                        (loaded.getCalendar() != calendar) ? "reload" : "day",
+                        ld);
+                return next;
+            }
+        }
+    }
+
+    /**
+     * Makes the current thread see a given day as today until the returned
+     * scope is closed. The data of the real current day is not touched.
+     *
+     * @param date the day to see
+     *
+     * @return the scope, to be closed in a finally block
+     *
+     * @throws IllegalArgumentException if the date is not supported
+     */
+    public AsOf asOf(LocalDate date) {
+        return new AsOf(new CurrentDay(getCalendar(), date));
+    }
+
+    /**
+     * Checks whether the current thread is seeing another day as today.
+     *
+     * @return true inside an {@link #asOf(LocalDate)} scope
+     */
+    public boolean isAsOf() {
+        return asOf.get() != null;
+    }
+
+    /**
+     * Getter for the clock.
+     *
+     * @return the clock that tells the current day
+     */
+    public Clock getClock() {
+        return clock;
+    }
+
+    /**
+     * Records a rollover.
+     *
+     * @param reason the reason of the rollover
+     * @param ld the new date
+     */
+    private void rolledOver(String reason, LocalDate ld) {
+        metrics.counter(ROLLOVERS, "Reloads of the current day data",
+                REASON, reason).inc();
+        RolloverEvent event = new RolloverEvent();
+        if (event.isEnabled()) {
+            event.reason = reason;
+            event.date = ld.toString();
+            event.commit();
+        }
+    }
+
+    /**
+     * Getter for the calendar object. If the calendar is still being built,
+     * it waits for it.
+     *
+     * @return the calendar
+     *
+     * @throws CalendarUnavailableException if the calendar is not available
+     */
+    public PlethonianCalendar getCalendar() {
+        return calendarProvider.getCalendar();
+    }
+
+    /**
+     * Getter for the index of the months, built again after a reload of the
+     * calendar.
+     *
+     * @return the index of the months of the calendar
+     *
+     * @throws CalendarUnavailableException if the calendar is not available
+     */
+    public MonthIndex getMonthIndex() {
+        PlethonianCalendar calendar = getCalendar();
+        MonthIndex index = monthIndex.get();
+        if (index == null || index.getCalendar() != calendar) {
+            // Concurrent builds are harmless: the indexes are equivalent.
+            index = MonthIndex.build(calendar);
+            monthIndex.set(index);
+        }
+        return index;
+    }
+
+    /**
+     * Returns the table of the days of a calendar. A calendar mapped from a
+     * snapshot already has one; otherwise it is built from the calendar.
+     *
+     * @param calendar the calendar
+     *
+     * @return the table of the days
+     */
+    static DayTable toDayTable(PlethonianCalendar calendar) {
+        PlethonianCalendar c = calendar;
+        if (c instanceof InstrumentedCalendar) {
+            c = ((InstrumentedCalendar) c).getDelegate();
+        }
+        if (c instanceof DayTableCalendar) {
+            return ((DayTableCalendar) c).getTable();
+        }
+        if (c instanceof PlethonianCalendarImpl) {
+            return DayTable.build((PlethonianCalendarImpl) c);
+        }
+        throw new IllegalStateException("Unsupported calendar: "
+                + c.getClass().getName());
+    }
+
+    /**
+     * Getter for the table of the days of the calendar, built again after a
+     * reload of the calendar. It allows reading the days without building
+     * any object.
+     *
+     * @return the table of the days of the calendar
+     *
+     * @throws CalendarUnavailableException if the calendar is not available
+     */
+    public DayTable getDayTable() {
+        PlethonianCalendar calendar = getCalendar();
+        CalendarTable table = dayTable.get();
+        if (table == null || table.calendar != calendar) {
+            // Concurrent builds are harmless: the tables are equivalent.
+            table = new CalendarTable(calendar, toDayTable(calendar));
+            dayTable.set(table);
+        }
+        return table.table;
+    }
+
+    /**
+     * Getter for the data of the current day, or of the day set with
+     * {@link #asOf(LocalDate)} for the current thread.
+     *
+     * @return a consistent view of the current day
+     */
+    public CurrentDay getCurrentDay() {
+        CurrentDay day = asOf.get();
+        return (day != null) ? day : updateData();
+    }
+
+    /**
+     * Getter for today.
+     *
+     * @return the plethonian day for today.
+     */
+    public PlethonianDay getToday() {
+        return getCurrentDay().getToday();
+    }
+
+    /**
+     * Getter for the current month.
+     *
+     * @return the current plethonian month.
+     */
+    public PlethonianMonth getCurrentMonth() {
+        return getCurrentDay().getMonth();
+    }
+
+    /**
+     * Gets the month matrix.
+     *
+     * @return the read-only current month matrix
+     */
+    public SortedMap<PlethonianWeekName, SortedSet<PlethonianDay>>
+            getCurrentMonthMatrix() {
+        return getCurrentDay().getMonthMatrix();
+    }
+
+    /**
+     * Getter for the current year.
+     * 
+     * @return the current year
+     */
+    public PlethonianYear getCurrentYear() {
+        return getCurrentDay().getYear();
+    }
+}
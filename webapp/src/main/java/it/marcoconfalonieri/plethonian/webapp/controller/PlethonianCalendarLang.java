@@ -19,26 +19,62 @@
 
 package it.marcoconfalonieri.plethonian.webapp.controller;
 
+import it.marcoconfalonieri.plethonian.webapp.metrics.MetricsRegistry;
+import it.marcoconfalonieri.plethonian.webapp.metrics.RenderTimingFilter;
+import it.marcoconfalonieri.plethonian.webapp.servlet.SupportedLocales;
 import java.util.HashMap;
 import java.util.Locale;
 import java.util.Map;
 import javax.annotation.PostConstruct;
 import javax.enterprise.context.RequestScoped;
+import javax.faces.component.UIViewRoot;
 import javax.faces.context.FacesContext;
+import javax.inject.Inject;
 import javax.inject.Named;
 import javax.servlet.http.Cookie;
 
 /**
- * Language switcher.
+ * Language switcher. The languages that come from the cookie or from the
+ * page are replaced with the supported ones, so that an arbitrary value can
+ * be neither rendered nor counted.
  */
 @RequestScoped
 @Named("lang")
 public class PlethonianCalendarLang {
     public static final String LANG_COOKIE = "lang";
+    /**
+     * Name of the language change counter.
+     */
+    public static final String LANG_CHANGES = "plethonian_lang_changes_total";
+    /**
+     * Label of the chosen language.
+     */
+    private static final String[] LANG_LABEL = {"lang"};
     /**
      * Current selected locale.
      */
     private Locale locale;
+    /**
+     * Registry of the metrics.
+     */
+    @Inject
+    private MetricsRegistry metrics;
+    /**
+     * Supported locales.
+     */
+    @Inject
+    private SupportedLocales locales;
+
+    /**
+     * Counts a change of the language cookie.
+     *
+     * @param metrics the registry of the metrics
+     * @param locale the chosen locale, one of the supported ones
+     */
+    public static void countChange(MetricsRegistry metrics, Locale locale) {
+        metrics.counter(LANG_CHANGES, "Changes of the language cookie",
+                LANG_LABEL, locale.getLanguage()).inc();
+    }
 
     /**
      * Writes the language cookie.
@@ -70,18 +106,19 @@ public class PlethonianCalendarLang {
     }
     
     /**
-     * Initializes the language.
+     * Initializes the language from the cookie, or from the locale chosen
+     * by JSF if the cookie is missing or not supported.
      */
     @PostConstruct
     public void initialize() {
-        String lang = readLangCookie();    
-        if (lang != null) {
-            locale = new Locale(lang);
-            FacesContext.getCurrentInstance().getViewRoot().setLocale(locale);
-        } else {
-            locale = FacesContext.getCurrentInstance().getViewRoot()
-                    .getLocale();
-        }     
+        UIViewRoot root = FacesContext.getCurrentInstance().getViewRoot();
+        locale = locales.getConfig().findSupported(readLangCookie());
+        if (locale == null) {
+            locale = locales.clamp(root.getLocale());
+        }
+        root.setLocale(locale);
+        FacesContext.getCurrentInstance().getExternalContext().getRequestMap()
+                .put(RenderTimingFilter.LOCALE_ATTRIBUTE, locale);
     }
 
     /**
@@ -96,11 +133,15 @@ public class PlethonianCalendarLang {
     /**
      * Changes the language to the specified one.
      * 
-     * @param lang the language
+     * @param lang the language, replaced with the default one if it is not
+     *     supported
      */
     public void changeTo(String lang) {
-        locale = new Locale(lang);
+        locale = locales.clamp(lang);
         FacesContext.getCurrentInstance().getViewRoot().setLocale(locale);
-        writeLangCookie(lang);
+        FacesContext.getCurrentInstance().getExternalContext().getRequestMap()
+                .put(RenderTimingFilter.LOCALE_ATTRIBUTE, locale);
+        writeLangCookie(locale.getLanguage());
+        countChange(metrics, locale);
     }
 }
@@ -0,0 +1,166 @@
+/*
+ *     plethonian-webapp - Plethonian calendar Web Application
+ *
+ *     Copyright (C) 2020 Marco Confalonieri <marco at marcoconfalonieri.it>
+ *
+ *     This program is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU Affero General Public License as published
+ *     by the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     This program is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU Affero General Public License for more details.
+ *
+ *     You should have received a copy of the GNU Affero General Public License
+ *     along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package it.marcoconfalonieri.plethonian.webapp.controller;
+
+import java.io.IOException;
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import javax.enterprise.context.RequestScoped;
+import javax.faces.context.ExternalContext;
+import javax.faces.context.FacesContext;
+import javax.inject.Inject;
+import javax.inject.Named;
+import javax.servlet.http.HttpServletResponse;
+
+/**
+ * Month requested by the page, from the {@code date} parameter or the
+ * current day. The view action {@link #validate()} resolves it before the
+ * response is written, so that the page answers an invalid or unsupported
+ * date with the same status as the fast render path.
+ * <p>
+ * The date is set by a view parameter, which is kept in the view state, so
+ * that a postback of the page, such as a change of language, stays on the
+ * requested month although its URL has no query string.
+ */
+@RequestScoped
+@Named("month")
+public class RequestedMonth {
+    /**
+     * Seconds the client should wait before retrying an unavailable page.
+     */
+    private static final String RETRY_AFTER = "5";
+
+    /**
+     * Application bean.
+     */
+    @Inject
+    private PlethonianCalendarApp app;
+    /**
+     * Requested date, or null for the current month.
+     */
+    private String date;
+    /**
+     * Index of the months the position refers to.
+     */
+    private MonthIndex index;
+    /**
+     * Position of the month in the index.
+     */
+    private int position = -1;
+    /**
+     * Current date.
+     */
+    private LocalDate today;
+
+    /**
+     * Resolves the month, the first time it is called.
+     *
+     * @throws DateTimeParseException if the date is malformed
+     * @throws IllegalArgumentException if the date is not supported
+     * @throws CalendarUnavailableException if the calendar is not ready
+     */
+    private void resolve() {
+        if (position >= 0) {
+            return;
+        }
+        CurrentDay current = app.getCurrentDay();
+        MonthIndex months = app.getMonthIndex();
+        position = months.resolve(date, current.getDate());
+        index = months;
+        today = current.getDate();
+    }
+
+    /**
+     * Getter for the requested date.
+     *
+     * @return the requested date, or null for the current month
+     */
+    public String getDate() {
+        return date;
+    }
+
+    /**
+     * Setter for the requested date.
+     *
+     * @param date the requested date, or null for the current month
+     */
+    public void setDate(String date) {
+        this.date = date;
+    }
+
+    /**
+     * Checks the requested date, ending the response with an error if it
+     * is invalid (400), not supported (404) or the calendar is not ready
+     * (503).
+     *
+     * @throws IOException in case of errors sending the error
+     */
+    public void validate() throws IOException {
+        FacesContext context = FacesContext.getCurrentInstance();
+        ExternalContext external = context.getExternalContext();
+        try {
+            resolve();
+        } catch (CalendarUnavailableException ex) {
+            external.setResponseHeader("Retry-After", RETRY_AFTER);
+            external.responseSendError(
+                    HttpServletResponse.SC_SERVICE_UNAVAILABLE,
+                    ex.getMessage());
+            context.responseComplete();
+        } catch (DateTimeParseException ex) {
+            external.responseSendError(HttpServletResponse.SC_BAD_REQUEST,
+                    "Invalid date: " + ex.getParsedString());
+            context.responseComplete();
+        } catch (IllegalArgumentException ex) {
+            external.responseSendError(HttpServletResponse.SC_NOT_FOUND,
+                    ex.getMessage());
+            context.responseComplete();
+        }
+    }
+
+    /**
+     * Returns the index of the months.
+     *
+     * @return the index
+     */
+    public MonthIndex getMonthIndex() {
+        resolve();
+        return index;
+    }
+
+    /**
+     * Returns the position of the month in the index.
+     *
+     * @return the position
+     */
+    public int getPosition() {
+        resolve();
+        return position;
+    }
+
+    /**
+     * Returns the current date the month was resolved for.
+     *
+     * @return the current date
+     */
+    public LocalDate getToday() {
+        resolve();
+        return today;
+    }
+}
@@ -0,0 +1,166 @@
+/*
+ *     plethonian-webapp - Plethonian calendar Web Application
+ *
+ *     Copyright (C) 2020 Marco Confalonieri <marco at marcoconfalonieri.it>
+ *
+ *     This program is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU Affero General Public License as published
+ *     by the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     This program is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU Affero General Public License for more details.
+ *
+ *     You should have received a copy of the GNU Affero General Public License
+ *     along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package it.marcoconfalonieri.plethonian.webapp.export;
+
+import it.marcoconfalonieri.plethonian.calendar.snapshot.DayTable;
+import it.marcoconfalonieri.plethonian.calendar.snapshot.DayTableExport;
+import it.marcoconfalonieri.plethonian.webapp.controller.CalendarProvider;
+import it.marcoconfalonieri.plethonian.webapp.controller.CalendarUnavailableException;
+import it.marcoconfalonieri.plethonian.webapp.controller.PlethonianCalendarApp;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import javax.inject.Inject;
+import javax.servlet.AsyncContext;
+import javax.servlet.ServletException;
+import javax.servlet.ServletOutputStream;
+import javax.servlet.WriteListener;
+import javax.servlet.http.HttpServlet;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+/**
+ * Servlet of the bulk export of the whole calendar, at
+ * {@code /export/calendar.csv} and {@code /export/calendar.plcx} for the
+ * columnar format. The export is written with non-blocking output, so that a
+ * slow client does not hold a request thread.
+ */
+public class ExportServlet extends HttpServlet {
+    /**
+     * Serial version ID.
+     */
+    private static final long serialVersionUID = -3322761468590417163L;
+    /**
+     * Logger.
+     */
+    private static final Logger LOGGER =
+            Logger.getLogger(ExportServlet.class.getName());
+    /**
+     * Path of the CSV export.
+     */
+    private static final String CSV_PATH = "/calendar.csv";
+    /**
+     * Path of the columnar export.
+     */
+    private static final String COLUMNAR_PATH = "/calendar.plcx";
+    /**
+     * Size of the chunks written at a time.
+     */
+    private static final int CHUNK_SIZE = 8192;
+    /**
+     * Seconds after which a client should retry when the calendar is not
+     * ready.
+     */
+    private static final String RETRY_AFTER = "5";
+    /**
+     * Header with the version of the astronomical data.
+     */
+    private static final String DATA_VERSION_HEADER = "X-Data-Version";
+
+    /**
+     * Writer of an export when the output is ready.
+     */
+    private static final class ExportWriter implements WriteListener {
+        private final AsyncContext async;
+        private final ServletOutputStream out;
+        private final DayTableExport export;
+        private final ByteBuffer buf = ByteBuffer.allocate(CHUNK_SIZE);
+
+        ExportWriter(AsyncContext async, ServletOutputStream out,
+                DayTableExport export) {
+            this.async = async;
+            this.out = out;
+            this.export = export;
+        }
+
+        @Override
+        public void onWritePossible() throws IOException {
+            while (out.isReady()) {
+                buf.clear();
+                boolean more = export.fill(buf);
+                out.write(buf.array(), 0, buf.position());
+                if (!more) {
+                    async.complete();
+                    return;
+                }
+            }
+        }
+
+        @Override
+        public void onError(Throwable t) {
+            LOGGER.log(Level.FINE, "Export interrupted", t);
+            async.complete();
+        }
+    }
+
+    /**
+     * Application bean.
+     */
+    @Inject
+    private PlethonianCalendarApp app;
+    /**
+     * Provider of the calendar.
+     */
+    @Inject
+    private CalendarProvider calendarProvider;
+
+    @Override
+    protected void doGet(HttpServletRequest req, HttpServletResponse resp)
+            throws ServletException, IOException {
+        String path = req.getPathInfo();
+        DayTableExport.Format format;
+        String contentType;
+        if (CSV_PATH.equals(path)) {
+            format = DayTableExport.Format.CSV;
+            contentType = "text/csv;charset=UTF-8";
+        } else if (COLUMNAR_PATH.equals(path)) {
+            format = DayTableExport.Format.COLUMNAR;
+            contentType = "application/octet-stream";
+        } else {
+            resp.sendError(HttpServletResponse.SC_NOT_FOUND);
+            return;
+        }
+        DayTable table;
+        try {
+            table = app.getDayTable();
+        } catch (CalendarUnavailableException ex) {
+            resp.setHeader("Retry-After", RETRY_AFTER);
+            resp.sendError(HttpServletResponse.SC_SERVICE_UNAVAILABLE,
+                    ex.getMessage());
+            return;
+        }
+        String version = calendarProvider.getDataVersion();
+        if (version != null) {
+            resp.setHeader(DATA_VERSION_HEADER, version);
+        }
+        DayTableExport export = new DayTableExport(table, format);
+        resp.setContentType(contentType);
+        resp.setHeader("Content-Disposition", "attachment; filename=\""
+                + path.substring(1) + "\"");
+        if (export.length() >= 0) {
+            resp.setContentLengthLong(export.length());
+        }
+        AsyncContext async = req.startAsync();
+        async.setTimeout(0);
+        ServletOutputStream out = resp.getOutputStream();
+        out.setWriteListener(new ExportWriter(async, out, export));
+    }
+}
@@ -0,0 +1,100 @@
+/*
+ *     plethonian-webapp - Plethonian calendar Web Application
+ *
+ *     Copyright (C) 2020 Marco Confalonieri <marco at marcoconfalonieri.it>
+ *
+ *     This program is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU Affero General Public License as published
+ *     by the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     This program is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU Affero General Public License for more details.
+ *
+ *     You should have received a copy of the GNU Affero General Public License
+ *     along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package it.marcoconfalonieri.plethonian.webapp.ics;
+
+import it.marcoconfalonieri.plethonian.webapp.api.ApiResponse;
+
+/**
+ * Generated iCalendar feed, with both the plain and the compressed body, so
+ * that either representation is served without further work.
+ */
+public final class IcsFeed {
+    /**
+     * Uncompressed body.
+     */
+    private final byte[] body;
+    /**
+     * Body compressed with gzip.
+     */
+    private final byte[] gzipBody;
+    /**
+     * Entity tag of the uncompressed body.
+     */
+    private final String etag;
+    /**
+     * Entity tag of the compressed body.
+     */
+    private final String gzipEtag;
+
+    /**
+     * Constructor.
+     *
+     * @param body the uncompressed body
+     * @param gzipBody the body compressed with gzip
+     * @param digest the digest of the uncompressed body
+     */
+    IcsFeed(byte[] body, byte[] gzipBody, byte[] digest) {
+        this.body = body;
+        this.gzipBody = gzipBody;
+        this.etag = ApiResponse.toEtag(digest);
+        this.gzipEtag = etag.substring(0, etag.length() - 1) + "-gzip\"";
+    }
+
+    /**
+     * Getter for the uncompressed body.
+     *
+     * @return the body; it must not be modified
+     */
+    public byte[] getBody() {
+        return body;
+    }
+
+    /**
+     * Getter for the compressed body.
+     *
+     * @return the body compressed with gzip; it must not be modified
+     */
+    public byte[] getGzipBody() {
+        return gzipBody;
+    }
+
+    /**
+     * Returns the entity tag of a representation.
+     *
+     * @param gzip true for the compressed body
+     *
+     * @return the entity tag, including the quotes
+     */
+    public String getEtag(boolean gzip) {
+        return gzip ? gzipEtag : etag;
+    }
+
+    /**
+     * Checks whether an If-None-Match header matches either representation.
+     *
+     * @param ifNoneMatch the header value or null
+     *
+     * @return true if the client already has the feed
+     */
+    public boolean matches(String ifNoneMatch) {
+        return ApiResponse.matches(etag, ifNoneMatch) ||
+                ApiResponse.matches(gzipEtag, ifNoneMatch);
+    }
+}
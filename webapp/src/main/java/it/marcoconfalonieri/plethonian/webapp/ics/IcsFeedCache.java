@@ -0,0 +1,280 @@
+/*
+ *     plethonian-webapp - Plethonian calendar Web Application
+ *
+ *     Copyright (C) 2020 Marco Confalonieri <marco at marcoconfalonieri.it>
+ *
+ *     This program is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU Affero General Public License as published
+ *     by the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     This program is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU Affero General Public License for more details.
+ *
+ *     You should have received a copy of the GNU Affero General Public License
+ *     along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package it.marcoconfalonieri.plethonian.webapp.ics;
+
+import it.marcoconfalonieri.plethonian.calendar.snapshot.DayTable;
+import it.marcoconfalonieri.plethonian.webapp.controller.CalendarProvider;
+import it.marcoconfalonieri.plethonian.webapp.controller.CalendarReloaded;
+import it.marcoconfalonieri.plethonian.webapp.controller.PlethonianCalendarApp;
+import it.marcoconfalonieri.plethonian.webapp.metrics.Counter;
+import it.marcoconfalonieri.plethonian.webapp.metrics.MetricsRegistry;
+import it.marcoconfalonieri.plethonian.webapp.view.MonthViewCache;
+import java.io.BufferedWriter;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.security.DigestOutputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.ResourceBundle;
+import java.util.zip.GZIPOutputStream;
+import javax.enterprise.context.ApplicationScoped;
+import javax.enterprise.event.Observes;
+import javax.inject.Inject;
+
+/**
+ * Application-scoped cache of the iCalendar feeds, by locale and range of
+ * years. Each feed is generated once per version of the calendar, compressed
+ * once, and then both bodies are served as they are. The time stamp of the
+ * events is derived from the version of the data, so that every instance,
+ * before and after a restart, gives the same body and entity tag for the
+ * same data. The cache keeps the most recently used {@value #MAX_ENTRIES}
+ * feeds.
+ */
+@ApplicationScoped
+public class IcsFeedCache {
+    /**
+     * Name of the hit counter.
+     */
+    public static final String HITS = "plethonian_ics_cache_hits_total";
+    /**
+     * Name of the miss counter.
+     */
+    public static final String MISSES = "plethonian_ics_cache_misses_total";
+    /**
+     * Maximum number of cached feeds.
+     */
+    public static final int MAX_ENTRIES = 64;
+    /**
+     * Start of the range of the time stamps, the year of the first release.
+     */
+    private static final Instant BASE_STAMP =
+            Instant.parse("2020-01-01T00:00:00Z");
+    /**
+     * Length of the range of the time stamps in seconds.
+     */
+    private static final long STAMP_RANGE = 366L * 24 * 60 * 60;
+
+    /**
+     * Cache key.
+     */
+    private static final class Key {
+        private final Locale locale;
+        private final int fromYear;
+        private final int toYear;
+
+        Key(Locale locale, int fromYear, int toYear) {
+            this.locale = locale;
+            this.fromYear = fromYear;
+            this.toYear = toYear;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (!(obj instanceof Key)) {
+                return false;
+            }
+            Key k = (Key) obj;
+            return locale.equals(k.locale) && fromYear == k.fromYear &&
+                    toYear == k.toYear;
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(locale, fromYear, toYear);
+        }
+    }
+
+    /**
+     * Feed generated from a table.
+     */
+    private static final class Entry {
+        private final DayTable table;
+        private final IcsFeed feed;
+
+        Entry(DayTable table, IcsFeed feed) {
+            this.table = table;
+            this.feed = feed;
+        }
+    }
+
+    /**
+     * The cached feeds, in access order.
+     */
+    private final Map<Key, Entry> feeds =
+            new LinkedHashMap<>(16, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(
+                        Map.Entry<Key, Entry> eldest) {
+                    return size() > MAX_ENTRIES;
+                }
+            };
+    /**
+     * Application bean.
+     */
+    @Inject
+    private PlethonianCalendarApp app;
+    /**
+     * Provider of the calendar, which tells the version of the data.
+     */
+    @Inject
+    private CalendarProvider calendarProvider;
+    /**
+     * Cache hits.
+     */
+    private Counter hits = new Counter();
+    /**
+     * Cache misses.
+     */
+    private Counter misses = new Counter();
+
+    /**
+     * Registers the cache metrics.
+     *
+     * @param metrics the registry of the metrics
+     */
+    @Inject
+    void setMetrics(MetricsRegistry metrics) {
+        hits = metrics.counter(HITS, "iCalendar feed cache hits");
+        misses = metrics.counter(MISSES, "iCalendar feed cache misses");
+    }
+
+    /**
+     * Generates a feed.
+     *
+     * @param table the table of the days
+     * @param locale the locale of the feed
+     * @param fromYear the first Gregorian year
+     * @param toYear the last Gregorian year, included
+     * @param stamp the time stamp of the events
+     *
+     * @return the feed
+     */
+    static IcsFeed generate(DayTable table, Locale locale, int fromYear,
+            int toYear, Instant stamp) {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException ex) {
+            // SHA-256 is available on every Java platform.
+            throw new IllegalStateException(ex);
+        }
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+        try {
+            try (Writer out = new BufferedWriter(new OutputStreamWriter(
+                    new DigestOutputStream(bytes, digest),
+                    StandardCharsets.UTF_8))) {
+                new IcsWriter(out, ResourceBundle.getBundle(
+                        MonthViewCache.BUNDLE_BASE_NAME, locale),
+                        locale.getLanguage(), stamp).write(table,
+                                LocalDate.of(fromYear, 1, 1),
+                                LocalDate.of(toYear, 12, 31));
+            }
+            try (OutputStream out = new GZIPOutputStream(compressed)) {
+                bytes.writeTo(out);
+            }
+        } catch (IOException ex) {
+            // Writing to memory cannot fail.
+            throw new UncheckedIOException(ex);
+        }
+        return new IcsFeed(bytes.toByteArray(), compressed.toByteArray(),
+                digest.digest());
+    }
+
+    /**
+     * Returns the time stamp of the feeds of a version of the data: a second
+     * of the year 2020 chosen by the checksum, so that it is the same on
+     * every instance and never in the future.
+     *
+     * @param version the checksum of the data, or null if unknown
+     *
+     * @return the time stamp
+     */
+    static Instant stampOf(String version) {
+        if (version == null || version.length() < 8) {
+            return BASE_STAMP;
+        }
+        try {
+            long bits = Long.parseLong(version.substring(0, 8), 16);
+            return BASE_STAMP.plusSeconds(bits % STAMP_RANGE);
+        } catch (NumberFormatException ex) {
+            return BASE_STAMP;
+        }
+    }
+
+    /**
+     * Returns a feed, generating it if needed.
+     *
+     * @param locale the locale of the feed
+     * @param fromYear the first Gregorian year
+     * @param toYear the last Gregorian year, included
+     *
+     * @return the feed
+     */
+    public IcsFeed getFeed(Locale locale, int fromYear, int toYear) {
+        DayTable table = app.getDayTable();
+        Key key = new Key(locale, fromYear, toYear);
+        Entry entry;
+        synchronized (this) {
+            entry = feeds.get(key);
+        }
+        if (entry != null && entry.table == table) {
+            hits.inc();
+            return entry.feed;
+        }
+        misses.inc();
+        // Concurrent generations are harmless: the feeds are equivalent.
+        // A feed stamped with the previous version during a reload is
+        // dropped by the reload event.
+        entry = new Entry(table, generate(table, locale, fromYear, toYear,
+                stampOf(calendarProvider.getDataVersion())));
+        synchronized (this) {
+            feeds.put(key, entry);
+        }
+        return entry.feed;
+    }
+
+    /**
+     * Empties the cache.
+     */
+    public synchronized void clear() {
+        feeds.clear();
+    }
+
+    /**
+     * Empties the cache when the calendar is reloaded.
+     *
+     * @param event the reload event
+     */
+    public void onCalendarReloaded(@Observes CalendarReloaded event) {
+        clear();
+    }
+}
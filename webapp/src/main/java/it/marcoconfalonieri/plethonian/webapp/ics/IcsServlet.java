@@ -0,0 +1,213 @@
+/*
+ *     plethonian-webapp - Plethonian calendar Web Application
+ *
+ *     Copyright (C) 2020 Marco Confalonieri <marco at marcoconfalonieri.it>
+ *
+ *     This program is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU Affero General Public License as published
+ *     by the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     This program is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU Affero General Public License for more details.
+ *
+ *     You should have received a copy of the GNU Affero General Public License
+ *     along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package it.marcoconfalonieri.plethonian.webapp.ics;
+
+import it.marcoconfalonieri.plethonian.webapp.controller.CalendarProvider;
+import it.marcoconfalonieri.plethonian.webapp.controller.CalendarUnavailableException;
+import it.marcoconfalonieri.plethonian.webapp.controller.PlethonianCalendarApp;
+import it.marcoconfalonieri.plethonian.webapp.servlet.SupportedLocales;
+import java.io.IOException;
+import java.util.Locale;
+import javax.inject.Inject;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServlet;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+/**
+ * Servlet of the iCalendar feeds, at {@code /ics/{lang}.ics?from=&to=}. The
+ * range is given in Gregorian years and goes by default from the previous
+ * year to two years from now. The feeds are served compressed to the clients
+ * that accept it, with entity tags so that polling clients mostly get a 304
+ * status.
+ */
+public class IcsServlet extends HttpServlet {
+    /**
+     * Serial version ID.
+     */
+    private static final long serialVersionUID = 4163958302277305142L;
+    /**
+     * Content type of the feeds.
+     */
+    private static final String CONTENT_TYPE = "text/calendar;charset=UTF-8";
+    /**
+     * Cache control of the feeds.
+     */
+    private static final String CACHE_CONTROL = "public, max-age=3600";
+    /**
+     * Suffix of the feed path.
+     */
+    private static final String SUFFIX = ".ics";
+    /**
+     * Maximum number of years in a feed.
+     */
+    public static final int MAX_YEARS = 20;
+    /**
+     * Seconds after which a client should retry when the calendar is not
+     * ready.
+     */
+    private static final String RETRY_AFTER = "5";
+    /**
+     * Header with the version of the astronomical data.
+     */
+    private static final String DATA_VERSION_HEADER = "X-Data-Version";
+
+    /**
+     * Application bean.
+     */
+    @Inject
+    private PlethonianCalendarApp app;
+    /**
+     * Provider of the calendar.
+     */
+    @Inject
+    private CalendarProvider calendarProvider;
+    /**
+     * Cache of the feeds.
+     */
+    @Inject
+    private IcsFeedCache feeds;
+    /**
+     * Supported locales.
+     */
+    @Inject
+    private SupportedLocales locales;
+
+    /**
+     * Parses a year parameter.
+     *
+     * @param value the parameter value or null
+     * @param def the default year
+     *
+     * @return the year
+     *
+     * @throws NumberFormatException if the value is not a number
+     */
+    private static int parseYear(String value, int def) {
+        return (value != null) ? Integer.parseInt(value) : def;
+    }
+
+    /**
+     * Checks a range of years, without overflowing on the extreme values.
+     *
+     * @param from the first year
+     * @param to the last year, included
+     *
+     * @return true if the range has 1 to {@value #MAX_YEARS} years
+     */
+    static boolean isValidRange(int from, int to) {
+        return from <= to && (long) to - from < MAX_YEARS;
+    }
+
+    /**
+     * Checks whether the client accepts a gzip body.
+     *
+     * @param req the request
+     *
+     * @return true if gzip is accepted
+     */
+    static boolean acceptsGzip(HttpServletRequest req) {
+        String accept = req.getHeader("Accept-Encoding");
+        if (accept == null) {
+            return false;
+        }
+        for (String coding : accept.split(",")) {
+            String[] parts = coding.split(";");
+            if (parts[0].strip().equalsIgnoreCase("gzip")) {
+                return parts.length == 1 ||
+                        !parts[1].strip().matches("q=0(\\.0*)?");
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Sends a feed, or a 304 status if the client already has it.
+     *
+     * @param req the request
+     * @param resp the response
+     * @param feed the feed
+     *
+     * @throws IOException in case of errors writing the response
+     */
+    private static void send(HttpServletRequest req, HttpServletResponse resp,
+            IcsFeed feed) throws IOException {
+        boolean gzip = acceptsGzip(req);
+        resp.setHeader("ETag", feed.getEtag(gzip));
+        resp.setHeader("Cache-Control", CACHE_CONTROL);
+        resp.setHeader("Vary", "Accept-Encoding");
+        if (feed.matches(req.getHeader("If-None-Match"))) {
+            resp.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+            return;
+        }
+        resp.setContentType(CONTENT_TYPE);
+        if (gzip) {
+            resp.setHeader("Content-Encoding", "gzip");
+            resp.setContentLength(feed.getGzipBody().length);
+            resp.getOutputStream().write(feed.getGzipBody());
+        } else {
+            resp.setContentLength(feed.getBody().length);
+            resp.getOutputStream().write(feed.getBody());
+        }
+    }
+
+    @Override
+    protected void doGet(HttpServletRequest req, HttpServletResponse resp)
+            throws ServletException, IOException {
+        String path = req.getPathInfo();
+        Locale locale = null;
+        if (path != null && path.endsWith(SUFFIX)) {
+            locale = locales.getConfig().findSupported(
+                    path.substring(1, path.length() - SUFFIX.length()));
+        }
+        if (locale == null) {
+            resp.sendError(HttpServletResponse.SC_NOT_FOUND);
+            return;
+        }
+        String version = calendarProvider.getDataVersion();
+        if (version != null) {
+            resp.setHeader(DATA_VERSION_HEADER, version);
+        }
+        try {
+            int year = app.getCurrentDay().getDate().getYear();
+            int from = parseYear(req.getParameter("from"), year - 1);
+            int to = parseYear(req.getParameter("to"), year + 2);
+            if (!isValidRange(from, to)) {
+                resp.sendError(HttpServletResponse.SC_BAD_REQUEST,
+                        "The range must be of 1 to " + MAX_YEARS + " years");
+                return;
+            }
+            if (to < app.getMonthIndex().getFirstDate().getYear() ||
+                    from > app.getMonthIndex().getLastDate().getYear()) {
+                resp.sendError(HttpServletResponse.SC_NOT_FOUND,
+                        "The range is out of the calendar");
+                return;
+            }
+            send(req, resp, feeds.getFeed(locale, from, to));
+        } catch (NumberFormatException ex) {
+            resp.sendError(HttpServletResponse.SC_BAD_REQUEST,
+                    "Invalid year: " + ex.getMessage());
+        } catch (CalendarUnavailableException ex) {
+            resp.setHeader("Retry-After", RETRY_AFTER);
+            resp.sendError(HttpServletResponse.SC_SERVICE_UNAVAILABLE,
+                    ex.getMessage());
+        }
+    }
+}
@@ -0,0 +1,305 @@
+/*
+ *     plethonian-webapp - Plethonian calendar Web Application
+ *
+ *     Copyright (C) 2020 Marco Confalonieri <marco at marcoconfalonieri.it>
+ *
+ *     This program is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU Affero General Public License as published
+ *     by the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     This program is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU Affero General Public License for more details.
+ *
+ *     You should have received a copy of the GNU Affero General Public License
+ *     along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package it.marcoconfalonieri.plethonian.webapp.ics;
+
+import it.marcoconfalonieri.plethonian.calendar.MonthlyFestivity;
+import it.marcoconfalonieri.plethonian.calendar.PlethonianMonthName;
+import it.marcoconfalonieri.plethonian.calendar.snapshot.DayTable;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.ResourceBundle;
+
+/**
+ * Writer of an iCalendar feed with the new months, the monthly festivities and
+ * the days of the defunct of the Plethonian calendar, as all-day events.
+ * The days are read straight from the table of the calendar and the
+ * localized lines are prepared once, so that writing an event only copies
+ * characters. The summaries are the {@code holiday.*} strings shown by the
+ * page, and every event is stamped with a time given by the caller, which
+ * depends only on the data, so that the same data always gives the same
+ * feed.
+ */
+public final class IcsWriter {
+    /**
+     * Product identifier.
+     */
+    public static final String PRODID =
+            "-//Marco Confalonieri//Plethonian Calendar//EN";
+    /**
+     * Domain of the unique identifiers of the events.
+     */
+    public static final String UID_DOMAIN = "plethonian.marcoconfalonieri.it";
+    /**
+     * Line terminator.
+     */
+    private static final String CRLF = "\r\n";
+    /**
+     * Maximum length of a line in octets, excluding the terminator.
+     */
+    private static final int MAX_LINE_OCTETS = 75;
+    /**
+     * Format of the time stamps.
+     */
+    private static final DateTimeFormatter STAMP_FORMAT =
+            DateTimeFormatter.ofPattern("uuuuMMdd'T'HHmmss'Z'")
+                    .withZone(ZoneOffset.UTC);
+    /**
+     * Festivities by day of the month.
+     */
+    private static final MonthlyFestivity[] FESTIVITIES =
+            new MonthlyFestivity[31];
+
+    static {
+        for (MonthlyFestivity f : MonthlyFestivity.values()) {
+            FESTIVITIES[f.getDay()] = f;
+        }
+    }
+
+    /**
+     * Destination of the feed.
+     */
+    private final Writer out;
+    /**
+     * Name of the calendar.
+     */
+    private final String name;
+    /**
+     * Language of the feed, used in the unique identifiers.
+     */
+    private final String lang;
+    /**
+     * Summary lines of the new months, by month number.
+     */
+    private final String[] monthLines = new String[14];
+    /**
+     * Summary lines of the festivities, by day of the month.
+     */
+    private final String[] festivityLines = new String[31];
+    /**
+     * Description line of the first day of the month.
+     */
+    private final String newMonthLine;
+    /**
+     * Summary line of the day of the defunct.
+     */
+    private final String defunctLine;
+    /**
+     * Time stamp line of the events.
+     */
+    private final String stampLine;
+    /**
+     * Buffer for the dates.
+     */
+    private final char[] date = new char[8];
+
+    /**
+     * Constructor.
+     *
+     * @param out the destination of the feed
+     * @param msg the resource bundle of the locale
+     * @param lang the language of the feed
+     * @param stamp the time stamp of the events
+     */
+    public IcsWriter(Writer out, ResourceBundle msg, String lang,
+            Instant stamp) {
+        this.out = out;
+        this.name = line("X-WR-CALNAME", msg.getString("title.head"));
+        this.lang = lang;
+        for (PlethonianMonthName m : PlethonianMonthName.values()) {
+            monthLines[m.toInt()] = line("SUMMARY",
+                    msg.getString("months." + m));
+        }
+        for (MonthlyFestivity f : MonthlyFestivity.values()) {
+            festivityLines[f.getDay()] = line("SUMMARY",
+                    msg.getString("holiday.day." + f.getDay()));
+        }
+        this.newMonthLine = line("DESCRIPTION",
+                msg.getString("holiday.day." + FESTIVITIES[1].getDay()));
+        this.defunctLine = line("SUMMARY", msg.getString("holiday.defunct"));
+        this.stampLine = "DTSTAMP:" + STAMP_FORMAT.format(stamp) + CRLF;
+    }
+
+    /**
+     * Escapes a text value.
+     *
+     * @param text the text
+     *
+     * @return the escaped text
+     */
+    static String escape(String text) {
+        StringBuilder sb = new StringBuilder(text.length() + 8);
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            switch (c) {
+                case '\\':
+                case ';':
+                case ',':
+                    sb.append('\\').append(c);
+                    break;
+                case '\n':
+                    sb.append("\\n");
+                    break;
+                default:
+                    sb.append(c);
+            }
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Folds a line so that no line is longer than 75 octets, without breaking
+     * the UTF-8 sequences.
+     *
+     * @param line the line, without terminator
+     *
+     * @return the folded line, with terminator
+     */
+    static String fold(String line) {
+        StringBuilder sb = new StringBuilder(line.length() + 8);
+        int octets = 0;
+        for (int i = 0; i < line.length(); i = line.offsetByCodePoints(i, 1)) {
+            int cp = line.codePointAt(i);
+            int n = new String(Character.toChars(cp))
+                    .getBytes(StandardCharsets.UTF_8).length;
+            if (octets + n > MAX_LINE_OCTETS) {
+                sb.append(CRLF).append(' ');
+                octets = 1;
+            }
+            sb.appendCodePoint(cp);
+            octets += n;
+        }
+        return sb.append(CRLF).toString();
+    }
+
+    /**
+     * Prepares a property line with a text value.
+     *
+     * @param property the name of the property
+     * @param text the text
+     *
+     * @return the folded line, with terminator
+     */
+    private static String line(String property, String text) {
+        return fold(property + ':' + escape(text));
+    }
+
+    /**
+     * Writes a date in the basic format.
+     *
+     * @param d the date
+     *
+     * @throws IOException in case of errors writing the feed
+     */
+    private void writeDate(LocalDate d) throws IOException {
+        int y = d.getYear();
+        int md = d.getMonthValue() * 100 + d.getDayOfMonth();
+        for (int i = 3; i >= 0; i--) {
+            date[i] = (char) ('0' + y % 10);
+            y /= 10;
+        }
+        for (int i = 7; i >= 4; i--) {
+            date[i] = (char) ('0' + md % 10);
+            md /= 10;
+        }
+        out.write(date);
+    }
+
+    /**
+     * Writes an all-day event.
+     *
+     * @param epochDay the epoch day of the event
+     * @param kind the kind of event, used in the unique identifier
+     * @param summary the summary line
+     * @param description the description line or null
+     *
+     * @throws IOException in case of errors writing the feed
+     */
+    private void writeEvent(long epochDay, String kind, String summary,
+            String description) throws IOException {
+        LocalDate day = LocalDate.ofEpochDay(epochDay);
+        out.write("BEGIN:VEVENT" + CRLF + "UID:");
+        writeDate(day);
+        out.write('-');
+        out.write(kind);
+        out.write('-');
+        out.write(lang);
+        out.write('@');
+        out.write(UID_DOMAIN);
+        out.write(CRLF);
+        out.write(stampLine);
+        out.write("DTSTART;VALUE=DATE:");
+        writeDate(day);
+        out.write(CRLF + "DTEND;VALUE=DATE:");
+        writeDate(day.plusDays(1));
+        out.write(CRLF);
+        out.write(summary);
+        if (description != null) {
+            out.write(description);
+        }
+        out.write("TRANSP:TRANSPARENT" + CRLF + "END:VEVENT" + CRLF);
+    }
+
+    /**
+     * Writes the feed with the events of a range of days. The days out of
+     * the table are skipped.
+     *
+     * @param table the table of the days
+     * @param from the first day
+     * @param to the last day, included
+     *
+     * @throws IOException in case of errors writing the feed
+     */
+    public void write(DayTable table, LocalDate from, LocalDate to)
+            throws IOException {
+        out.write("BEGIN:VCALENDAR" + CRLF
+                + "VERSION:2.0" + CRLF
+                + "PRODID:" + PRODID + CRLF
+                + "CALSCALE:GREGORIAN" + CRLF
+                + "METHOD:PUBLISH" + CRLF);
+        out.write(name);
+        out.write("REFRESH-INTERVAL;VALUE=DURATION:P1D" + CRLF
+                + "X-PUBLISHED-TTL:P1D" + CRLF);
+        long last = to.toEpochDay();
+        for (long epochDay = from.toEpochDay(); epochDay <= last;
+                epochDay++) {
+            int rec = table.get(epochDay);
+            if (rec == 0) {
+                continue;
+            }
+            int dayOfMonth = DayTable.dayOfMonth(rec);
+            if (dayOfMonth == 1) {
+                writeEvent(epochDay, "month", monthLines[DayTable.month(rec)],
+                        newMonthLine);
+            } else if (FESTIVITIES[dayOfMonth] != null) {
+                writeEvent(epochDay, "festivity", festivityLines[dayOfMonth],
+                        null);
+            }
+            if (DayTable.isDefunctDay(rec)) {
+                writeEvent(epochDay, "defunct", defunctLine, null);
+            }
+        }
+        out.write("END:VCALENDAR" + CRLF);
+    }
+}
@@ -0,0 +1,56 @@
+/*
+ *     plethonian-webapp - Plethonian calendar Web Application
+ *
+ *     Copyright (C) 2020 Marco Confalonieri <marco at marcoconfalonieri.it>
+ *
+ *     This program is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU Affero General Public License as published
+ *     by the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     This program is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU Affero General Public License for more details.
+ *
+ *     You should have received a copy of the GNU Affero General Public License
+ *     along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package it.marcoconfalonieri.plethonian.webapp.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Enabled;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Flight recorder event for a lookup in an application cache. The duration
+ * of a miss includes the creation of the entry.
+ */
+@Name("it.marcoconfalonieri.plethonian.CacheAccess")
+@Label("Cache Access")
+@Description("A hit or a miss in an application cache")
+@Category({"Plethonian", "Cache"})
+@Enabled(false)
+@StackTrace(false)
+public class CacheAccessEvent extends Event {
+    /**
+     * Name of the cache.
+     */
+    @Label("Cache")
+    public String cache;
+    /**
+     * The key looked up.
+     */
+    @Label("Key")
+    public String key;
+    /**
+     * Whether the entry was found.
+     */
+    @Label("Hit")
+    public boolean hit;
+}
@@ -0,0 +1,71 @@
+/*
+ *     plethonian-webapp - Plethonian calendar Web Application
+ *
+ *     Copyright (C) 2020 Marco Confalonieri <marco at marcoconfalonieri.it>
+ *
+ *     This program is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU Affero General Public License as published
+ *     by the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     This program is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU Affero General Public License for more details.
+ *
+ *     You should have received a copy of the GNU Affero General Public License
+ *     along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package it.marcoconfalonieri.plethonian.webapp.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Enabled;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Timespan;
+
+/**
+ * Flight recorder event for a construction phase of the calendar. The phase
+ * is measured by the calendar itself, so the event is committed after the
+ * construction with the measured values.
+ */
+@Name("it.marcoconfalonieri.plethonian.CalendarConstruction")
+@Label("Calendar Construction Phase")
+@Description("A phase of the construction of the Plethonian calendar")
+@Category({"Plethonian", "Calendar"})
+@Enabled(false)
+@StackTrace(false)
+public class CalendarConstructionEvent extends Event {
+    /**
+     * The phase.
+     */
+    @Label("Phase")
+    public String phase;
+    /**
+     * Duration of the phase.
+     */
+    @Label("Phase Duration")
+    @Timespan(Timespan.NANOSECONDS)
+    public long phaseDuration;
+    /**
+     * Rows or objects produced by the phase.
+     */
+    @Label("Rows")
+    public int rows;
+    /**
+     * Bytes allocated by the phase, or -1 if not measured.
+     */
+    @Label("Allocated")
+    @DataAmount(DataAmount.BYTES)
+    public long allocated;
+    /**
+     * Version of the data.
+     */
+    @Label("Data Version")
+    public String dataVersion;
+}
@@ -0,0 +1,53 @@
+/*
+ *     plethonian-webapp - Plethonian calendar Web Application
+ *
+ *     Copyright (C) 2020 Marco Confalonieri <marco at marcoconfalonieri.it>
+ *
+ *     This program is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU Affero General Public License as published
+ *     by the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     This program is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU Affero General Public License for more details.
+ *
+ *     You should have received a copy of the GNU Affero General Public License
+ *     along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package it.marcoconfalonieri.plethonian.webapp.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Enabled;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Threshold;
+
+/**
+ * Flight recorder event for a lookup in the calendar. Only the lookups
+ * slower than the threshold are recorded.
+ */
+@Name("it.marcoconfalonieri.plethonian.CalendarLookup")
+@Label("Calendar Lookup")
+@Description("A lookup of a year, month or day in the Plethonian calendar")
+@Category({"Plethonian", "Calendar"})
+@Enabled(false)
+@Threshold("100 us")
+@StackTrace(false)
+public class CalendarLookupEvent extends Event {
+    /**
+     * Kind of lookup: year, month or day.
+     */
+    @Label("Kind")
+    public String kind;
+    /**
+     * The Gregorian date looked up.
+     */
+    @Label("Date")
+    public String date;
+}
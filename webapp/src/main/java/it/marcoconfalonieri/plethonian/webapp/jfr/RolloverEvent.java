@@ -0,0 +1,51 @@
+/*
+ *     plethonian-webapp - Plethonian calendar Web Application
+ *
+ *     Copyright (C) 2020 Marco Confalonieri <marco at marcoconfalonieri.it>
+ *
+ *     This program is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU Affero General Public License as published
+ *     by the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     This program is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU Affero General Public License for more details.
+ *
+ *     You should have received a copy of the GNU Affero General Public License
+ *     along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package it.marcoconfalonieri.plethonian.webapp.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Enabled;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Flight recorder event for a reload of the current day data in the
+ * application bean.
+ */
+@Name("it.marcoconfalonieri.plethonian.Rollover")
+@Label("Day Rollover")
+@Description("A reload of the current day, month and year")
+@Category({"Plethonian", "Application"})
+@Enabled(false)
+@StackTrace(false)
+public class RolloverEvent extends Event {
+    /**
+     * Reason of the reload: initial, day or reload.
+     */
+    @Label("Reason")
+    public String reason;
+    /**
+     * The new current date.
+     */
+    @Label("Date")
+    public String date;
+}
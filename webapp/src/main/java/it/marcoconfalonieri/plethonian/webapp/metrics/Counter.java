@@ -0,0 +1,58 @@
+/*
+ *     plethonian-webapp - Plethonian calendar Web Application
+ *
+ *     Copyright (C) 2020 Marco Confalonieri <marco at marcoconfalonieri.it>
+ *
+ *     This program is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU Affero General Public License as published
+ *     by the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     This program is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU Affero General Public License for more details.
+ *
+ *     You should have received a copy of the GNU Affero General Public License
+ *     along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package it.marcoconfalonieri.plethonian.webapp.metrics;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Monotonic counter. The increments are striped across the threads, so that
+ * concurrent requests do not contend on a single memory location.
+ */
+public final class Counter {
+    /**
+     * The striped count.
+     */
+    private final LongAdder count = new LongAdder();
+
+    /**
+     * Increments the counter by one.
+     */
+    public void inc() {
+        count.increment();
+    }
+
+    /**
+     * Increments the counter.
+     *
+     * @param n the increment, not negative
+     */
+    public void add(long n) {
+        count.add(n);
+    }
+
+    /**
+     * Returns the current value.
+     *
+     * @return the count
+     */
+    public long get() {
+        return count.sum();
+    }
+}
@@ -0,0 +1,120 @@
+/*
+ *     plethonian-webapp - Plethonian calendar Web Application
+ *
+ *     Copyright (C) 2020 Marco Confalonieri <marco at marcoconfalonieri.it>
+ *
+ *     This program is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU Affero General Public License as published
+ *     by the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     This program is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU Affero General Public License for more details.
+ *
+ *     You should have received a copy of the GNU Affero General Public License
+ *     along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package it.marcoconfalonieri.plethonian.webapp.metrics;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Histogram of durations with fixed buckets. Each bucket is a striped
+ * counter, so recording a value costs a short scan of the bounds and one
+ * uncontended increment.
+ */
+public final class Histogram {
+    /**
+     * Bucket bounds for calendar lookups, in nanoseconds.
+     */
+    public static final long[] LOOKUP_BUCKETS = {
+        1_000, 2_500, 5_000, 10_000, 25_000, 50_000, 100_000, 250_000,
+        500_000, 1_000_000, 5_000_000
+    };
+    /**
+     * Bucket bounds for page renders and request phases, in nanoseconds.
+     */
+    public static final long[] RENDER_BUCKETS = {
+        500_000, 1_000_000, 2_500_000, 5_000_000, 10_000_000, 25_000_000,
+        50_000_000, 100_000_000, 250_000_000, 500_000_000, 1_000_000_000
+    };
+
+    /**
+     * Upper bounds of the buckets, in nanoseconds and ascending order.
+     */
+    private final long[] bounds;
+    /**
+     * Counts per bucket, not cumulative. The last one counts the values
+     * above every bound.
+     */
+    private final LongAdder[] buckets;
+    /**
+     * Sum of the recorded values, in nanoseconds.
+     */
+    private final LongAdder sum = new LongAdder();
+
+    /**
+     * Constructor.
+     *
+     * @param bounds the upper bounds of the buckets, in nanoseconds and
+     *     ascending order
+     */
+    public Histogram(long[] bounds) {
+        this.bounds = bounds.clone();
+        buckets = new LongAdder[bounds.length + 1];
+        for (int i = 0; i < buckets.length; i++) {
+            buckets[i] = new LongAdder();
+        }
+    }
+
+    /**
+     * Records a duration.
+     *
+     * @param nanos the duration in nanoseconds
+     */
+    public void observe(long nanos) {
+        int i = 0;
+        while (i < bounds.length && nanos > bounds[i]) {
+            i++;
+        }
+        buckets[i].increment();
+        sum.add(nanos);
+    }
+
+    /**
+     * Returns the upper bounds of the buckets.
+     *
+     * @return the bounds in nanoseconds
+     */
+    public long[] getBounds() {
+        return bounds.clone();
+    }
+
+    /**
+     * Returns the cumulative counts of the buckets, as in the Prometheus
+     * format. The last element is the total count.
+     *
+     * @return the cumulative counts
+     */
+    public long[] getCumulativeCounts() {
+        long[] counts = new long[buckets.length];
+        long total = 0;
+        for (int i = 0; i < buckets.length; i++) {
+            total += buckets[i].sum();
+            counts[i] = total;
+        }
+        return counts;
+    }
+
+    /**
+     * Returns the sum of the recorded values.
+     *
+     * @return the sum in nanoseconds
+     */
+    public long getSum() {
+        return sum.sum();
+    }
+}
@@ -0,0 +1,235 @@
+/*
+ *     plethonian-webapp - Plethonian calendar Web Application
+ *
+ *     Copyright (C) 2020 Marco Confalonieri <marco at marcoconfalonieri.it>
+ *
+ *     This program is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU Affero General Public License as published
+ *     by the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     This program is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU Affero General Public License for more details.
+ *
+ *     You should have received a copy of the GNU Affero General Public License
+ *     along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package it.marcoconfalonieri.plethonian.webapp.metrics;
+
+import it.marcoconfalonieri.plethonian.calendar.PlethonianCalendar;
+import it.marcoconfalonieri.plethonian.calendar.PlethonianDay;
+import it.marcoconfalonieri.plethonian.calendar.PlethonianMonth;
+import it.marcoconfalonieri.plethonian.calendar.PlethonianYear;
+import it.marcoconfalonieri.plethonian.webapp.jfr.CalendarLookupEvent;
+import java.time.LocalDate;
+import java.util.concurrent.ThreadLocalRandom;
+import jdk.jfr.FlightRecorder;
+
+/**
+ * Calendar decorator counting the lookups and recording their latency. Every
+ * lookup is counted, but only one in {@value #SAMPLE_RATE} is timed, so that
+ * the clock reads and the histogram update do not weigh on every lookup: the
+ * latency histograms are a sample of the lookups. The slow lookups are also
+ * recorded as flight recorder events, when enabled: once the flight
+ * recorder has been started, every lookup is timed, so that no slow one is
+ * missed.
+ */
+public class InstrumentedCalendar implements PlethonianCalendar {
+    /**
+     * Name of the lookup latency histogram.
+     */
+    public static final String LOOKUP_SECONDS =
+            "plethonian_calendar_lookup_seconds";
+    /**
+     * Name of the lookup counter.
+     */
+    public static final String LOOKUPS = "plethonian_calendar_lookups_total";
+    /**
+     * Name of the failed lookup counter.
+     */
+    public static final String LOOKUP_ERRORS =
+            "plethonian_calendar_lookup_errors_total";
+
+    /**
+     * One lookup in this number is timed, a power of two.
+     */
+    public static final int SAMPLE_RATE = 16;
+
+    /**
+     * Label of the lookup kind.
+     */
+    private static final String[] KIND = {"kind"};
+
+    /**
+     * The decorated calendar.
+     */
+    private final PlethonianCalendar delegate;
+    /**
+     * Latency of the year lookups.
+     */
+    private final Histogram yearLatency;
+    /**
+     * Latency of the month lookups.
+     */
+    private final Histogram monthLatency;
+    /**
+     * Latency of the day lookups.
+     */
+    private final Histogram dayLatency;
+    /**
+     * Year lookups.
+     */
+    private final Counter yearLookups;
+    /**
+     * Month lookups.
+     */
+    private final Counter monthLookups;
+    /**
+     * Day lookups.
+     */
+    private final Counter dayLookups;
+    /**
+     * Failed lookups.
+     */
+    private final Counter errors;
+
+    /**
+     * Constructor.
+     *
+     * @param delegate the decorated calendar
+     * @param registry the metrics registry
+     */
+    public InstrumentedCalendar(PlethonianCalendar delegate,
+            MetricsRegistry registry) {
+        this.delegate = delegate;
+        String help = "Latency of the calendar lookups";
+        yearLatency = registry.histogram(LOOKUP_SECONDS, help,
+                Histogram.LOOKUP_BUCKETS, KIND, "year");
+        monthLatency = registry.histogram(LOOKUP_SECONDS, help,
+                Histogram.LOOKUP_BUCKETS, KIND, "month");
+        dayLatency = registry.histogram(LOOKUP_SECONDS, help,
+                Histogram.LOOKUP_BUCKETS, KIND, "day");
+        help = "Calendar lookups";
+        yearLookups = registry.counter(LOOKUPS, help, KIND, "year");
+        monthLookups = registry.counter(LOOKUPS, help, KIND, "month");
+        dayLookups = registry.counter(LOOKUPS, help, KIND, "day");
+        errors = registry.counter(LOOKUP_ERRORS,
+                "Calendar lookups of unsupported dates");
+    }
+
+    /**
+     * Getter for the decorated calendar.
+     *
+     * @return the decorated calendar
+     */
+    public PlethonianCalendar getDelegate() {
+        return delegate;
+    }
+
+    /**
+     * Decides whether a lookup is timed.
+     *
+     * @return true if the flight recorder has been started or the lookup is
+     *     sampled
+     */
+    private static boolean isTimed() {
+        return FlightRecorder.isInitialized() || (ThreadLocalRandom.current()
+                .nextInt() & (SAMPLE_RATE - 1)) == 0;
+    }
+
+    /**
+     * Commits a lookup event if it is enabled and above its threshold.
+     *
+     * @param event the event
+     * @param kind the kind of lookup
+     * @param date the date looked up
+     */
+    private static void commit(CalendarLookupEvent event, String kind,
+            LocalDate date) {
+        event.end();
+        if (event.shouldCommit()) {
+            event.kind = kind;
+            event.date = date.toString();
+            event.commit();
+        }
+    }
+
+    @Override
+    public PlethonianYear getYear(LocalDate date) {
+        yearLookups.inc();
+        try {
+            if (!isTimed()) {
+                return delegate.getYear(date);
+            }
+            CalendarLookupEvent event = new CalendarLookupEvent();
+            event.begin();
+            long start = System.nanoTime();
+            try {
+                return delegate.getYear(date);
+            } finally {
+                yearLatency.observe(System.nanoTime() - start);
+                commit(event, "year", date);
+            }
+        } catch (IllegalArgumentException ex) {
+            errors.inc();
+            throw ex;
+        }
+    }
+
+    @Override
+    public PlethonianMonth getMonth(LocalDate date) {
+        monthLookups.inc();
+        try {
+            if (!isTimed()) {
+                return delegate.getMonth(date);
+            }
+            CalendarLookupEvent event = new CalendarLookupEvent();
+            event.begin();
+            long start = System.nanoTime();
+            try {
+                return delegate.getMonth(date);
+            } finally {
+                monthLatency.observe(System.nanoTime() - start);
+                commit(event, "month", date);
+            }
+        } catch (IllegalArgumentException ex) {
+            errors.inc();
+            throw ex;
+        }
+    }
+
+    @Override
+    public PlethonianDay getDay(LocalDate date) {
+        dayLookups.inc();
+        try {
+            if (!isTimed()) {
+                return delegate.getDay(date);
+            }
+            CalendarLookupEvent event = new CalendarLookupEvent();
+            event.begin();
+            long start = System.nanoTime();
+            try {
+                return delegate.getDay(date);
+            } finally {
+                dayLatency.observe(System.nanoTime() - start);
+                commit(event, "day", date);
+            }
+        } catch (IllegalArgumentException ex) {
+            errors.inc();
+            throw ex;
+        }
+    }
+
+    @Override
+    public LocalDate getFirstDate() {
+        return delegate.getFirstDate();
+    }
+
+    @Override
+    public LocalDate getLastDate() {
+        return delegate.getLastDate();
+    }
+}
@@ -0,0 +1,273 @@
+/*
+ *     plethonian-webapp - Plethonian calendar Web Application
+ *
+ *     Copyright (C) 2020 Marco Confalonieri <marco at marcoconfalonieri.it>
+ *
+ *     This program is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU Affero General Public License as published
+ *     by the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     This program is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU Affero General Public License for more details.
+ *
+ *     You should have received a copy of the GNU Affero General Public License
+ *     along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package it.marcoconfalonieri.plethonian.webapp.metrics;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import javax.enterprise.context.ApplicationScoped;
+
+/**
+ * Application-scoped registry of the metrics. The metrics are grouped in
+ * families by name, and each family holds one metric per combination of
+ * label values.
+ * <p>
+ * The instrumented code should keep a reference to the metrics it updates,
+ * so that the registry is only looked up when the labels depend on the
+ * request.
+ */
+@ApplicationScoped
+public class MetricsRegistry {
+    /**
+     * No labels.
+     */
+    private static final String[] NO_LABELS = new String[0];
+
+    /**
+     * Type of a metric family.
+     */
+    private enum Type {
+        COUNTER, HISTOGRAM
+    }
+
+    /**
+     * Family of metrics with the same name. The metrics are keyed by their
+     * labels, already formatted.
+     */
+    private static final class Family {
+        private final String name;
+        private final String help;
+        private final Type type;
+        private final String[] labelNames;
+        private final long[] bounds;
+        private final ConcurrentMap<String, Object> metrics =
+                new ConcurrentSkipListMap<>();
+
+        Family(String name, String help, Type type, String[] labelNames,
+                long[] bounds) {
+            this.name = name;
+            this.help = help;
+            this.type = type;
+            this.labelNames = labelNames.clone();
+            this.bounds = bounds;
+        }
+
+        Object get(String[] labelValues) {
+            if (labelValues.length != labelNames.length) {
+                throw new IllegalArgumentException("Metric " + name +
+                        " requires the labels " +
+                        Arrays.toString(labelNames));
+            }
+            StringBuilder sb = new StringBuilder();
+            for (int i = 0; i < labelNames.length; i++) {
+                if (i > 0) {
+                    sb.append(',');
+                }
+                sb.append(labelNames[i]).append("=\"")
+                        .append(escape(labelValues[i])).append('"');
+            }
+            return metrics.computeIfAbsent(sb.toString(), k ->
+                    (type == Type.COUNTER) ? new Counter() :
+                            new Histogram(bounds));
+        }
+    }
+
+    /**
+     * The families by name.
+     */
+    private final ConcurrentMap<String, Family> families =
+            new ConcurrentSkipListMap<>();
+
+    /**
+     * Escapes a label value.
+     *
+     * @param value the value
+     *
+     * @return the escaped value
+     */
+    private static String escape(String value) {
+        return value.replace("\\", "\\\\").replace("\"", "\\\"")
+                .replace("\n", "\\n");
+    }
+
+    /**
+     * Returns a family, creating it if needed.
+     *
+     * @param name the name of the family
+     * @param help the description
+     * @param type the type
+     * @param labelNames the names of the labels
+     * @param bounds the histogram bounds, or null
+     *
+     * @return the family
+     *
+     * @throws IllegalArgumentException if a family with the same name but a
+     *     different type or labels exists
+     */
+    private Family family(String name, String help, Type type,
+            String[] labelNames, long[] bounds) {
+        Family f = families.computeIfAbsent(name,
+                n -> new Family(n, help, type, labelNames, bounds));
+        if (f.type != type || !Arrays.equals(f.labelNames, labelNames)) {
+            throw new IllegalArgumentException("Metric " + name +
+                    " already registered with a different type or labels");
+        }
+        return f;
+    }
+
+    /**
+     * Returns a counter without labels.
+     *
+     * @param name the name of the metric
+     * @param help the description
+     *
+     * @return the counter
+     */
+    public Counter counter(String name, String help) {
+        return counter(name, help, NO_LABELS);
+    }
+
+    /**
+     * Returns a counter with labels.
+     *
+     * @param name the name of the metric
+     * @param help the description
+     * @param labelNames the names of the labels
+     * @param labelValues the values of the labels, in the same order
+     *
+     * @return the counter
+     */
+    public Counter counter(String name, String help, String[] labelNames,
+            String... labelValues) {
+        return (Counter) family(name, help, Type.COUNTER, labelNames, null)
+                .get(labelValues);
+    }
+
+    /**
+     * Returns a histogram without labels.
+     *
+     * @param name the name of the metric
+     * @param help the description
+     * @param bounds the upper bounds of the buckets in nanoseconds
+     *
+     * @return the histogram
+     */
+    public Histogram histogram(String name, String help, long[] bounds) {
+        return histogram(name, help, bounds, NO_LABELS);
+    }
+
+    /**
+     * Returns a histogram with labels.
+     *
+     * @param name the name of the metric
+     * @param help the description
+     * @param bounds the upper bounds of the buckets in nanoseconds
+     * @param labelNames the names of the labels
+     * @param labelValues the values of the labels, in the same order
+     *
+     * @return the histogram
+     */
+    public Histogram histogram(String name, String help, long[] bounds,
+            String[] labelNames, String... labelValues) {
+        return (Histogram) family(name, help, Type.HISTOGRAM, labelNames,
+                bounds).get(labelValues);
+    }
+
+    /**
+     * Writes a sample.
+     *
+     * @param out the writer
+     * @param name the name of the sample
+     * @param labels the formatted labels
+     * @param le the histogram bucket bound, or null
+     * @param value the value
+     *
+     * @throws IOException in case of errors writing
+     */
+    private static void writeSample(Writer out, String name, String labels,
+            String le, String value) throws IOException {
+        out.write(name);
+        if (!labels.isEmpty() || le != null) {
+            out.write('{');
+            out.write(labels);
+            if (le != null) {
+                if (!labels.isEmpty()) {
+                    out.write(',');
+                }
+                out.write("le=\"");
+                out.write(le);
+                out.write('"');
+            }
+            out.write('}');
+        }
+        out.write(' ');
+        out.write(value);
+        out.write('\n');
+    }
+
+    /**
+     * Formats a duration in seconds.
+     *
+     * @param nanos the duration in nanoseconds
+     *
+     * @return the duration in seconds
+     */
+    private static String seconds(long nanos) {
+        return Double.toString(nanos / 1e9);
+    }
+
+    /**
+     * Writes all the metrics in the Prometheus text format.
+     *
+     * @param out the writer
+     *
+     * @throws IOException in case of errors writing
+     */
+    public void writePrometheus(Writer out) throws IOException {
+        for (Family f : families.values()) {
+            out.write("# HELP " + f.name + " " + f.help + "\n");
+            out.write("# TYPE " + f.name + " " +
+                    f.type.name().toLowerCase(Locale.ROOT) + "\n");
+            for (Map.Entry<String, Object> e : f.metrics.entrySet()) {
+                String labels = e.getKey();
+                if (f.type == Type.COUNTER) {
+                    writeSample(out, f.name, labels, null,
+                            Long.toString(((Counter) e.getValue()).get()));
+                    continue;
+                }
+                Histogram h = (Histogram) e.getValue();
+                long[] counts = h.getCumulativeCounts();
+                for (int i = 0; i < counts.length; i++) {
+                    writeSample(out, f.name + "_bucket", labels,
+                            (i < f.bounds.length) ? seconds(f.bounds[i]) :
+                                    "+Inf", Long.toString(counts[i]));
+                }
+                writeSample(out, f.name + "_sum", labels, null,
+                        seconds(h.getSum()));
+                writeSample(out, f.name + "_count", labels, null,
+                        Long.toString(counts[counts.length - 1]));
+            }
+        }
+    }
+}
@@ -0,0 +1,299 @@
+/*
+ *     plethonian-webapp - Plethonian calendar Web Application
+ *
+ *     Copyright (C) 2020 Marco Confalonieri <marco at marcoconfalonieri.it>
+ *
+ *     This program is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU Affero General Public License as published
+ *     by the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     This program is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU Affero General Public License for more details.
+ *
+ *     You should have received a copy of the GNU Affero General Public License
+ *     along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package it.marcoconfalonieri.plethonian.webapp.metrics;
+
+import it.marcoconfalonieri.plethonian.webapp.servlet.SupportedLocales;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import javax.enterprise.inject.spi.CDI;
+import javax.faces.component.UIViewRoot;
+import javax.faces.context.ExternalContext;
+import javax.faces.context.FacesContext;
+import javax.faces.event.PhaseEvent;
+import javax.faces.event.PhaseId;
+import javax.faces.event.PhaseListener;
+
+/**
+ * Listener recording the duration of each JSF lifecycle phase, by phase,
+ * view and locale. The requests slower than a threshold are logged with
+ * the breakdown of their phases.
+ * <p>
+ * The views are labelled only if they are listed in the context parameter
+ * {@value #VIEWS_PARAM}, and the locales only if they are supported; the
+ * other ones are labelled {@value #OTHER}, so that the requests cannot open
+ * new series. The histogram of each combination is looked up once and then
+ * kept in an array.
+ * <p>
+ * The listener is enabled by the context parameter
+ * {@value #ENABLED_PARAM}. When it is disabled, each phase costs a single
+ * field read.
+ */
+public class PhaseTimingListener implements PhaseListener {
+    /**
+     * Serial version ID.
+     */
+    private static final long serialVersionUID = -4317712592075391126L;
+    /**
+     * Context parameter enabling the listener.
+     */
+    public static final String ENABLED_PARAM = "plethonian.phases.enabled";
+    /**
+     * Context parameter with the slow request threshold in milliseconds.
+     */
+    public static final String THRESHOLD_PARAM =
+            "plethonian.phases.threshold";
+    /**
+     * Context parameter with the comma-separated identifiers of the labelled
+     * views.
+     */
+    public static final String VIEWS_PARAM = "plethonian.phases.views";
+    /**
+     * Label of the views and locales that are not labelled by name.
+     */
+    public static final String OTHER = "other";
+    /**
+     * Name of the phase time histogram.
+     */
+    public static final String PHASE_SECONDS = "plethonian_jsf_phase_seconds";
+    /**
+     * Default slow request threshold in milliseconds.
+     */
+    private static final long DEFAULT_THRESHOLD = 250;
+    /**
+     * Default labelled views.
+     */
+    private static final String DEFAULT_VIEWS = "/index.xhtml";
+    /**
+     * Labels of the phase time histogram.
+     */
+    private static final String[] LABELS = {"phase", "view", "locale"};
+    /**
+     * Key of the per-request timings in the Faces context attributes.
+     */
+    private static final String TIMINGS =
+            PhaseTimingListener.class.getName() + ".timings";
+    /**
+     * Logger.
+     */
+    private static final Logger LOGGER =
+            Logger.getLogger(PhaseTimingListener.class.getName());
+
+    /**
+     * The metrics registry, looked up when the listener is configured, since
+     * JSF does not inject the phase listeners.
+     */
+    private transient volatile MetricsRegistry registry;
+    /**
+     * Whether the configuration has been read.
+     */
+    private volatile boolean configured;
+    /**
+     * Whether the listener is enabled.
+     */
+    private volatile boolean enabled;
+    /**
+     * Slow request threshold in nanoseconds.
+     */
+    private volatile long thresholdNanos;
+    /**
+     * Labelled views, followed by {@value #OTHER}.
+     */
+    private volatile String[] views;
+    /**
+     * Labelled languages, followed by {@value #OTHER}.
+     */
+    private volatile String[] languages;
+    /**
+     * Histograms by phase, view and locale, looked up on first use.
+     */
+    private volatile Histogram[][][] histograms;
+
+    /**
+     * Timings of a request.
+     */
+    private static final class Timings {
+        private final long[] start = new long[PhaseId.VALUES.size()];
+        private final long[] duration = new long[PhaseId.VALUES.size()];
+    }
+
+    /**
+     * Reads the configuration from the context parameters.
+     *
+     * @param ext the external context
+     */
+    private synchronized void configure(ExternalContext ext) {
+        if (configured) {
+            return;
+        }
+        boolean on = Boolean.parseBoolean(ext.getInitParameter(ENABLED_PARAM));
+        String param = ext.getInitParameter(THRESHOLD_PARAM);
+        long threshold = (param != null && !param.isBlank()) ?
+                Long.parseLong(param.strip()) : DEFAULT_THRESHOLD;
+        thresholdNanos = threshold * 1_000_000;
+        if (on) {
+            param = ext.getInitParameter(VIEWS_PARAM);
+            List<String> labels = new ArrayList<>();
+            for (String v : ((param != null && !param.isBlank()) ?
+                    param : DEFAULT_VIEWS).split(",")) {
+                if (!v.isBlank()) {
+                    labels.add(v.strip());
+                }
+            }
+            labels.add(OTHER);
+            views = labels.toArray(new String[0]);
+            labels.clear();
+            CDI<Object> cdi = CDI.current();
+            registry = cdi.select(MetricsRegistry.class).get();
+            for (Locale l : cdi.select(SupportedLocales.class).get()
+                    .getConfig().getSupportedLocales()) {
+                labels.add(l.getLanguage());
+            }
+            labels.add(OTHER);
+            languages = labels.toArray(new String[0]);
+            histograms = new Histogram[PhaseId.VALUES.size()][views.length]
+                    [languages.length];
+        }
+        enabled = on;
+        configured = true;
+    }
+
+    /**
+     * Returns the position of a label, or the one of {@value #OTHER} if the
+     * label is not listed.
+     *
+     * @param labels the labels, ending with {@value #OTHER}
+     * @param value the value, or null
+     *
+     * @return the position of the label
+     */
+    private static int indexOf(String[] labels, String value) {
+        int last = labels.length - 1;
+        for (int i = 0; i < last; i++) {
+            if (labels[i].equals(value)) {
+                return i;
+            }
+        }
+        return last;
+    }
+
+    /**
+     * Checks whether the listener is enabled, reading the configuration on
+     * the first call.
+     *
+     * @param context the Faces context
+     *
+     * @return true if the listener is enabled
+     */
+    private boolean isEnabled(FacesContext context) {
+        if (!configured) {
+            configure(context.getExternalContext());
+        }
+        return enabled;
+    }
+
+    @Override
+    public PhaseId getPhaseId() {
+        return PhaseId.ANY_PHASE;
+    }
+
+    @Override
+    public void beforePhase(PhaseEvent event) {
+        FacesContext context = event.getFacesContext();
+        if (!isEnabled(context)) {
+            return;
+        }
+        Map<Object, Object> attrs = context.getAttributes();
+        Timings timings = (Timings) attrs.get(TIMINGS);
+        if (timings == null) {
+            timings = new Timings();
+            attrs.put(TIMINGS, timings);
+        }
+        timings.start[event.getPhaseId().getOrdinal()] = System.nanoTime();
+    }
+
+    @Override
+    public void afterPhase(PhaseEvent event) {
+        FacesContext context = event.getFacesContext();
+        if (!isEnabled(context)) {
+            return;
+        }
+        Timings timings = (Timings) context.getAttributes().get(TIMINGS);
+        if (timings == null) {
+            return;
+        }
+        PhaseId phase = event.getPhaseId();
+        int ordinal = phase.getOrdinal();
+        long nanos = System.nanoTime() - timings.start[ordinal];
+        timings.duration[ordinal] = nanos;
+
+        UIViewRoot root = context.getViewRoot();
+        String[] v = views;
+        String[] l = languages;
+        int view = indexOf(v, (root != null) ? root.getViewId() : null);
+        int locale = indexOf(l, (root != null && root.getLocale() != null) ?
+                root.getLocale().getLanguage() : null);
+        Histogram[] byLocale = histograms[ordinal][view];
+        Histogram histogram = byLocale[locale];
+        if (histogram == null) {
+            // The registry returns the same histogram to racing threads.
+            histogram = registry.histogram(PHASE_SECONDS,
+                    "Duration of the JSF phases", Histogram.RENDER_BUCKETS,
+                    LABELS, phase.getName(), v[view], l[locale]);
+            byLocale[locale] = histogram;
+        }
+        histogram.observe(nanos);
+
+        if (phase == PhaseId.RENDER_RESPONSE || context.getResponseComplete()) {
+            logIfSlow(timings, (root != null) ? root.getViewId() : null,
+                    l[locale]);
+        }
+    }
+
+    /**
+     * Logs the breakdown of a request if it is slower than the threshold.
+     *
+     * @param timings the timings of the request
+     * @param view the view identifier
+     * @param locale the language of the view
+     */
+    private void logIfSlow(Timings timings, String view, String locale) {
+        long total = 0;
+        for (long d : timings.duration) {
+            total += d;
+        }
+        if (total < thresholdNanos || !LOGGER.isLoggable(Level.WARNING)) {
+            return;
+        }
+        StringBuilder sb = new StringBuilder(String.format(
+                "Slow request %s [%s]: %.1f ms", view, locale, total / 1e6));
+        for (PhaseId phase : PhaseId.VALUES) {
+            long d = timings.duration[phase.getOrdinal()];
+            if (d > 0) {
+                sb.append(String.format(", %s %.1f ms", phase.getName(),
+                        d / 1e6));
+            }
+        }
+        LOGGER.warning(sb.toString());
+    }
+}
@@ -0,0 +1,116 @@
+/*
+ *     plethonian-webapp - Plethonian calendar Web Application
+ *
+ *     Copyright (C) 2020 Marco Confalonieri <marco at marcoconfalonieri.it>
+ *
+ *     This program is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU Affero General Public License as published
+ *     by the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     This program is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU Affero General Public License for more details.
+ *
+ *     You should have received a copy of the GNU Affero General Public License
+ *     along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package it.marcoconfalonieri.plethonian.webapp.metrics;
+
+import it.marcoconfalonieri.plethonian.webapp.jfr.PageRenderEvent;
+import it.marcoconfalonieri.plethonian.webapp.servlet.SupportedLocales;
+import java.io.IOException;
+import java.util.Locale;
+import javax.inject.Inject;
+import javax.servlet.Filter;
+import javax.servlet.FilterChain;
+import javax.servlet.FilterConfig;
+import javax.servlet.ServletException;
+import javax.servlet.ServletRequest;
+import javax.servlet.ServletResponse;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+/**
+ * Filter recording the render time of the pages, by page and locale, and
+ * the page render flight recorder events when they are enabled. The locale
+ * label is clamped to the supported locales.
+ */
+public class RenderTimingFilter implements Filter {
+    /**
+     * Name of the render time histogram.
+     */
+    public static final String RENDER_SECONDS =
+            "plethonian_page_render_seconds";
+    /**
+     * Request attribute where the page stores the locale it is rendered in.
+     */
+    public static final String LOCALE_ATTRIBUTE =
+            RenderTimingFilter.class.getName() + ".locale";
+    /**
+     * Labels of the render time histogram.
+     */
+    private static final String[] LABELS = {"page", "locale"};
+
+    /**
+     * The metrics registry.
+     */
+    @Inject
+    private MetricsRegistry registry;
+    /**
+     * Supported locales.
+     */
+    @Inject
+    private SupportedLocales locales;
+
+    @Override
+    public void init(FilterConfig filterConfig) throws ServletException {
+        // Nothing to initialize
+    }
+
+    /**
+     * Returns the page label of a request.
+     *
+     * @param req the request
+     *
+     * @return "jsf" for the Faces pages, "index" for the fast path
+     */
+    private static String page(HttpServletRequest req) {
+        return "/faces".equals(req.getServletPath()) ? "jsf" : "index";
+    }
+
+    @Override
+    public void doFilter(ServletRequest request, ServletResponse response,
+            FilterChain chain) throws IOException, ServletException {
+        PageRenderEvent event = new PageRenderEvent();
+        event.begin();
+        long start = System.nanoTime();
+        try {
+            chain.doFilter(request, response);
+        } finally {
+            long nanos = System.nanoTime() - start;
+            Object attr = request.getAttribute(LOCALE_ATTRIBUTE);
+            Locale locale = locales.clamp((attr instanceof Locale) ?
+                    (Locale) attr : response.getLocale());
+            HttpServletRequest req = (HttpServletRequest) request;
+            registry.histogram(RENDER_SECONDS, "Render time of the pages",
+                    Histogram.RENDER_BUCKETS, LABELS, page(req),
+                    locale.getLanguage()).observe(nanos);
+            event.end();
+            if (event.shouldCommit()) {
+                event.page = page(req);
+                event.uri = req.getRequestURI();
+                event.locale = locale.getLanguage();
+                event.status = ((HttpServletResponse) response).getStatus();
+                event.commit();
+            }
+        }
+    }
+
+    @Override
+    public void destroy() {
+        // Nothing to release
+    }
+}
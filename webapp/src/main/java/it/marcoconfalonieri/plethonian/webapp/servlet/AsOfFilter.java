@@ -0,0 +1,150 @@
+/*
+ *     plethonian-webapp - Plethonian calendar Web Application
+ *
+ *     Copyright (C) 2020 Marco Confalonieri <marco at marcoconfalonieri.it>
+ *
+ *     This program is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU Affero General Public License as published
+ *     by the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     This program is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU Affero General Public License for more details.
+ *
+ *     You should have received a copy of the GNU Affero General Public License
+ *     along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package it.marcoconfalonieri.plethonian.webapp.servlet;
+
+import it.marcoconfalonieri.plethonian.webapp.controller.CalendarUnavailableException;
+import it.marcoconfalonieri.plethonian.webapp.controller.PlethonianCalendarApp;
+import java.io.IOException;
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import javax.inject.Inject;
+import javax.servlet.Filter;
+import javax.servlet.FilterChain;
+import javax.servlet.FilterConfig;
+import javax.servlet.ServletException;
+import javax.servlet.ServletRequest;
+import javax.servlet.ServletResponse;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+/**
+ * Filter of the "as-of date" mode: when a user in the administration role
+ * passes an {@code asOf} date parameter, the request is rendered as if that
+ * date were today, through the normal code path. This lets pre-warming and
+ * cache prefill run ahead of time. The parameter is ignored for the other
+ * users, and the responses are never stored by caches.
+ * <p>
+ * The pages need no authentication, so the filter asks the container to
+ * authenticate an anonymous request carrying the parameter, with the login
+ * configuration of the deployment descriptor; the users and their roles come
+ * from the realm of the container.
+ */
+public class AsOfFilter implements Filter {
+    /**
+     * Request parameter with the date.
+     */
+    public static final String AS_OF_PARAM = "asOf";
+    /**
+     * Context parameter with the role allowed to use the mode.
+     */
+    public static final String ROLE_PARAM = "plethonian.asof.role";
+    /**
+     * Default role allowed to use the mode.
+     */
+    private static final String DEFAULT_ROLE = "admin";
+    /**
+     * Response header with the date the response was rendered for.
+     */
+    private static final String AS_OF_HEADER = "X-As-Of";
+
+    /**
+     * Application bean.
+     */
+    @Inject
+    private PlethonianCalendarApp app;
+    /**
+     * Role allowed to use the mode.
+     */
+    private String role;
+
+    /**
+     * Constructor.
+     */
+    public AsOfFilter() {
+        // Wired by the container
+    }
+
+    /**
+     * Constructor for use outside of the container.
+     *
+     * @param app the application bean
+     * @param role the role allowed to use the mode
+     */
+    AsOfFilter(PlethonianCalendarApp app, String role) {
+        this.app = app;
+        this.role = role;
+    }
+
+    @Override
+    public void init(FilterConfig filterConfig) throws ServletException {
+        String param = filterConfig.getServletContext()
+                .getInitParameter(ROLE_PARAM);
+        role = (param != null && !param.isBlank()) ? param.strip() :
+                DEFAULT_ROLE;
+    }
+
+    @Override
+    public void doFilter(ServletRequest request, ServletResponse response,
+            FilterChain chain) throws IOException, ServletException {
+        HttpServletRequest req = (HttpServletRequest) request;
+        HttpServletResponse resp = (HttpServletResponse) response;
+        String param = req.getParameter(AS_OF_PARAM);
+        if (param == null) {
+            chain.doFilter(request, response);
+            return;
+        }
+        if (req.getUserPrincipal() == null && !req.authenticate(resp)) {
+            // The container has sent the challenge
+            return;
+        }
+        if (!req.isUserInRole(role)) {
+            chain.doFilter(request, response);
+            return;
+        }
+        LocalDate date;
+        PlethonianCalendarApp.AsOf scope;
+        try {
+            date = LocalDate.parse(param);
+            scope = app.asOf(date);
+        } catch (DateTimeParseException ex) {
+            resp.sendError(HttpServletResponse.SC_BAD_REQUEST,
+                    "Invalid date: " + param);
+            return;
+        } catch (IllegalArgumentException ex) {
+            resp.sendError(HttpServletResponse.SC_NOT_FOUND, ex.getMessage());
+            return;
+        } catch (CalendarUnavailableException ex) {
+            resp.setHeader("Retry-After", "5");
+            resp.sendError(HttpServletResponse.SC_SERVICE_UNAVAILABLE,
+                    ex.getMessage());
+            return;
+        }
+        resp.setHeader("Cache-Control", "private, no-store");
+        resp.setHeader(AS_OF_HEADER, date.toString());
+        try (scope) {
+            chain.doFilter(request, response);
+        }
+    }
+
+    @Override
+    public void destroy() {
+        // Nothing to release
+    }
+}
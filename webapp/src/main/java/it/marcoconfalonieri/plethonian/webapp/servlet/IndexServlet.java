@@ -0,0 +1,252 @@
+/*
+ *     plethonian-webapp - Plethonian calendar Web Application
+ *
+ *     Copyright (C) 2020 Marco Confalonieri <marco at marcoconfalonieri.it>
+ *
+ *     This program is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU Affero General Public License as published
+ *     by the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     This program is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU Affero General Public License for more details.
+ *
+ *     You should have received a copy of the GNU Affero General Public License
+ *     along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package it.marcoconfalonieri.plethonian.webapp.servlet;
+
+import it.marcoconfalonieri.plethonian.webapp.assets.StaticAssets;
+import it.marcoconfalonieri.plethonian.webapp.controller.CalendarUnavailableException;
+import it.marcoconfalonieri.plethonian.webapp.controller.CurrentDay;
+import it.marcoconfalonieri.plethonian.webapp.controller.MonthIndex;
+import it.marcoconfalonieri.plethonian.webapp.controller.PlethonianCalendarApp;
+import it.marcoconfalonieri.plethonian.webapp.controller.PlethonianCalendarLang;
+import it.marcoconfalonieri.plethonian.webapp.metrics.MetricsRegistry;
+import it.marcoconfalonieri.plethonian.webapp.metrics.RenderTimingFilter;
+import it.marcoconfalonieri.plethonian.webapp.view.MonthFragmentCache;
+import it.marcoconfalonieri.plethonian.webapp.view.MonthViewCache;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.time.format.DateTimeParseException;
+import java.util.Locale;
+import java.util.ResourceBundle;
+import java.util.StringJoiner;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import javax.inject.Inject;
+import javax.servlet.ServletException;
+import javax.servlet.http.Cookie;
+import javax.servlet.http.HttpServlet;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+/**
+ * Servlet that renders the index page without going through the JSF
+ * lifecycle. It produces the same markup as index.xhtml from a template
+ * compiled once per locale around the cached month grid, and it writes UTF-8
+ * bytes straight to the response. The month is the current one or the one of
+ * the {@code date} parameter, and the language is changed with a plain GET
+ * request.
+ */
+public class IndexServlet extends HttpServlet {
+    /**
+     * Serial version ID.
+     */
+    private static final long serialVersionUID = 5046853217093380215L;
+    /**
+     * Request parameter used to change the language.
+     */
+    private static final String LANG_PARAM = "lang";
+    /**
+     * Content type of the page.
+     */
+    private static final String CONTENT_TYPE = "text/html;charset=UTF-8";
+    /**
+     * Maximum age of the language cookie, in seconds.
+     */
+    private static final int LANG_COOKIE_MAX_AGE = 31536000;
+    /**
+     * Seconds after which a client should retry when the calendar is not
+     * ready.
+     */
+    private static final String RETRY_AFTER = "5";
+
+    /**
+     * Application bean.
+     */
+    @Inject
+    private PlethonianCalendarApp app;
+    /**
+     * Cache of the rendered month grids.
+     */
+    @Inject
+    private MonthFragmentCache fragments;
+    /**
+     * Registry of the metrics.
+     */
+    @Inject
+    private transient MetricsRegistry metrics;
+    /**
+     * Static assets.
+     */
+    @Inject
+    private transient StaticAssets assets;
+    /**
+     * Supported locales.
+     */
+    @Inject
+    private transient SupportedLocales locales;
+    /**
+     * Template source.
+     */
+    private transient String source;
+    /**
+     * Templates compiled for each locale.
+     */
+    private final transient ConcurrentMap<Locale, IndexTemplate> templates =
+            new ConcurrentHashMap<>();
+
+    @Override
+    public void init() throws ServletException {
+        try {
+            try (InputStream in = getServletContext()
+                    .getResourceAsStream(IndexTemplate.PATH)) {
+                if (in == null) {
+                    throw new ServletException("Missing " + IndexTemplate.PATH);
+                }
+                source = new String(in.readAllBytes(), StandardCharsets.UTF_8);
+            }
+        } catch (IOException ex) {
+            throw new ServletException(ex);
+        }
+    }
+
+    /**
+     * Returns the template for a locale, compiling it if needed.
+     *
+     * @param locale the locale
+     *
+     * @return the compiled template
+     */
+    private IndexTemplate getTemplate(Locale locale) {
+        return templates.computeIfAbsent(locale, l -> IndexTemplate.compile(
+                source, ResourceBundle.getBundle(
+                        MonthViewCache.BUNDLE_BASE_NAME, l),
+                l, getServletContext().getContextPath(),
+                assets.getManifest()));
+    }
+
+    /**
+     * Reads the language cookie.
+     *
+     * @param req the request
+     *
+     * @return the language cookie value or null
+     */
+    private static String readLangCookie(HttpServletRequest req) {
+        Cookie[] cookies = req.getCookies();
+        if (cookies != null) {
+            for (Cookie c : cookies) {
+                if (PlethonianCalendarLang.LANG_COOKIE.equals(c.getName())) {
+                    return c.getValue();
+                }
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Removes a parameter from a query string, keeping the other ones as
+     * they were sent.
+     *
+     * @param query the query string, or null
+     * @param name the name of the parameter
+     *
+     * @return the query string without the parameter, or null if it is
+     *     empty
+     */
+    static String removeParam(String query, String name) {
+        if (query == null) {
+            return null;
+        }
+        StringJoiner kept = new StringJoiner("&");
+        for (String item : query.split("&")) {
+            int eq = item.indexOf('=');
+            String key = (eq >= 0) ? item.substring(0, eq) : item;
+            if (!item.isEmpty() && !name.equals(
+                    URLDecoder.decode(key, StandardCharsets.UTF_8))) {
+                kept.add(item);
+            }
+        }
+        return (kept.length() > 0) ? kept.toString() : null;
+    }
+
+    /**
+     * Stores the chosen language and redirects to the page without the
+     * request parameter.
+     *
+     * @param req the request
+     * @param resp the response
+     * @param lang the chosen language
+     *
+     * @throws IOException in case of errors sending the redirect
+     */
+    private void changeLanguage(HttpServletRequest req,
+            HttpServletResponse resp, String lang) throws IOException {
+        Locale locale = locales.getConfig().findSupported(lang);
+        if (locale != null) {
+            PlethonianCalendarLang.countChange(metrics, locale);
+            Cookie cookie = new Cookie(PlethonianCalendarLang.LANG_COOKIE,
+                    locale.getLanguage());
+            cookie.setMaxAge(LANG_COOKIE_MAX_AGE);
+            cookie.setPath("/");
+            resp.addCookie(cookie);
+        }
+        String query = removeParam(req.getQueryString(), LANG_PARAM);
+        resp.sendRedirect(req.getRequestURI() +
+                ((query != null) ? "?" + query : ""));
+    }
+
+    @Override
+    protected void doGet(HttpServletRequest req, HttpServletResponse resp)
+            throws ServletException, IOException {
+        String lang = req.getParameter(LANG_PARAM);
+        if (lang != null) {
+            changeLanguage(req, resp, lang);
+            return;
+        }
+        Locale locale = locales.getConfig().resolve(readLangCookie(req),
+                req.getLocales());
+        String date = req.getParameter(MonthIndex.DATE_PARAM);
+        byte[] grid;
+        try {
+            CurrentDay current = app.getCurrentDay();
+            MonthIndex index = app.getMonthIndex();
+            int month = index.resolve(date, current.getDate());
+            grid = fragments.getGrid(index, month, locale, current.getDate());
+        } catch (CalendarUnavailableException ex) {
+            resp.setHeader("Retry-After", RETRY_AFTER);
+            resp.sendError(HttpServletResponse.SC_SERVICE_UNAVAILABLE,
+                    ex.getMessage());
+            return;
+        } catch (DateTimeParseException ex) {
+            resp.sendError(HttpServletResponse.SC_BAD_REQUEST,
+                    "Invalid date: " + date);
+            return;
+        } catch (IllegalArgumentException ex) {
+            resp.sendError(HttpServletResponse.SC_NOT_FOUND, ex.getMessage());
+            return;
+        }
+
+        req.setAttribute(RenderTimingFilter.LOCALE_ATTRIBUTE, locale);
+        resp.setContentType(CONTENT_TYPE);
+        resp.setHeader("Vary", "Cookie, Accept-Language");
+        getTemplate(locale).render(resp.getOutputStream(), grid);
+    }
+}
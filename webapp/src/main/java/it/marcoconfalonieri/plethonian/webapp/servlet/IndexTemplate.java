@@ -0,0 +1,176 @@
+/*
+ *     plethonian-webapp - Plethonian calendar Web Application
+ *
+ *     Copyright (C) 2020 Marco Confalonieri <marco at marcoconfalonieri.it>
+ *
+ *     This program is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU Affero General Public License as published
+ *     by the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     This program is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU Affero General Public License for more details.
+ *
+ *     You should have received a copy of the GNU Affero General Public License
+ *     along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package it.marcoconfalonieri.plethonian.webapp.servlet;
+
+import it.marcoconfalonieri.plethonian.webapp.assets.AssetManifest;
+import it.marcoconfalonieri.plethonian.webapp.view.MonthGridWriter;
+import it.marcoconfalonieri.plethonian.webapp.view.MonthView;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.StringWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.Locale;
+import java.util.ResourceBundle;
+
+/**
+ * Index page template compiled for a locale. All the placeholders except the
+ * month grid are resolved at compile time, so a render only writes two
+ * pre-encoded byte arrays around the grid.
+ * <p>
+ * The supported placeholders are {@code {{lang}}}, {@code {{contextPath}}},
+ * {@code {{asset:path}}} for the URL of a static asset,
+ * {@code {{msg:key}}} for an escaped message of the bundle,
+ * {@code {{raw:key}}} for an unescaped message and {@code {{grid}}} for the
+ * month grid.
+ */
+public final class IndexTemplate {
+    /**
+     * Path of the template source inside the web application.
+     */
+    public static final String PATH = "/WEB-INF/templates/index.html";
+    /**
+     * Placeholder for the month grid.
+     */
+    private static final String GRID = "grid";
+    /**
+     * Bytes before the grid.
+     */
+    private final byte[] head;
+    /**
+     * Bytes after the grid.
+     */
+    private final byte[] tail;
+
+    /**
+     * Constructor.
+     *
+     * @param head the bytes before the grid
+     * @param tail the bytes after the grid
+     */
+    private IndexTemplate(byte[] head, byte[] tail) {
+        this.head = head;
+        this.tail = tail;
+    }
+
+    /**
+     * Compiles the template source for a locale.
+     *
+     * @param source the template source
+     * @param msg the resource bundle of the locale
+     * @param locale the locale
+     * @param contextPath the context path of the application
+     * @param assets the manifest of the static assets
+     *
+     * @return the compiled template
+     *
+     * @throws IllegalArgumentException if the template is malformed
+     */
+    public static IndexTemplate compile(String source, ResourceBundle msg,
+            Locale locale, String contextPath, AssetManifest assets) {
+        StringWriter head = new StringWriter();
+        StringWriter tail = null;
+        Writer out = head;
+        int pos = 0;
+        try {
+            while (true) {
+                int start = source.indexOf("{{", pos);
+                if (start < 0) {
+                    out.write(source, pos, source.length() - pos);
+                    break;
+                }
+                int end = source.indexOf("}}", start);
+                if (end < 0) {
+                    throw new IllegalArgumentException(
+                            "Unterminated placeholder at " + start);
+                }
+                out.write(source, pos, start - pos);
+                String name = source.substring(start + 2, end);
+                if (name.equals(GRID)) {
+                    if (tail != null) {
+                        throw new IllegalArgumentException(
+                                "Duplicated grid placeholder");
+                    }
+                    tail = new StringWriter();
+                    out = tail;
+                } else if (name.equals("lang")) {
+                    out.write(locale.getLanguage());
+                } else if (name.equals("contextPath")) {
+                    out.write(contextPath);
+                } else if (name.startsWith("asset:")) {
+                    out.write(contextPath);
+                    out.write(assets.path(name.substring(6)));
+                } else if (name.startsWith("msg:")) {
+                    MonthGridWriter.writeEscaped(out,
+                            msg.getString(name.substring(4)));
+                } else if (name.startsWith("raw:")) {
+                    out.write(msg.getString(name.substring(4)));
+                } else {
+                    throw new IllegalArgumentException(
+                            "Unknown placeholder: " + name);
+                }
+                pos = end + 2;
+            }
+        } catch (IOException ex) {
+            // Cannot happen with string writers.
+            throw new IllegalStateException(ex);
+        }
+        if (tail == null) {
+            throw new IllegalArgumentException("Missing grid placeholder");
+        }
+        return new IndexTemplate(
+                head.toString().getBytes(StandardCharsets.UTF_8),
+                tail.toString().getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Renders the page.
+     *
+     * @param out the output stream
+     * @param view the month view
+     * @param today the current date
+     *
+     * @throws IOException in case of errors writing the page
+     */
+    public void render(OutputStream out, MonthView view, LocalDate today)
+            throws IOException {
+        out.write(head);
+        Writer grid = new OutputStreamWriter(out, StandardCharsets.UTF_8);
+        MonthGridWriter.write(grid, view, today);
+        grid.flush();
+        out.write(tail);
+    }
+
+    /**
+     * Renders the page around a pre-rendered month grid.
+     *
+     * @param out the output stream
+     * @param grid the markup of the month grid as UTF-8 bytes
+     *
+     * @throws IOException in case of errors writing the page
+     */
+    public void render(OutputStream out, byte[] grid) throws IOException {
+        out.write(head);
+        out.write(grid);
+        out.write(tail);
+    }
+}
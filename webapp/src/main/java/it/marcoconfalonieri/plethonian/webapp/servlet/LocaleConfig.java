@@ -0,0 +1,165 @@
+/*
+ *     plethonian-webapp - Plethonian calendar Web Application
+ *
+ *     Copyright (C) 2020 Marco Confalonieri <marco at marcoconfalonieri.it>
+ *
+ *     This program is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU Affero General Public License as published
+ *     by the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     This program is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU Affero General Public License for more details.
+ *
+ *     You should have received a copy of the GNU Affero General Public License
+ *     along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package it.marcoconfalonieri.plethonian.webapp.servlet;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.List;
+import java.util.Locale;
+import javax.xml.XMLConstants;
+import javax.xml.parsers.DocumentBuilder;
+import javax.xml.parsers.DocumentBuilderFactory;
+import javax.xml.parsers.ParserConfigurationException;
+import org.w3c.dom.Document;
+import org.w3c.dom.NodeList;
+import org.xml.sax.SAXException;
+
+/**
+ * Locales supported by the application, as declared in the locale-config
+ * section of faces-config.xml.
+ */
+public final class LocaleConfig {
+    /**
+     * Path of the JSF configuration inside the web application.
+     */
+    public static final String FACES_CONFIG = "/WEB-INF/faces-config.xml";
+    /**
+     * Default locale.
+     */
+    private final Locale defaultLocale;
+    /**
+     * Supported locales, starting with the default one.
+     */
+    private final List<Locale> supportedLocales;
+
+    /**
+     * Constructor.
+     *
+     * @param defaultLocale the default locale
+     * @param supportedLocales the supported locales, starting with the
+     *     default one
+     */
+    public LocaleConfig(Locale defaultLocale, List<Locale> supportedLocales) {
+        this.defaultLocale = defaultLocale;
+        this.supportedLocales = Collections.unmodifiableList(
+                new ArrayList<>(supportedLocales));
+    }
+
+    /**
+     * Reads the locale configuration from faces-config.xml.
+     *
+     * @param in the stream of the configuration file
+     *
+     * @return the locale configuration
+     *
+     * @throws IOException in case of errors reading or parsing the file
+     */
+    public static LocaleConfig read(InputStream in) throws IOException {
+        if (in == null) {
+            throw new IOException("Missing " + FACES_CONFIG);
+        }
+        Document doc;
+        try (in) {
+            DocumentBuilderFactory dbf = DocumentBuilderFactory.newInstance();
+            dbf.setNamespaceAware(true);
+            dbf.setFeature(XMLConstants.FEATURE_SECURE_PROCESSING, true);
+            DocumentBuilder db = dbf.newDocumentBuilder();
+            doc = db.parse(in);
+        } catch (ParserConfigurationException | SAXException ex) {
+            throw new IOException("Cannot parse " + FACES_CONFIG, ex);
+        }
+        NodeList defaults = doc.getElementsByTagNameNS("*", "default-locale");
+        if (defaults.getLength() == 0) {
+            throw new IOException("No default locale in " + FACES_CONFIG);
+        }
+        Locale def = Locale.forLanguageTag(
+                defaults.item(0).getTextContent().strip().replace('_', '-'));
+        List<Locale> supported = new ArrayList<>();
+        supported.add(def);
+        NodeList others = doc.getElementsByTagNameNS("*", "supported-locale");
+        for (int i = 0; i < others.getLength(); i++) {
+            Locale l = Locale.forLanguageTag(
+                    others.item(i).getTextContent().strip().replace('_', '-'));
+            if (!supported.contains(l)) {
+                supported.add(l);
+            }
+        }
+        return new LocaleConfig(def, supported);
+    }
+
+    /**
+     * Getter for the default locale.
+     *
+     * @return the default locale
+     */
+    public Locale getDefaultLocale() {
+        return defaultLocale;
+    }
+
+    /**
+     * Getter for the supported locales.
+     *
+     * @return the supported locales, starting with the default one
+     */
+    public List<Locale> getSupportedLocales() {
+        return supportedLocales;
+    }
+
+    /**
+     * Returns the supported locale with the given language.
+     *
+     * @param lang the language
+     *
+     * @return the supported locale or null
+     */
+    public Locale findSupported(String lang) {
+        if (lang == null) {
+            return null;
+        }
+        for (Locale l : supportedLocales) {
+            if (l.getLanguage().equals(lang)) {
+                return l;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Resolves the locale of a request. The explicitly chosen language has
+     * precedence over the preferred locales of the client, and the default
+     * locale is used when nothing matches.
+     *
+     * @param lang the chosen language or null
+     * @param preferred the preferred locales of the client
+     *
+     * @return the locale to use
+     */
+    public Locale resolve(String lang, Enumeration<Locale> preferred) {
+        Locale locale = findSupported(lang);
+        while (locale == null && preferred != null
+                && preferred.hasMoreElements()) {
+            locale = findSupported(preferred.nextElement().getLanguage());
+        }
+        return (locale != null) ? locale : defaultLocale;
+    }
+}
@@ -0,0 +1,91 @@
+/*
+ *     plethonian-webapp - Plethonian calendar Web Application
+ *
+ *     Copyright (C) 2020 Marco Confalonieri <marco at marcoconfalonieri.it>
+ *
+ *     This program is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU Affero General Public License as published
+ *     by the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     This program is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU Affero General Public License for more details.
+ *
+ *     You should have received a copy of the GNU Affero General Public License
+ *     along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package it.marcoconfalonieri.plethonian.webapp.servlet;
+
+import it.marcoconfalonieri.plethonian.webapp.controller.CalendarProvider;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import javax.inject.Inject;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServlet;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+/**
+ * Readiness endpoint. It answers 200 only once the calendar has been built
+ * and the warm-up is over, and 503 while the application is starting or if
+ * the construction of the calendar failed. Once the calendar is ready, the
+ * first check starts the rendering of the JSF view by the warm-up, through
+ * the address and port it was received on.
+ */
+public class ReadinessServlet extends HttpServlet {
+    /**
+     * Serial version ID.
+     */
+    private static final long serialVersionUID = 3417768004625542310L;
+
+    /**
+     * Provider of the calendar.
+     */
+    @Inject
+    private CalendarProvider calendarProvider;
+    /**
+     * Warm-up of the rendering code.
+     */
+    @Inject
+    private WarmUp warmUp;
+
+    /**
+     * Returns the base URL of the application on the local address of a
+     * request.
+     *
+     * @param req the request
+     *
+     * @return the base URL
+     */
+    private static String localUrl(HttpServletRequest req) {
+        String host = req.getLocalAddr();
+        if (host.indexOf(':') >= 0) {
+            host = "[" + host + "]";
+        }
+        return req.getScheme() + "://" + host + ":" + req.getLocalPort() +
+                req.getContextPath();
+    }
+
+    @Override
+    protected void doGet(HttpServletRequest req, HttpServletResponse resp)
+            throws ServletException, IOException {
+        String status;
+        if (calendarProvider.isReady() && warmUp.isDone()) {
+            status = "READY";
+        } else {
+            if (calendarProvider.isReady()) {
+                warmUp.startViews(localUrl(req));
+            }
+            status = calendarProvider.isFailed() ? "FAILED" : "STARTING";
+            resp.setStatus(HttpServletResponse.SC_SERVICE_UNAVAILABLE);
+        }
+        byte[] body = (status + "\n").getBytes(StandardCharsets.US_ASCII);
+        resp.setHeader("Cache-Control", "no-store");
+        resp.setContentType("text/plain;charset=US-ASCII");
+        resp.setContentLength(body.length);
+        resp.getOutputStream().write(body);
+    }
+}
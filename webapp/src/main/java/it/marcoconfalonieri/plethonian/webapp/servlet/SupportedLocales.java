@@ -0,0 +1,115 @@
+/*
+ *     plethonian-webapp - Plethonian calendar Web Application
+ *
+ *     Copyright (C) 2020 Marco Confalonieri <marco at marcoconfalonieri.it>
+ *
+ *     This program is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU Affero General Public License as published
+ *     by the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     This program is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU Affero General Public License for more details.
+ *
+ *     You should have received a copy of the GNU Affero General Public License
+ *     along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package it.marcoconfalonieri.plethonian.webapp.servlet;
+
+import java.io.IOException;
+import java.util.Locale;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import javax.annotation.Priority;
+import javax.enterprise.context.ApplicationScoped;
+import javax.enterprise.context.Initialized;
+import javax.enterprise.event.Observes;
+import javax.interceptor.Interceptor;
+import javax.servlet.ServletContext;
+
+/**
+ * Application-scoped holder of the locale configuration. The locales that
+ * come from the clients, through the language cookie or parameter, are
+ * clamped to the supported ones before they are used as cache keys or metric
+ * labels, so that arbitrary values cannot grow them.
+ * <p>
+ * The configuration is read when the application starts, before the
+ * observers with the default priority run.
+ */
+@ApplicationScoped
+public class SupportedLocales {
+    /**
+     * Logger.
+     */
+    private static final Logger LOGGER =
+            Logger.getLogger(SupportedLocales.class.getName());
+
+    /**
+     * The configuration, or null if not read.
+     */
+    private volatile LocaleConfig config;
+
+    /**
+     * Reads the configuration when the application starts.
+     *
+     * @param event the initialization payload, the servlet context in a web
+     *     application
+     */
+    public void onStartup(@Observes
+            @Priority(Interceptor.Priority.LIBRARY_BEFORE)
+            @Initialized(ApplicationScoped.class) Object event) {
+        if (!(event instanceof ServletContext)) {
+            return;
+        }
+        try {
+            config = LocaleConfig.read(((ServletContext) event)
+                    .getResourceAsStream(LocaleConfig.FACES_CONFIG));
+        } catch (IOException ex) {
+            LOGGER.log(Level.SEVERE, "Cannot read the locale configuration",
+                    ex);
+        }
+    }
+
+    /**
+     * Returns the locale configuration.
+     *
+     * @return the locale configuration
+     *
+     * @throws IllegalStateException if the configuration was not read
+     */
+    public LocaleConfig getConfig() {
+        LocaleConfig c = config;
+        if (c == null) {
+            throw new IllegalStateException(
+                    "The locale configuration was not read");
+        }
+        return c;
+    }
+
+    /**
+     * Returns the supported locale with a language.
+     *
+     * @param lang the language, or null
+     *
+     * @return the supported locale, or the default one if the language is
+     *     not supported
+     */
+    public Locale clamp(String lang) {
+        return getConfig().resolve(lang, null);
+    }
+
+    /**
+     * Returns the supported locale with the language of a locale.
+     *
+     * @param locale the locale, or null
+     *
+     * @return the supported locale, or the default one if the language is
+     *     not supported
+     */
+    public Locale clamp(Locale locale) {
+        return clamp((locale != null) ? locale.getLanguage() : null);
+    }
+}
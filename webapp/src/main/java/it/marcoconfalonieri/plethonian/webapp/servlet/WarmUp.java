@@ -0,0 +1,391 @@
+/*
+ *     plethonian-webapp - Plethonian calendar Web Application
+ *
+ *     Copyright (C) 2020 Marco Confalonieri <marco at marcoconfalonieri.it>
+ *
+ *     This program is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU Affero General Public License as published
+ *     by the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     This program is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU Affero General Public License for more details.
+ *
+ *     You should have received a copy of the GNU Affero General Public License
+ *     along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package it.marcoconfalonieri.plethonian.webapp.servlet;
+
+import it.marcoconfalonieri.plethonian.calendar.PlethonianCalendar;
+import it.marcoconfalonieri.plethonian.calendar.PlethonianDay;
+import it.marcoconfalonieri.plethonian.webapp.assets.StaticAssets;
+import it.marcoconfalonieri.plethonian.webapp.controller.CalendarProvider;
+import it.marcoconfalonieri.plethonian.webapp.controller.MonthIndex;
+import it.marcoconfalonieri.plethonian.webapp.controller.PlethonianCalendarApp;
+import it.marcoconfalonieri.plethonian.webapp.controller.PlethonianCalendarLang;
+import it.marcoconfalonieri.plethonian.webapp.view.MonthFragmentCache;
+import it.marcoconfalonieri.plethonian.webapp.view.MonthGridWriter;
+import it.marcoconfalonieri.plethonian.webapp.view.MonthView;
+import it.marcoconfalonieri.plethonian.webapp.view.MonthViewCache;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.Writer;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.ResourceBundle;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import javax.annotation.Priority;
+import javax.enterprise.context.ApplicationScoped;
+import javax.enterprise.context.Initialized;
+import javax.enterprise.event.Observes;
+import javax.inject.Inject;
+import javax.interceptor.Interceptor;
+import javax.servlet.ServletContext;
+
+/**
+ * Warm-up of the rendering code. Once the calendar is built, it loads the
+ * resource bundles, builds the month views and renders the month grid and the
+ * index page for every supported locale a configurable number of times, so
+ * that the first real requests do not pay for class loading and cold code.
+ * The month grid of today and the month views of tomorrow are prefilled too.
+ * <p>
+ * Facelets compilation and the EL paths need a live FacesContext, so the JSF
+ * view is then rendered for every supported locale, the same number of times,
+ * with requests to the application itself. The address of the server is
+ * known only once it answers, so these requests start with the first
+ * readiness check, unless a base URL is configured. The warm-up is over when
+ * they are done. The time spent in each phase is logged.
+ */
+@ApplicationScoped
+public class WarmUp {
+    /**
+     * Context parameter with the number of renders per locale.
+     */
+    public static final String ITERATIONS_PARAM =
+            "plethonian.warmup.iterations";
+    /**
+     * Default number of renders per locale.
+     */
+    private static final int DEFAULT_ITERATIONS = 50;
+    /**
+     * Context parameter with the base URL of the application for the
+     * rendering of the JSF view, by default the address of the first
+     * readiness check.
+     */
+    public static final String URL_PARAM = "plethonian.warmup.url";
+    /**
+     * Path of the JSF view.
+     */
+    static final String VIEW_PATH = "/faces/index.xhtml";
+    /**
+     * Connection and read timeout of the requests, in milliseconds.
+     */
+    private static final int REQUEST_TIMEOUT = 30000;
+    /**
+     * Logger.
+     */
+    private static final Logger LOGGER =
+            Logger.getLogger(WarmUp.class.getName());
+
+    /**
+     * Provider of the calendar.
+     */
+    @Inject
+    private CalendarProvider calendarProvider;
+    /**
+     * Cache of the month views.
+     */
+    @Inject
+    private MonthViewCache views;
+    /**
+     * Cache of the rendered month grids.
+     */
+    @Inject
+    private MonthFragmentCache fragments;
+    /**
+     * Application bean.
+     */
+    @Inject
+    private PlethonianCalendarApp app;
+    /**
+     * Static assets.
+     */
+    @Inject
+    private StaticAssets assets;
+    /**
+     * Supported locales, set when the rendering code was warmed up and the
+     * JSF view can be rendered.
+     */
+    private volatile List<Locale> viewLocales;
+    /**
+     * Number of renders per locale.
+     */
+    private volatile int iterations;
+    /**
+     * Configured base URL for the rendering of the JSF view, or null.
+     */
+    private volatile String baseUrl;
+    /**
+     * Flag set when the rendering of the JSF view starts.
+     */
+    private final AtomicBoolean viewStarted = new AtomicBoolean();
+    /**
+     * Flag set when the warm-up is over, successfully or not.
+     */
+    private volatile boolean done;
+
+    /**
+     * Schedules the warm-up after the construction of the calendar. It runs
+     * after the observers that read the configuration of the calendar.
+     *
+     * @param event the initialization payload, the servlet context in a web
+     *     application
+     */
+    public void onStartup(@Observes
+            @Priority(Interceptor.Priority.APPLICATION)
+            @Initialized(ApplicationScoped.class) Object event) {
+        if (!(event instanceof ServletContext)) {
+            done = true;
+            return;
+        }
+        ServletContext ctx = (ServletContext) event;
+        String param = ctx.getInitParameter(ITERATIONS_PARAM);
+        int n = (param != null && !param.isBlank()) ?
+                Integer.parseInt(param.strip()) : DEFAULT_ITERATIONS;
+        if (n <= 0) {
+            done = true;
+            return;
+        }
+        iterations = n;
+        param = ctx.getInitParameter(URL_PARAM);
+        if (param != null && !param.isBlank()) {
+            baseUrl = param.strip();
+        }
+        LocaleConfig locales;
+        String source;
+        try (InputStream in = ctx.getResourceAsStream(IndexTemplate.PATH)) {
+            locales = LocaleConfig.read(
+                    ctx.getResourceAsStream(LocaleConfig.FACES_CONFIG));
+            if (in == null) {
+                throw new IOException("Missing " + IndexTemplate.PATH);
+            }
+            source = new String(in.readAllBytes(), StandardCharsets.UTF_8);
+        } catch (IOException ex) {
+            LOGGER.log(Level.WARNING, "Warm-up skipped", ex);
+            done = true;
+            return;
+        }
+        String contextPath = ctx.getContextPath();
+        calendarProvider.getFuture().whenComplete((calendar, error) -> {
+            try {
+                if (calendar != null) {
+                    run(calendar, locales, source, contextPath, n);
+                    viewLocales = locales.getSupportedLocales();
+                }
+            } catch (IOException | RuntimeException ex) {
+                LOGGER.log(Level.WARNING, "Warm-up failed", ex);
+            } finally {
+                if (viewLocales == null) {
+                    done = true;
+                } else if (baseUrl != null) {
+                    startViews(baseUrl);
+                }
+            }
+        });
+    }
+
+    /**
+     * Starts rendering the JSF view in the background, once the rest of the
+     * warm-up is over. It does nothing if the rendering already started, and
+     * a base URL set in the configuration takes precedence.
+     *
+     * @param url the base URL of the application
+     */
+    public void startViews(String url) {
+        List<Locale> supported = viewLocales;
+        if (supported == null || !viewStarted.compareAndSet(false, true)) {
+            return;
+        }
+        String base = (baseUrl != null) ? baseUrl : url;
+        Thread t = new Thread(() -> renderViews(base, supported),
+                "plethonian-warmup");
+        t.setDaemon(true);
+        t.start();
+    }
+
+    /**
+     * Requests the JSF view for every supported locale.
+     *
+     * @param base the base URL of the application
+     * @param supported the supported locales
+     */
+    private void renderViews(String base, List<Locale> supported) {
+        long start = System.nanoTime();
+        try {
+            URL url = new URL(base + VIEW_PATH);
+            for (int i = 0; i < iterations; i++) {
+                for (Locale l : supported) {
+                    int status = get(url, l.getLanguage());
+                    if (status != HttpURLConnection.HTTP_OK) {
+                        throw new IOException("Status " + status + " for " +
+                                url + " in " + l);
+                    }
+                }
+            }
+            logPhase("view", start);
+        } catch (IOException | RuntimeException ex) {
+            LOGGER.log(Level.WARNING, "Warm-up of the JSF view failed", ex);
+        } finally {
+            done = true;
+        }
+    }
+
+    /**
+     * Requests a page with a language cookie and reads the response.
+     *
+     * @param url the URL of the page
+     * @param lang the language
+     *
+     * @return the status code
+     *
+     * @throws IOException in case of connection errors
+     */
+    private static int get(URL url, String lang) throws IOException {
+        HttpURLConnection conn = (HttpURLConnection) url.openConnection();
+        try {
+            conn.setConnectTimeout(REQUEST_TIMEOUT);
+            conn.setReadTimeout(REQUEST_TIMEOUT);
+            conn.setRequestProperty("Cookie",
+                    PlethonianCalendarLang.LANG_COOKIE + "=" + lang);
+            int status = conn.getResponseCode();
+            InputStream in = (status < 400) ? conn.getInputStream() :
+                    conn.getErrorStream();
+            if (in != null) {
+                try (InputStream body = in) {
+                    body.transferTo(OutputStream.nullOutputStream());
+                }
+            }
+            return status;
+        } finally {
+            conn.disconnect();
+        }
+    }
+
+    /**
+     * Logs the duration of a phase.
+     *
+     * @param phase the name of the phase
+     * @param start the start time in nanoseconds
+     *
+     * @return the current time in nanoseconds
+     */
+    private static long logPhase(String phase, long start) {
+        long now = System.nanoTime();
+        LOGGER.log(Level.INFO, "Warm-up phase {0}: {1} ms", new Object[] {
+            phase, TimeUnit.NANOSECONDS.toMillis(now - start)
+        });
+        return now;
+    }
+
+    /**
+     * Fills the month view cache for another day, going through the
+     * application bean in the as-of date mode.
+     *
+     * @param date the day
+     * @param supported the supported locales
+     */
+    private void prefill(LocalDate date, List<Locale> supported) {
+        try (PlethonianCalendarApp.AsOf scope = app.asOf(date)) {
+            MonthIndex index = app.getMonthIndex();
+            int month = index.indexOf(app.getCurrentDay().getDate());
+            for (Locale l : supported) {
+                views.getMonthView(index, month, l);
+            }
+        } catch (IllegalArgumentException ex) {
+            LOGGER.log(Level.FINE, "No prefill for {0}: {1}",
+                    new Object[] {date, ex.getMessage()});
+        }
+    }
+
+    /**
+     * Runs the warm-up.
+     *
+     * @param calendar the calendar
+     * @param locales the supported locales
+     * @param source the source of the index page template
+     * @param contextPath the context path of the application
+     * @param iterations the number of renders per locale
+     *
+     * @throws IOException in case of errors rendering
+     */
+    public void run(PlethonianCalendar calendar, LocaleConfig locales,
+            String source, String contextPath, int iterations)
+            throws IOException {
+        List<Locale> supported = locales.getSupportedLocales();
+        LocalDate date = LocalDate.now(app.getClock());
+        PlethonianDay today = calendar.getDay(date);
+        long begin = System.nanoTime();
+        long start = begin;
+        MonthIndex index = app.getMonthIndex();
+        int month = index.indexOf(date);
+        start = logPhase("index", start);
+
+        Map<Locale, ResourceBundle> bundles = new HashMap<>();
+        for (Locale l : supported) {
+            bundles.put(l, ResourceBundle.getBundle(
+                    MonthViewCache.BUNDLE_BASE_NAME, l));
+        }
+        start = logPhase("bundles", start);
+
+        Map<Locale, MonthView> monthViews = new HashMap<>();
+        for (Locale l : supported) {
+            monthViews.put(l, views.getMonthView(index, month, l));
+        }
+        prefill(date.plusDays(1), supported);
+        start = logPhase("views", start);
+
+        Writer sink = Writer.nullWriter();
+        for (int i = 0; i < iterations; i++) {
+            for (Locale l : supported) {
+                MonthGridWriter.write(sink, monthViews.get(l),
+                        today.getGregorianDate());
+            }
+        }
+        start = logPhase("grid", start);
+
+        OutputStream out = OutputStream.nullOutputStream();
+        for (Locale l : supported) {
+            IndexTemplate template = IndexTemplate.compile(source,
+                    bundles.get(l), l, contextPath, assets.getManifest());
+            for (int i = 0; i < iterations; i++) {
+                template.render(out, monthViews.get(l),
+                        today.getGregorianDate());
+            }
+            fragments.getGrid(index, month, l, date);
+        }
+        start = logPhase("page", start);
+        logPhase("total", begin);
+    }
+
+    /**
+     * Checks whether the warm-up is over.
+     *
+     * @return true if the warm-up is over, successfully or not
+     */
+    public boolean isDone() {
+        return done;
+    }
+}
@@ -0,0 +1,145 @@
+/*
+ *     plethonian-webapp - Plethonian calendar Web Application
+ *
+ *     Copyright (C) 2020 Marco Confalonieri <marco at marcoconfalonieri.it>
+ *
+ *     This program is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU Affero General Public License as published
+ *     by the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     This program is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU Affero General Public License for more details.
+ *
+ *     You should have received a copy of the GNU Affero General Public License
+ *     along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package it.marcoconfalonieri.plethonian.webapp.view;
+
+import java.io.Serializable;
+import java.time.LocalDate;
+
+/**
+ * Immutable view of a day, with all the display strings already localized.
+ */
+public final class DayView implements Serializable {
+    /**
+     * Serial version ID.
+     */
+    private static final long serialVersionUID = 2204766103425128593L;
+    /**
+     * Gregorian date.
+     */
+    private final LocalDate gregorianDate;
+    /**
+     * Gregorian date as displayed.
+     */
+    private final String gregorianText;
+    /**
+     * Day of the year as displayed.
+     */
+    private final String dayOfYearText;
+    /**
+     * Localized name of the day, or its label if the day has no name.
+     */
+    private final String name;
+    /**
+     * CSS class of the name.
+     */
+    private final String nameClass;
+    /**
+     * CSS class of the day box.
+     */
+    private final String cssClass;
+    /**
+     * Localized festivity description, if any.
+     */
+    private final String festivity;
+
+    /**
+     * Constructor.
+     *
+     * @param gregorianDate the Gregorian date
+     * @param dayOfYear the day of the year
+     * @param name the localized name of the day or null
+     * @param label the day label
+     * @param holiday true if the day has a monthly festivity
+     * @param festivity the localized festivity description or null
+     */
+    DayView(LocalDate gregorianDate, int dayOfYear, String name, String label,
+            boolean holiday, String festivity) {
+        this.gregorianDate = gregorianDate;
+        this.gregorianText = gregorianDate.toString();
+        this.dayOfYearText = Integer.toString(dayOfYear);
+        this.name = (name != null) ? name : label;
+        this.nameClass = (name != null) ? "named-day" : "unnamed-day";
+        this.cssClass = holiday ? "cal holiday" : "cal no-holiday";
+        this.festivity = festivity;
+    }
+
+    /**
+     * Getter for the Gregorian date.
+     *
+     * @return the gregorianDate
+     */
+    public LocalDate getGregorianDate() {
+        return gregorianDate;
+    }
+
+    /**
+     * Getter for the Gregorian date text.
+     *
+     * @return the gregorianText
+     */
+    public String getGregorianText() {
+        return gregorianText;
+    }
+
+    /**
+     * Getter for the day of the year text.
+     *
+     * @return the dayOfYearText
+     */
+    public String getDayOfYearText() {
+        return dayOfYearText;
+    }
+
+    /**
+     * Getter for the name.
+     *
+     * @return the name
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Getter for the CSS class of the name.
+     *
+     * @return the nameClass
+     */
+    public String getNameClass() {
+        return nameClass;
+    }
+
+    /**
+     * Getter for the CSS class of the day box.
+     *
+     * @return the cssClass
+     */
+    public String getCssClass() {
+        return cssClass;
+    }
+
+    /**
+     * Getter for the festivity description.
+     *
+     * @return the festivity or null
+     */
+    public String getFestivity() {
+        return festivity;
+    }
+}
@@ -0,0 +1,451 @@
+/*
+ *     plethonian-webapp - Plethonian calendar Web Application
+ *
+ *     Copyright (C) 2020 Marco Confalonieri <marco at marcoconfalonieri.it>
+ *
+ *     This program is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU Affero General Public License as published
+ *     by the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     This program is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU Affero General Public License for more details.
+ *
+ *     You should have received a copy of the GNU Affero General Public License
+ *     along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package it.marcoconfalonieri.plethonian.webapp.view;
+
+import it.marcoconfalonieri.plethonian.webapp.controller.CalendarReloaded;
+import it.marcoconfalonieri.plethonian.webapp.controller.MonthIndex;
+import it.marcoconfalonieri.plethonian.webapp.controller.PlethonianCalendarApp;
+import it.marcoconfalonieri.plethonian.webapp.metrics.Counter;
+import it.marcoconfalonieri.plethonian.webapp.metrics.MetricsRegistry;
+import it.marcoconfalonieri.plethonian.webapp.servlet.SupportedLocales;
+import java.io.IOException;
+import java.io.StringWriter;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import javax.annotation.PreDestroy;
+import javax.enterprise.context.ApplicationScoped;
+import javax.enterprise.event.Observes;
+import javax.inject.Inject;
+import javax.inject.Named;
+
+/**
+ * Application-scoped cache of the rendered month grids, by month and locale.
+ * Each grid is kept both as a string, for the JSF component, and as UTF-8
+ * bytes, for the fast render path, so that neither pays for a conversion.
+ * Only the month that contains today depends on the date, so its entry
+ * remembers the day it was rendered for and is rendered again after the
+ * rollover. When a month is shown, the adjacent months that are not
+ * cached are rendered in the background, so that the navigation finds them
+ * ready. A grid is queued at most once, and at most
+ * {@value #PREFETCH_QUEUE} prefetches wait: the other ones are dropped,
+ * since the request that needs the grid renders it anyway. The locales are
+ * replaced with the supported ones, so that arbitrary locales cannot fill
+ * the cache.
+ * <p>
+ * The grids are kept in a concurrent map, so that the reads take no lock.
+ * The cache keeps at most {@value #MAX_ENTRIES} grids: when it is full the
+ * stale ones are dropped, and a new grid is not stored if there is still no
+ * room. The requests in the as-of date mode mark another day, so their
+ * grids are rendered without going through the cache.
+ */
+@ApplicationScoped
+@Named("monthFragments")
+public class MonthFragmentCache {
+    /**
+     * Name of the hit counter.
+     */
+    public static final String HITS =
+            "plethonian_month_fragment_cache_hits_total";
+    /**
+     * Name of the miss counter.
+     */
+    public static final String MISSES =
+            "plethonian_month_fragment_cache_misses_total";
+    /**
+     * Maximum number of cached grids.
+     */
+    public static final int MAX_ENTRIES = 512;
+    /**
+     * Maximum number of waiting prefetches.
+     */
+    public static final int PREFETCH_QUEUE = 16;
+    /**
+     * Logger.
+     */
+    private static final Logger LOGGER =
+            Logger.getLogger(MonthFragmentCache.class.getName());
+
+    /**
+     * Cache key.
+     */
+    private static final class Key {
+        private final LocalDate firstDay;
+        private final Locale locale;
+
+        Key(LocalDate firstDay, Locale locale) {
+            this.firstDay = firstDay;
+            this.locale = locale;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (!(obj instanceof Key)) {
+                return false;
+            }
+            Key k = (Key) obj;
+            return firstDay.equals(k.firstDay) && locale.equals(k.locale);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(firstDay, locale);
+        }
+    }
+
+    /**
+     * Rendered grid.
+     */
+    private static final class Fragment {
+        private final MonthIndex index;
+        private final LocalDate today;
+        private final String markup;
+        private final byte[] bytes;
+
+        Fragment(MonthIndex index, LocalDate today, String markup) {
+            this.index = index;
+            this.today = today;
+            this.markup = markup;
+            this.bytes = markup.getBytes(StandardCharsets.UTF_8);
+        }
+    }
+
+    /**
+     * Prefetch of a grid, which releases its key when it is done or
+     * dropped.
+     */
+    private final class Prefetch implements Runnable {
+        private final Key key;
+        private final MonthIndex index;
+        private final int month;
+        private final LocalDate today;
+
+        Prefetch(Key key, MonthIndex index, int month, LocalDate today) {
+            this.key = key;
+            this.index = index;
+            this.month = month;
+            this.today = today;
+        }
+
+        @Override
+        public void run() {
+            try {
+                if (lookup(key, index, today) == null) {
+                    render(key, index, month, today);
+                }
+            } finally {
+                pending.remove(key);
+            }
+        }
+    }
+
+    /**
+     * The cached grids.
+     */
+    private final Map<Key, Fragment> fragments = new ConcurrentHashMap<>();
+    /**
+     * Keys of the grids queued or being prefetched.
+     */
+    private final Set<Key> pending = ConcurrentHashMap.newKeySet();
+    /**
+     * Cache of the month views.
+     */
+    @Inject
+    private MonthViewCache views;
+    /**
+     * Supported locales.
+     */
+    @Inject
+    private SupportedLocales locales;
+    /**
+     * Application bean, to recognize the as-of date mode.
+     */
+    @Inject
+    private PlethonianCalendarApp app;
+    /**
+     * Executor of the prefetches, created on first use.
+     */
+    private ExecutorService prefetcher;
+    /**
+     * Cache hits.
+     */
+    private Counter hits = new Counter();
+    /**
+     * Cache misses.
+     */
+    private Counter misses = new Counter();
+
+    /**
+     * Constructor.
+     */
+    public MonthFragmentCache() {
+    }
+
+    /**
+     * Constructor with the collaborators, for the tests.
+     *
+     * @param views the cache of the month views
+     * @param app the application bean
+     */
+    MonthFragmentCache(MonthViewCache views, PlethonianCalendarApp app) {
+        this.views = views;
+        this.app = app;
+    }
+
+    /**
+     * Registers the cache metrics.
+     *
+     * @param metrics the registry of the metrics
+     */
+    @Inject
+    void setMetrics(MetricsRegistry metrics) {
+        hits = metrics.counter(HITS, "Month fragment cache hits");
+        misses = metrics.counter(MISSES, "Month fragment cache misses");
+    }
+
+    /**
+     * Returns the date a month grid depends on.
+     *
+     * @param index the index of the months
+     * @param month the position of the month
+     * @param today the current date
+     *
+     * @return today if the month contains it, null otherwise
+     */
+    private static LocalDate todayIn(MonthIndex index, int month,
+            LocalDate today) {
+        return (index.indexOf(today) == month) ? today : null;
+    }
+
+    /**
+     * Looks up a valid grid.
+     *
+     * @param key the cache key
+     * @param index the index of the months
+     * @param today the date the grid must have been rendered for
+     *
+     * @return the grid, or null if missing or stale
+     */
+    private Fragment lookup(Key key, MonthIndex index, LocalDate today) {
+        Fragment fragment = fragments.get(key);
+        return (fragment != null && fragment.index == index &&
+                Objects.equals(fragment.today, today)) ? fragment : null;
+    }
+
+    /**
+     * Returns the grid of a month, rendering it if needed.
+     *
+     * @param index the index of the months
+     * @param month the position of the month
+     * @param locale the locale of the strings
+     * @param today the current date
+     *
+     * @return the rendered grid
+     */
+    private Fragment get(MonthIndex index, int month, Locale locale,
+            LocalDate today) {
+        Locale supported = (locales != null) ? locales.clamp(locale) : locale;
+        Key key = new Key(index.getFirstDay(month), supported);
+        LocalDate marked = todayIn(index, month, today);
+        if (app != null && app.isAsOf()) {
+            return new Fragment(index, marked,
+                    write(index, month, supported, marked));
+        }
+        Fragment fragment = lookup(key, index, marked);
+        if (fragment != null) {
+            hits.inc();
+        } else {
+            misses.inc();
+            fragment = render(key, index, month, marked);
+        }
+        prefetch(index, index.moveMonths(month, -1), supported, today);
+        prefetch(index, index.moveMonths(month, 1), supported, today);
+        return fragment;
+    }
+
+    /**
+     * Returns the grid of a month as UTF-8 bytes, rendering it if needed.
+     *
+     * @param index the index of the months
+     * @param month the position of the month
+     * @param locale the locale of the strings
+     * @param today the current date
+     *
+     * @return the markup of the grid as UTF-8 bytes
+     */
+    public byte[] getGrid(MonthIndex index, int month, Locale locale,
+            LocalDate today) {
+        return get(index, month, locale, today).bytes;
+    }
+
+    /**
+     * Returns the grid of a month as a string, rendering it if needed.
+     *
+     * @param index the index of the months
+     * @param month the position of the month
+     * @param locale the locale of the strings
+     * @param today the current date
+     *
+     * @return the markup of the grid
+     */
+    public String getMarkup(MonthIndex index, int month, Locale locale,
+            LocalDate today) {
+        return get(index, month, locale, today).markup;
+    }
+
+    /**
+     * Writes the markup of a grid.
+     *
+     * @param index the index of the months
+     * @param month the position of the month
+     * @param locale the locale of the strings
+     * @param today the day to mark, or null
+     *
+     * @return the markup of the grid
+     */
+    private String write(MonthIndex index, int month, Locale locale,
+            LocalDate today) {
+        MonthView view = views.getMonthView(index, month, locale);
+        StringWriter out = new StringWriter(16384);
+        try {
+            MonthGridWriter.write(out, view, today);
+        } catch (IOException ex) {
+            // Cannot happen with string writers.
+            throw new UncheckedIOException(ex);
+        }
+        return out.toString();
+    }
+
+    /**
+     * Renders a grid and stores it, if there is room for it. When the cache
+     * is full, the grids of a replaced calendar or of a past day are
+     * dropped first.
+     *
+     * @param key the cache key
+     * @param index the index of the months
+     * @param month the position of the month
+     * @param today the day to mark, or null
+     *
+     * @return the rendered grid
+     */
+    private Fragment render(Key key, MonthIndex index, int month,
+            LocalDate today) {
+        Fragment fragment = new Fragment(index, today,
+                write(index, month, key.locale, today));
+        if (fragments.size() >= MAX_ENTRIES && !fragments.containsKey(key)) {
+            fragments.values().removeIf(f -> f.index != index ||
+                    (f.today != null && !f.today.equals(today)));
+            if (fragments.size() >= MAX_ENTRIES) {
+                return fragment;
+            }
+        }
+        fragments.put(key, fragment);
+        return fragment;
+    }
+
+    /**
+     * Renders a grid in the background if it is not cached.
+     *
+     * @param index the index of the months
+     * @param month the position of the month, or -1 if out of range
+     * @param locale the locale of the strings
+     * @param today the current date
+     */
+    private void prefetch(MonthIndex index, int month, Locale locale,
+            LocalDate today) {
+        if (month < 0) {
+            return;
+        }
+        Key key = new Key(index.getFirstDay(month), locale);
+        LocalDate marked = todayIn(index, month, today);
+        if (lookup(key, index, marked) != null || !pending.add(key)) {
+            return;
+        }
+        getPrefetcher().execute(new Prefetch(key, index, month, marked));
+    }
+
+    /**
+     * Drops a prefetch that does not fit in the queue, or that arrives
+     * after the shutdown.
+     *
+     * @param task the prefetch
+     * @param executor the executor
+     */
+    private void drop(Runnable task, ThreadPoolExecutor executor) {
+        Key key = ((Prefetch) task).key;
+        pending.remove(key);
+        LOGGER.log(Level.FINE, "Prefetch of {0} skipped", key.firstDay);
+    }
+
+    /**
+     * Returns the executor of the prefetches, creating it if needed.
+     *
+     * @return the executor
+     */
+    private synchronized ExecutorService getPrefetcher() {
+        if (prefetcher == null) {
+            prefetcher = new ThreadPoolExecutor(1, 1, 0L,
+                    TimeUnit.MILLISECONDS,
+                    new ArrayBlockingQueue<>(PREFETCH_QUEUE), r -> {
+                        Thread t = new Thread(r, "plethonian-prefetch");
+                        t.setDaemon(true);
+                        return t;
+                    }, this::drop);
+        }
+        return prefetcher;
+    }
+
+    /**
+     * Empties the cache.
+     */
+    public void clear() {
+        fragments.clear();
+    }
+
+    /**
+     * Empties the cache when the calendar is reloaded.
+     *
+     * @param event the reload event
+     */
+    public void onCalendarReloaded(@Observes CalendarReloaded event) {
+        clear();
+    }
+
+    /**
+     * Stops the prefetches.
+     */
+    @PreDestroy
+    public synchronized void shutdown() {
+        if (prefetcher != null) {
+            prefetcher.shutdownNow();
+        }
+    }
+}
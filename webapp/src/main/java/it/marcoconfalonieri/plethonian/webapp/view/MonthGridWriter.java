@@ -0,0 +1,192 @@
+/*
+ *     plethonian-webapp - Plethonian calendar Web Application
+ *
+ *     Copyright (C) 2020 Marco Confalonieri <marco at marcoconfalonieri.it>
+ *
+ *     This program is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU Affero General Public License as published
+ *     by the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     This program is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU Affero General Public License for more details.
+ *
+ *     You should have received a copy of the GNU Affero General Public License
+ *     along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package it.marcoconfalonieri.plethonian.webapp.view;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.time.LocalDate;
+
+/**
+ * Writes the markup of a month view directly to a character stream. It is the
+ * only writer of the month grid: the JSF component and the fast render path
+ * both take its output from the {@link MonthFragmentCache}.
+ */
+public final class MonthGridWriter {
+
+    /**
+     * Private constructor. This class has only static methods.
+     */
+    private MonthGridWriter() {
+    }
+
+    /**
+     * Writes a text escaping the HTML special characters.
+     *
+     * @param out the output stream
+     * @param text the text to write
+     *
+     * @throws IOException in case of errors writing the text
+     */
+    public static void writeEscaped(Writer out, String text)
+            throws IOException {
+        int start = 0;
+        int len = text.length();
+        for (int i = 0; i < len; i++) {
+            String entity;
+            switch (text.charAt(i)) {
+                case '&':
+                    entity = "&amp;";
+                    break;
+                case '<':
+                    entity = "&lt;";
+                    break;
+                case '>':
+                    entity = "&gt;";
+                    break;
+                case '"':
+                    entity = "&quot;";
+                    break;
+                default:
+                    continue;
+            }
+            out.write(text, start, i - start);
+            out.write(entity);
+            start = i + 1;
+        }
+        out.write(text, start, len - start);
+    }
+
+    /**
+     * Writes the navigation bar, the year strip, the month title and the
+     * weeks of a month view.
+     *
+     * @param out the output stream
+     * @param view the month view
+     * @param today the current date
+     *
+     * @throws IOException in case of errors writing the markup
+     */
+    public static void write(Writer out, MonthView view, LocalDate today)
+            throws IOException {
+        if (view.getNav() != null) {
+            writeNav(out, view.getNav());
+        }
+        out.write("<div class=\"center-flex\">");
+        for (MonthStripItem item : view.getYearStrip()) {
+            out.write("<div class=\"");
+            out.write(item.getCssClass());
+            out.write("\">");
+            writeEscaped(out, item.getName());
+            out.write("</div>");
+        }
+        out.write("</div><div style=\"text-align: center\"><h2>");
+        writeEscaped(out, view.getName());
+        out.write("</h2></div>");
+        for (WeekView week : view.getWeeks()) {
+            writeWeek(out, week, today);
+        }
+    }
+
+    /**
+     * Writes the navigation bar.
+     *
+     * @param out the output stream
+     * @param nav the navigation bar
+     *
+     * @throws IOException in case of errors writing the markup
+     */
+    private static void writeNav(Writer out, MonthNav nav) throws IOException {
+        out.write("<div class=\"month-nav\">");
+        for (NavLink link : nav.getLinks()) {
+            if (link.getHref() != null) {
+                out.write("<a class=\"nav-link\" href=\"");
+                writeEscaped(out, link.getHref());
+                out.write("\">");
+                writeEscaped(out, link.getLabel());
+                out.write("</a>");
+            } else {
+                out.write("<span class=\"nav-link disabled\">");
+                writeEscaped(out, link.getLabel());
+                out.write("</span>");
+            }
+        }
+        out.write("<form class=\"nav-form\" method=\"get\">"
+                + "<input type=\"date\" name=\"date\" value=\"");
+        out.write(nav.getValue());
+        out.write("\" min=\"");
+        out.write(nav.getMin());
+        out.write("\" max=\"");
+        out.write(nav.getMax());
+        out.write("\" required=\"required\" /><input type=\"submit\" value=\"");
+        writeEscaped(out, nav.getGo());
+        out.write("\" /></form></div>");
+    }
+
+    /**
+     * Writes a week with its title and its days.
+     *
+     * @param out the output stream
+     * @param week the week view
+     * @param today the current date
+     *
+     * @throws IOException in case of errors writing the markup
+     */
+    private static void writeWeek(Writer out, WeekView week, LocalDate today)
+            throws IOException {
+        out.write("<div style=\"text-align: center; width: 100%\">");
+        if (week.getTitle() != null) {
+            out.write("<h3>");
+            writeEscaped(out, week.getTitle());
+            out.write("</h3>");
+        }
+        out.write("</div><div class=\"center\" style=\"width: 100%\">");
+        for (DayView day : week.getDays()) {
+            writeDay(out, day, today);
+        }
+        out.write("</div>");
+    }
+
+    /**
+     * Writes a single day.
+     *
+     * @param out the output stream
+     * @param day the day view
+     * @param today the current date
+     *
+     * @throws IOException in case of errors writing the markup
+     */
+    private static void writeDay(Writer out, DayView day, LocalDate today)
+            throws IOException {
+        out.write(day.getGregorianDate().equals(today) ?
+                "<div class=\"today day-container\"><div class=\"" :
+                "<div class=\"day-container\"><div class=\"");
+        out.write(day.getCssClass());
+        out.write("\"><div style=\"width: 100%; text-align: center; "
+                + "padding: 2px\"><span class=\"");
+        out.write(day.getNameClass());
+        out.write("\">");
+        writeEscaped(out, day.getName());
+        out.write("</span></div></div><div><p style=\"font-size: medium\">");
+        out.write(day.getDayOfYearText());
+        out.write("</p><p style=\"font-size: xx-small\">");
+        out.write(day.getGregorianText());
+        out.write("</p></div></div>");
+    }
+}
@@ -0,0 +1,118 @@
+/*
+ *     plethonian-webapp - Plethonian calendar Web Application
+ *
+ *     Copyright (C) 2020 Marco Confalonieri <marco at marcoconfalonieri.it>
+ *
+ *     This program is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU Affero General Public License as published
+ *     by the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     This program is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU Affero General Public License for more details.
+ *
+ *     You should have received a copy of the GNU Affero General Public License
+ *     along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package it.marcoconfalonieri.plethonian.webapp.view;
+
+import java.io.Serializable;
+import java.time.LocalDate;
+import java.util.List;
+
+/**
+ * Immutable navigation bar of a month: the links to the adjacent months and
+ * years and the date picker.
+ */
+public final class MonthNav implements Serializable {
+    /**
+     * Serial version ID.
+     */
+    private static final long serialVersionUID = -1270348573091857732L;
+    /**
+     * Navigation links.
+     */
+    private final List<NavLink> links;
+    /**
+     * Value of the date picker.
+     */
+    private final String value;
+    /**
+     * First date of the date picker.
+     */
+    private final String min;
+    /**
+     * Last date of the date picker.
+     */
+    private final String max;
+    /**
+     * Localized label of the date picker button.
+     */
+    private final String go;
+
+    /**
+     * Constructor.
+     *
+     * @param links the navigation links
+     * @param value the value of the date picker
+     * @param min the first date that can be picked
+     * @param max the last date that can be picked
+     * @param go the label of the date picker button
+     */
+    MonthNav(List<NavLink> links, LocalDate value, LocalDate min,
+            LocalDate max, String go) {
+        this.links = List.copyOf(links);
+        this.value = value.toString();
+        this.min = min.toString();
+        this.max = max.toString();
+        this.go = go;
+    }
+
+    /**
+     * Getter for the links.
+     *
+     * @return the links
+     */
+    public List<NavLink> getLinks() {
+        return links;
+    }
+
+    /**
+     * Getter for the value of the date picker.
+     *
+     * @return the value
+     */
+    public String getValue() {
+        return value;
+    }
+
+    /**
+     * Getter for the first date of the date picker.
+     *
+     * @return the min
+     */
+    public String getMin() {
+        return min;
+    }
+
+    /**
+     * Getter for the last date of the date picker.
+     *
+     * @return the max
+     */
+    public String getMax() {
+        return max;
+    }
+
+    /**
+     * Getter for the label of the date picker button.
+     *
+     * @return the go label
+     */
+    public String getGo() {
+        return go;
+    }
+}
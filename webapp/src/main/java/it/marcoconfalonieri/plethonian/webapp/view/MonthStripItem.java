@@ -0,0 +1,69 @@
+/*
+ *     plethonian-webapp - Plethonian calendar Web Application
+ *
+ *     Copyright (C) 2020 Marco Confalonieri <marco at marcoconfalonieri.it>
+ *
+ *     This program is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU Affero General Public License as published
+ *     by the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     This program is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU Affero General Public License for more details.
+ *
+ *     You should have received a copy of the GNU Affero General Public License
+ *     along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package it.marcoconfalonieri.plethonian.webapp.view;
+
+import java.io.Serializable;
+
+/**
+ * Immutable entry of the year strip.
+ */
+public final class MonthStripItem implements Serializable {
+    /**
+     * Serial version ID.
+     */
+    private static final long serialVersionUID = 6517398022465093346L;
+    /**
+     * Localized month name.
+     */
+    private final String name;
+    /**
+     * CSS class of the entry.
+     */
+    private final String cssClass;
+
+    /**
+     * Constructor.
+     *
+     * @param name the localized month name
+     * @param current true if it is the month being displayed
+     */
+    MonthStripItem(String name, boolean current) {
+        this.name = name;
+        this.cssClass = current ? "today month-container" : "month-container";
+    }
+
+    /**
+     * Getter for the name.
+     *
+     * @return the name
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Getter for the CSS class.
+     *
+     * @return the cssClass
+     */
+    public String getCssClass() {
+        return cssClass;
+    }
+}
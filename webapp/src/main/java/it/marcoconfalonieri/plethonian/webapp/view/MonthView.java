@@ -0,0 +1,136 @@
+/*
+ *     plethonian-webapp - Plethonian calendar Web Application
+ *
+ *     Copyright (C) 2020 Marco Confalonieri <marco at marcoconfalonieri.it>
+ *
+ *     This program is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU Affero General Public License as published
+ *     by the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     This program is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU Affero General Public License for more details.
+ *
+ *     You should have received a copy of the GNU Affero General Public License
+ *     along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package it.marcoconfalonieri.plethonian.webapp.view;
+
+import java.io.Serializable;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Immutable view of a month in a given locale. It contains the navigation bar,
+ * the year strip, the localized month name and the weeks, so that it can be
+ * rendered without any further lookup.
+ */
+public final class MonthView implements Serializable {
+    /**
+     * Serial version ID.
+     */
+    private static final long serialVersionUID = -4851239405734117226L;
+    /**
+     * First day of the month.
+     */
+    private final LocalDate firstDay;
+    /**
+     * Locale of the strings.
+     */
+    private final Locale locale;
+    /**
+     * Localized month name.
+     */
+    private final String name;
+    /**
+     * Months of the year the month belongs to.
+     */
+    private final List<MonthStripItem> yearStrip;
+    /**
+     * Weeks of the month.
+     */
+    private final List<WeekView> weeks;
+    /**
+     * Navigation bar, or null if the view has none.
+     */
+    private final MonthNav nav;
+
+    /**
+     * Constructor.
+     *
+     * @param firstDay the first day of the month
+     * @param locale the locale of the strings
+     * @param name the localized month name
+     * @param yearStrip the months of the year
+     * @param weeks the weeks of the month
+     * @param nav the navigation bar or null
+     */
+    MonthView(LocalDate firstDay, Locale locale, String name,
+            List<MonthStripItem> yearStrip, List<WeekView> weeks,
+            MonthNav nav) {
+        this.firstDay = firstDay;
+        this.locale = locale;
+        this.name = name;
+        this.yearStrip = List.copyOf(yearStrip);
+        this.weeks = List.copyOf(weeks);
+        this.nav = nav;
+    }
+
+    /**
+     * Getter for the first day.
+     *
+     * @return the firstDay
+     */
+    public LocalDate getFirstDay() {
+        return firstDay;
+    }
+
+    /**
+     * Getter for the locale.
+     *
+     * @return the locale
+     */
+    public Locale getLocale() {
+        return locale;
+    }
+
+    /**
+     * Getter for the name.
+     *
+     * @return the name
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Getter for the year strip.
+     *
+     * @return the yearStrip
+     */
+    public List<MonthStripItem> getYearStrip() {
+        return yearStrip;
+    }
+
+    /**
+     * Getter for the weeks.
+     *
+     * @return the weeks
+     */
+    public List<WeekView> getWeeks() {
+        return weeks;
+    }
+
+    /**
+     * Getter for the navigation bar.
+     *
+     * @return the navigation bar or null
+     */
+    public MonthNav getNav() {
+        return nav;
+    }
+}
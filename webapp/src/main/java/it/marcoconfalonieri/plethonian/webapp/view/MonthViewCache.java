@@ -0,0 +1,323 @@
+/*
+ *     plethonian-webapp - Plethonian calendar Web Application
+ *
+ *     Copyright (C) 2020 Marco Confalonieri <marco at marcoconfalonieri.it>
+ *
+ *     This program is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU Affero General Public License as published
+ *     by the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     This program is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU Affero General Public License for more details.
+ *
+ *     You should have received a copy of the GNU Affero General Public License
+ *     along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package it.marcoconfalonieri.plethonian.webapp.view;
+
+import it.marcoconfalonieri.plethonian.calendar.PlethonianCalendar;
+import it.marcoconfalonieri.plethonian.calendar.PlethonianDay;
+import it.marcoconfalonieri.plethonian.calendar.PlethonianMonth;
+import it.marcoconfalonieri.plethonian.calendar.PlethonianWeekName;
+import it.marcoconfalonieri.plethonian.calendar.PlethonianYear;
+import it.marcoconfalonieri.plethonian.webapp.controller.CalendarReloaded;
+import it.marcoconfalonieri.plethonian.webapp.controller.MonthIndex;
+import it.marcoconfalonieri.plethonian.webapp.jfr.CacheAccessEvent;
+import it.marcoconfalonieri.plethonian.webapp.metrics.Counter;
+import it.marcoconfalonieri.plethonian.webapp.metrics.MetricsRegistry;
+import it.marcoconfalonieri.plethonian.webapp.servlet.SupportedLocales;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Objects;
+import java.util.ResourceBundle;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import javax.enterprise.context.ApplicationScoped;
+import javax.enterprise.event.Observes;
+import javax.inject.Inject;
+import javax.inject.Named;
+
+/**
+ * Application-scoped cache of the localized month views. Each view is built
+ * once per month and locale and then shared by all the requests. The
+ * locales are clamped to the supported ones, so the cache holds at most one
+ * view per month and supported locale.
+ */
+@ApplicationScoped
+@Named("views")
+public class MonthViewCache {
+    /**
+     * Base name of the web page resource bundle.
+     */
+    public static final String BUNDLE_BASE_NAME =
+            "it.marcoconfalonieri.plethonian.webapp.webpage";
+    /**
+     * Name of the hit counter.
+     */
+    public static final String HITS =
+            "plethonian_month_view_cache_hits_total";
+    /**
+     * Name of the miss counter.
+     */
+    public static final String MISSES =
+            "plethonian_month_view_cache_misses_total";
+
+    /**
+     * Cache key.
+     */
+    private static final class Key {
+        private final LocalDate firstDay;
+        private final Locale locale;
+
+        Key(LocalDate firstDay, Locale locale) {
+            this.firstDay = firstDay;
+            this.locale = locale;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (!(obj instanceof Key)) {
+                return false;
+            }
+            Key k = (Key) obj;
+            return firstDay.equals(k.firstDay) && locale.equals(k.locale);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(firstDay, locale);
+        }
+    }
+
+    /**
+     * The cached views.
+     */
+    private final ConcurrentMap<Key, MonthView> views =
+            new ConcurrentHashMap<>();
+    /**
+     * Supported locales.
+     */
+    @Inject
+    private SupportedLocales locales;
+    /**
+     * Cache hits.
+     */
+    private Counter hits = new Counter();
+    /**
+     * Cache misses.
+     */
+    private Counter misses = new Counter();
+
+    /**
+     * Returns the view of a month, building it if needed.
+     *
+     * @param index the index of the months
+     * @param month the position of the month in the index
+     * @param locale the locale of the strings, replaced with the default one
+     *     if it is not supported
+     *
+     * @return the month view
+     */
+    public MonthView getMonthView(MonthIndex index, int month,
+            Locale locale) {
+        CacheAccessEvent event = new CacheAccessEvent();
+        event.begin();
+        Locale supported = (locales != null) ? locales.clamp(locale) : locale;
+        LocalDate firstDay = index.getFirstDay(month);
+        Key key = new Key(firstDay, supported);
+        MonthView view = views.get(key);
+        boolean hit = view != null;
+        if (hit) {
+            hits.inc();
+        } else {
+            misses.inc();
+            view = views.computeIfAbsent(key,
+                    k -> createMonthView(index, month, supported));
+        }
+        event.end();
+        if (event.shouldCommit()) {
+            event.cache = "views";
+            event.key = firstDay + "/" + supported;
+            event.hit = hit;
+            event.commit();
+        }
+        return view;
+    }
+
+    /**
+     * Registers the cache metrics.
+     *
+     * @param metrics the registry of the metrics
+     */
+    @Inject
+    void setMetrics(MetricsRegistry metrics) {
+        hits = metrics.counter(HITS, "Month view cache hits");
+        misses = metrics.counter(MISSES, "Month view cache misses");
+    }
+
+    /**
+     * Empties the cache.
+     */
+    public void clear() {
+        views.clear();
+    }
+
+    /**
+     * Empties the cache when the calendar is reloaded.
+     *
+     * @param event the reload event
+     */
+    public void onCalendarReloaded(@Observes CalendarReloaded event) {
+        clear();
+    }
+
+    /**
+     * Returns a localized string or null if the key is missing.
+     *
+     * @param msg the resource bundle
+     * @param key the key
+     *
+     * @return the localized string or null
+     */
+    private static String lookup(ResourceBundle msg, String key) {
+        return msg.containsKey(key) ? msg.getString(key) : null;
+    }
+
+    /**
+     * Creates the view of a day.
+     *
+     * @param msg the resource bundle
+     * @param day the day
+     *
+     * @return the view of the day
+     */
+    private static DayView createDayView(ResourceBundle msg,
+            PlethonianDay day) {
+        boolean holiday = day.getMonthFestivity() != null;
+        String festivity = holiday ?
+                lookup(msg, "holiday.day." + day.getDayOfMonth()) : null;
+        return new DayView(day.getGregorianDate(), day.getDayOfYear(),
+                lookup(msg, "dayname." + day.getLabel()), day.getLabel(),
+                holiday, festivity);
+    }
+
+    /**
+     * Creates a navigation link.
+     *
+     * @param msg the resource bundle
+     * @param key the key of the label
+     * @param index the index of the months
+     * @param target the position of the target month, or -1 if out of range
+     *
+     * @return the link
+     */
+    private static NavLink createLink(ResourceBundle msg, String key,
+            MonthIndex index, int target) {
+        return new NavLink(msg.getString(key), (target >= 0) ?
+                "?date=" + index.getFirstDay(target) : null);
+    }
+
+    /**
+     * Creates the navigation bar of a month.
+     *
+     * @param msg the resource bundle
+     * @param index the index of the months
+     * @param month the position of the month
+     *
+     * @return the navigation bar
+     */
+    private static MonthNav createMonthNav(ResourceBundle msg,
+            MonthIndex index, int month) {
+        List<NavLink> links = List.of(
+                createLink(msg, "nav.prevYear", index,
+                        index.moveYears(month, -1)),
+                createLink(msg, "nav.prevMonth", index,
+                        index.moveMonths(month, -1)),
+                new NavLink(msg.getString("nav.today"), "?"),
+                createLink(msg, "nav.nextMonth", index,
+                        index.moveMonths(month, 1)),
+                createLink(msg, "nav.nextYear", index,
+                        index.moveYears(month, 1)));
+        return new MonthNav(links, index.getFirstDay(month),
+                index.getFirstDate(), index.getLastDate(),
+                msg.getString("nav.go"));
+    }
+
+    /**
+     * Creates the view of a month with its navigation bar.
+     *
+     * @param index the index of the months
+     * @param month the position of the month in the index
+     * @param locale the locale of the strings
+     *
+     * @return the month view
+     */
+    public static MonthView createMonthView(MonthIndex index, int month,
+            Locale locale) {
+        PlethonianCalendar calendar = index.getCalendar();
+        LocalDate date = index.getFirstDay(month);
+        ResourceBundle msg = ResourceBundle.getBundle(BUNDLE_BASE_NAME, locale);
+        return createMonthView(calendar.getYear(date),
+                calendar.getMonth(date), locale, msg,
+                createMonthNav(msg, index, month));
+    }
+
+    /**
+     * Creates the view of a month without navigation bar.
+     *
+     * @param year the year the month belongs to
+     * @param month the month
+     * @param locale the locale of the strings
+     *
+     * @return the month view
+     */
+    public static MonthView createMonthView(PlethonianYear year,
+            PlethonianMonth month, Locale locale) {
+        return createMonthView(year, month, locale,
+                ResourceBundle.getBundle(BUNDLE_BASE_NAME, locale), null);
+    }
+
+    /**
+     * Creates the view of a month.
+     *
+     * @param year the year the month belongs to
+     * @param month the month
+     * @param locale the locale of the strings
+     * @param msg the resource bundle of the locale
+     * @param nav the navigation bar or null
+     *
+     * @return the month view
+     */
+    private static MonthView createMonthView(PlethonianYear year,
+            PlethonianMonth month, Locale locale, ResourceBundle msg,
+            MonthNav nav) {
+
+        List<MonthStripItem> yearStrip = new ArrayList<>();
+        for (PlethonianMonth m : year.getMonths()) {
+            yearStrip.add(new MonthStripItem(
+                    msg.getString("months." + m.getMonth()),
+                    m.getMonth() == month.getMonth()));
+        }
+
+        List<WeekView> weeks = new ArrayList<>();
+        for (PlethonianWeekName week : PlethonianWeekName.values()) {
+            List<DayView> days = new ArrayList<>();
+            for (PlethonianDay day : month.getDays()) {
+                if (day.getWeek() == week) {
+                    days.add(createDayView(msg, day));
+                }
+            }
+            weeks.add(new WeekView(lookup(msg, "weeks." + week), days));
+        }
+
+        return new MonthView(month.getFirstDay(), locale,
+                msg.getString("months." + month.getMonth()), yearStrip, weeks,
+                nav);
+    }
+}
@@ -0,0 +1,69 @@
+/*
+ *     plethonian-webapp - Plethonian calendar Web Application
+ *
+ *     Copyright (C) 2020 Marco Confalonieri <marco at marcoconfalonieri.it>
+ *
+ *     This program is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU Affero General Public License as published
+ *     by the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     This program is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU Affero General Public License for more details.
+ *
+ *     You should have received a copy of the GNU Affero General Public License
+ *     along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package it.marcoconfalonieri.plethonian.webapp.view;
+
+import java.io.Serializable;
+
+/**
+ * Immutable link of the navigation bar.
+ */
+public final class NavLink implements Serializable {
+    /**
+     * Serial version ID.
+     */
+    private static final long serialVersionUID = 3958023365612070428L;
+    /**
+     * Localized text of the link.
+     */
+    private final String label;
+    /**
+     * Relative URL of the link, or null if the target is out of range.
+     */
+    private final String href;
+
+    /**
+     * Constructor.
+     *
+     * @param label the localized text
+     * @param href the relative URL, or null if the target is out of range
+     */
+    NavLink(String label, String href) {
+        this.label = label;
+        this.href = href;
+    }
+
+    /**
+     * Getter for the label.
+     *
+     * @return the label
+     */
+    public String getLabel() {
+        return label;
+    }
+
+    /**
+     * Getter for the relative URL.
+     *
+     * @return the href or null if the link is disabled
+     */
+    public String getHref() {
+        return href;
+    }
+}
@@ -0,0 +1,70 @@
+/*
+ *     plethonian-webapp - Plethonian calendar Web Application
+ *
+ *     Copyright (C) 2020 Marco Confalonieri <marco at marcoconfalonieri.it>
+ *
+ *     This program is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU Affero General Public License as published
+ *     by the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     This program is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU Affero General Public License for more details.
+ *
+ *     You should have received a copy of the GNU Affero General Public License
+ *     along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package it.marcoconfalonieri.plethonian.webapp.view;
+
+import java.io.Serializable;
+import java.util.List;
+
+/**
+ * Immutable view of a week, with its localized title and its days.
+ */
+public final class WeekView implements Serializable {
+    /**
+     * Serial version ID.
+     */
+    private static final long serialVersionUID = -3106873641905254129L;
+    /**
+     * Localized title, or null if the week has no title.
+     */
+    private final String title;
+    /**
+     * Days of the week.
+     */
+    private final List<DayView> days;
+
+    /**
+     * Constructor.
+     *
+     * @param title the localized title or null
+     * @param days the days of the week
+     */
+    WeekView(String title, List<DayView> days) {
+        this.title = title;
+        this.days = List.copyOf(days);
+    }
+
+    /**
+     * Getter for the title.
+     *
+     * @return the title or null
+     */
+    public String getTitle() {
+        return title;
+    }
+
+    /**
+     * Getter for the days.
+     *
+     * @return the days
+     */
+    public List<DayView> getDays() {
+        return days;
+    }
+}
@@ -0,0 +1,69 @@
+/*
+ *     plethonian-webapp - Plethonian calendar Web Application
+ *
+ *     Copyright (C) 2020 Marco Confalonieri <marco at marcoconfalonieri.it>
+ *
+ *     This program is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU Affero General Public License as published
+ *     by the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     This program is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU Affero General Public License for more details.
+ *
+ *     You should have received a copy of the GNU Affero General Public License
+ *     along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package it.marcoconfalonieri.plethonian.webapp.api;
+
+import static org.junit.jupiter.api.Assertions.*;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Test of JsonWriter class.
+ */
+public class JsonWriterTest {
+
+    /**
+     * Test of nested containers and separators.
+     */
+    @Test
+    public void testNesting() {
+        JsonWriter json = new JsonWriter();
+        json.beginObject()
+                .name("a").value(1)
+                .name("b").beginArray().value(true).value((String) null)
+                .beginObject().endObject().endArray()
+                .name("c").value("x")
+                .endObject();
+        assertEquals("{\"a\":1,\"b\":[true,null,{}],\"c\":\"x\"}",
+                json.toString());
+    }
+
+    /**
+     * Test of string escaping.
+     */
+    @Test
+    public void testEscaping() {
+        JsonWriter json = new JsonWriter();
+        json.value("q\"b\\n\nc\u0001\u2028 Lìgure");
+        assertEquals("\"q\\\"b\\\\n\\nc\\u0001\\u2028 Lìgure\"",
+                json.toString());
+    }
+
+    /**
+     * Test of the entity tag of a response.
+     */
+    @Test
+    public void testEtag() {
+        ApiResponse response = new ApiResponse("{}");
+        String etag = response.getEtag();
+        assertTrue(response.matches(etag));
+        assertTrue(response.matches("\"x\", W/" + etag));
+        assertFalse(response.matches("\"x\""));
+        assertFalse(response.matches(null));
+    }
+}
@@ -0,0 +1,108 @@
+/*
+ *     plethonian-webapp - Plethonian calendar Web Application
+ *
+ *     Copyright (C) 2020 Marco Confalonieri <marco at marcoconfalonieri.it>
+ *
+ *     This program is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU Affero General Public License as published
+ *     by the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     This program is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU Affero General Public License for more details.
+ *
+ *     You should have received a copy of the GNU Affero General Public License
+ *     along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package it.marcoconfalonieri.plethonian.webapp.assets;
+
+import it.marcoconfalonieri.plethonian.webapp.assets.AssetManifest.Asset;
+import it.marcoconfalonieri.plethonian.webapp.assets.AssetManifest.Variant;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.*;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Test of AssetManifest class.
+ */
+public class AssetManifestTest {
+    private static final String MANIFEST =
+            "source./resources/css/default.css=" +
+            "/resources/css/default.0123456789.css\n" +
+            "variants./resources/css/default.0123456789.css=" +
+            "identity:2721,br:800,gzip:950\n" +
+            "variants./resources/img/paper.abcdef0123.jpg=" +
+            "identity:364641,webp:246148\n";
+
+    private static AssetManifest read(String text) throws IOException {
+        return AssetManifest.read(new ByteArrayInputStream(
+                text.getBytes(StandardCharsets.ISO_8859_1)));
+    }
+
+    /**
+     * Test that without a manifest the assets keep their paths.
+     */
+    @Test
+    public void testEmpty() throws IOException {
+        AssetManifest manifest = AssetManifest.read(null);
+        assertEquals("/favicon.ico", manifest.path("/favicon.ico"));
+        assertNull(manifest.find("/favicon.ico"));
+        assertEquals(0, manifest.size());
+    }
+
+    /**
+     * Test the paths and the variants read from a manifest.
+     */
+    @Test
+    public void testRead() throws IOException {
+        AssetManifest manifest = read(MANIFEST);
+        assertEquals("/resources/css/default.0123456789.css",
+                manifest.path("/resources/css/default.css"));
+        assertEquals("/favicon.ico", manifest.path("/favicon.ico"));
+        Asset css = manifest.find("/resources/css/default.0123456789.css");
+        assertEquals("0123456789", css.getFingerprint());
+        assertEquals(2721, css.getLength(Variant.IDENTITY));
+        assertEquals(950, css.getLength(Variant.GZIP));
+        assertEquals(-1, css.getLength(Variant.WEBP));
+        assertEquals("Accept-Encoding", css.getVary());
+        assertEquals("Accept", manifest.find(
+                "/resources/img/paper.abcdef0123.jpg").getVary());
+        assertNull(manifest.find("/resources/css/default.css"));
+    }
+
+    /**
+     * Test the choice of the variant from the request headers.
+     */
+    @Test
+    public void testSelect() throws IOException {
+        AssetManifest manifest = read(MANIFEST);
+        Asset css = manifest.find("/resources/css/default.0123456789.css");
+        assertEquals(Variant.BROTLI, css.select(null, "gzip, deflate, br"));
+        assertEquals(Variant.GZIP, css.select(null, "gzip, br;q=0"));
+        assertEquals(Variant.IDENTITY, css.select(null, "gzip;q=0.0"));
+        assertEquals(Variant.IDENTITY, css.select(null, null));
+        Asset jpg = manifest.find("/resources/img/paper.abcdef0123.jpg");
+        assertEquals(Variant.WEBP, jpg.select(
+                "image/avif,image/webp,*/*;q=0.8", "gzip"));
+        assertEquals(Variant.IDENTITY, jpg.select("image/*", "gzip"));
+    }
+
+    /**
+     * Test that malformed manifests are rejected.
+     */
+    @Test
+    public void testInvalid() {
+        assertThrows(IOException.class, () -> read(
+                "variants./a.0123456789.css=identity:1,zip:1\n"));
+        assertThrows(IOException.class, () -> read(
+                "variants./a.0123456789.css=gzip:1\n"));
+        assertThrows(IOException.class, () -> read(
+                "variants./a.css=identity:1\n"));
+    }
+}
@@ -0,0 +1,139 @@
+/*
+ *     plethonian-webapp - Plethonian calendar Web Application
+ *
+ *     Copyright (C) 2020 Marco Confalonieri <marco at marcoconfalonieri.it>
+ *
+ *     This program is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU Affero General Public License as published
+ *     by the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     This program is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU Affero General Public License for more details.
+ *
+ *     You should have received a copy of the GNU Affero General Public License
+ *     along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package it.marcoconfalonieri.plethonian.webapp.controller;
+
+import it.marcoconfalonieri.plethonian.calendar.PlethonianCalendar;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Clock;
+import java.time.LocalDate;
+import java.time.Month;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * Test of CalendarProvider class.
+ */
+public class CalendarProviderTest {
+    private static final LocalDate TODAY = LocalDate.of(2026, Month.MARCH, 1);
+    private static final String SOLSTICES = "solstices-equinoxes.txt";
+
+    /**
+     * Reads the lines of the bundled table of the solstices.
+     *
+     * @return the lines
+     */
+    private static List<String> readSolstices() throws IOException {
+        try (InputStream in = CalendarProviderTest.class.getResourceAsStream(
+                "/com/astropixels/sun/" + SOLSTICES)) {
+            return Arrays.asList(new String(in.readAllBytes(),
+                    StandardCharsets.UTF_8).split("\n"));
+        }
+    }
+
+    /**
+     * Test that a reload with data covering fewer years is rejected, while
+     * one covering the same years is swapped in.
+     */
+    @Test
+    public void testReload(@TempDir Path dir) throws IOException {
+        CalendarProvider instance = new CalendarProvider(dir, Clock.fixed(
+                TODAY.atStartOfDay().toInstant(ZoneOffset.UTC),
+                ZoneOffset.UTC));
+        try {
+            PlethonianCalendar calendar = instance.getFuture().join();
+            String version = instance.getDataVersion();
+            assertNotNull(version);
+
+            List<String> lines = readSolstices();
+            // Keep the years up to 2030, which still cover today
+            Files.write(dir.resolve(SOLSTICES), lines.subList(0, 30),
+                    StandardCharsets.UTF_8);
+            assertFalse(instance.reload().join());
+            assertEquals(version, instance.getDataVersion());
+            assertSame(calendar, instance.getCalendar());
+
+            // Same years, different checksum
+            lines = new ArrayList<>(lines);
+            lines.set(0, lines.get(0) + " ");
+            Files.write(dir.resolve(SOLSTICES), lines, StandardCharsets.UTF_8);
+            assertTrue(instance.reload().join());
+            assertNotEquals(version, instance.getDataVersion());
+            assertNotSame(calendar, instance.getCalendar());
+            assertEquals(calendar.getFirstDate(),
+                    instance.getCalendar().getFirstDate());
+            assertEquals(calendar.getLastDate(),
+                    instance.getCalendar().getLastDate());
+        } finally {
+            instance.shutdown();
+        }
+    }
+
+    /**
+     * Test that a failed build is retried.
+     */
+    @Test
+    public void testRetry() {
+        AtomicInteger attempts = new AtomicInteger();
+        CalendarProvider instance = new CalendarProvider() {
+            @Override
+            protected PlethonianCalendar build() {
+                if (attempts.incrementAndGet() == 1) {
+                    throw new UncheckedIOException(
+                            new IOException("Simulated failure"));
+                }
+                return super.build();
+            }
+        };
+        try {
+            instance.start();
+            assertFalse(instance.isFailed());
+            assertNotNull(instance.getFuture().join());
+            assertEquals(2, attempts.get());
+            assertTrue(instance.isReady());
+            assertFalse(instance.isFailed());
+        } finally {
+            instance.shutdown();
+        }
+    }
+
+    /**
+     * Test of parseTimeout method, of class CalendarProvider.
+     */
+    @Test
+    public void testParseTimeout() {
+        assertEquals(5, CalendarProvider.parseTimeout("5"));
+        long def = CalendarProvider.parseTimeout("30s");
+        assertTrue(def > 0);
+        assertEquals(def, CalendarProvider.parseTimeout("0"));
+        assertEquals(def, CalendarProvider.parseTimeout("-1"));
+    }
+}
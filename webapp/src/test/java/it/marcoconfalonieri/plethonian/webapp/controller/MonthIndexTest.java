@@ -0,0 +1,134 @@
+/*
+ *     plethonian-webapp - Plethonian calendar Web Application
+ *
+ *     Copyright (C) 2020 Marco Confalonieri <marco at marcoconfalonieri.it>
+ *
+ *     This program is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU Affero General Public License as published
+ *     by the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     This program is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU Affero General Public License for more details.
+ *
+ *     You should have received a copy of the GNU Affero General Public License
+ *     along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package it.marcoconfalonieri.plethonian.webapp.controller;
+
+import it.marcoconfalonieri.plethonian.calendar.PlethonianMonth;
+import it.marcoconfalonieri.plethonian.calendar.PlethonianMonthName;
+import it.marcoconfalonieri.plethonian.calendar.PlethonianYear;
+import it.marcoconfalonieri.plethonian.calendar.astropixel.PlethonianCalendarImpl;
+import it.marcoconfalonieri.plethonian.calendar.snapshot.DayTable;
+import it.marcoconfalonieri.plethonian.calendar.snapshot.DayTableCalendar;
+import java.io.IOException;
+import java.time.LocalDate;
+import java.time.Month;
+import java.time.format.DateTimeParseException;
+
+import static org.junit.jupiter.api.Assertions.*;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Test of the index of the months.
+ */
+public class MonthIndexTest {
+    private static PlethonianCalendarImpl calendar;
+    private static MonthIndex index;
+
+    @BeforeAll
+    public static void setUp() throws IOException {
+        calendar = new PlethonianCalendarImpl();
+        index = MonthIndex.build(calendar);
+    }
+
+    /**
+     * Test that the index lists every month of the calendar in order.
+     */
+    @Test
+    public void testBuild() {
+        int i = 0;
+        for (PlethonianYear year : calendar.getYears()) {
+            for (PlethonianMonth month : year.getMonths()) {
+                assertEquals(month.getFirstDay(), index.getFirstDay(i));
+                assertEquals(i, index.indexOf(month.getFirstDay()));
+                assertEquals(i, index.indexOf(
+                        month.getDays().last().getGregorianDate()));
+                i++;
+            }
+        }
+        assertEquals(i, index.size());
+        assertEquals(calendar.getFirstDate(), index.getFirstDate());
+        assertEquals(calendar.getLastDate(), index.getLastDate());
+        assertEquals(-1, index.indexOf(calendar.getFirstDate().minusDays(1)));
+        assertEquals(-1, index.indexOf(calendar.getLastDate().plusDays(1)));
+
+        MonthIndex table = MonthIndex.build(
+                new DayTableCalendar(DayTable.build(calendar)));
+        assertEquals(index.size(), table.size());
+        assertEquals(index.getFirstDay(index.size() - 1),
+                table.getFirstDay(table.size() - 1));
+    }
+
+    /**
+     * Test of the navigation by months and years.
+     */
+    @Test
+    public void testMove() {
+        LocalDate date = LocalDate.of(2021, Month.MARCH, 15);
+        int i = index.indexOf(date);
+        PlethonianMonth month = calendar.getMonth(date);
+        assertEquals(month.getFirstDay(), index.getFirstDay(i));
+
+        LocalDate next = month.getDays().last().getGregorianDate()
+                .plusDays(1);
+        assertEquals(next, index.getFirstDay(index.moveMonths(i, 1)));
+        LocalDate previous = month.getFirstDay().minusDays(1);
+        assertEquals(calendar.getMonth(previous).getFirstDay(),
+                index.getFirstDay(index.moveMonths(i, -1)));
+        assertEquals(-1, index.moveMonths(0, -1));
+        assertEquals(-1, index.moveMonths(index.size() - 1, 1));
+
+        PlethonianYear year = calendar.getYear(date);
+        LocalDate nextYear = year.getFirstDay().plusDays(year.getDays());
+        PlethonianMonth same = calendar.getMonth(
+                index.getFirstDay(index.moveYears(i, 1)));
+        assertEquals(calendar.getYear(nextYear).getFirstDay(),
+                calendar.getYear(same.getFirstDay()).getFirstDay());
+        assertEquals(month.getMonth(), same.getMonth());
+        assertEquals(i, index.moveYears(index.moveYears(i, 1), -1));
+
+        // The thirteenth month goes to the last month of the next year.
+        LocalDate thirteenth = calendar.getYears().stream()
+                .flatMap(y -> y.getMonths().stream())
+                .filter(m -> m.getMonth() == PlethonianMonthName.THIRTEENTH)
+                .findFirst().orElseThrow().getFirstDay();
+        PlethonianYear leap = calendar.getYear(thirteenth);
+        PlethonianYear after = calendar.getYear(
+                leap.getFirstDay().plusDays(leap.getDays()));
+        assertEquals(after.getMonths().last().getFirstDay(), index.getFirstDay(
+                index.moveYears(index.indexOf(thirteenth), 1)));
+        assertEquals(-1, index.moveYears(0, -1));
+        assertEquals(-1, index.moveYears(index.size() - 1, 1));
+    }
+
+    /**
+     * Test of the resolution of the date parameter.
+     */
+    @Test
+    public void testResolve() {
+        LocalDate today = LocalDate.of(2021, Month.MARCH, 15);
+        assertEquals(index.indexOf(today), index.resolve(null, today));
+        assertEquals(index.indexOf(LocalDate.of(2050, Month.JULY, 14)),
+                index.resolve("2050-07-14", today));
+        assertThrows(DateTimeParseException.class,
+                () -> index.resolve("14/07/2050", today));
+        assertThrows(IllegalArgumentException.class,
+                () -> index.resolve("1990-01-01", today));
+    }
+}
@@ -0,0 +1,355 @@
+/*
+ *     plethonian-webapp - Plethonian calendar Web Application
+ *
+ *     Copyright (C) 2020 Marco Confalonieri <marco at marcoconfalonieri.it>
+ *
+ *     This program is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU Affero General Public License as published
+ *     by the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     This program is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU Affero General Public License for more details.
+ *
+ *     You should have received a copy of the GNU Affero General Public License
+ *     along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package it.marcoconfalonieri.plethonian.webapp.controller;
+
+import it.marcoconfalonieri.plethonian.calendar.PlethonianDay;
+import it.marcoconfalonieri.plethonian.calendar.PlethonianMonth;
+import it.marcoconfalonieri.plethonian.calendar.PlethonianYear;
+import it.marcoconfalonieri.plethonian.calendar.PlethonianWeekName;
+import it.marcoconfalonieri.plethonian.webapp.metrics.MetricsRegistry;
+import java.time.Clock;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.Month;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SortedMap;
+import java.util.SortedSet;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Stress test of the shared state of the application bean: several threads
+ * read the current day, either as a whole or through the single getters,
+ * while a test clock moves across month and year boundaries. The number of
+ * days can be raised with the {@code plethonian.stress.days} system property.
+ */
+public class PlethonianCalendarAppStressTest {
+    private static final LocalDate START = LocalDate.of(2020, Month.DECEMBER, 1);
+
+    private static final int DAYS = Integer.getInteger(
+            "plethonian.stress.days", 60);
+
+    private static final int READERS = 4;
+
+    private static final String[] REASON = {"reason"};
+
+    private static CalendarProvider provider;
+
+    /**
+     * Clock that is moved forward by the test.
+     */
+    private static final class TestClock extends Clock {
+        private volatile Instant instant;
+
+        TestClock(LocalDate date) {
+            set(date);
+        }
+
+        void set(LocalDate date) {
+            instant = date.atTime(12, 0).toInstant(ZoneOffset.UTC);
+        }
+
+        @Override
+        public ZoneId getZone() {
+            return ZoneOffset.UTC;
+        }
+
+        @Override
+        public Clock withZone(ZoneId zone) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public Instant instant() {
+            return instant;
+        }
+    }
+
+    @BeforeAll
+    public static void setUp() {
+        provider = new CalendarProvider();
+        provider.start();
+        provider.getFuture().join();
+    }
+
+    @AfterAll
+    public static void tearDown() {
+        provider.shutdown();
+    }
+
+    /**
+     * Returns the inconsistency of a snapshot, if any.
+     */
+    private static String check(CurrentDay day) {
+        PlethonianDay today = day.getToday();
+        if (!today.getGregorianDate().equals(day.getDate())) {
+            return "day " + today.getGregorianDate() + " for " + day.getDate();
+        }
+        if (!day.getMonth().getDays().contains(today)) {
+            return "month " + day.getMonth().getMonth() + " without "
+                    + day.getDate();
+        }
+        if (!day.getYear().getMonths().contains(day.getMonth())) {
+            return "year " + day.getYear().getFirstDay() + " without month "
+                    + day.getMonth().getMonth();
+        }
+        int count = 0;
+        for (SortedSet<PlethonianDay> days : day.getMonthMatrix().values()) {
+            for (PlethonianDay d : days) {
+                if (!day.getMonth().getDays().contains(d)) {
+                    return "matrix with foreign day " + d.getGregorianDate();
+                }
+                count++;
+            }
+        }
+        if (count != day.getMonth().getDays().size()) {
+            return "matrix with " + count + " days instead of "
+                    + day.getMonth().getDays().size();
+        }
+        return null;
+    }
+
+    /**
+     * Returns the last date of a month.
+     */
+    private static LocalDate lastDate(PlethonianMonth month) {
+        return month.getDays().last().getGregorianDate();
+    }
+
+    /**
+     * Returns the last date of a year.
+     */
+    private static LocalDate lastDate(PlethonianYear year) {
+        return year.getFirstDay().plusDays(year.getDays() - 1);
+    }
+
+    /**
+     * Checks whether a range of dates has days between two dates.
+     */
+    private static boolean overlaps(LocalDate first, LocalDate last,
+            LocalDate from, LocalDate to) {
+        return !first.isAfter(to) && !last.isBefore(from);
+    }
+
+    /**
+     * Returns the inconsistency of values read with the single getters, if
+     * any. Since the day may roll over between two reads, each value must
+     * belong to a day between the first and the last read of today, and two
+     * values that belong to the same period must agree.
+     */
+    private static String check(PlethonianDay from, PlethonianMonth month,
+            SortedMap<PlethonianWeekName, SortedSet<PlethonianDay>> matrix,
+            PlethonianYear year, PlethonianDay to) {
+        LocalDate start = from.getGregorianDate();
+        LocalDate end = to.getGregorianDate();
+        if (end.isBefore(start)) {
+            return "went back from " + start + " to " + end;
+        }
+        if (!overlaps(month.getFirstDay(), lastDate(month), start, end)) {
+            return "month from " + month.getFirstDay() + " read between "
+                    + start + " and " + end;
+        }
+        if (!overlaps(year.getFirstDay(), lastDate(year), start, end)) {
+            return "year from " + year.getFirstDay() + " read between "
+                    + start + " and " + end;
+        }
+        SortedSet<PlethonianDay> days = new TreeSet<>();
+        for (SortedSet<PlethonianDay> week : matrix.values()) {
+            days.addAll(week);
+        }
+        if (days.isEmpty()) {
+            return "empty month matrix";
+        }
+        LocalDate first = days.first().getGregorianDate();
+        PlethonianMonth matrixMonth = provider.getCalendar().getMonth(first);
+        if (!first.equals(matrixMonth.getFirstDay()) ||
+                !days.equals(matrixMonth.getDays())) {
+            return "matrix with " + days.size() + " days from " + first
+                    + " instead of a whole month";
+        }
+        if (!overlaps(first, lastDate(matrixMonth), start, end)) {
+            return "matrix from " + first + " read between " + start
+                    + " and " + end;
+        }
+        if (overlaps(year.getFirstDay(), lastDate(year),
+                month.getFirstDay(), month.getFirstDay()) &&
+                !year.getMonths().contains(month)) {
+            return "year " + year.getFirstDay() + " without month "
+                    + month.getFirstDay();
+        }
+        return null;
+    }
+
+    /**
+     * Moves the clock day by day while the readers run, waiting after each
+     * step until every reader has read again.
+     *
+     * @param clock the clock
+     * @param readers the supplier of the readers, each one called repeatedly
+     *     by its own thread
+     *
+     * @return the last date
+     */
+    private static LocalDate drive(TestClock clock, Supplier<Runnable> readers)
+            throws InterruptedException {
+        AtomicBoolean done = new AtomicBoolean();
+        AtomicLong reads = new AtomicLong();
+        CountDownLatch ready = new CountDownLatch(READERS);
+        List<Thread> threads = new ArrayList<>();
+        for (int i = 0; i < READERS; i++) {
+            Runnable reader = readers.get();
+            Thread t = new Thread(() -> {
+                ready.countDown();
+                while (!done.get()) {
+                    reader.run();
+                    reads.incrementAndGet();
+                }
+            }, "stress-reader-" + i);
+            threads.add(t);
+            t.start();
+        }
+        assertTrue(ready.await(10, TimeUnit.SECONDS));
+        LocalDate date = START;
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(60);
+        for (int i = 0; i < DAYS; i++) {
+            date = date.plusDays(1);
+            clock.set(date);
+            long target = reads.get() + READERS;
+            while (reads.get() < target && System.nanoTime() < deadline) {
+                Thread.yield();
+            }
+        }
+        done.set(true);
+        for (Thread t : threads) {
+            t.join(TimeUnit.SECONDS.toMillis(10));
+        }
+        return date;
+    }
+
+    @Test
+    public void testRollover() throws InterruptedException {
+        TestClock clock = new TestClock(START);
+        MetricsRegistry metrics = new MetricsRegistry();
+        PlethonianCalendarApp app = new PlethonianCalendarApp(provider,
+                metrics, clock);
+        ConcurrentLinkedQueue<String> failures = new ConcurrentLinkedQueue<>();
+        LocalDate date = drive(clock, () -> new Runnable() {
+            private LocalDate last = START;
+
+            @Override
+            public void run() {
+                CurrentDay day = app.getCurrentDay();
+                String failure = check(day);
+                if (failure != null) {
+                    failures.add(failure);
+                }
+                if (day.getDate().isBefore(last)) {
+                    failures.add("went back from " + last + " to "
+                            + day.getDate());
+                }
+                last = day.getDate();
+                // The single getters must not expose mutable state.
+                try {
+                    app.getCurrentMonthMatrix()
+                            .get(PlethonianWeekName.FIRST).clear();
+                    failures.add("writable month matrix");
+                } catch (UnsupportedOperationException ex) {
+                    // Expected.
+                }
+            }
+        });
+
+        assertTrue(failures.isEmpty(), () -> failures.size()
+                + " inconsistent reads, first: " + failures.peek());
+        CurrentDay last = app.getCurrentDay();
+        assertEquals(date, last.getDate());
+        assertNull(check(last));
+        assertEquals(1, metrics.counter(PlethonianCalendarApp.ROLLOVERS, "",
+                REASON, "initial").get());
+        assertEquals(DAYS, metrics.counter(PlethonianCalendarApp.ROLLOVERS,
+                "", REASON, "day").get());
+    }
+
+    /**
+     * Test the single getters read by concurrent threads across the day,
+     * month and year rollovers, as the page does.
+     */
+    @Test
+    public void testSingleGetters() throws InterruptedException {
+        TestClock clock = new TestClock(START);
+        PlethonianCalendarApp app = new PlethonianCalendarApp(provider,
+                new MetricsRegistry(), clock);
+        ConcurrentLinkedQueue<String> failures = new ConcurrentLinkedQueue<>();
+        AtomicLong monthChanges = new AtomicLong();
+        AtomicLong yearChanges = new AtomicLong();
+        LocalDate date = drive(clock, () -> new Runnable() {
+            private LocalDate last = START;
+            private PlethonianMonth lastMonth;
+            private PlethonianYear lastYear;
+
+            @Override
+            public void run() {
+                PlethonianDay from = app.getToday();
+                PlethonianMonth month = app.getCurrentMonth();
+                SortedMap<PlethonianWeekName, SortedSet<PlethonianDay>>
+                        matrix = app.getCurrentMonthMatrix();
+                PlethonianYear year = app.getCurrentYear();
+                PlethonianDay to = app.getToday();
+                String failure = check(from, month, matrix, year, to);
+                if (failure != null) {
+                    failures.add(failure);
+                }
+                if (from.getGregorianDate().isBefore(last)) {
+                    failures.add("went back from " + last + " to "
+                            + from.getGregorianDate());
+                }
+                last = to.getGregorianDate();
+                if (lastMonth != null && !lastMonth.equals(month)) {
+                    monthChanges.incrementAndGet();
+                }
+                if (lastYear != null && !lastYear.equals(year)) {
+                    yearChanges.incrementAndGet();
+                }
+                lastMonth = month;
+                lastYear = year;
+            }
+        });
+
+        assertTrue(failures.isEmpty(), () -> failures.size()
+                + " inconsistent reads, first: " + failures.peek());
+        assertEquals(date, app.getToday().getGregorianDate());
+        // Every reader saw the month and the year change at least once.
+        assertTrue(monthChanges.get() >= READERS);
+        assertTrue(yearChanges.get() >= READERS);
+    }
+}
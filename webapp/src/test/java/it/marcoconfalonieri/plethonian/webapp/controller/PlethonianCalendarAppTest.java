@@ -0,0 +1,122 @@
+/*
+ *     plethonian-webapp - Plethonian calendar Web Application
+ *
+ *     Copyright (C) 2020 Marco Confalonieri <marco at marcoconfalonieri.it>
+ *
+ *     This program is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU Affero General Public License as published
+ *     by the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     This program is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU Affero General Public License for more details.
+ *
+ *     You should have received a copy of the GNU Affero General Public License
+ *     along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package it.marcoconfalonieri.plethonian.webapp.controller;
+
+import it.marcoconfalonieri.plethonian.webapp.metrics.MetricsRegistry;
+import java.time.Clock;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.Month;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+
+import static org.junit.jupiter.api.Assertions.*;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests of the clock and of the as-of date mode of the application bean.
+ */
+public class PlethonianCalendarAppTest {
+    private static final LocalDate TODAY = LocalDate.of(2021, Month.MARCH, 15);
+
+    private static final String[] REASON = {"reason"};
+
+    private static CalendarProvider provider;
+
+    @BeforeAll
+    public static void setUp() {
+        provider = new CalendarProvider();
+        provider.start();
+        provider.getFuture().join();
+    }
+
+    @AfterAll
+    public static void tearDown() {
+        provider.shutdown();
+    }
+
+    private static Clock fixed(LocalDate date) {
+        return Clock.fixed(date.atStartOfDay().toInstant(ZoneOffset.UTC),
+                ZoneOffset.UTC);
+    }
+
+    @Test
+    public void testAsOf() {
+        MetricsRegistry metrics = new MetricsRegistry();
+        PlethonianCalendarApp app = new PlethonianCalendarApp(provider,
+                metrics, fixed(TODAY));
+        assertEquals(TODAY, app.getToday().getGregorianDate());
+        assertFalse(app.isAsOf());
+
+        LocalDate other = LocalDate.of(2030, Month.AUGUST, 1);
+        try (PlethonianCalendarApp.AsOf scope = app.asOf(other)) {
+            assertTrue(app.isAsOf());
+            CurrentDay day = app.getCurrentDay();
+            assertEquals(other, day.getDate());
+            assertEquals(other, app.getToday().getGregorianDate());
+            assertTrue(app.getCurrentMonth().getDays().contains(
+                    day.getToday()));
+            try (PlethonianCalendarApp.AsOf nested = app.asOf(TODAY)) {
+                assertEquals(TODAY, app.getToday().getGregorianDate());
+            }
+            assertEquals(other, app.getToday().getGregorianDate());
+        }
+        assertFalse(app.isAsOf());
+        assertEquals(TODAY, app.getToday().getGregorianDate());
+        assertEquals(0, metrics.counter(PlethonianCalendarApp.ROLLOVERS, "",
+                REASON, "day").get());
+        assertThrows(IllegalArgumentException.class,
+                () -> app.asOf(LocalDate.of(1900, Month.JANUARY, 1)));
+    }
+
+    @Test
+    public void testCachedClock() {
+        Instant start = TODAY.atStartOfDay().toInstant(ZoneOffset.UTC);
+        Instant[] now = {start};
+        Clock source = new Clock() {
+            @Override
+            public ZoneId getZone() {
+                return ZoneOffset.UTC;
+            }
+
+            @Override
+            public Clock withZone(ZoneId zone) {
+                throw new UnsupportedOperationException();
+            }
+
+            @Override
+            public Instant instant() {
+                return now[0];
+            }
+        };
+        try (CachedClock clock = new CachedClock(source)) {
+            now[0] = start.plusSeconds(86400);
+            assertEquals(start, clock.instant());
+            assertEquals(TODAY, LocalDate.now(clock));
+            clock.tick();
+            assertEquals(TODAY.plusDays(1), LocalDate.now(clock));
+            Clock tokyo = clock.withZone(ZoneId.of("Asia/Tokyo"));
+            assertEquals(clock.instant(), tokyo.instant());
+            assertEquals(ZoneId.of("Asia/Tokyo"), tokyo.getZone());
+        }
+    }
+}
@@ -0,0 +1,47 @@
+/*
+ *     plethonian-webapp - Plethonian calendar Web Application
+ *
+ *     Copyright (C) 2020 Marco Confalonieri <marco at marcoconfalonieri.it>
+ *
+ *     This program is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU Affero General Public License as published
+ *     by the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     This program is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU Affero General Public License for more details.
+ *
+ *     You should have received a copy of the GNU Affero General Public License
+ *     along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package it.marcoconfalonieri.plethonian.webapp.ics;
+
+import static org.junit.jupiter.api.Assertions.*;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Test of the iCalendar servlet.
+ */
+public class IcsServletTest {
+
+    /**
+     * Test that the ranges of years are checked without overflow.
+     */
+    @Test
+    public void testRange() {
+        assertTrue(IcsServlet.isValidRange(2021, 2021));
+        assertTrue(IcsServlet.isValidRange(2020, 2020 + IcsServlet.MAX_YEARS
+                - 1));
+        assertFalse(IcsServlet.isValidRange(2020, 2020
+                + IcsServlet.MAX_YEARS));
+        assertFalse(IcsServlet.isValidRange(2022, 2021));
+        assertFalse(IcsServlet.isValidRange(Integer.MIN_VALUE,
+                Integer.MAX_VALUE));
+        assertFalse(IcsServlet.isValidRange(-2, Integer.MAX_VALUE));
+        assertFalse(IcsServlet.isValidRange(Integer.MAX_VALUE,
+                Integer.MIN_VALUE));
+    }
+}
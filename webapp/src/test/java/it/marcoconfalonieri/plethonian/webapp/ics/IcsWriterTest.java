@@ -0,0 +1,201 @@
+/*
+ *     plethonian-webapp - Plethonian calendar Web Application
+ *
+ *     Copyright (C) 2020 Marco Confalonieri <marco at marcoconfalonieri.it>
+ *
+ *     This program is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU Affero General Public License as published
+ *     by the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     This program is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU Affero General Public License for more details.
+ *
+ *     You should have received a copy of the GNU Affero General Public License
+ *     along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+
+package it.marcoconfalonieri.plethonian.webapp.ics;
+
+import it.marcoconfalonieri.plethonian.calendar.MonthlyFestivity;
+import it.marcoconfalonieri.plethonian.calendar.PlethonianDay;
+import it.marcoconfalonieri.plethonian.calendar.PlethonianMonth;
+import it.marcoconfalonieri.plethonian.calendar.PlethonianYear;
+import it.marcoconfalonieri.plethonian.calendar.astropixel.PlethonianCalendarImpl;
+import it.marcoconfalonieri.plethonian.calendar.snapshot.DayTable;
+import it.marcoconfalonieri.plethonian.webapp.view.MonthViewCache;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.StringWriter;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.util.Locale;
+import java.util.ResourceBundle;
+import java.util.zip.GZIPInputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Test of the iCalendar feeds.
+ */
+public class IcsWriterTest {
+    private static final Instant STAMP = Instant.parse("2021-03-15T10:20:30Z");
+
+    private static PlethonianCalendarImpl calendar;
+    private static DayTable table;
+
+    @BeforeAll
+    public static void setUp() throws IOException {
+        calendar = new PlethonianCalendarImpl();
+        table = DayTable.build(calendar);
+    }
+
+    private static String write(Locale locale, LocalDate from, LocalDate to)
+            throws IOException {
+        StringWriter out = new StringWriter();
+        new IcsWriter(out, ResourceBundle.getBundle(
+                MonthViewCache.BUNDLE_BASE_NAME, locale),
+                locale.getLanguage(), STAMP).write(table, from, to);
+        return out.toString();
+    }
+
+    private static int count(String text, String part) {
+        int n = 0;
+        for (int i = text.indexOf(part); i >= 0;
+                i = text.indexOf(part, i + 1)) {
+            n++;
+        }
+        return n;
+    }
+
+    /**
+     * Test that the feed has an event for every new month, festivity and day
+     * of the defunct in the range.
+     */
+    @Test
+    public void testEvents() throws IOException {
+        LocalDate from = LocalDate.of(2021, 1, 1);
+        LocalDate to = LocalDate.of(2021, 12, 31);
+        int months = 0;
+        int festivities = 0;
+        int defunct = 0;
+        for (PlethonianYear year : calendar.getYears()) {
+            for (PlethonianMonth month : year.getMonths()) {
+                for (PlethonianDay day : month.getDays()) {
+                    LocalDate d = day.getGregorianDate();
+                    if (d.isBefore(from) || d.isAfter(to)) {
+                        continue;
+                    }
+                    int rec = table.get(d);
+                    if (DayTable.dayOfMonth(rec) == 1) {
+                        months++;
+                    } else if (day.getMonthFestivity() != null) {
+                        festivities++;
+                    }
+                    if (day.isDefunctDay()) {
+                        defunct++;
+                    }
+                }
+            }
+        }
+        String ics = write(Locale.ENGLISH, from, to);
+        assertTrue(ics.startsWith("BEGIN:VCALENDAR\r\nVERSION:2.0\r\n"));
+        assertTrue(ics.endsWith("END:VCALENDAR\r\n"));
+        assertEquals(months, count(ics, "-month-en@"));
+        assertEquals(festivities, count(ics, "-festivity-en@"));
+        assertEquals(defunct, count(ics, "-defunct-en@"));
+        assertEquals(months + festivities + defunct,
+                count(ics, "BEGIN:VEVENT\r\n"));
+        assertTrue(ics.contains("\r\nSUMMARY:Dedicated to Pluto\\, to the "
+                + "heroes and to the deceased\r\n"));
+        assertEquals(count(ics, "BEGIN:VEVENT\r\n"),
+                count(ics, "\r\nDTSTAMP:20210315T102030Z\r\n"));
+    }
+
+    /**
+     * Test that the summaries are the strings of the page, in every locale.
+     */
+    @Test
+    public void testSummaries() throws IOException {
+        LocalDate from = LocalDate.of(2021, 1, 1);
+        LocalDate to = LocalDate.of(2021, 12, 31);
+        for (String lang : new String[] {"la", "it", "en", "lij"}) {
+            Locale locale = Locale.forLanguageTag(lang);
+            ResourceBundle msg = ResourceBundle.getBundle(
+                    MonthViewCache.BUNDLE_BASE_NAME, locale);
+            String ics = write(locale, from, to).replace("\r\n ", "");
+            for (MonthlyFestivity f : MonthlyFestivity.values()) {
+                String text = IcsWriter.escape(
+                        msg.getString("holiday.day." + f.getDay()));
+                String property = (f.getDay() == 1) ? "DESCRIPTION:" :
+                        "SUMMARY:";
+                assertTrue(ics.contains("\r\n" + property + text + "\r\n"),
+                        lang + " " + f);
+            }
+            assertTrue(ics.contains("\r\nSUMMARY:" + IcsWriter.escape(
+                    msg.getString("holiday.defunct")) + "\r\n"), lang);
+        }
+    }
+
+    /**
+     * Test that the lines are folded at 75 octets.
+     */
+    @Test
+    public void testFold() throws IOException {
+        String line = "SUMMARY:" + "ç".repeat(40);
+        String folded = IcsWriter.fold(line);
+        assertEquals(line, folded.replace("\r\n ", "").strip());
+        for (String l : folded.split("\r\n")) {
+            assertTrue(l.getBytes(StandardCharsets.UTF_8).length <= 75);
+        }
+        String ics = write(Locale.forLanguageTag("lij"),
+                LocalDate.of(2021, 1, 1), LocalDate.of(2022, 12, 31));
+        for (String l : ics.split("\r\n")) {
+            assertTrue(l.getBytes(StandardCharsets.UTF_8).length <= 75, l);
+        }
+    }
+
+    /**
+     * Test that both bodies of the feed hold the same events.
+     */
+    @Test
+    public void testGenerate() throws IOException {
+        IcsFeed feed = IcsFeedCache.generate(table, Locale.ITALIAN, 2021,
+                2022, STAMP);
+        String ics;
+        try (InputStream in = new GZIPInputStream(
+                new ByteArrayInputStream(feed.getGzipBody()))) {
+            ics = new String(in.readAllBytes(), StandardCharsets.UTF_8);
+        }
+        assertEquals(write(Locale.ITALIAN, LocalDate.of(2021, 1, 1),
+                LocalDate.of(2022, 12, 31)), ics);
+        assertEquals(ics, new String(feed.getBody(), StandardCharsets.UTF_8));
+        assertEquals(feed.getEtag(false), IcsFeedCache.generate(table,
+                Locale.ITALIAN, 2021, 2022, STAMP).getEtag(false));
+        assertTrue(feed.matches(feed.getEtag(true)));
+        assertTrue(feed.matches("W/" + feed.getEtag(false)));
+        assertFalse(feed.matches("\"x\""));
+    }
+
+    /**
+     * Test that the time stamp depends only on the version of the data.
+     */
+    @Test
+    public void testStampOf() throws IOException {
+        String version = PlethonianCalendarImpl.computeDataChecksum();
+        Instant stamp = IcsFeedCache.stampOf(version);
+        assertEquals(stamp, IcsFeedCache.stampOf(version));
+        assertEquals(2020, stamp.atZone(ZoneOffset.UTC).getYear());
+        assertNotEquals(stamp, IcsFeedCache.stampOf("0123abcd" +
+                version.substring(8)));
+        assertEquals(IcsFeedCache.stampOf(null), IcsFeedCache.stampOf("x"));
+    }
+}
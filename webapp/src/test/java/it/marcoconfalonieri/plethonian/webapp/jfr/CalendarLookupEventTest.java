@@ -0,0 +1,71 @@
+/*
+ *     plethonian-webapp - Plethonian calendar Web Application
+ *
+ *     Copyright (C) 2020 Marco Confalonieri <marco at marcoconfalonieri.it>
+ *
+ *     This program is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU Affero General Public License as published
+ *     by the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     This program is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU Affero General Public License for more details.
+ *
+ *     You should have received a copy of the GNU Affero General Public License
+ *     along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package it.marcoconfalonieri.plethonian.webapp.jfr;
+
+import it.marcoconfalonieri.plethonian.calendar.PlethonianCalendar;
+import it.marcoconfalonieri.plethonian.calendar.astropixel.PlethonianCalendarImpl;
+import it.marcoconfalonieri.plethonian.webapp.metrics.InstrumentedCalendar;
+import it.marcoconfalonieri.plethonian.webapp.metrics.MetricsRegistry;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.stream.Collectors;
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+
+import static org.junit.jupiter.api.Assertions.*;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * Test of the flight recorder events.
+ */
+public class CalendarLookupEventTest {
+
+    /**
+     * Test that the lookups are recorded only when the event is enabled.
+     */
+    @Test
+    public void testLookupEvents(@TempDir Path dir) throws IOException {
+        PlethonianCalendar calendar = new InstrumentedCalendar(
+                new PlethonianCalendarImpl(), new MetricsRegistry());
+        LocalDate date = LocalDate.of(2003, 3, 3);
+        Path file = dir.resolve("test.jfr");
+        try (Recording recording = new Recording()) {
+            recording.start();
+            calendar.getDay(date);
+            recording.enable(CalendarLookupEvent.class)
+                    .withThreshold(Duration.ZERO);
+            calendar.getMonth(date);
+            recording.stop();
+            recording.dump(file);
+        }
+        List<RecordedEvent> events = RecordingFile.readAllEvents(file).stream()
+                .filter(e -> e.getEventType().getName().equals(
+                        "it.marcoconfalonieri.plethonian.CalendarLookup"))
+                .collect(Collectors.toList());
+        assertEquals(1, events.size());
+        assertEquals("month", events.get(0).getString("kind"));
+        assertEquals("2003-03-03", events.get(0).getString("date"));
+    }
+}
@@ -0,0 +1,129 @@
+/*
+ *     plethonian-webapp - Plethonian calendar Web Application
+ *
+ *     Copyright (C) 2020 Marco Confalonieri <marco at marcoconfalonieri.it>
+ *
+ *     This program is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU Affero General Public License as published
+ *     by the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     This program is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU Affero General Public License for more details.
+ *
+ *     You should have received a copy of the GNU Affero General Public License
+ *     along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package it.marcoconfalonieri.plethonian.webapp.metrics;
+
+import it.marcoconfalonieri.plethonian.calendar.PlethonianCalendar;
+import it.marcoconfalonieri.plethonian.calendar.astropixel.PlethonianCalendarImpl;
+import java.io.IOException;
+import java.io.StringWriter;
+import java.time.LocalDate;
+import jdk.jfr.FlightRecorder;
+
+import static org.junit.jupiter.api.Assertions.*;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Test of MetricsRegistry class.
+ */
+public class MetricsRegistryTest {
+
+    private static String format(MetricsRegistry registry) throws IOException {
+        StringWriter out = new StringWriter();
+        registry.writePrometheus(out);
+        return out.toString();
+    }
+
+    /**
+     * Test of the counters and of the label escaping.
+     */
+    @Test
+    public void testCounter() throws IOException {
+        MetricsRegistry registry = new MetricsRegistry();
+        registry.counter("a_total", "A counter").add(3);
+        String[] labels = {"lang"};
+        registry.counter("b_total", "B counter", labels, "it").inc();
+        registry.counter("b_total", "B counter", labels, "it").inc();
+        registry.counter("b_total", "B counter", labels, "x\"y").inc();
+        assertEquals("# HELP a_total A counter\n" +
+                "# TYPE a_total counter\n" +
+                "a_total 3\n" +
+                "# HELP b_total B counter\n" +
+                "# TYPE b_total counter\n" +
+                "b_total{lang=\"it\"} 2\n" +
+                "b_total{lang=\"x\\\"y\"} 1\n", format(registry));
+    }
+
+    /**
+     * Test of the histograms.
+     */
+    @Test
+    public void testHistogram() throws IOException {
+        MetricsRegistry registry = new MetricsRegistry();
+        Histogram h = registry.histogram("t_seconds", "Time",
+                new long[] {1_000_000, 1_000_000_000}, new String[] {"k"},
+                "v");
+        h.observe(500_000);
+        h.observe(1_000_000);
+        h.observe(2_000_000);
+        h.observe(5_000_000_000L);
+        assertEquals("# HELP t_seconds Time\n" +
+                "# TYPE t_seconds histogram\n" +
+                "t_seconds_bucket{k=\"v\",le=\"0.001\"} 2\n" +
+                "t_seconds_bucket{k=\"v\",le=\"1.0\"} 3\n" +
+                "t_seconds_bucket{k=\"v\",le=\"+Inf\"} 4\n" +
+                "t_seconds_sum{k=\"v\"} 5.0035\n" +
+                "t_seconds_count{k=\"v\"} 4\n", format(registry));
+    }
+
+    /**
+     * Test that a name cannot be reused with a different type or labels.
+     */
+    @Test
+    public void testConflict() {
+        MetricsRegistry registry = new MetricsRegistry();
+        registry.counter("c_total", "C");
+        assertThrows(IllegalArgumentException.class, () ->
+                registry.histogram("c_total", "C", Histogram.LOOKUP_BUCKETS));
+        assertThrows(IllegalArgumentException.class, () ->
+                registry.counter("c_total", "C", new String[] {"x"}, "y"));
+    }
+
+    /**
+     * Test that the instrumented calendar counts every lookup and times a
+     * sample of them, or all of them once the flight recorder has been
+     * started by another test.
+     */
+    @Test
+    public void testInstrumentedCalendar() throws IOException {
+        MetricsRegistry registry = new MetricsRegistry();
+        PlethonianCalendar calendar = new InstrumentedCalendar(
+                new PlethonianCalendarImpl(), registry);
+        int n = 100 * InstrumentedCalendar.SAMPLE_RATE;
+        LocalDate date = LocalDate.of(2020, 1, 1);
+        for (int i = 0; i < n; i++) {
+            calendar.getDay(date.plusDays(i));
+        }
+        assertThrows(IllegalArgumentException.class, () ->
+                calendar.getDay(LocalDate.of(1900, 1, 1)));
+        String[] kind = {"kind"};
+        assertEquals(n + 1, registry.counter(InstrumentedCalendar.LOOKUPS,
+                "", kind, "day").get());
+        assertEquals(1, registry.counter(InstrumentedCalendar.LOOKUP_ERRORS,
+                "").get());
+        long[] counts = registry.histogram(InstrumentedCalendar.LOOKUP_SECONDS,
+                "", Histogram.LOOKUP_BUCKETS, kind, "day")
+                .getCumulativeCounts();
+        long timed = counts[counts.length - 1];
+        assertTrue(timed > 0 && timed <= n + 1, "Timed lookups: " + timed);
+        if (!FlightRecorder.isInitialized()) {
+            assertTrue(timed < n, "Timed lookups: " + timed);
+        }
+    }
+}
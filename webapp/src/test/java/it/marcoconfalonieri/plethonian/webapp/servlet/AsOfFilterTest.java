@@ -0,0 +1,212 @@
+/*
+ *     plethonian-webapp - Plethonian calendar Web Application
+ *
+ *     Copyright (C) 2020 Marco Confalonieri <marco at marcoconfalonieri.it>
+ *
+ *     This program is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU Affero General Public License as published
+ *     by the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     This program is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU Affero General Public License for more details.
+ *
+ *     You should have received a copy of the GNU Affero General Public License
+ *     along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package it.marcoconfalonieri.plethonian.webapp.servlet;
+
+import it.marcoconfalonieri.plethonian.webapp.controller.CalendarProvider;
+import it.marcoconfalonieri.plethonian.webapp.controller.PlethonianCalendarApp;
+import it.marcoconfalonieri.plethonian.webapp.metrics.MetricsRegistry;
+import java.io.IOException;
+import java.lang.reflect.Proxy;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.security.Principal;
+import java.time.Clock;
+import java.time.LocalDate;
+import java.time.Month;
+import java.time.ZoneOffset;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import static org.junit.jupiter.api.Assertions.*;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests of the as-of date filter, with the authentication of the container
+ * replaced by stubs.
+ */
+public class AsOfFilterTest {
+    private static final LocalDate TODAY = LocalDate.of(2021, Month.MARCH, 15);
+
+    private static final LocalDate AS_OF = LocalDate.of(2030, Month.AUGUST, 1);
+
+    private static final String ROLE = "admin";
+
+    private static CalendarProvider provider;
+
+    private static PlethonianCalendarApp app;
+
+    /**
+     * State of a stub exchange.
+     */
+    private static final class Exchange {
+        final Map<String, String> params = new HashMap<>();
+        final Map<String, String> headers = new HashMap<>();
+        Principal user;
+        Set<String> roles = Set.of();
+        Principal credentials;
+        boolean challenged;
+        int status = HttpServletResponse.SC_OK;
+        boolean chained;
+        LocalDate renderedFor;
+
+        HttpServletRequest request() {
+            return (HttpServletRequest) Proxy.newProxyInstance(
+                    getClass().getClassLoader(),
+                    new Class<?>[] {HttpServletRequest.class},
+                    (proxy, method, args) -> {
+                switch (method.getName()) {
+                    case "getParameter":
+                        return params.get((String) args[0]);
+                    case "getUserPrincipal":
+                        return user;
+                    case "isUserInRole":
+                        return user != null && roles.contains(args[0]);
+                    case "authenticate":
+                        if (credentials == null) {
+                            challenged = true;
+                            status = HttpServletResponse.SC_UNAUTHORIZED;
+                            return false;
+                        }
+                        user = credentials;
+                        return true;
+                    default:
+                        throw new UnsupportedOperationException(
+                                method.getName());
+                }
+            });
+        }
+
+        HttpServletResponse response() {
+            return (HttpServletResponse) Proxy.newProxyInstance(
+                    getClass().getClassLoader(),
+                    new Class<?>[] {HttpServletResponse.class},
+                    (proxy, method, args) -> {
+                switch (method.getName()) {
+                    case "setHeader":
+                        headers.put((String) args[0], (String) args[1]);
+                        return null;
+                    case "sendError":
+                        status = (Integer) args[0];
+                        return null;
+                    default:
+                        throw new UnsupportedOperationException(
+                                method.getName());
+                }
+            });
+        }
+
+        void run(String asOf) throws IOException, ServletException {
+            if (asOf != null) {
+                params.put(AsOfFilter.AS_OF_PARAM, asOf);
+            }
+            FilterChain chain = (request, response) -> {
+                chained = true;
+                renderedFor = app.getToday().getGregorianDate();
+            };
+            new AsOfFilter(app, ROLE).doFilter(request(), response(), chain);
+        }
+    }
+
+    @BeforeAll
+    public static void setUp() {
+        provider = new CalendarProvider();
+        provider.start();
+        provider.getFuture().join();
+        app = new PlethonianCalendarApp(provider, new MetricsRegistry(),
+                Clock.fixed(TODAY.atStartOfDay().toInstant(ZoneOffset.UTC),
+                        ZoneOffset.UTC));
+    }
+
+    @AfterAll
+    public static void tearDown() {
+        provider.shutdown();
+    }
+
+    @Test
+    public void testAdministrator() throws Exception {
+        Exchange exchange = new Exchange();
+        exchange.credentials = () -> "admin";
+        exchange.roles = Set.of(ROLE);
+        exchange.run(AS_OF.toString());
+        assertTrue(exchange.chained);
+        assertEquals(AS_OF, exchange.renderedFor);
+        assertEquals(AS_OF.toString(), exchange.headers.get("X-As-Of"));
+        assertEquals("private, no-store",
+                exchange.headers.get("Cache-Control"));
+        assertFalse(app.isAsOf());
+    }
+
+    @Test
+    public void testAnonymous() throws Exception {
+        Exchange exchange = new Exchange();
+        exchange.run(AS_OF.toString());
+        assertTrue(exchange.challenged);
+        assertFalse(exchange.chained);
+        assertEquals(HttpServletResponse.SC_UNAUTHORIZED, exchange.status);
+
+        exchange = new Exchange();
+        exchange.run(null);
+        assertFalse(exchange.challenged);
+        assertEquals(TODAY, exchange.renderedFor);
+    }
+
+    @Test
+    public void testOtherUser() throws Exception {
+        Exchange exchange = new Exchange();
+        exchange.credentials = () -> "user";
+        exchange.run(AS_OF.toString());
+        assertFalse(exchange.challenged);
+        assertTrue(exchange.chained);
+        assertEquals(TODAY, exchange.renderedFor);
+        assertFalse(exchange.headers.containsKey("X-As-Of"));
+    }
+
+    @Test
+    public void testInvalidDate() throws Exception {
+        Exchange exchange = new Exchange();
+        exchange.user = () -> "admin";
+        exchange.roles = Set.of(ROLE);
+        exchange.run("2030-13-01");
+        assertFalse(exchange.chained);
+        assertEquals(HttpServletResponse.SC_BAD_REQUEST, exchange.status);
+
+        exchange = new Exchange();
+        exchange.user = () -> "admin";
+        exchange.roles = Set.of(ROLE);
+        exchange.run("1900-01-01");
+        assertFalse(exchange.chained);
+        assertEquals(HttpServletResponse.SC_NOT_FOUND, exchange.status);
+    }
+
+    @Test
+    public void testDescriptor() throws IOException {
+        String webXml = Files.readString(
+                Paths.get("src/main/webapp/WEB-INF/web.xml"));
+        assertTrue(webXml.contains("<auth-method>BASIC</auth-method>"));
+        assertTrue(webXml.contains("<role-name>" + ROLE + "</role-name>"));
+    }
+}
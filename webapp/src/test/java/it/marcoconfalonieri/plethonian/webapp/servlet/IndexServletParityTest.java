@@ -0,0 +1,363 @@
+/*
+ *     plethonian-webapp - Plethonian calendar Web Application
+ *
+ *     Copyright (C) 2020 Marco Confalonieri <marco at marcoconfalonieri.it>
+ *
+ *     This program is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU Affero General Public License as published
+ *     by the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     This program is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU Affero General Public License for more details.
+ *
+ *     You should have received a copy of the GNU Affero General Public License
+ *     along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package it.marcoconfalonieri.plethonian.webapp.servlet;
+
+import it.marcoconfalonieri.plethonian.calendar.PlethonianCalendar;
+import it.marcoconfalonieri.plethonian.calendar.astropixel.PlethonianCalendarImpl;
+import it.marcoconfalonieri.plethonian.loadtest.EmbeddedServer;
+import it.marcoconfalonieri.plethonian.webapp.assets.AssetManifest;
+import it.marcoconfalonieri.plethonian.webapp.controller.MonthIndex;
+import it.marcoconfalonieri.plethonian.webapp.controller.PlethonianCalendarLang;
+import it.marcoconfalonieri.plethonian.webapp.view.MonthGridWriter;
+import it.marcoconfalonieri.plethonian.webapp.view.MonthView;
+import it.marcoconfalonieri.plethonian.webapp.view.MonthViewCache;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.StringWriter;
+import java.net.URI;
+import java.net.URLEncoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.time.LocalDate;
+import java.time.Month;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.ResourceBundle;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static org.junit.jupiter.api.Assertions.*;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Checks that the fast render path produces the same page as the JSF view.
+ * Both are requested from the application running on the embedded Tomcat of
+ * the load test harness, for every supported locale and the sample dates.
+ */
+public class IndexServletParityTest {
+    private static final String WEBAPP = "src/main/webapp";
+    private static final String CLASSES = "target/classes";
+    private static final long READY_TIMEOUT = 120;
+
+    private static final LocalDate[] SAMPLE_DATES = {
+        LocalDate.of(2002, Month.JUNE, 1),
+        LocalDate.of(2003, Month.MARCH, 3),
+        LocalDate.of(2020, Month.DECEMBER, 20),
+        LocalDate.of(2024, Month.FEBRUARY, 29),
+        LocalDate.of(2050, Month.JULY, 14),
+        LocalDate.of(2098, Month.JUNE, 30)
+    };
+
+    /**
+     * Language links of the JSF view: image and alternative text.
+     */
+    private static final Pattern JSF_LINK = Pattern.compile(
+            "<a href=\"#\"[^>]*><img src=\"([^\"]*)\" alt=\"([^\"]*)\"");
+    /**
+     * Language links of the fast render path: language, image and
+     * alternative text.
+     */
+    private static final Pattern LINK = Pattern.compile(
+            "<a href=\"\\?lang=(\\w+)\"><img src=\"([^\"]*)\" "
+            + "alt=\"([^\"]*)\"");
+
+    /**
+     * Language form of the JSF view: identifier and action.
+     */
+    private static final Pattern FORM = Pattern.compile(
+            "<form id=\"([^\"]+)\"[^>]* action=\"([^\"]+)\"");
+    /**
+     * Identifiers of the command links of the language form.
+     */
+    private static final Pattern COMMAND_LINK = Pattern.compile(
+            "\\{'([^']+)':'\\1'\\}");
+    /**
+     * View state of the language form.
+     */
+    private static final Pattern VIEW_STATE = Pattern.compile(
+            "name=\"javax.faces.ViewState\"[^>]* value=\"([^\"]+)\"");
+
+    private static PlethonianCalendar calendar;
+    private static MonthIndex index;
+    private static LocaleConfig locales;
+    private static String source;
+    private static EmbeddedServer server;
+    private static HttpClient client;
+
+    @BeforeAll
+    public static void setUp() throws Exception {
+        calendar = new PlethonianCalendarImpl();
+        index = MonthIndex.build(calendar);
+        locales = LocaleConfig.read(new FileInputStream(
+                WEBAPP + LocaleConfig.FACES_CONFIG));
+        source = Files.readString(
+                Paths.get(WEBAPP, "WEB-INF/templates/index.html"));
+        server = new EmbeddedServer(Paths.get(WEBAPP), Paths.get(CLASSES));
+        client = HttpClient.newHttpClient();
+        awaitReady();
+    }
+
+    @AfterAll
+    public static void tearDown() throws Exception {
+        if (server != null) {
+            server.close();
+        }
+    }
+
+    /**
+     * Waits for the readiness endpoint to report the application ready.
+     */
+    private static void awaitReady() throws IOException, InterruptedException {
+        HttpRequest req = HttpRequest.newBuilder(
+                URI.create(server.getBaseUri() + "/ready")).build();
+        long deadline = System.nanoTime() +
+                TimeUnit.SECONDS.toNanos(READY_TIMEOUT);
+        while (System.nanoTime() < deadline) {
+            if (client.send(req, HttpResponse.BodyHandlers.discarding())
+                    .statusCode() == 200) {
+                return;
+            }
+            Thread.sleep(200);
+        }
+        fail("The application is not ready");
+    }
+
+    /**
+     * Requests a page in a language.
+     *
+     * @param path the path of the page, with the query string
+     * @param locale the language
+     *
+     * @return the body of the page
+     */
+    private static String get(String path, Locale locale)
+            throws IOException, InterruptedException {
+        HttpResponse<String> resp = client.send(HttpRequest.newBuilder(
+                URI.create(server.getBaseUri() + path))
+                .header("Cookie", PlethonianCalendarLang.LANG_COOKIE + "="
+                        + locale.getLanguage())
+                .build(), HttpResponse.BodyHandlers.ofString(
+                        StandardCharsets.UTF_8));
+        assertEquals(200, resp.statusCode(), path + " in " + locale);
+        return resp.body();
+    }
+
+    /**
+     * Normalizes a page, leaving out the XML declaration, the comments, the
+     * language links and the differences in the white space.
+     */
+    private static String normalize(String page) {
+        return page.replaceFirst("<\\?xml[^>]*\\?>", "")
+                .replaceAll("(?s)<!--.*?-->", "")
+                .replaceFirst("(?s)<div class=\"center\">.*?</div>",
+                        "<div class=\"center\">{{languages}}</div>")
+                .replaceAll("\\s+", " ")
+                .replaceAll("> <", "><")
+                .replaceAll("\" ?/>", "\" />")
+                .strip();
+    }
+
+    /**
+     * Lists the groups of the matches of a pattern, each match on a line.
+     */
+    private static List<String> matches(Pattern pattern, String page) {
+        List<String> links = new ArrayList<>();
+        Matcher m = pattern.matcher(page);
+        while (m.find()) {
+            StringBuilder sb = new StringBuilder();
+            for (int i = 1; i <= m.groupCount(); i++) {
+                sb.append(m.group(i)).append(' ');
+            }
+            links.add(sb.toString().strip());
+        }
+        return links;
+    }
+
+    private static String renderGrid(MonthView view, LocalDate today)
+            throws IOException {
+        StringWriter sw = new StringWriter();
+        MonthGridWriter.write(sw, view, today);
+        return sw.toString();
+    }
+
+    /**
+     * Asserts that the JSF view and the fast render path produce the same
+     * page.
+     *
+     * @param query the query string, empty or starting with "?"
+     * @param locale the language
+     */
+    private static void assertParity(String query, Locale locale)
+            throws IOException, InterruptedException {
+        String jsf = get(WarmUp.VIEW_PATH + query, locale);
+        String page = get("/" + query, locale);
+        assertEquals(normalize(jsf), normalize(page),
+                "Mismatch for " + locale + " " + query);
+        List<String> links = matches(LINK, page);
+        List<String> jsfLinks = matches(JSF_LINK, jsf);
+        assertEquals(locales.getSupportedLocales().size(), links.size());
+        assertEquals(links.size(), jsfLinks.size());
+        for (int i = 0; i < links.size(); i++) {
+            assertEquals(locales.getSupportedLocales().get(i).getLanguage()
+                    + " " + jsfLinks.get(i), links.get(i));
+        }
+        assertTrue(page.contains("<html lang=\"" + locale.getLanguage()
+                + "\""));
+    }
+
+    /**
+     * Test that the supported locales are read from faces-config.xml.
+     */
+    @Test
+    public void testLocaleConfig() {
+        assertEquals(new Locale("la"), locales.getDefaultLocale());
+        assertEquals(4, locales.getSupportedLocales().size());
+        assertEquals(new Locale("it"), locales.resolve("it", null));
+        assertEquals(new Locale("la"), locales.resolve("xx", null));
+    }
+
+    /**
+     * Test that the JSF view and the fast render path produce the same page
+     * for every locale, for the current month and the sample dates.
+     */
+    @Test
+    public void testParity() throws IOException, InterruptedException {
+        for (Locale locale : locales.getSupportedLocales()) {
+            assertParity("", locale);
+            for (LocalDate date : SAMPLE_DATES) {
+                assertParity("?date=" + date, locale);
+            }
+        }
+    }
+
+    /**
+     * Test that changing the language with the form of the JSF view stays on
+     * the requested month, although the form is posted without the query
+     * string.
+     */
+    @Test
+    public void testLanguagePostback()
+            throws IOException, InterruptedException {
+        String query = "?date=" + SAMPLE_DATES[1];
+        String jsf = get(WarmUp.VIEW_PATH + query, locales.getDefaultLocale());
+        Matcher form = FORM.matcher(jsf);
+        assertTrue(form.find());
+        assertFalse(form.group(2).contains("date="));
+        List<String> links = matches(COMMAND_LINK, jsf);
+        assertEquals(locales.getSupportedLocales().size(), links.size());
+        Matcher state = VIEW_STATE.matcher(jsf);
+        assertTrue(state.find());
+        int english = locales.getSupportedLocales().indexOf(Locale.ENGLISH);
+        String body = form.group(1) + "=" + form.group(1) + "&"
+                + URLEncoder.encode(links.get(english), StandardCharsets.UTF_8)
+                + "=" + URLEncoder.encode(links.get(english),
+                        StandardCharsets.UTF_8)
+                + "&javax.faces.ViewState=" + URLEncoder.encode(
+                        state.group(1), StandardCharsets.UTF_8);
+        HttpResponse<String> resp = client.send(HttpRequest.newBuilder(
+                URI.create(server.getBaseUri()).resolve(form.group(2)))
+                .header("Cookie", PlethonianCalendarLang.LANG_COOKIE + "="
+                        + locales.getDefaultLocale().getLanguage())
+                .header("Content-Type", "application/x-www-form-urlencoded")
+                .POST(HttpRequest.BodyPublishers.ofString(body))
+                .build(), HttpResponse.BodyHandlers.ofString(
+                        StandardCharsets.UTF_8));
+        assertEquals(200, resp.statusCode());
+        assertEquals(normalize(get("/" + query, Locale.ENGLISH)),
+                normalize(resp.body()));
+    }
+
+    /**
+     * Test that the messages and the fingerprinted assets are rendered in
+     * every locale.
+     */
+    @Test
+    public void testPlaceholders() throws IOException {
+        String css = "/resources/css/default.0123456789.css";
+        AssetManifest manifest = AssetManifest.read(new ByteArrayInputStream(
+                ("source./resources/css/default.css=" + css + "\n"
+                        + "variants." + css + "=identity:100\n")
+                        .getBytes(StandardCharsets.ISO_8859_1)));
+        LocalDate date = SAMPLE_DATES[0];
+        for (Locale locale : locales.getSupportedLocales()) {
+            ResourceBundle msg = ResourceBundle.getBundle(
+                    MonthViewCache.BUNDLE_BASE_NAME, locale);
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            IndexTemplate.compile(source, msg, locale, "/ctx", manifest)
+                    .render(out, MonthViewCache.createMonthView(
+                            calendar.getYear(date), calendar.getMonth(date),
+                            locale), date);
+            String page = out.toString(StandardCharsets.UTF_8);
+            assertTrue(page.contains("<title>" + msg.getString("title.head")
+                    + "</title>"));
+            assertTrue(page.contains("<h1>" + msg.getString("title.body")
+                    + "</h1>"));
+            assertTrue(page.contains(msg.getString("footer.info")));
+            assertTrue(page.contains("href=\"/ctx" + css + "\""));
+            assertTrue(page.contains("src=\"/ctx/resources/img/la.png\""));
+        }
+    }
+
+    /**
+     * Test that the language change keeps the other parameters.
+     */
+    @Test
+    public void testRemoveParam() {
+        assertNull(IndexServlet.removeParam(null, "lang"));
+        assertNull(IndexServlet.removeParam("lang=it", "lang"));
+        assertEquals("date=2024-01-01",
+                IndexServlet.removeParam("lang=it&date=2024-01-01", "lang"));
+        assertEquals("date=2024-01-01&x=%26",
+                IndexServlet.removeParam("date=2024-01-01&la%6Eg=it&x=%26",
+                        "lang"));
+    }
+
+    /**
+     * Test the navigation bar at the ends of the calendar.
+     */
+    @Test
+    public void testNavigation() throws IOException {
+        Locale locale = locales.getDefaultLocale();
+        String first = renderGrid(MonthViewCache.createMonthView(index, 0,
+                locale), null);
+        assertTrue(first.contains("<span class=\"nav-link disabled\">"));
+        assertTrue(first.contains("href=\"?date=" + index.getFirstDay(1)
+                + "\""));
+        assertTrue(first.contains("min=\"" + index.getFirstDate() + "\""));
+        assertTrue(first.contains("max=\"" + index.getLastDate() + "\""));
+        assertFalse(first.contains("today day-container"));
+
+        String middle = renderGrid(MonthViewCache.createMonthView(index,
+                index.size() / 2, locale), null);
+        assertFalse(middle.contains("disabled"));
+        assertTrue(middle.contains("href=\"?date="
+                + index.getFirstDay(index.size() / 2 - 1) + "\""));
+    }
+}
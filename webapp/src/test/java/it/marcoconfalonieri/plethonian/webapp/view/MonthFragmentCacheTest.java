@@ -0,0 +1,93 @@
+/*
+ *     plethonian-webapp - Plethonian calendar Web Application
+ *
+ *     Copyright (C) 2020 Marco Confalonieri <marco at marcoconfalonieri.it>
+ *
+ *     This program is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU Affero General Public License as published
+ *     by the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     This program is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU Affero General Public License for more details.
+ *
+ *     You should have received a copy of the GNU Affero General Public License
+ *     along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package it.marcoconfalonieri.plethonian.webapp.view;
+
+import it.marcoconfalonieri.plethonian.webapp.controller.CalendarProvider;
+import it.marcoconfalonieri.plethonian.webapp.controller.MonthIndex;
+import it.marcoconfalonieri.plethonian.webapp.controller.PlethonianCalendarApp;
+import it.marcoconfalonieri.plethonian.webapp.metrics.MetricsRegistry;
+import java.nio.charset.StandardCharsets;
+import java.time.Clock;
+import java.time.LocalDate;
+import java.time.Month;
+import java.time.ZoneOffset;
+import java.util.Locale;
+
+import static org.junit.jupiter.api.Assertions.*;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Test of MonthFragmentCache class.
+ */
+public class MonthFragmentCacheTest {
+    private static final LocalDate TODAY =
+            LocalDate.of(2020, Month.DECEMBER, 20);
+
+    private static CalendarProvider provider;
+
+    @BeforeAll
+    public static void setUp() {
+        provider = new CalendarProvider();
+        provider.start();
+        provider.getFuture().join();
+    }
+
+    @AfterAll
+    public static void tearDown() {
+        provider.shutdown();
+    }
+
+    /**
+     * Test that a grid rendered in the as-of date mode, which marks another
+     * day, does not replace the cached grid of the month.
+     */
+    @Test
+    public void testAsOf() {
+        PlethonianCalendarApp app = new PlethonianCalendarApp(provider,
+                new MetricsRegistry(), Clock.fixed(
+                        TODAY.atStartOfDay().toInstant(ZoneOffset.UTC),
+                        ZoneOffset.UTC));
+        MonthFragmentCache cache = new MonthFragmentCache(
+                new MonthViewCache(), app);
+        try {
+            MonthIndex index = app.getMonthIndex();
+            int month = index.indexOf(TODAY);
+            LocalDate other = TODAY.plusDays(1);
+            assertEquals(month, index.indexOf(other));
+
+            String grid = cache.getMarkup(index, month, Locale.ITALIAN,
+                    TODAY);
+            assertTrue(grid.contains("today day-container"));
+            String asOf;
+            try (PlethonianCalendarApp.AsOf scope = app.asOf(other)) {
+                asOf = cache.getMarkup(index, month, Locale.ITALIAN, other);
+            }
+            assertNotEquals(grid, asOf);
+            assertSame(grid, cache.getMarkup(index, month, Locale.ITALIAN,
+                    TODAY));
+            assertArrayEquals(grid.getBytes(StandardCharsets.UTF_8),
+                    cache.getGrid(index, month, Locale.ITALIAN, TODAY));
+        } finally {
+            cache.shutdown();
+        }
+    }
+}